@@ -22,8 +22,11 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheSerializer;
+import org.apache.ibatis.cache.decorators.ConcurrentLruCache;
 import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.serializer.JdkCacheSerializer;
 
 /**
  * The annotation that specify to use cache on namespace(e.g. mapper interface).
@@ -57,10 +60,13 @@ public @interface CacheNamespace {
 
   /**
    * Returns the cache evicting implementation type to use.
+   * <p>
+   * The default {@link ConcurrentLruCache} approximates LRU without taking a lock on reads. Set {@link LruCache} for
+   * exact LRU eviction.
    *
    * @return the cache evicting implementation type
    */
-  Class<? extends Cache> eviction() default LruCache.class;
+  Class<? extends Cache> eviction() default ConcurrentLruCache.class;
 
   /**
    * Returns the flush interval.
@@ -69,6 +75,30 @@ public @interface CacheNamespace {
    */
   long flushInterval() default 0;
 
+  /**
+   * Returns the time in milliseconds an entry lives after it was written.
+   *
+   * @return the time to live, {@code 0} means entries do not expire
+   * @since 3.5.4
+   */
+  long timeToLive() default 0;
+
+  /**
+   * Returns the time in milliseconds an entry lives after it was last read.
+   *
+   * @return the time to idle, {@code 0} means entries do not expire
+   * @since 3.5.4
+   */
+  long timeToIdle() default 0;
+
+  /**
+   * Returns the fraction of the time to live after which a read entry is reloaded.
+   *
+   * @return the refresh ahead ratio, {@code 0} means entries are not refreshed ahead
+   * @since 3.5.4
+   */
+  double refreshAhead() default 0;
+
   /**
    * Return the cache size.
    *
@@ -83,6 +113,14 @@ public @interface CacheNamespace {
    */
   boolean readWrite() default true;
 
+  /**
+   * Returns the serializer used to copy the values of a read/write cache.
+   *
+   * @return the cache serializer type
+   * @since 3.5.4
+   */
+  Class<? extends CacheSerializer> serializer() default JdkCacheSerializer.class;
+
   /**
    * Returns whether block the cache at request time or not.
    *
@@ -132,4 +132,16 @@ public @interface Options {
    * @return result set names that separate with comma(',')
    */
   String resultSets() default "";
+
+  /**
+   * Returns the cache tags (usually table names) that this statement reads or writes.
+   * <p>
+   * If you specify multiple tags, please separate using comma(','). When a statement that declares tags
+   * flushes the cache, only the cached results that depend on those tags are invalidated.
+   * </p>
+   *
+   * @return cache tags that separate with comma(',')
+   * @since 3.5.4
+   */
+  String cacheTags() default "";
 }
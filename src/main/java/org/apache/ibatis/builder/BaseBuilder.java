@@ -104,11 +104,26 @@ public abstract class BaseBuilder {
    * @param defaultValue
    * @return
    */
+  protected Long longValueOf(String value, Long defaultValue) {
+    return value == null ? defaultValue : Long.valueOf(value);
+  }
+
   protected Set<String> stringSetValueOf(String value, String defaultValue) {
     value = value == null ? defaultValue : value;
     return new HashSet<>(Arrays.asList(value.split(",")));
   }
 
+  protected Set<Integer> integerSetValueOf(String value, String defaultValue) {
+    value = value == null ? defaultValue : value;
+    Set<Integer> result = new HashSet<>();
+    for (String token : value.split(",")) {
+      if (!token.trim().isEmpty()) {
+        result.add(Integer.valueOf(token.trim()));
+      }
+    }
+    return result;
+  }
+
   /**
    * 解析对应的jdbcType类型
    * @param alias
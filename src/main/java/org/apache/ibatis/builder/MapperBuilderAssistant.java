@@ -26,7 +26,9 @@ import java.util.Set;
 import java.util.StringTokenizer;
 
 import org.apache.ibatis.cache.Cache;
-import org.apache.ibatis.cache.decorators.LruCache;
+import org.apache.ibatis.cache.CacheMetrics;
+import org.apache.ibatis.cache.CacheSerializer;
+import org.apache.ibatis.cache.decorators.ConcurrentLruCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
@@ -154,17 +156,43 @@ public class MapperBuilderAssistant extends BaseBuilder {
       boolean readWrite,
       boolean blocking,
       Properties props) {
+    return useNewCache(typeClass, evictionClass, flushInterval, size, readWrite, blocking, null, null, null, null, props);
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  public Cache useNewCache(Class<? extends Cache> typeClass,
+      Class<? extends Cache> evictionClass,
+      Long flushInterval,
+      Integer size,
+      boolean readWrite,
+      boolean blocking,
+      Long timeToLive,
+      Long timeToIdle,
+      Double refreshAhead,
+      Class<? extends CacheSerializer> serializerClass,
+      Properties props) {
+    CacheMetrics metrics = configuration.newCacheMetrics();
     //创建Cache对象，这里使用了建造者模式，CacheBuilder是建造者的角色，而Cache是生成的产品
     Cache cache = new CacheBuilder(currentNamespace)
         .implementation(valueOrDefault(typeClass, PerpetualCache.class))
-        .addDecorator(valueOrDefault(evictionClass, LruCache.class))
+        .addDecorator(valueOrDefault(evictionClass, ConcurrentLruCache.class))
         .clearInterval(flushInterval)
+        .timeToLive(timeToLive)
+        .timeToIdle(timeToIdle)
+        .refreshAhead(refreshAhead)
         .size(size)
         .readWrite(readWrite)
+        .serializer(serializerClass)
         .blocking(blocking)
+        .metrics(metrics)
         .properties(props)
         .build();
     configuration.addCache(cache);
+    if (metrics != null) {
+      configuration.addCacheMetrics(cache.getId(), metrics);
+    }
     currentCache = cache;
     return cache;
   }
@@ -289,6 +317,39 @@ public class MapperBuilderAssistant extends BaseBuilder {
       String databaseId,
       LanguageDriver lang,
       String resultSets) {
+    return addMappedStatement(
+      id, sqlSource, statementType, sqlCommandType, fetchSize, timeout,
+      parameterMap, parameterType, resultMap, resultType, resultSetType,
+      flushCache, useCache, resultOrdered,
+      keyGenerator, keyProperty, keyColumn, databaseId, lang, resultSets, null);
+  }
+
+  /**
+   * @param cacheTags 逗号分隔的缓存标签，查询结果依赖这些标签，更新语句刷新缓存时只使这些标签失效
+   * @since 3.5.4
+   */
+  public MappedStatement addMappedStatement(
+      String id,
+      SqlSource sqlSource,
+      StatementType statementType,
+      SqlCommandType sqlCommandType,
+      Integer fetchSize,
+      Integer timeout,
+      String parameterMap,
+      Class<?> parameterType,
+      String resultMap,
+      Class<?> resultType,
+      ResultSetType resultSetType,
+      boolean flushCache,
+      boolean useCache,
+      boolean resultOrdered,
+      KeyGenerator keyGenerator,
+      String keyProperty,
+      String keyColumn,
+      String databaseId,
+      LanguageDriver lang,
+      String resultSets,
+      String cacheTags) {
 
     if (unresolvedCacheRef) {
       throw new IncompleteElementException("Cache-ref not yet resolved");
@@ -309,6 +370,7 @@ public class MapperBuilderAssistant extends BaseBuilder {
         .lang(lang)
         .resultOrdered(resultOrdered)
         .resultSets(resultSets)
+        .cacheTags(cacheTags)
         .resultMaps(getStatementResultMaps(resultMap, resultType, id))
         .resultSetType(resultSetType)
         .flushCacheRequired(valueOrDefault(flushCache, !isSelect))
@@ -321,6 +383,9 @@ public class MapperBuilderAssistant extends BaseBuilder {
     }
 
     MappedStatement statement = statementBuilder.build();
+    if (statement.getCacheTags() != null && currentCache != null) {
+      configuration.getCacheTagRegistry().register(currentCache.getId());
+    }
     configuration.addMappedStatement(statement);
     return statement;
   }
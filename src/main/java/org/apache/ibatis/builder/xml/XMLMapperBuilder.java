@@ -33,6 +33,7 @@ import org.apache.ibatis.builder.IncompleteElementException;
 import org.apache.ibatis.builder.MapperBuilderAssistant;
 import org.apache.ibatis.builder.ResultMapResolver;
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheSerializer;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.mapping.Discriminator;
@@ -241,21 +242,29 @@ public class XMLMapperBuilder extends BaseBuilder {
       String type = context.getStringAttribute("type", "PERPETUAL");
       //查找type属性对应的Cache接口实现
       Class<? extends Cache> typeClass = typeAliasRegistry.resolveAlias(type);
-      //获取<cache>节点的eviction属性 （缓存清理方式）默认值是 LRU 即 LruCache
-      String eviction = context.getStringAttribute("eviction", "LRU");
+      //获取<cache>节点的eviction属性 （缓存清理方式）默认值是 CONCURRENT_LRU 即 ConcurrentLruCache，显式配置LRU时使用LruCache
+      String eviction = context.getStringAttribute("eviction", "CONCURRENT_LRU");
       Class<? extends Cache> evictionClass = typeAliasRegistry.resolveAlias(eviction);
       //获取<cache>节点的flushInterval属性，（刷新间隔），默认值为null
       Long flushInterval = context.getLongAttribute("flushInterval");
+      //获取<cache>节点的timeToLive、timeToIdle和refreshAhead属性，（按缓存项过期），默认值为null
+      Long timeToLive = context.getLongAttribute("timeToLive");
+      Long timeToIdle = context.getLongAttribute("timeToIdle");
+      Double refreshAhead = context.getDoubleAttribute("refreshAhead");
       //获取<cache>节点的size属性，默认值为null
       Integer size = context.getIntAttribute("size");
       //获取<cache>节点的readOnly属性，默认值为false
       boolean readWrite = !context.getBooleanAttribute("readOnly", false);
+      //获取<cache>节点的serializer属性，（可读写缓存的序列化方式），默认值为null 即 JdkCacheSerializer
+      String serializer = context.getStringAttribute("serializer");
+      Class<? extends CacheSerializer> serializerClass = typeAliasRegistry.resolveAlias(serializer);
       //获取<cache>节点的blocking属性，默认值为false
       boolean blocking = context.getBooleanAttribute("blocking", false);
       //获取<cache>节点下的子节点，将用于初始化二级缓存
       Properties props = context.getChildrenAsProperties();
       //通过MapperBuilderAssistant对象创建Cache对象，并添加到Configuration.caches集合中保存
-      builderAssistant.useNewCache(typeClass, evictionClass, flushInterval, size, readWrite, blocking, props);
+      builderAssistant.useNewCache(typeClass, evictionClass, flushInterval, size, readWrite, blocking,
+          timeToLive, timeToIdle, refreshAhead, serializerClass, props);
     }
   }
 
@@ -15,6 +15,7 @@
  */
 package org.apache.ibatis.cache;
 
+import java.util.Map;
 import java.util.concurrent.locks.ReadWriteLock;
 
 /**
@@ -54,6 +55,23 @@ public interface Cache {
    */
   void putObject(Object key, Object value);
 
+  /**
+   * 批量添加数据，事务提交时使用该方法将暂存的缓存项一次性写入缓存，默认逐个调用{@link #putObject(Object, Object)}
+   * Puts all the entries of the map into the cache.
+   * <p>
+   * Called on commit with all the results cached by a transaction. Decorators and providers can override it to
+   * acquire their locks or do their bookkeeping once for the whole batch. A null value has the same meaning as in
+   * {@link #putObject(Object, Object)}.
+   *
+   * @param entries the keys and results to cache
+   * @since 3.5.4
+   */
+  default void putAll(Map<Object, Object> entries) {
+    for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+      putObject(entry.getKey(), entry.getValue());
+    }
+  }
+
   /**
    * 根据指定的key，在缓存中查找对应的结果对象
    * @param key The key
@@ -16,8 +16,7 @@
 package org.apache.ibatis.cache;
 
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 import java.util.StringJoiner;
 
 import org.apache.ibatis.reflection.ArrayUtil;
@@ -30,11 +29,14 @@ import org.apache.ibatis.reflection.ArrayUtil;
  *
  * CacheKey中可以添加多个对象，有这些对象共同确定两个CacheKey对象是否相同。
  *
+ * 各组成部分保存在预先分配大小的数组中，int/long类型的值以原始类型保存（不装箱），
+ * 哈希值使用64位混合函数计算。
+ *
  * @author Clinton Begin
  */
 public class CacheKey implements Cloneable, Serializable {
 
-  private static final long serialVersionUID = 1146682552656046210L;
+  private static final long serialVersionUID = -1874612434766343817L;
 
   public static final CacheKey NULL_CACHE_KEY = new CacheKey(){
     @Override
@@ -42,20 +44,35 @@ public class CacheKey implements Cloneable, Serializable {
       throw new CacheException("Not allowed to update a null cache key instance.");
     }
     @Override
+    public void update(int value) {
+      throw new CacheException("Not allowed to update a null cache key instance.");
+    }
+    @Override
+    public void update(long value) {
+      throw new CacheException("Not allowed to update a null cache key instance.");
+    }
+    @Override
     public void updateAll(Object[] objects) {
       throw new CacheException("Not allowed to update a null cache key instance.");
     }
   };
 
-  private static final int DEFAULT_MULTIPLIER = 37;
-  private static final int DEFAULT_HASHCODE = 17;
+  private static final int DEFAULT_CAPACITY = 8;
+  private static final long DEFAULT_HASH = 17;
+  private static final long MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+  /**
+   * 标记以原始类型保存在primitives数组中的组成部分
+   */
+  private static final PrimitiveType INT = PrimitiveType.INT;
+  private static final PrimitiveType LONG = PrimitiveType.LONG;
 
   /**
-   * 参与计算hashcode ，默认值是37
+   * 64位的累积哈希值
    */
-  private final int multiplier;
+  private long hash;
   /**
-   * CacheKey的hashcode，默认值是17
+   * CacheKey的hashcode，由hash混合得到
    */
   private int hashcode;
   /**
@@ -63,41 +80,72 @@ public class CacheKey implements Cloneable, Serializable {
    */
   private long checksum;
   /**
-   * updateList集合的个数
+   * 组成部分的个数
    */
   private int count;
   // 8/21/2017 - Sonarlint flags this as needing to be marked transient.  While true if content is not serializable, this is not always true and thus should not be marked transient.
   /**
-   * 由该集合中的所有对象共同决定两个CacheKey是否相同
+   * 由该数组中的所有对象共同决定两个CacheKey是否相同，int/long值对应的位置保存的是类型标记
    */
-  private List<Object> updateList;
+  private Object[] components;
+  /**
+   * int/long类型组成部分的值，在第一次添加原始类型值时才创建
+   */
+  private long[] primitives;
 
   public CacheKey() {
-    this.hashcode = DEFAULT_HASHCODE;
-    this.multiplier = DEFAULT_MULTIPLIER;
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * @param expectedUpdateCount the number of updates the key is expected to receive
+   * @since 3.5.4
+   */
+  public CacheKey(int expectedUpdateCount) {
+    this.hash = DEFAULT_HASH;
+    this.hashcode = mix(DEFAULT_HASH);
     this.count = 0;
-    this.updateList = new ArrayList<>();
+    this.components = new Object[Math.max(expectedUpdateCount, 1)];
   }
 
   public CacheKey(Object[] objects) {
-    this();
+    this(objects.length);
     updateAll(objects);
   }
 
   public int getUpdateCount() {
-    return updateList.size();
+    return count;
   }
 
   public void update(Object object) {
-    int baseHashCode = object == null ? 1 : ArrayUtil.hashCode(object);
-
-    count++;
-    checksum += baseHashCode;
-    baseHashCode *= count;
+    if (object instanceof Integer) {
+      update(((Integer) object).intValue());
+    } else if (object instanceof Long) {
+      update(((Long) object).longValue());
+    } else {
+      int baseHashCode = object == null ? 1 : ArrayUtil.hashCode(object);
+      append(object, baseHashCode, baseHashCode);
+    }
+  }
 
-    hashcode = multiplier * hashcode + baseHashCode;
+  /**
+   * 添加int类型的组成部分，与添加对应的Integer对象等价，但不需要装箱
+   *
+   * @since 3.5.4
+   */
+  public void update(int value) {
+    append(INT, value, value);
+    primitives[count - 1] = value;
+  }
 
-    updateList.add(object);
+  /**
+   * 添加long类型的组成部分，与添加对应的Long对象等价，但不需要装箱
+   *
+   * @since 3.5.4
+   */
+  public void update(long value) {
+    append(LONG, Long.hashCode(value), value);
+    primitives[count - 1] = value;
   }
 
   public void updateAll(Object[] objects) {
@@ -106,6 +154,31 @@ public class CacheKey implements Cloneable, Serializable {
     }
   }
 
+  private void append(Object component, int baseHashCode, long hashBits) {
+    if (count == components.length) {
+      components = Arrays.copyOf(components, count << 1);
+    }
+    if (component instanceof PrimitiveType && (primitives == null || primitives.length < components.length)) {
+      primitives = primitives == null ? new long[components.length] : Arrays.copyOf(primitives, components.length);
+    }
+    components[count++] = component;
+    checksum += baseHashCode;
+    hash = (hash + hashBits) * MULTIPLIER + count;
+    hashcode = mix(hash);
+  }
+
+  /**
+   * MurmurHash3的64位finalizer，将累积的哈希值充分混合后折叠为int
+   */
+  private static int mix(long h) {
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return (int) (h ^ (h >>> 32));
+  }
+
   @Override
   public boolean equals(Object object) {
     if (this == object) {
@@ -117,7 +190,7 @@ public class CacheKey implements Cloneable, Serializable {
 
     final CacheKey cacheKey = (CacheKey) object;
 
-    if (hashcode != cacheKey.hashcode) {
+    if (hash != cacheKey.hash) {
       return false;
     }
     if (checksum != cacheKey.checksum) {
@@ -127,10 +200,14 @@ public class CacheKey implements Cloneable, Serializable {
       return false;
     }
 
-    for (int i = 0; i < updateList.size(); i++) {
-      Object thisObject = updateList.get(i);
-      Object thatObject = cacheKey.updateList.get(i);
-      if (!ArrayUtil.equals(thisObject, thatObject)) {
+    for (int i = 0; i < count; i++) {
+      Object thisObject = components[i];
+      Object thatObject = cacheKey.components[i];
+      if (thisObject instanceof PrimitiveType) {
+        if (thisObject != thatObject || primitives[i] != cacheKey.primitives[i]) {
+          return false;
+        }
+      } else if (thatObject instanceof PrimitiveType || !ArrayUtil.equals(thisObject, thatObject)) {
         return false;
       }
     }
@@ -147,15 +224,28 @@ public class CacheKey implements Cloneable, Serializable {
     StringJoiner returnValue = new StringJoiner(":");
     returnValue.add(String.valueOf(hashcode));
     returnValue.add(String.valueOf(checksum));
-    updateList.stream().map(ArrayUtil::toString).forEach(returnValue::add);
+    for (int i = 0; i < count; i++) {
+      Object component = components[i];
+      returnValue.add(component instanceof PrimitiveType ? String.valueOf(primitives[i]) : ArrayUtil.toString(component));
+    }
     return returnValue.toString();
   }
 
   @Override
   public CacheKey clone() throws CloneNotSupportedException {
     CacheKey clonedCacheKey = (CacheKey) super.clone();
-    clonedCacheKey.updateList = new ArrayList<>(updateList);
+    clonedCacheKey.components = components.clone();
+    if (primitives != null) {
+      clonedCacheKey.primitives = primitives.clone();
+    }
     return clonedCacheKey;
   }
 
+  /**
+   * 原始类型组成部分的类型标记，使用枚举以保证反序列化后仍是同一个实例
+   */
+  private enum PrimitiveType {
+    INT, LONG
+  }
+
 }
@@ -0,0 +1,98 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+/**
+ * 二级缓存的统计指标，每个缓存（namespace）对应一个实例，可以通过{@link org.apache.ibatis.session.Configuration#getCacheMetrics(String)}获取。
+ * Collects the metrics of a second level cache.
+ * <p>
+ * One instance is created for each cache with the class set in the {@code cacheMetricsImpl} setting, which must have a
+ * public no-argument constructor. The built-in decorators report reads, writes, evictions and clears to it, and the
+ * executor reports the time spent loading the results of cache misses from the database. Implementations must be
+ * thread-safe, and should be cheap because they are called on every cache access. They can publish the values to
+ * any monitoring system, or simply keep them for {@link #snapshot()}.
+ *
+ * @since 3.5.4
+ */
+public interface CacheMetrics {
+
+  /**
+   * 在缓存创建完成后调用一次
+   * Called once with the fully decorated cache, e.g. to report its size as a gauge.
+   *
+   * @param cache the cache these metrics belong to
+   */
+  default void bind(Cache cache) {
+    // NOP
+  }
+
+  /**
+   * 缓存命中
+   *
+   * @param nanos the time spent reading the cache
+   */
+  void recordHit(long nanos);
+
+  /**
+   * 缓存未命中
+   *
+   * @param nanos the time spent reading the cache
+   */
+  void recordMiss(long nanos);
+
+  /**
+   * 写入缓存项
+   *
+   * @param count the number of entries written at once
+   * @param nanos the time spent writing them
+   */
+  void recordPut(int count, long nanos);
+
+  /**
+   * 缓存项因容量限制、过期或被GC回收而被清除
+   *
+   * @param count the number of entries evicted
+   */
+  void recordEviction(int count);
+
+  /**
+   * 清空缓存
+   */
+  void recordClear();
+
+  /**
+   * 未命中后从数据库加载查询结果
+   *
+   * @param nanos the time spent running the query
+   */
+  void recordLoad(long nanos);
+
+  /**
+   * 按字节数限制大小的缓存报告其当前估算占用的字节数
+   * Reports the current estimated size in bytes, for caches that bound their memory.
+   *
+   * @param bytes the estimated bytes held by the cache
+   */
+  void recordEstimatedBytes(long bytes);
+
+  /**
+   * 获取当前的统计数据
+   *
+   * @return the current values
+   */
+  CacheStats snapshot();
+
+}
@@ -0,0 +1,33 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+/**
+ * 实现该接口的Cache或装饰器在创建时会得到所在缓存的{@link CacheMetrics}。
+ * Implemented by caches and decorators that report to the {@link CacheMetrics} of the cache they belong to.
+ * <p>
+ * {@link org.apache.ibatis.mapping.CacheBuilder} sets the metrics on every layer of the cache it builds.
+ *
+ * @since 3.5.4
+ */
+public interface CacheMetricsAware {
+
+  /**
+   * @param metrics the metrics of the cache, never null
+   */
+  void setMetrics(CacheMetrics metrics);
+
+}
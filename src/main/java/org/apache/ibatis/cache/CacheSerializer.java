@@ -0,0 +1,47 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+/**
+ * 缓存项序列化器，{@link org.apache.ibatis.cache.decorators.SerializedCache}通过它对缓存的对象进行复制。
+ * Converts cached values to bytes and back, e.g. to give every reader of a read-write cache its own copy.
+ * <p>
+ * Implementations must be thread-safe and have a public no-argument constructor. They are selected per namespace
+ * with the serializer attribute of the cache element or {@link org.apache.ibatis.annotations.CacheNamespace}.
+ *
+ * @since 3.5.4
+ */
+public interface CacheSerializer {
+
+  /**
+   * 序列化
+   *
+   * @param value a serializable value, may be null
+   * @return the serialized form of the value
+   * @throws CacheException if the value cannot be serialized
+   */
+  byte[] serialize(Object value);
+
+  /**
+   * 反序列化
+   *
+   * @param bytes bytes produced by {@link #serialize(Object)}
+   * @return a new copy of the serialized value
+   * @throws CacheException if the bytes cannot be deserialized
+   */
+  Object deserialize(byte[] bytes);
+
+}
@@ -0,0 +1,132 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+/**
+ * 缓存统计数据的快照，时间的单位都是纳秒。
+ * An immutable snapshot of the values collected by {@link CacheMetrics}. All the times are in nanoseconds.
+ *
+ * @since 3.5.4
+ */
+public final class CacheStats {
+
+  private final int size;
+  private final long hitCount;
+  private final long missCount;
+  private final long totalGetTime;
+  private final long putCount;
+  private final long totalPutTime;
+  private final long evictionCount;
+  private final long clearCount;
+  private final long loadCount;
+  private final long totalLoadTime;
+  private final long estimatedBytes;
+
+  public CacheStats(int size, long hitCount, long missCount, long totalGetTime, long putCount, long totalPutTime,
+      long evictionCount, long clearCount, long loadCount, long totalLoadTime, long estimatedBytes) {
+    this.size = size;
+    this.hitCount = hitCount;
+    this.missCount = missCount;
+    this.totalGetTime = totalGetTime;
+    this.putCount = putCount;
+    this.totalPutTime = totalPutTime;
+    this.evictionCount = evictionCount;
+    this.clearCount = clearCount;
+    this.loadCount = loadCount;
+    this.totalLoadTime = totalLoadTime;
+    this.estimatedBytes = estimatedBytes;
+  }
+
+  /**
+   * @return the number of entries, or -1 if unknown
+   */
+  public int getSize() {
+    return size;
+  }
+
+  public long getHitCount() {
+    return hitCount;
+  }
+
+  public long getMissCount() {
+    return missCount;
+  }
+
+  public long getRequestCount() {
+    return hitCount + missCount;
+  }
+
+  /**
+   * @return the ratio of reads that hit the cache, or 0 if it was never read
+   */
+  public double getHitRatio() {
+    long requestCount = getRequestCount();
+    return requestCount == 0 ? 0 : (double) hitCount / requestCount;
+  }
+
+  public long getTotalGetTime() {
+    return totalGetTime;
+  }
+
+  public double getAverageGetTime() {
+    long requestCount = getRequestCount();
+    return requestCount == 0 ? 0 : (double) totalGetTime / requestCount;
+  }
+
+  public long getPutCount() {
+    return putCount;
+  }
+
+  public long getTotalPutTime() {
+    return totalPutTime;
+  }
+
+  public long getEvictionCount() {
+    return evictionCount;
+  }
+
+  public long getClearCount() {
+    return clearCount;
+  }
+
+  public long getLoadCount() {
+    return loadCount;
+  }
+
+  public long getTotalLoadTime() {
+    return totalLoadTime;
+  }
+
+  public double getAverageLoadTime() {
+    return loadCount == 0 ? 0 : (double) totalLoadTime / loadCount;
+  }
+
+  /**
+   * @return the estimated bytes held by the cache, or -1 if the cache does not bound its memory
+   */
+  public long getEstimatedBytes() {
+    return estimatedBytes;
+  }
+
+  @Override
+  public String toString() {
+    return "CacheStats [size=" + size + ", hitCount=" + hitCount + ", missCount=" + missCount
+        + ", hitRatio=" + getHitRatio() + ", averageGetTime=" + getAverageGetTime() + ", putCount=" + putCount
+        + ", evictionCount=" + evictionCount + ", clearCount=" + clearCount + ", loadCount=" + loadCount
+        + ", averageLoadTime=" + getAverageLoadTime() + ", estimatedBytes=" + estimatedBytes + "]";
+  }
+
+}
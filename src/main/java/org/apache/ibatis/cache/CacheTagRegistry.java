@@ -0,0 +1,113 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 记录各个二级缓存中每个标签（一般是表名）的版本号，用于按标签失效缓存项。
+ *    缓存项写入时会带上查询前读取到的标签版本号，写操作提交时只增加它声明的标签的版本号，
+ *    之后读取缓存项时，如果有标签的版本号已经变化，该缓存项就会被当作未命中，而缓存中的其他缓存项不受影响。
+ * Keeps a version number for every tag (usually a table name) of the second level caches that use tags.
+ * <p>
+ * Cached results remember the versions of the tags their statement reads, taken before the query ran. A statement
+ * that flushes the cache and declares tags increments the versions of its tags on commit, instead of clearing the
+ * whole cache, so only the results that depend on those tags are treated as misses afterwards. Results of statements
+ * without tags depend on every tag of their cache. Stale results are not removed; they are overwritten by the next
+ * load or evicted as usual.
+ *
+ * @since 3.5.4
+ */
+public class CacheTagRegistry {
+
+  /**
+   * 没有声明标签的查询结果依赖的伪标签，任何标签失效时都会增加它的版本号
+   */
+  private static final String UNTAGGED = "";
+  private static final String[] UNTAGGED_TAGS = { UNTAGGED };
+
+  private final ConcurrentMap<String, ConcurrentMap<String, AtomicLong>> caches = new ConcurrentHashMap<>();
+
+  /**
+   * 标记指定缓存使用了标签
+   *
+   * @param cacheId the id of a cache used by a statement that declares tags
+   */
+  public void register(String cacheId) {
+    caches.computeIfAbsent(cacheId, id -> new ConcurrentHashMap<>());
+  }
+
+  public boolean isTagged(String cacheId) {
+    return caches.containsKey(cacheId);
+  }
+
+  /**
+   * 获取标签当前的版本号
+   *
+   * @param cacheId the cache id
+   * @param tags the tags read by a statement, or null if it declares none
+   * @return the current versions of the tags
+   */
+  public long[] snapshot(String cacheId, String[] tags) {
+    String[] effectiveTags = tags == null ? UNTAGGED_TAGS : tags;
+    long[] versions = new long[effectiveTags.length];
+    for (int i = 0; i < effectiveTags.length; i++) {
+      versions[i] = version(cacheId, effectiveTags[i]).get();
+    }
+    return versions;
+  }
+
+  /**
+   * 判断标签的版本号是否都没有变化
+   *
+   * @param cacheId the cache id
+   * @param tags the tags read by a statement, or null if it declares none
+   * @param versions the versions returned by {@link #snapshot(String, String[])} for the same tags
+   * @return true if none of the tags was invalidated since the snapshot
+   */
+  public boolean isCurrent(String cacheId, String[] tags, long[] versions) {
+    String[] effectiveTags = tags == null ? UNTAGGED_TAGS : tags;
+    for (int i = 0; i < effectiveTags.length; i++) {
+      if (version(cacheId, effectiveTags[i]).get() != versions[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * 使标签以及没有声明标签的查询结果失效
+   *
+   * @param cacheId the cache id
+   * @param tags the tags written by a statement
+   */
+  public void invalidate(String cacheId, Collection<String> tags) {
+    for (String tag : tags) {
+      version(cacheId, tag).incrementAndGet();
+    }
+    version(cacheId, UNTAGGED).incrementAndGet();
+  }
+
+  private AtomicLong version(String cacheId, String tag) {
+    ConcurrentMap<String, AtomicLong> versions = caches.computeIfAbsent(cacheId, id -> new ConcurrentHashMap<>());
+    AtomicLong version = versions.get(tag);
+    return version != null ? version : versions.computeIfAbsent(tag, t -> new AtomicLong());
+  }
+
+}
@@ -0,0 +1,60 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+/**
+ * 在多个节点之间传递缓存失效消息，{@link org.apache.ibatis.cache.impl.NearCache}通过它使其他节点本地的缓存项失效。
+ * Delivers {@link InvalidationMessage}s between the nodes that share a cache, so a
+ * {@link org.apache.ibatis.cache.impl.NearCache} can drop the local copies other nodes changed.
+ * <p>
+ * Implementations must be thread-safe and have a public no-argument constructor. Messages may be delivered on any
+ * thread and, depending on the transport, after a delay; a subscriber may also receive its own messages.
+ *
+ * @since 3.5.4
+ */
+public interface InvalidationBus {
+
+  /**
+   * 发送失效消息
+   *
+   * @param message the message to send to all subscribers
+   */
+  void publish(InvalidationMessage message);
+
+  /**
+   * 订阅失效消息
+   *
+   * @param listener called for every message published on the bus
+   */
+  void subscribe(Listener listener);
+
+  /**
+   * 取消订阅
+   *
+   * @param listener a listener passed to {@link #subscribe(Listener)}
+   */
+  void unsubscribe(Listener listener);
+
+  /**
+   * 失效消息的接收者
+   */
+  interface Listener {
+
+    void onInvalidation(InvalidationMessage message);
+
+  }
+
+}
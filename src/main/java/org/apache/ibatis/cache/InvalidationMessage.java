@@ -0,0 +1,69 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.io.Serializable;
+
+/**
+ * 缓存失效消息，key为null时表示清空整个缓存。
+ * Tells the other nodes that an entry of a cache, or the whole cache, changed.
+ *
+ * @since 3.5.4
+ */
+public final class InvalidationMessage implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private final String origin;
+  private final String cacheId;
+  private final Object key;
+
+  /**
+   * @param origin identifies the cache instance that sent the message
+   * @param cacheId the id of the cache
+   * @param key the invalidated key, or null if the whole cache was cleared
+   */
+  public InvalidationMessage(String origin, String cacheId, Object key) {
+    this.origin = origin;
+    this.cacheId = cacheId;
+    this.key = key;
+  }
+
+  public String getOrigin() {
+    return origin;
+  }
+
+  public String getCacheId() {
+    return cacheId;
+  }
+
+  /**
+   * @return the invalidated key, or null if the whole cache was cleared
+   */
+  public Object getKey() {
+    return key;
+  }
+
+  public boolean isClear() {
+    return key == null;
+  }
+
+  @Override
+  public String toString() {
+    return "InvalidationMessage{origin=" + origin + ", cacheId=" + cacheId + ", key=" + key + "}";
+  }
+
+}
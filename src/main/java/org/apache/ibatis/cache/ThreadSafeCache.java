@@ -0,0 +1,33 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+/**
+ * 标记接口，实现该接口的Cache或装饰器可以被多个线程同时访问，CacheBuilder不会再为其添加SynchronizedCache装饰器。
+ * Marker for caches and decorators that can be used by several threads at the same time.
+ * <p>
+ * {@link org.apache.ibatis.mapping.CacheBuilder} wraps caches in a
+ * {@link org.apache.ibatis.cache.decorators.SynchronizedCache}, which serializes every read and write, unless the
+ * outermost eviction decorator (or custom decorator) implements this interface. An implementation must not rely on
+ * the thread safety of the cache it decorates, since the default {@link org.apache.ibatis.cache.impl.PerpetualCache}
+ * is not thread safe. The standard decorators that CacheBuilder adds on top of it (scheduled and per-entry expiry,
+ * serialization, logging and blocking) are thread safe.
+ *
+ * @since 3.5.4
+ */
+public interface ThreadSafeCache {
+
+}
@@ -26,6 +26,22 @@ import org.apache.ibatis.cache.decorators.TransactionalCache;
 public class TransactionalCacheManager {
 
   private final Map<Cache, TransactionalCache> transactionalCaches = new HashMap<>();
+  private final boolean writeBehind;
+  private final CacheTagRegistry tagRegistry;
+
+  public TransactionalCacheManager() {
+    this(false, null);
+  }
+
+  /**
+   * @param writeBehind whether committed entries are written to the caches by a background thread
+   * @param tagRegistry the tag versions of the caches that use tags, may be null
+   * @since 3.5.4
+   */
+  public TransactionalCacheManager(boolean writeBehind, CacheTagRegistry tagRegistry) {
+    this.writeBehind = writeBehind;
+    this.tagRegistry = tagRegistry;
+  }
 
   public void clear(Cache cache) {
     getTransactionalCache(cache).clear();
@@ -35,10 +51,33 @@ public class TransactionalCacheManager {
     return getTransactionalCache(cache).getObject(key);
   }
 
+  /**
+   * @since 3.5.4
+   */
+  public Object getObject(Cache cache, CacheKey key, String[] tags) {
+    return getTransactionalCache(cache).getObject(key, tags);
+  }
+
   public void putObject(Cache cache, CacheKey key, Object value) {
     getTransactionalCache(cache).putObject(key, value);
   }
 
+  /**
+   * @since 3.5.4
+   */
+  public void putObject(Cache cache, CacheKey key, Object value, String[] tags) {
+    getTransactionalCache(cache).putObject(key, value, tags);
+  }
+
+  /**
+   * 提交时使指定缓存中依赖这些标签的缓存项失效
+   *
+   * @since 3.5.4
+   */
+  public void invalidate(Cache cache, String[] tags) {
+    getTransactionalCache(cache).invalidate(tags);
+  }
+
   public void commit() {
     for (TransactionalCache txCache : transactionalCaches.values()) {
       txCache.commit();
@@ -52,7 +91,7 @@ public class TransactionalCacheManager {
   }
 
   private TransactionalCache getTransactionalCache(Cache cache) {
-    return transactionalCaches.computeIfAbsent(cache, TransactionalCache::new);
+    return transactionalCaches.computeIfAbsent(cache, c -> new TransactionalCache(c, writeBehind, tagRegistry));
   }
 
 }
@@ -15,10 +15,10 @@
  */
 package org.apache.ibatis.cache.decorators;
 
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
@@ -27,14 +27,18 @@ import org.apache.ibatis.cache.CacheException;
  *
  * BlockingCache是阻塞版本的缓存装饰器，它会保证只有一个线程到缓存中查找指定key对应的数据。
  * 即：
- *    假设线程A在BlockingCache中未查找到keyA对应的缓存项时，线程A会获取keyA对应的锁，这样后续线程在查找
- *    keyA时会发生阻塞。
+ *    假设线程A在BlockingCache中未查找到keyA对应的缓存项时，线程A会成为keyA的加载者，这样后续线程在查找
+ *    keyA时会等待线程A将查询结果写入缓存（或放弃加载），然后直接从缓存中读取线程A的查询结果。
+ *    加载完成后对应的记录会从locks集合中删除，所以locks集合只包含正在加载的key。
  *
  * Simple blocking decorator
  *
  * Simple and inefficient version of EhCache's BlockingCache decorator.
  * It sets a lock over a cache key when the element is not found in cache.
  * This way, other threads will wait until this element is filled instead of hitting the database.
+ * <p>
+ * Concurrent misses for the same key share a single load: the waiting threads read the value put by the loading
+ * thread instead of querying the database again. Only keys that are being loaded are tracked.
  *
  * @author Eduardo Macarron
  *
@@ -50,9 +54,9 @@ public class BlockingCache implements Cache {
    */
   private final Cache delegate;
   /**
-   * 每个key都有对应的ReentrantLock(重入锁)
+   * 正在加载的key以及对应的加载记录，加载结束后删除
    */
-  private final ConcurrentHashMap<Object, ReentrantLock> locks;
+  private final ConcurrentHashMap<Object, Load> locks;
 
   public BlockingCache(Cache delegate) {
     this.delegate = delegate;
@@ -80,6 +84,17 @@ public class BlockingCache implements Cache {
     }
   }
 
+  @Override
+  public void putAll(Map<Object, Object> entries) {
+    try {
+      delegate.putAll(entries);
+    } finally {
+      for (Object key : entries.keySet()) {
+        releaseLock(key);
+      }
+    }
+  }
+
   /**
    * 获取指定key对应的对象
    * @param key The key 要查询的key
@@ -87,14 +102,23 @@ public class BlockingCache implements Cache {
    */
   @Override
   public Object getObject(Object key) {
-    //获取该key对应的锁
-    acquireLock(key);
-    Object value = delegate.getObject(key);
-    if (value != null) {
-      //释放锁
-      releaseLock(key);
+    Load load = null;
+    while (true) {
+      Object value = delegate.getObject(key);
+      if (value != null) {
+        //当前线程之前未命中时已成为加载者，命中后释放锁
+        if (load != null) {
+          releaseLock(key);
+        }
+        return value;
+      }
+      if (load != null) {
+        //未命中，由当前线程加载，直到putObject()或removeObject()时释放锁
+        return null;
+      }
+      //成为加载者，或者等待其他线程加载完成后重新读取缓存
+      load = acquireLock(key);
     }
-    return value;
   }
 
   @Override
@@ -110,50 +134,43 @@ public class BlockingCache implements Cache {
   }
 
   /**
-   * 获取锁，如果该key没有对应的锁对象则为其创建一个ReentrantLock对象
+   * 尝试成为指定key的加载者：
+   *    如果其他线程正在加载该key，则等待其加载完成（带超时）并返回null，调用者需要重新读取缓存；
+   *    否则返回当前线程的加载记录。
    * @param key
-   * @return
+   * @return 当前线程的加载记录，或者null
    */
-  private ReentrantLock getLockForKey(Object key) {
-    return locks.computeIfAbsent(key, k -> new ReentrantLock());
-  }
-
-  /**
-   * 尝试获取指定key对应的锁：
-   *    如果该key没有对应的锁对象则为其创建一个ReetrantLock对象，再加锁；
-   *    如果获取锁失败，则阻塞一段时间。
-   * @param key
-   */
-  private void acquireLock(Object key) {
-    //获取ReentrantLock
-    Lock lock = getLockForKey(key);
-    if (timeout > 0) {
-      try {
-        //获取锁带超时时长
-        boolean acquired = lock.tryLock(timeout, TimeUnit.MILLISECONDS);
-        //超时则抛出异常
+  private Load acquireLock(Object key) {
+    Load newLoad = new Load();
+    Load load = locks.putIfAbsent(key, newLoad);
+    if (load == null || load.owner == newLoad.owner) {
+      return load == null ? newLoad : load;
+    }
+    try {
+      if (timeout > 0) {
+        //等待带超时时长，超时则抛出异常
+        boolean acquired = load.latch.await(timeout, TimeUnit.MILLISECONDS);
         if (!acquired) {
           throw new CacheException("Couldn't get a lock in " + timeout + " for the key " +  key + " at the cache " + delegate.getId());
         }
-      } catch (InterruptedException e) {
-        throw new CacheException("Got interrupted while trying to acquire lock for key " + key, e);
+      } else {
+        load.latch.await();
       }
-    } else {
-      //获取锁，不带超时时长
-      lock.lock();
+    } catch (InterruptedException e) {
+      throw new CacheException("Got interrupted while trying to acquire lock for key " + key, e);
     }
+    return null;
   }
 
   /**
-   * 释放指定key的锁
+   * 当前线程是指定key的加载者时，结束加载并唤醒等待的线程
    * @param key 指定key
    */
   private void releaseLock(Object key) {
-    ReentrantLock lock = locks.get(key);
+    Load load = locks.get(key);
     //锁是否被当前线程持有
-    if (lock.isHeldByCurrentThread()) {
-      //释放锁
-      lock.unlock();
+    if (load != null && load.owner == Thread.currentThread() && locks.remove(key, load)) {
+      load.latch.countDown();
     }
   }
 
@@ -164,4 +181,12 @@ public class BlockingCache implements Cache {
   public void setTimeout(long timeout) {
     this.timeout = timeout;
   }
+
+  /**
+   * 一次加载，记录加载线程以及等待该线程的CountDownLatch
+   */
+  private static final class Load {
+    private final Thread owner = Thread.currentThread();
+    private final CountDownLatch latch = new CountDownLatch(1);
+  }
 }
@@ -0,0 +1,149 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheMetrics;
+import org.apache.ibatis.cache.CacheMetricsAware;
+import org.apache.ibatis.cache.ThreadSafeCache;
+
+/**
+ * 线程安全的先进先出缓存装饰器，缓存项保存在ConcurrentHashMap中，写入顺序记录在环形数组中，读写操作都不加锁。
+ * Concurrent FIFO (first in, first out) cache decorator.
+ * <p>
+ * Entries are kept in a {@link ConcurrentHashMap} and their insertion order in a ring buffer with one slot per
+ * entry. Every write claims the next slot with an atomic increment and evicts the entry previously stored there, so
+ * neither reads nor writes take a lock. Like {@link FifoCache}, writing an existing key again counts as a new
+ * insertion.
+ * <p>
+ * The decorated cache only provides the id; it is never used to store entries.
+ *
+ * @since 3.5.4
+ */
+public class ConcurrentFifoCache implements Cache, CacheMetricsAware, ThreadSafeCache {
+
+  /**
+   * 被装饰的底层Cache对象，只用于提供id
+   */
+  private final Cache delegate;
+  private final ConcurrentHashMap<Object, Node> data = new ConcurrentHashMap<>();
+  /**
+   * 下一个写入的位置
+   */
+  private final AtomicLong tail = new AtomicLong();
+  /**
+   * 按写入顺序记录缓存项的环形数组，长度即缓存项的上限
+   */
+  private volatile AtomicReferenceArray<Node> ring;
+  /**
+   * 缓存的统计指标，未启用时为null
+   */
+  private volatile CacheMetrics metrics;
+
+  public ConcurrentFifoCache(Cache delegate) {
+    this.delegate = delegate;
+    this.ring = new AtomicReferenceArray<>(1024);
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return data.size();
+  }
+
+  /**
+   * 设置缓存项的最大个数，会清空缓存，应在使用缓存之前调用
+   *
+   * @param size the maximum number of entries
+   */
+  public void setSize(int size) {
+    this.ring = new AtomicReferenceArray<>(Math.max(size, 1));
+    data.clear();
+  }
+
+  @Override
+  public void setMetrics(CacheMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    Node node = new Node(key, value);
+    data.put(key, node);
+    AtomicReferenceArray<Node> slots = ring;
+    int index = (int) (tail.getAndIncrement() % slots.length());
+    Node oldest = slots.getAndSet(index, node);
+    //只有当该位置上的缓存项仍在缓存中时才清理，已被覆盖或删除的缓存项直接丢弃
+    if (oldest != null && data.remove(oldest.key, oldest)) {
+      CacheMetrics current = metrics;
+      if (current != null) {
+        current.recordEviction(1);
+      }
+    }
+  }
+
+  @Override
+  public void putAll(Map<Object, Object> entries) {
+    for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+      putObject(entry.getKey(), entry.getValue());
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    Node node = data.get(key);
+    return node == null ? null : node.value;
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    Node node = data.remove(key);
+    return node == null ? null : node.value;
+  }
+
+  @Override
+  public void clear() {
+    data.clear();
+    //释放环形数组中已失效的缓存项，保留并发写入的新缓存项
+    AtomicReferenceArray<Node> slots = ring;
+    for (int i = 0; i < slots.length(); i++) {
+      Node node = slots.get(i);
+      if (node != null && data.get(node.key) != node) {
+        slots.compareAndSet(i, node, null);
+      }
+    }
+  }
+
+  private static final class Node {
+    final Object key;
+    final Object value;
+
+    Node(Object key, Object value) {
+      this.key = key;
+      this.value = value;
+    }
+  }
+
+}
@@ -0,0 +1,197 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheMetrics;
+import org.apache.ibatis.cache.CacheMetricsAware;
+import org.apache.ibatis.cache.ThreadSafeCache;
+
+/**
+ * 线程安全的近期最少使用缓存装饰器，使用CLOCK（二次机会）算法近似LRU：读操作只设置访问标记，不加锁；
+ * 写操作在一个只由写线程竞争的锁内维护写入队列并清理缓存项。
+ * Concurrent LRU (least recently used) cache decorator.
+ * <p>
+ * Entries are kept in a {@link ConcurrentHashMap}. A read marks the entry as referenced without taking a lock. When a
+ * write makes the cache exceed its size, the writer walks the queue of entries in insertion order: referenced
+ * entries get a second chance and go back to the end of the queue with the mark cleared, and the first entry that
+ * was not read since its last pass is evicted. This approximates LRU, and is what
+ * {@link org.apache.ibatis.mapping.CacheBuilder} uses for the default {@code LRU} eviction policy.
+ * <p>
+ * The decorated cache only provides the id; it is never used to store entries.
+ *
+ * @since 3.5.4
+ */
+public class ConcurrentLruCache implements Cache, CacheMetricsAware, ThreadSafeCache {
+
+  /**
+   * 被装饰的底层Cache对象，只用于提供id
+   */
+  private final Cache delegate;
+  private final ConcurrentHashMap<Object, Node> data = new ConcurrentHashMap<>();
+  /**
+   * 按写入顺序排列的缓存项，只在持有evictionLock时访问，可能包含已被删除或覆盖的缓存项
+   */
+  private final ArrayDeque<Node> queue = new ArrayDeque<>();
+  private final ReentrantLock evictionLock = new ReentrantLock();
+  private volatile int size;
+  /**
+   * 缓存的统计指标，未启用时为null
+   */
+  private volatile CacheMetrics metrics;
+
+  public ConcurrentLruCache(Cache delegate) {
+    this.delegate = delegate;
+    this.size = 1024;
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return data.size();
+  }
+
+  /**
+   * 设置缓存项的最大个数
+   *
+   * @param size the maximum number of entries
+   */
+  public void setSize(int size) {
+    this.size = Math.max(size, 1);
+    evictionLock.lock();
+    try {
+      evictIfNecessary();
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  @Override
+  public void setMetrics(CacheMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    evictionLock.lock();
+    try {
+      put(key, value);
+      evictIfNecessary();
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  @Override
+  public void putAll(Map<Object, Object> entries) {
+    evictionLock.lock();
+    try {
+      for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+        put(entry.getKey(), entry.getValue());
+      }
+      evictIfNecessary();
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    Node node = data.get(key);
+    if (node == null) {
+      return null;
+    }
+    if (!node.referenced) {
+      node.referenced = true;
+    }
+    return node.value;
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    Node node = data.remove(key);
+    return node == null ? null : node.value;
+  }
+
+  @Override
+  public void clear() {
+    evictionLock.lock();
+    try {
+      data.clear();
+      queue.clear();
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  private void put(Object key, Object value) {
+    Node node = new Node(key, value);
+    data.put(key, node);
+    queue.addLast(node);
+  }
+
+  private void evictIfNecessary() {
+    int evicted = 0;
+    //并发读取可能不断设置访问标记，超过两轮之后不再给予第二次机会，保证循环能够结束
+    int secondChances = 2 * queue.size();
+    while (data.size() > size) {
+      Node node = queue.pollFirst();
+      if (node == null) {
+        break;
+      }
+      if (data.get(node.key) != node) {
+        //已被删除或覆盖的缓存项直接丢弃
+        continue;
+      }
+      if (node.referenced && secondChances-- > 0) {
+        //上次经过之后被读取过，给予第二次机会
+        node.referenced = false;
+        queue.addLast(node);
+      } else if (data.remove(node.key, node)) {
+        evicted++;
+      }
+    }
+    if (queue.size() > 2 * size) {
+      //只覆盖或删除而没有清理缓存项时，清除队列中失效的缓存项，避免队列无限增长
+      queue.removeIf(node -> data.get(node.key) != node);
+    }
+    CacheMetrics current = metrics;
+    if (evicted > 0 && current != null) {
+      current.recordEviction(evicted);
+    }
+  }
+
+  private static final class Node {
+    final Object key;
+    final Object value;
+    volatile boolean referenced;
+
+    Node(Object key, Object value) {
+      this.key = key;
+      this.value = value;
+    }
+  }
+
+}
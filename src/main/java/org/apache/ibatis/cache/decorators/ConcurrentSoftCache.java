@@ -0,0 +1,173 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheMetrics;
+import org.apache.ibatis.cache.CacheMetricsAware;
+import org.apache.ibatis.cache.ThreadSafeCache;
+
+/**
+ * 线程安全的软引用缓存装饰器，缓存项保存在ConcurrentHashMap中，最近访问的value记录在环形数组中以避免被GC回收，读写操作都不加锁。
+ * Concurrent soft reference cache decorator.
+ * <p>
+ * Entries are kept in a {@link ConcurrentHashMap}. As in {@link SoftCache} the most recently read values are
+ * strongly referenced so they survive garbage collection, but they are recorded in a ring buffer claimed with an
+ * atomic increment instead of a synchronized list, so reads never take a lock.
+ * <p>
+ * The decorated cache only provides the id; it is never used to store entries.
+ *
+ * @since 3.5.4
+ */
+public class ConcurrentSoftCache implements Cache, CacheMetricsAware, ThreadSafeCache {
+
+  /**
+   * 被装饰的底层Cache对象，只用于提供id
+   */
+  private final Cache delegate;
+  private final ConcurrentHashMap<Object, SoftEntry> data = new ConcurrentHashMap<>();
+  /**
+   * 引用队列，用于记录已经被GC回收的缓存项所对应的SoftEntry
+   */
+  private final ReferenceQueue<Object> queueOfGarbageCollectedEntries = new ReferenceQueue<>();
+  /**
+   * 下一个记录强引用的位置
+   */
+  private final AtomicLong hardLinkIndex = new AtomicLong();
+  /**
+   * 最近被访问的value的强引用，长度即强引用的个数，默认值为256
+   */
+  private volatile AtomicReferenceArray<Object> hardLinksToAvoidGarbageCollection;
+  /**
+   * 缓存的统计指标，未启用时为null
+   */
+  private volatile CacheMetrics metrics;
+
+  public ConcurrentSoftCache(Cache delegate) {
+    this.delegate = delegate;
+    this.hardLinksToAvoidGarbageCollection = new AtomicReferenceArray<>(256);
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    removeGarbageCollectedItems();
+    return data.size();
+  }
+
+  /**
+   * @param size the number of recently read values that are kept strongly reachable
+   */
+  public void setSize(int size) {
+    this.hardLinksToAvoidGarbageCollection = new AtomicReferenceArray<>(Math.max(size, 1));
+  }
+
+  @Override
+  public void setMetrics(CacheMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    removeGarbageCollectedItems();
+    data.put(key, new SoftEntry(key, value, queueOfGarbageCollectedEntries));
+  }
+
+  @Override
+  public void putAll(Map<Object, Object> entries) {
+    removeGarbageCollectedItems();
+    for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+      data.put(entry.getKey(), new SoftEntry(entry.getKey(), entry.getValue(), queueOfGarbageCollectedEntries));
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    SoftEntry entry = data.get(key);
+    if (entry == null) {
+      return null;
+    }
+    Object result = entry.get();
+    if (result == null) {
+      //value已经被GC回收
+      evict(entry);
+    } else {
+      AtomicReferenceArray<Object> hardLinks = hardLinksToAvoidGarbageCollection;
+      hardLinks.lazySet((int) (hardLinkIndex.getAndIncrement() % hardLinks.length()), result);
+    }
+    return result;
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    removeGarbageCollectedItems();
+    SoftEntry entry = data.remove(key);
+    return entry == null ? null : entry.get();
+  }
+
+  @Override
+  public void clear() {
+    AtomicReferenceArray<Object> hardLinks = hardLinksToAvoidGarbageCollection;
+    for (int i = 0; i < hardLinks.length(); i++) {
+      hardLinks.set(i, null);
+    }
+    removeGarbageCollectedItems();
+    data.clear();
+  }
+
+  /**
+   * 清理已经被GC回收的缓存项
+   */
+  private void removeGarbageCollectedItems() {
+    SoftEntry sv;
+    while ((sv = (SoftEntry) queueOfGarbageCollectedEntries.poll()) != null) {
+      evict(sv);
+    }
+  }
+
+  /**
+   * 删除value已被GC回收的缓存项，同一个key上新写入的缓存项不受影响
+   */
+  private void evict(SoftEntry entry) {
+    if (data.remove(entry.key, entry)) {
+      CacheMetrics current = metrics;
+      if (current != null) {
+        current.recordEviction(1);
+      }
+    }
+  }
+
+  private static class SoftEntry extends SoftReference<Object> {
+    private final Object key;
+
+    SoftEntry(Object key, Object value, ReferenceQueue<Object> garbageCollectionQueue) {
+      super(value, garbageCollectionQueue);
+      this.key = key;
+    }
+  }
+
+}
@@ -0,0 +1,345 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheMetrics;
+import org.apache.ibatis.cache.CacheMetricsAware;
+
+/**
+ * 按缓存项过期的装饰器：
+ *    与{@link ScheduledCache}定期清空整个缓存不同，每个缓存项在写入后经过timeToLive，或者最后一次访问后经过timeToIdle后单独过期，
+ *    过期的缓存项通过时间轮（timer wheel）分批清理。
+ *    设置了refreshAhead时，缓存项的存活时间超过timeToLive * refreshAhead后，第一个访问它的线程会得到null，
+ *    由该线程重新查询数据库并写回缓存，其他线程在此期间继续使用旧的缓存项。
+ * Per-entry expiry cache decorator.
+ * <p>
+ * Each entry expires {@code timeToLive} milliseconds after it was written and/or {@code timeToIdle} milliseconds
+ * after it was last read. Expired entries are never returned and are purged from the delegate by a hashed timer
+ * wheel that is advanced by the callers, so no background thread is needed.
+ * <p>
+ * With {@code refreshAhead} set to a ratio between 0 and 1, an entry that is read after
+ * {@code timeToLive * refreshAhead} milliseconds is reported as a miss to exactly one caller, which reloads it from
+ * the database and puts the fresh value, while all other callers keep getting the current value until it expires.
+ *
+ * @since 3.5.4
+ */
+public class ExpiringCache implements Cache, CacheMetricsAware {
+
+  private static final int WHEEL_SIZE = 256;
+  private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+  private static final int TICKS_PER_DURATION = 32;
+
+  private final Cache delegate;
+  /**
+   * 缓存项写入后的存活时间，0表示不限制
+   */
+  private long timeToLive;
+  /**
+   * 缓存项最后一次访问后的存活时间，0表示不限制
+   */
+  private long timeToIdle;
+  /**
+   * 提前刷新的比例，0表示不提前刷新
+   */
+  private double refreshAhead;
+
+  /**
+   * 保护时间轮
+   */
+  private final ReentrantLock wheelLock = new ReentrantLock();
+  private final Entry[] wheel = new Entry[WHEEL_SIZE];
+  private long tickMillis;
+  /**
+   * 时间轮最后一次推进到的刻度
+   */
+  private volatile long currentTick;
+  /**
+   * 缓存的统计指标，未启用时为null
+   */
+  private CacheMetrics metrics;
+
+  public ExpiringCache(Cache delegate) {
+    this.delegate = delegate;
+    updateTick();
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    expire(System.currentTimeMillis());
+    return delegate.getSize();
+  }
+
+  public long getTimeToLive() {
+    return timeToLive;
+  }
+
+  public void setTimeToLive(long timeToLive) {
+    this.timeToLive = timeToLive;
+    updateTick();
+  }
+
+  public long getTimeToIdle() {
+    return timeToIdle;
+  }
+
+  public void setTimeToIdle(long timeToIdle) {
+    this.timeToIdle = timeToIdle;
+    updateTick();
+  }
+
+  public double getRefreshAhead() {
+    return refreshAhead;
+  }
+
+  public void setRefreshAhead(double refreshAhead) {
+    if (refreshAhead < 0 || refreshAhead >= 1) {
+      throw new CacheException("The refreshAhead of cache '" + getId() + "' must be between 0 and 1 but was " + refreshAhead);
+    }
+    this.refreshAhead = refreshAhead;
+  }
+
+  @Override
+  public void setMetrics(CacheMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  @Override
+  public void putObject(Object key, Object object) {
+    long now = System.currentTimeMillis();
+    Entry entry = new Entry(key, object, now);
+    delegate.putObject(key, entry);
+    wheelLock.lock();
+    try {
+      advance(now);
+      schedule(entry, expirationTime(entry));
+    } finally {
+      wheelLock.unlock();
+    }
+  }
+
+  @Override
+  public void putAll(Map<Object, Object> entries) {
+    long now = System.currentTimeMillis();
+    Map<Object, Object> wrapped = new HashMap<>((int) (entries.size() / 0.75f) + 1);
+    for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+      wrapped.put(entry.getKey(), new Entry(entry.getKey(), entry.getValue(), now));
+    }
+    delegate.putAll(wrapped);
+    wheelLock.lock();
+    try {
+      advance(now);
+      for (Object entry : wrapped.values()) {
+        schedule((Entry) entry, expirationTime((Entry) entry));
+      }
+    } finally {
+      wheelLock.unlock();
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    Object object = delegate.getObject(key);
+    long now = System.currentTimeMillis();
+    if (now / tickMillis > currentTick && wheelLock.tryLock()) {
+      try {
+        advance(now);
+      } finally {
+        wheelLock.unlock();
+      }
+    }
+    if (!(object instanceof Entry)) {
+      return object;
+    }
+    Entry entry = (Entry) object;
+    if (expirationTime(entry) <= now) {
+      return null;
+    }
+    if (timeToIdle > 0) {
+      entry.accessTime = now;
+    }
+    if (refreshAhead > 0 && timeToLive > 0 && now - entry.writeTime >= (long) (timeToLive * refreshAhead)
+        && Entry.REFRESHING.compareAndSet(entry, 0, 1)) {
+      // 由当前线程重新加载该缓存项
+      return null;
+    }
+    return entry.value;
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    Object object = delegate.removeObject(key);
+    return object instanceof Entry ? ((Entry) object).value : object;
+  }
+
+  @Override
+  public void clear() {
+    wheelLock.lock();
+    try {
+      delegate.clear();
+      Arrays.fill(wheel, null);
+    } finally {
+      wheelLock.unlock();
+    }
+  }
+
+  @Override
+  public int hashCode() {
+    return delegate.hashCode();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return delegate.equals(obj);
+  }
+
+  private void updateTick() {
+    wheelLock.lock();
+    try {
+      long shortest = timeToLive > 0 && timeToIdle > 0 ? Math.min(timeToLive, timeToIdle) : Math.max(timeToLive, timeToIdle);
+      tickMillis = Math.max(shortest / TICKS_PER_DURATION, 1);
+      currentTick = System.currentTimeMillis() / tickMillis;
+      delegate.clear();
+      Arrays.fill(wheel, null);
+    } finally {
+      wheelLock.unlock();
+    }
+  }
+
+  private long expirationTime(Entry entry) {
+    long expiration = Long.MAX_VALUE;
+    if (timeToLive > 0) {
+      expiration = entry.writeTime + timeToLive;
+    }
+    if (timeToIdle > 0) {
+      expiration = Math.min(expiration, entry.accessTime + timeToIdle);
+    }
+    return expiration;
+  }
+
+  private void expire(long now) {
+    wheelLock.lock();
+    try {
+      advance(now);
+    } finally {
+      wheelLock.unlock();
+    }
+  }
+
+  /**
+   * 将时间轮推进到当前时间，清理到期的缓存项，因为访问而延长了存活时间的缓存项会被重新放入时间轮
+   */
+  private void advance(long now) {
+    long nowTick = now / tickMillis;
+    long previousTick = currentTick;
+    if (nowTick <= previousTick) {
+      return;
+    }
+    List<Entry> rescheduled = new ArrayList<>();
+    long ticks = Math.min(nowTick - previousTick, WHEEL_SIZE);
+    for (long tick = nowTick - ticks + 1; tick <= nowTick; tick++) {
+      int bucket = (int) (tick & WHEEL_MASK);
+      Entry entry = wheel[bucket];
+      while (entry != null) {
+        Entry next = entry.next;
+        if (entry.deadlineTick <= nowTick) {
+          unlink(bucket, entry);
+          if (expirationTime(entry) > now) {
+            rescheduled.add(entry);
+          } else if (delegate.getObject(entry.key) == entry) {
+            delegate.removeObject(entry.key);
+            if (metrics != null) {
+              metrics.recordEviction(1);
+            }
+          }
+        }
+        entry = next;
+      }
+    }
+    currentTick = nowTick;
+    for (Entry entry : rescheduled) {
+      schedule(entry, expirationTime(entry));
+    }
+  }
+
+  private void schedule(Entry entry, long expirationTime) {
+    if (expirationTime == Long.MAX_VALUE) {
+      return;
+    }
+    long tick = Math.max(expirationTime / tickMillis, currentTick + 1);
+    int bucket = (int) (tick & WHEEL_MASK);
+    entry.deadlineTick = tick;
+    entry.prev = null;
+    entry.next = wheel[bucket];
+    if (wheel[bucket] != null) {
+      wheel[bucket].prev = entry;
+    }
+    wheel[bucket] = entry;
+  }
+
+  private void unlink(int bucket, Entry entry) {
+    if (entry.prev == null) {
+      wheel[bucket] = entry.next;
+    } else {
+      entry.prev.next = entry.next;
+    }
+    if (entry.next != null) {
+      entry.next.prev = entry.prev;
+    }
+    entry.prev = null;
+    entry.next = null;
+  }
+
+  private static final class Entry {
+    static final AtomicIntegerFieldUpdater<Entry> REFRESHING =
+        AtomicIntegerFieldUpdater.newUpdater(Entry.class, "refreshing");
+
+    final Object key;
+    final Object value;
+    final long writeTime;
+    volatile long accessTime;
+    /**
+     * 是否已有线程在重新加载该缓存项
+     */
+    volatile int refreshing;
+    // 以下字段由wheelLock保护
+    long deadlineTick;
+    Entry prev;
+    Entry next;
+
+    Entry(Object key, Object value, long writeTime) {
+      this.key = key;
+      this.value = value;
+      this.writeTime = writeTime;
+      this.accessTime = writeTime;
+    }
+  }
+
+}
@@ -17,8 +17,11 @@ package org.apache.ibatis.cache.decorators;
 
 import java.util.Deque;
 import java.util.LinkedList;
+import java.util.Map;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheMetrics;
+import org.apache.ibatis.cache.CacheMetricsAware;
 
 /**
  * 在很多场景下，为了控制缓存的大小，系统需要按照一定的规则清理缓存。FifoCache是先进先出版本的装饰器，
@@ -27,7 +30,7 @@ import org.apache.ibatis.cache.Cache;
  *
  * @author Clinton Begin
  */
-public class FifoCache implements Cache {
+public class FifoCache implements Cache, CacheMetricsAware {
 
   /**
    * 底层被装饰的底层Cache对象
@@ -41,6 +44,10 @@ public class FifoCache implements Cache {
    * 记录缓存项的上线，超过该值，则需要清理最老的缓存项
    */
   private int size;
+  /**
+   * 缓存的统计指标，未启用时为null
+   */
+  private CacheMetrics metrics;
 
   public FifoCache(Cache delegate) {
     this.delegate = delegate;
@@ -63,6 +70,11 @@ public class FifoCache implements Cache {
   }
 
 
+  @Override
+  public void setMetrics(CacheMetrics metrics) {
+    this.metrics = metrics;
+  }
+
   @Override
   public void putObject(Object key, Object value) {
     //检测并清理缓存
@@ -71,6 +83,15 @@ public class FifoCache implements Cache {
     delegate.putObject(key, value);
   }
 
+  @Override
+  public void putAll(Map<Object, Object> entries) {
+    //先写入再清理，同一批次中较早的缓存项也可能被清理
+    delegate.putAll(entries);
+    for (Object key : entries.keySet()) {
+      cycleKeyList(key);
+    }
+  }
+
   @Override
   public Object getObject(Object key) {
     return delegate.getObject(key);
@@ -94,6 +115,9 @@ public class FifoCache implements Cache {
     if (keyList.size() > size) {
       Object oldestKey = keyList.removeFirst();
       delegate.removeObject(oldestKey);
+      if (metrics != null) {
+        metrics.recordEviction(1);
+      }
     }
   }
 
@@ -15,28 +15,43 @@
  */
 package org.apache.ibatis.cache.decorators;
 
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheMetrics;
+import org.apache.ibatis.cache.CacheMetricsAware;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
 
 /**
  * 提供了日志功能：
- *   通过hits字段和requests字段记录了Cache的命中次数和访问次数，在其getObject中会统计命中次数和访问次数这两个指标，
+ *   通过hitCount和requestCount记录了Cache的命中次数和访问次数，在其getObject中会统计命中次数和访问次数这两个指标，
  *   并按照指定的日志输出命中率。
+ *   设置了{@link CacheMetrics}时，还会记录每次读写缓存的耗时以及清空缓存的次数。
+ * <p>
+ * Since 3.5.4 the counters are updated without synchronization and the protected <code>requests</code> and
+ * <code>hits</code> fields have been removed; subclasses must use {@link #getRequestCount()} and
+ * {@link #getHitCount()} instead.
+ *
  * @author Clinton Begin
  */
-public class LoggingCache implements Cache {
+public class LoggingCache implements Cache, CacheMetricsAware {
 
   private final Log log;
   private final Cache delegate;
   /**
-   * 缓存访问次数
+   * 缓存访问次数，多个线程可能同时更新
+   */
+  private final LongAdder requestCount = new LongAdder();
+  /**
+   * 缓存命中次数，多个线程可能同时更新
    */
-  protected int requests = 0;
+  private final LongAdder hitCount = new LongAdder();
   /**
-   * 缓存命中次数
+   * 缓存的统计指标，未启用时为null
    */
-  protected int hits = 0;
+  private volatile CacheMetrics metrics;
 
   public LoggingCache(Cache delegate) {
     this.delegate = delegate;
@@ -53,17 +68,48 @@ public class LoggingCache implements Cache {
     return delegate.getSize();
   }
 
+  @Override
+  public void setMetrics(CacheMetrics metrics) {
+    this.metrics = metrics;
+  }
+
   @Override
   public void putObject(Object key, Object object) {
+    if (metrics == null) {
+      delegate.putObject(key, object);
+      return;
+    }
+    long start = System.nanoTime();
     delegate.putObject(key, object);
+    metrics.recordPut(1, System.nanoTime() - start);
+  }
+
+  @Override
+  public void putAll(Map<Object, Object> entries) {
+    if (metrics == null) {
+      delegate.putAll(entries);
+      return;
+    }
+    long start = System.nanoTime();
+    delegate.putAll(entries);
+    metrics.recordPut(entries.size(), System.nanoTime() - start);
   }
 
   @Override
   public Object getObject(Object key) {
-    requests++;
+    requestCount.increment();
+    long start = metrics == null ? 0 : System.nanoTime();
     final Object value = delegate.getObject(key);
+    if (metrics != null) {
+      long elapsed = System.nanoTime() - start;
+      if (value != null) {
+        metrics.recordHit(elapsed);
+      } else {
+        metrics.recordMiss(elapsed);
+      }
+    }
     if (value != null) {
-      hits++;
+      hitCount.increment();
     }
     if (log.isDebugEnabled()) {
       log.debug("Cache Hit Ratio [" + getId() + "]: " + getHitRatio());
@@ -79,6 +125,9 @@ public class LoggingCache implements Cache {
   @Override
   public void clear() {
     delegate.clear();
+    if (metrics != null) {
+      metrics.recordClear();
+    }
   }
 
   @Override
@@ -91,8 +140,24 @@ public class LoggingCache implements Cache {
     return delegate.equals(obj);
   }
 
+  /**
+   * @return the number of reads of this cache
+   * @since 3.5.4
+   */
+  protected long getRequestCount() {
+    return requestCount.sum();
+  }
+
+  /**
+   * @return the number of reads of this cache that found a value
+   * @since 3.5.4
+   */
+  protected long getHitCount() {
+    return hitCount.sum();
+  }
+
   private double getHitRatio() {
-    return (double) hits / (double) requests;
+    return (double) hitCount.sum() / (double) requestCount.sum();
   }
 
 }
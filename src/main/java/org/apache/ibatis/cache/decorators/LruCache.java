@@ -19,6 +19,8 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheMetrics;
+import org.apache.ibatis.cache.CacheMetricsAware;
 
 /**
  * LruCache是按照近期最少使用算法（Least Recently Used , LRU）进行缓存清理的装饰器，在需要清理换成时，它会清除最近最少使用的缓存项。
@@ -27,7 +29,7 @@ import org.apache.ibatis.cache.Cache;
  *
  * @author Clinton Begin
  */
-public class LruCache implements Cache {
+public class LruCache implements Cache, CacheMetricsAware {
 
   /**
    * 被装饰的底层Cache对象
@@ -41,6 +43,10 @@ public class LruCache implements Cache {
    * 记录最少被使用的缓存项的key
    */
   private Object eldestKey;
+  /**
+   * 缓存的统计指标，未启用时为null
+   */
+  private CacheMetrics metrics;
 
   public LruCache(Cache delegate) {
     this.delegate = delegate;
@@ -81,6 +87,11 @@ public class LruCache implements Cache {
     };
   }
 
+  @Override
+  public void setMetrics(CacheMetrics metrics) {
+    this.metrics = metrics;
+  }
+
   @Override
   public void putObject(Object key, Object value) {
     //添加缓存项
@@ -89,6 +100,14 @@ public class LruCache implements Cache {
     cycleKeyList(key);
   }
 
+  @Override
+  public void putAll(Map<Object, Object> entries) {
+    delegate.putAll(entries);
+    for (Object key : entries.keySet()) {
+      cycleKeyList(key);
+    }
+  }
+
   @Override
   public Object getObject(Object key) {
     //修改LinkedHashMap中记录的顺序
@@ -115,6 +134,9 @@ public class LruCache implements Cache {
       //删除最久未被使用的缓存项
       delegate.removeObject(eldestKey);
       eldestKey = null;
+      if (metrics != null) {
+        metrics.recordEviction(1);
+      }
     }
   }
 
@@ -0,0 +1,185 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.ibatis.reflection.Reflector;
+
+/**
+ * 粗略估算查询结果占用的堆内存字节数，用于按字节数限制缓存大小。
+ * Estimates the retained heap size of a cached query result.
+ * <p>
+ * The estimate assumes a 64-bit JVM with compressed references. JDK types other than strings, numbers, arrays,
+ * collections and maps are counted as a fixed-size object and are not traversed.
+ *
+ * @since 3.5.4
+ */
+public final class ObjectSizeEstimator {
+
+  private static final int OBJECT_HEADER = 16;
+  private static final int REFERENCE = 4;
+  private static final int COLLECTION_ENTRY = 32;
+  private static final int MAX_VISITED = 100_000;
+
+  /**
+   * 使用ClassValue缓存字段，缓存项随Class一起回收，不会阻止应用的类加载器被卸载
+   */
+  private static final ClassValue<Field[]> FIELDS_CACHE = new ClassValue<Field[]>() {
+    @Override
+    protected Field[] computeValue(Class<?> type) {
+      return findFields(type);
+    }
+  };
+  private static final boolean CAN_ACCESS_FIELDS = Reflector.canControlMemberAccessible();
+
+  private ObjectSizeEstimator() {
+    // Prevent Instantiation
+  }
+
+  /**
+   * @param root the object to measure
+   * @return the estimated bytes retained by the object and everything reachable from it
+   */
+  public static long estimate(Object root) {
+    if (root == null) {
+      return 0;
+    }
+    long size = 0;
+    Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+    Deque<Object> pending = new ArrayDeque<>();
+    pending.push(root);
+    while (!pending.isEmpty() && visited.size() < MAX_VISITED) {
+      Object object = pending.pop();
+      if (!visited.add(object)) {
+        continue;
+      }
+      size += shallowSize(object, pending);
+    }
+    return size;
+  }
+
+  private static long shallowSize(Object object, Deque<Object> pending) {
+    Class<?> type = object.getClass();
+    if (object instanceof String) {
+      return align(40 + 2L * ((String) object).length());
+    }
+    if (object instanceof Number || object instanceof Boolean || object instanceof Character
+        || object instanceof java.util.Date || type.isEnum()) {
+      return object instanceof java.math.BigDecimal || object instanceof java.math.BigInteger ? 64 : 24;
+    }
+    if (type.isArray()) {
+      int length = Array.getLength(object);
+      Class<?> componentType = type.getComponentType();
+      if (componentType.isPrimitive()) {
+        return align(OBJECT_HEADER + (long) length * primitiveSize(componentType));
+      }
+      for (Object element : (Object[]) object) {
+        pushIfNotNull(pending, element);
+      }
+      return align(OBJECT_HEADER + (long) length * REFERENCE);
+    }
+    if (object instanceof Collection) {
+      Collection<?> collection = (Collection<?>) object;
+      for (Object element : collection) {
+        pushIfNotNull(pending, element);
+      }
+      return 48 + (long) collection.size() * COLLECTION_ENTRY;
+    }
+    if (object instanceof Map) {
+      Map<?, ?> map = (Map<?, ?>) object;
+      for (Map.Entry<?, ?> entry : map.entrySet()) {
+        pushIfNotNull(pending, entry.getKey());
+        pushIfNotNull(pending, entry.getValue());
+      }
+      return 48 + (long) map.size() * (COLLECTION_ENTRY + 8);
+    }
+    if (type.getClassLoader() == null || !CAN_ACCESS_FIELDS) {
+      return 24;
+    }
+    long size = OBJECT_HEADER;
+    for (Field field : getFields(type)) {
+      Class<?> fieldType = field.getType();
+      if (fieldType.isPrimitive()) {
+        size += primitiveSize(fieldType);
+      } else {
+        size += REFERENCE;
+        try {
+          pushIfNotNull(pending, field.get(object));
+        } catch (IllegalAccessException e) {
+          // Ignored, the referenced object is not counted.
+        }
+      }
+    }
+    return align(size);
+  }
+
+  private static Field[] getFields(Class<?> type) {
+    return FIELDS_CACHE.get(type);
+  }
+
+  private static Field[] findFields(Class<?> type) {
+    List<Field> fields = new ArrayList<>();
+    // JDK的父类不做反射访问
+    for (Class<?> current = type; current != null && current.getClassLoader() != null; current = current.getSuperclass()) {
+      for (Field field : current.getDeclaredFields()) {
+        if (Modifier.isStatic(field.getModifiers())) {
+          continue;
+        }
+        try {
+          field.setAccessible(true);
+          fields.add(field);
+        } catch (RuntimeException e) {
+          // Ignored, the field is not counted.
+        }
+      }
+    }
+    return fields.toArray(new Field[0]);
+  }
+
+  private static void pushIfNotNull(Deque<Object> pending, Object object) {
+    if (object != null) {
+      pending.push(object);
+    }
+  }
+
+  private static int primitiveSize(Class<?> type) {
+    if (type == long.class || type == double.class) {
+      return 8;
+    } else if (type == int.class || type == float.class) {
+      return 4;
+    } else if (type == short.class || type == char.class) {
+      return 2;
+    }
+    return 1;
+  }
+
+  private static long align(long size) {
+    return (size + 7) & ~7L;
+  }
+
+}
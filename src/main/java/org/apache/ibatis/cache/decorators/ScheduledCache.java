@@ -16,7 +16,10 @@
 package org.apache.ibatis.cache.decorators;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheMetrics;
+import org.apache.ibatis.cache.CacheMetricsAware;
 
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -26,7 +29,7 @@ import java.util.concurrent.TimeUnit;
  *    是否需要进行清理操作，清理操作会清空缓存中所有缓存项。
  * @author Clinton Begin
  */
-public class ScheduledCache implements Cache {
+public class ScheduledCache implements Cache, CacheMetricsAware {
 
   private final Cache delegate;
   /**
@@ -34,9 +37,13 @@ public class ScheduledCache implements Cache {
    */
   protected long clearInterval;
   /**
-   * 最后一次被清理的时间戳
+   * 最后一次被清理的时间戳，多个线程可能同时读写
    */
-  protected long lastClear;
+  protected volatile long lastClear;
+  /**
+   * 缓存的统计指标，未启用时为null
+   */
+  private CacheMetrics metrics;
 
   public ScheduledCache(Cache delegate) {
     this.delegate = delegate;
@@ -48,6 +55,11 @@ public class ScheduledCache implements Cache {
     this.clearInterval = clearInterval;
   }
 
+  @Override
+  public void setMetrics(CacheMetrics metrics) {
+    this.metrics = metrics;
+  }
+
   @Override
   public String getId() {
     return delegate.getId();
@@ -65,6 +77,12 @@ public class ScheduledCache implements Cache {
     delegate.putObject(key, object);
   }
 
+  @Override
+  public void putAll(Map<Object, Object> entries) {
+    clearWhenStale();
+    delegate.putAll(entries);
+  }
+
   @Override
   public Object getObject(Object key) {
     return clearWhenStale() ? null : delegate.getObject(key);
@@ -95,6 +113,9 @@ public class ScheduledCache implements Cache {
   private boolean clearWhenStale() {
     if (System.currentTimeMillis() - lastClear > clearInterval) {
       clear();
+      if (metrics != null) {
+        metrics.recordClear();
+      }
       return true;
     }
     return false;
@@ -15,17 +15,18 @@
  */
 package org.apache.ibatis.cache.decorators;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.ObjectStreamClass;
 import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheSerializer;
+import org.apache.ibatis.cache.serializer.JdkCacheSerializer;
 import org.apache.ibatis.io.Resources;
 
 /**
@@ -36,7 +37,7 @@ import org.apache.ibatis.io.Resources;
  *    其他的缓存装饰器实现进行装饰之后，每次从缓存中获取同一key对应的对象时，得到的都是同一个对象，任意一个线程修改该对象都会影响到其他线程以及缓存中的对象；
  *    而SerializedCache每次从缓存中获取数据时，都会通过反序列化得到一个全新的对象。
  *
- *    SerializedCache的序列化方式是java原生的序列化方式。
+ *    SerializedCache默认使用java原生的序列化方式，也可以通过{@link CacheSerializer}指定其他序列化方式。
  * @author Clinton Begin
  */
 public class SerializedCache implements Cache {
@@ -45,9 +46,21 @@ public class SerializedCache implements Cache {
    * 被装饰的底层Cache对象
    */
   private final Cache delegate;
+  /**
+   * 序列化器
+   */
+  private final CacheSerializer serializer;
 
   public SerializedCache(Cache delegate) {
+    this(delegate, new JdkCacheSerializer());
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  public SerializedCache(Cache delegate, CacheSerializer serializer) {
     this.delegate = delegate;
+    this.serializer = serializer;
   }
 
   @Override
@@ -64,17 +77,30 @@ public class SerializedCache implements Cache {
   public void putObject(Object key, Object object) {
     if (object == null || object instanceof Serializable) {
       //对value的对象进行序列化，并将序列化后的byte[]数组作为value存入缓存。
-      delegate.putObject(key, serialize((Serializable) object));
+      delegate.putObject(key, serializer.serialize(object));
     } else {
       throw new CacheException("SharedCache failed to make a copy of a non-serializable object: " + object);
     }
   }
 
+  @Override
+  public void putAll(Map<Object, Object> entries) {
+    Map<Object, Object> serialized = new HashMap<>((int) (entries.size() / 0.75f) + 1);
+    for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+      Object object = entry.getValue();
+      if (object != null && !(object instanceof Serializable)) {
+        throw new CacheException("SharedCache failed to make a copy of a non-serializable object: " + object);
+      }
+      serialized.put(entry.getKey(), serializer.serialize(object));
+    }
+    delegate.putAll(serialized);
+  }
+
   @Override
   public Object getObject(Object key) {
     Object object = delegate.getObject(key);
     //在获取缓存的时候，会把缓存项中的byte[]数组反序列化成java对象
-    return object == null ? null : deserialize((byte[]) object);
+    return object == null ? null : serializer.deserialize((byte[]) object);
   }
 
   @Override
@@ -97,28 +123,6 @@ public class SerializedCache implements Cache {
     return delegate.equals(obj);
   }
 
-  private byte[] serialize(Serializable value) {
-    try (ByteArrayOutputStream bos = new ByteArrayOutputStream();
-         ObjectOutputStream oos = new ObjectOutputStream(bos)) {
-      oos.writeObject(value);
-      oos.flush();
-      return bos.toByteArray();
-    } catch (Exception e) {
-      throw new CacheException("Error serializing object.  Cause: " + e, e);
-    }
-  }
-
-  private Serializable deserialize(byte[] value) {
-    Serializable result;
-    try (ByteArrayInputStream bis = new ByteArrayInputStream(value);
-         ObjectInputStream ois = new CustomObjectInputStream(bis)) {
-      result = (Serializable) ois.readObject();
-    } catch (Exception e) {
-      throw new CacheException("Error deserializing object.  Cause: " + e, e);
-    }
-    return result;
-  }
-
   public static class CustomObjectInputStream extends ObjectInputStream {
 
     public CustomObjectInputStream(InputStream in) throws IOException {
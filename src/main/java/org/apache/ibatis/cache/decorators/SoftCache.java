@@ -21,6 +21,8 @@ import java.util.Deque;
 import java.util.LinkedList;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheMetrics;
+import org.apache.ibatis.cache.CacheMetricsAware;
 
 /**
  * Soft Reference cache decorator
@@ -28,7 +30,7 @@ import org.apache.ibatis.cache.Cache;
  *
  * @author Clinton Begin
  */
-public class SoftCache implements Cache {
+public class SoftCache implements Cache, CacheMetricsAware {
 
   /**
    * 在SoftCache中，最近被使用的一部分缓存项不会被GC回收，这就是通过将其value添加到hardLinksToAvoidGarbageCollection集合中实现的（即有强引用指向其value），
@@ -49,6 +51,10 @@ public class SoftCache implements Cache {
    * 强连接的个数，默认值为256
    */
   private int numberOfHardLinks;
+  /**
+   * 缓存的统计指标，未启用时为null
+   */
+  private CacheMetrics metrics;
 
   public SoftCache(Cache delegate) {
     this.delegate = delegate;
@@ -57,6 +63,11 @@ public class SoftCache implements Cache {
     this.queueOfGarbageCollectedEntries = new ReferenceQueue<>();
   }
 
+  @Override
+  public void setMetrics(CacheMetrics metrics) {
+    this.metrics = metrics;
+  }
+
   @Override
   public String getId() {
     return delegate.getId();
@@ -94,7 +105,7 @@ public class SoftCache implements Cache {
       //已经被GC回收
       if (result == null) {
         //从缓存中清理对应的缓存项
-        delegate.removeObject(key);
+        evict(key);
       } else {
         //未被GC回收
         //缓存项的value添加到hardLinksToAvoidGarbageCollection集合中保存
@@ -137,7 +148,16 @@ public class SoftCache implements Cache {
     //遍历queueOfGarbageCollectedEntries集合
     while ((sv = (SoftEntry) queueOfGarbageCollectedEntries.poll()) != null) {
       //将已经被GC回收的value对象对应的缓存项清除
-      delegate.removeObject(sv.key);
+      evict(sv.key);
+    }
+  }
+
+  /**
+   * 删除value已被GC回收的缓存项
+   */
+  private void evict(Object key) {
+    if (delegate.removeObject(key) != null && metrics != null) {
+      metrics.recordEviction(1);
     }
   }
 
@@ -0,0 +1,61 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.io.Serializable;
+
+/**
+ * 使用标签的缓存中保存的缓存项，记录了查询结果依赖的标签以及查询前这些标签的版本号。
+ * A cached result of a cache that uses tags, with the tags it depends on and their versions before the query ran.
+ *
+ * @see org.apache.ibatis.cache.CacheTagRegistry
+ * @since 3.5.4
+ */
+final class TaggedEntry implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private String[] tags;
+  private long[] versions;
+  private Object value;
+
+  TaggedEntry() {
+    // For deserialization
+  }
+
+  TaggedEntry(String[] tags, long[] versions, Object value) {
+    this.tags = tags;
+    this.versions = versions;
+    this.value = value;
+  }
+
+  String[] getTags() {
+    return tags;
+  }
+
+  long[] getVersions() {
+    return versions;
+  }
+
+  void setVersions(long[] versions) {
+    this.versions = versions;
+  }
+
+  Object getValue() {
+    return value;
+  }
+
+}
@@ -0,0 +1,526 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheMetrics;
+import org.apache.ibatis.cache.CacheMetricsAware;
+import org.apache.ibatis.cache.ThreadSafeCache;
+
+/**
+ * TinyLfuCache是按照W-TinyLFU算法进行缓存清理的装饰器，缓存项保存在ConcurrentHashMap中，读操作不加锁。
+ * 新缓存项先进入窗口LRU，离开窗口后只有当其访问频率高于主区域（分段LRU）中的淘汰候选项时才会被保留。
+ * Concurrent W-TinyLFU (window TinyLFU) cache decorator.
+ * <p>
+ * Entries are kept in a {@link ConcurrentHashMap}, so lookups never take a lock. Accesses are recorded in lossy
+ * striped buffers and replayed against the eviction policy by whichever thread acquires the eviction lock, while
+ * writes update the policy directly under that lock. New entries enter a small LRU window; when they leave it they
+ * are admitted to the segmented LRU main space only if a frequency sketch estimates them to be more popular than the
+ * entry that would be evicted instead.
+ * <p>
+ * The capacity is the number of entries ({@link #setSize(int)}, 1024 by default) unless {@link #setMaxBytes(long)}
+ * is set, in which case the estimated heap size of the cached values is used.
+ * <p>
+ * The decorated cache only provides the id; it is never used to store entries.
+ *
+ * @since 3.5.4
+ */
+public class TinyLfuCache implements Cache, CacheMetricsAware, ThreadSafeCache {
+
+  private static final int READ_BUFFER_SIZE = 16;
+  private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+  private static final int READ_BUFFER_DRAIN_THRESHOLD = 8;
+  private static final int NUMBER_OF_READ_BUFFERS =
+      Integer.highestOneBit(Math.max(Runtime.getRuntime().availableProcessors() - 1, 1)) << 1;
+
+  private static final double WINDOW_PERCENTAGE = 0.01d;
+  private static final double PROTECTED_PERCENTAGE = 0.8d;
+
+  private static final byte UNLINKED = 0;
+  private static final byte WINDOW = 1;
+  private static final byte PROBATION = 2;
+  private static final byte PROTECTED = 3;
+
+  /**
+   * 被装饰的底层Cache对象，只用于提供id
+   */
+  private final Cache delegate;
+  private final ConcurrentHashMap<Object, Node> data = new ConcurrentHashMap<>();
+  /**
+   * 保护淘汰策略相关的所有字段
+   */
+  private final ReentrantLock evictionLock = new ReentrantLock();
+  private final ReadBuffer[] readBuffers = new ReadBuffer[NUMBER_OF_READ_BUFFERS];
+
+  private final AccessOrderDeque window = new AccessOrderDeque();
+  private final AccessOrderDeque probation = new AccessOrderDeque();
+  private final AccessOrderDeque protectedDeque = new AccessOrderDeque();
+  private final FrequencySketch sketch;
+
+  private int size;
+  private long maxBytes;
+  private long maximum;
+  private long windowMaximum;
+  private long protectedMaximum;
+  private long weightedSize;
+  /**
+   * 缓存的统计指标，未启用时为null
+   */
+  private volatile CacheMetrics metrics;
+  private long windowWeightedSize;
+  private long protectedWeightedSize;
+
+  public TinyLfuCache(Cache delegate) {
+    this.delegate = delegate;
+    for (int i = 0; i < readBuffers.length; i++) {
+      readBuffers[i] = new ReadBuffer();
+    }
+    this.size = 1024;
+    this.sketch = new FrequencySketch(size);
+    updateMaximum();
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return data.size();
+  }
+
+  /**
+   * 设置缓存项的最大个数，设置了maxBytes时只用于估算频率统计表的大小
+   *
+   * @param size the maximum number of entries
+   */
+  public void setSize(int size) {
+    evictionLock.lock();
+    try {
+      this.size = size;
+      sketch.ensureCapacity(size);
+      updateMaximum();
+      evict();
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  /**
+   * 设置缓存项估算占用的最大字节数，大于0时按字节数而非缓存项个数限制缓存大小
+   *
+   * @param maxBytes the maximum estimated heap size of the cached values, or 0 to bound by entries
+   */
+  public void setMaxBytes(long maxBytes) {
+    evictionLock.lock();
+    try {
+      this.maxBytes = maxBytes;
+      updateMaximum();
+      evict();
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  @Override
+  public void setMetrics(CacheMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    Node node = new Node(key, value, maxBytes > 0 ? Math.max(ObjectSizeEstimator.estimate(value), 1) : 1);
+    Node prior = data.put(key, node);
+    evictionLock.lock();
+    try {
+      drainReadBuffers();
+      if (prior != null) {
+        unlink(prior);
+      }
+      onAdd(node);
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  @Override
+  public void putAll(Map<Object, Object> entries) {
+    List<Node> nodes = new ArrayList<>(entries.size());
+    List<Node> priors = new ArrayList<>();
+    for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+      Object value = entry.getValue();
+      Node node = new Node(entry.getKey(), value, maxBytes > 0 ? Math.max(ObjectSizeEstimator.estimate(value), 1) : 1);
+      Node prior = data.put(entry.getKey(), node);
+      if (prior != null) {
+        priors.add(prior);
+      }
+      nodes.add(node);
+    }
+    // 整批缓存项只获取一次锁
+    evictionLock.lock();
+    try {
+      drainReadBuffers();
+      for (Node prior : priors) {
+        unlink(prior);
+      }
+      for (Node node : nodes) {
+        onAdd(node);
+      }
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    Node node = data.get(key);
+    if (node == null) {
+      return null;
+    }
+    afterRead(node);
+    return node.value;
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    Node node = data.remove(key);
+    if (node == null) {
+      return null;
+    }
+    evictionLock.lock();
+    try {
+      unlink(node);
+    } finally {
+      evictionLock.unlock();
+    }
+    return node.value;
+  }
+
+  @Override
+  public void clear() {
+    evictionLock.lock();
+    try {
+      drainReadBuffers();
+      data.clear();
+      window.clear();
+      probation.clear();
+      protectedDeque.clear();
+      weightedSize = 0;
+      windowWeightedSize = 0;
+      protectedWeightedSize = 0;
+      reportEstimatedBytes();
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  private void afterRead(Node node) {
+    ReadBuffer buffer = readBuffers[bufferIndex()];
+    if (buffer.offer(node) && evictionLock.tryLock()) {
+      try {
+        drainReadBuffers();
+      } finally {
+        evictionLock.unlock();
+      }
+    }
+  }
+
+  private static int bufferIndex() {
+    long id = Thread.currentThread().getId();
+    int h = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+    return (h ^ (h >>> 16)) & (NUMBER_OF_READ_BUFFERS - 1);
+  }
+
+  private void drainReadBuffers() {
+    for (ReadBuffer buffer : readBuffers) {
+      buffer.drainTo(this);
+    }
+  }
+
+  private void updateMaximum() {
+    maximum = maxBytes > 0 ? maxBytes : Math.max(size, 1);
+    windowMaximum = Math.max((long) (maximum * WINDOW_PERCENTAGE), 1);
+    protectedMaximum = (long) ((maximum - windowMaximum) * PROTECTED_PERCENTAGE);
+  }
+
+  private void onAdd(Node node) {
+    // 在加锁前该缓存项可能已被删除或覆盖
+    if (data.get(node.key) != node) {
+      return;
+    }
+    if (maxBytes > 0) {
+      sketch.ensureCapacity(data.size());
+    }
+    sketch.increment(node.hash);
+    node.queue = WINDOW;
+    window.addLast(node);
+    windowWeightedSize += node.weight;
+    weightedSize += node.weight;
+    evict();
+  }
+
+  private void onAccess(Node node) {
+    sketch.increment(node.hash);
+    switch (node.queue) {
+      case WINDOW:
+        window.moveToBack(node);
+        break;
+      case PROBATION:
+        probation.remove(node);
+        node.queue = PROTECTED;
+        protectedDeque.addLast(node);
+        protectedWeightedSize += node.weight;
+        demoteFromProtected();
+        break;
+      case PROTECTED:
+        protectedDeque.moveToBack(node);
+        break;
+      default:
+        // 已被删除
+        break;
+    }
+  }
+
+  private void demoteFromProtected() {
+    while (protectedWeightedSize > protectedMaximum) {
+      Node demoted = protectedDeque.pollFirst();
+      if (demoted == null) {
+        break;
+      }
+      protectedWeightedSize -= demoted.weight;
+      demoted.queue = PROBATION;
+      probation.addLast(demoted);
+    }
+  }
+
+  /**
+   * 将超出窗口大小的缓存项移入试用区作为候选项，然后在缓存超出上限时，
+   * 比较候选项与试用区头部（最久未使用）缓存项的访问频率，淘汰频率较低的一个
+   */
+  private void evict() {
+    Node candidate = null;
+    while (windowWeightedSize > windowMaximum) {
+      Node node = window.pollFirst();
+      if (node == null) {
+        break;
+      }
+      windowWeightedSize -= node.weight;
+      node.queue = PROBATION;
+      probation.addLast(node);
+      if (candidate == null) {
+        candidate = node;
+      }
+    }
+    while (weightedSize > maximum) {
+      Node victim = probation.peekFirst();
+      if (victim == null) {
+        victim = protectedDeque.peekFirst() != null ? protectedDeque.peekFirst() : window.peekFirst();
+        if (victim == null) {
+          break;
+        }
+      } else if (candidate != null && victim != candidate) {
+        if (admit(candidate, victim)) {
+          evictEntry(victim);
+        } else {
+          Node next = candidate.next;
+          evictEntry(candidate);
+          candidate = next;
+        }
+        continue;
+      } else if (victim == candidate) {
+        candidate = candidate.next;
+      }
+      evictEntry(victim);
+    }
+    reportEstimatedBytes();
+  }
+
+  private boolean admit(Node candidate, Node victim) {
+    return sketch.frequency(candidate.hash) > sketch.frequency(victim.hash);
+  }
+
+  private void evictEntry(Node node) {
+    unlink(node);
+    data.remove(node.key, node);
+    CacheMetrics metrics = this.metrics;
+    if (metrics != null) {
+      metrics.recordEviction(1);
+    }
+  }
+
+  private void reportEstimatedBytes() {
+    CacheMetrics metrics = this.metrics;
+    if (metrics != null && maxBytes > 0) {
+      metrics.recordEstimatedBytes(weightedSize);
+    }
+  }
+
+  private void unlink(Node node) {
+    switch (node.queue) {
+      case WINDOW:
+        window.remove(node);
+        windowWeightedSize -= node.weight;
+        break;
+      case PROBATION:
+        probation.remove(node);
+        break;
+      case PROTECTED:
+        protectedDeque.remove(node);
+        protectedWeightedSize -= node.weight;
+        break;
+      default:
+        return;
+    }
+    weightedSize -= node.weight;
+    node.queue = UNLINKED;
+  }
+
+  private static final class Node {
+    final Object key;
+    final Object value;
+    final long weight;
+    final int hash;
+    // 以下字段由evictionLock保护
+    byte queue;
+    Node prev;
+    Node next;
+
+    Node(Object key, Object value, long weight) {
+      this.key = key;
+      this.value = value;
+      this.weight = weight;
+      this.hash = key.hashCode();
+    }
+  }
+
+  /**
+   * 通过Node的prev/next字段实现的双向链表，头部是最久未使用的缓存项
+   */
+  private static final class AccessOrderDeque {
+    private Node first;
+    private Node last;
+
+    Node peekFirst() {
+      return first;
+    }
+
+    Node pollFirst() {
+      Node node = first;
+      if (node != null) {
+        remove(node);
+      }
+      return node;
+    }
+
+    void addLast(Node node) {
+      node.prev = last;
+      node.next = null;
+      if (last == null) {
+        first = node;
+      } else {
+        last.next = node;
+      }
+      last = node;
+    }
+
+    void remove(Node node) {
+      if (node.prev == null) {
+        first = node.next;
+      } else {
+        node.prev.next = node.next;
+      }
+      if (node.next == null) {
+        last = node.prev;
+      } else {
+        node.next.prev = node.prev;
+      }
+      node.prev = null;
+      node.next = null;
+    }
+
+    void moveToBack(Node node) {
+      if (node != last) {
+        remove(node);
+        addLast(node);
+      }
+    }
+
+    void clear() {
+      for (Node node = first; node != null; ) {
+        Node next = node.next;
+        node.prev = null;
+        node.next = null;
+        node.queue = UNLINKED;
+        node = next;
+      }
+      first = null;
+      last = null;
+    }
+  }
+
+  /**
+   * 记录读操作的有损环形缓冲区，缓冲区已满时直接丢弃访问记录
+   */
+  private static final class ReadBuffer {
+    private final AtomicReferenceArray<Node> buffer = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+    private final AtomicLong writeCounter = new AtomicLong();
+    // 只在持有evictionLock时修改
+    private volatile long readCounter;
+
+    /**
+     * 返回是否需要清空缓冲区
+     */
+    boolean offer(Node node) {
+      long head = readCounter;
+      long tail = writeCounter.get();
+      long size = tail - head;
+      if (size >= READ_BUFFER_SIZE) {
+        return true;
+      }
+      if (writeCounter.compareAndSet(tail, tail + 1)) {
+        buffer.lazySet((int) (tail & READ_BUFFER_MASK), node);
+        return size + 1 >= READ_BUFFER_DRAIN_THRESHOLD;
+      }
+      return false;
+    }
+
+    void drainTo(TinyLfuCache cache) {
+      long head = readCounter;
+      long tail = writeCounter.get();
+      for (; head < tail; head++) {
+        int index = (int) (head & READ_BUFFER_MASK);
+        Node node = buffer.get(index);
+        if (node == null) {
+          // 写入线程还未发布该记录
+          break;
+        }
+        buffer.lazySet(index, null);
+        cache.onAccess(node);
+      }
+      readCounter = head;
+    }
+  }
+
+}
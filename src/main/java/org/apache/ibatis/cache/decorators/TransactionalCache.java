@@ -15,12 +15,21 @@
  */
 package org.apache.ibatis.cache.decorators;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheTagRegistry;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
 
@@ -31,6 +40,17 @@ import org.apache.ibatis.logging.LogFactory;
  * Entries are sent to the cache when commit is called or discarded if the Session is rolled back.
  * Blocking cache support has been added. Therefore any get() that returns a cache miss
  * will be followed by a put() so any lock associated with the key can be released.
+ * <p>
+ * Pending entries are written with a single {@link Cache#putAll(Map)} call. In write-behind mode the writes of a
+ * commit are queued to a background thread shared by all the caches, so they are applied in commit order without
+ * delaying the commit. A commit that clears the cache does so right away and starts a new epoch of the cache; writes
+ * queued in an earlier epoch are dropped, so entries read before the clear are never written after it. The queue is
+ * bounded: when it is full the committed entries are discarded, which only costs later cache misses. Blocking caches
+ * are always written synchronously because their locks belong to the committing thread.
+ * <p>
+ * For caches that use tags (see {@link CacheTagRegistry}) a statement that declares tags invalidates them on commit
+ * instead of clearing the cache. Results are stored with the versions of their tags taken on the cache miss, and
+ * results whose tags were invalidated since are reported as misses.
  *
  * @author Clinton Begin
  * @author Eduardo Macarron
@@ -52,12 +72,56 @@ public class TransactionalCache implements Cache {
    * 缓存中缺少的条目
    */
   private final Set<Object> entriesMissedInCache;
+  /**
+   * 是否由后台线程写入缓存
+   */
+  private final boolean writeBehind;
+  /**
+   * 标签的版本号，缓存没有使用标签时为null
+   */
+  private final CacheTagRegistry tagRegistry;
+  /**
+   * 提交时失效的标签
+   */
+  private final Set<String> tagsToInvalidateOnCommit;
+  /**
+   * 未命中时读取到的标签版本号
+   */
+  private final Map<Object, long[]> versionsOnMiss;
+  /**
+   * 缓存的纪元，每次清空缓存时加1，只在write-behind模式下使用
+   */
+  private final AtomicLong epoch;
 
   public TransactionalCache(Cache delegate) {
+    this(delegate, false);
+  }
+
+  /**
+   * @param delegate the 2nd level cache
+   * @param writeBehind whether committed entries are written to the cache by a background thread
+   * @since 3.5.4
+   */
+  public TransactionalCache(Cache delegate, boolean writeBehind) {
+    this(delegate, writeBehind, null);
+  }
+
+  /**
+   * @param delegate the 2nd level cache
+   * @param writeBehind whether committed entries are written to the cache by a background thread
+   * @param tagRegistry the tag versions, may be null
+   * @since 3.5.4
+   */
+  public TransactionalCache(Cache delegate, boolean writeBehind, CacheTagRegistry tagRegistry) {
     this.delegate = delegate;
+    this.writeBehind = writeBehind && !(delegate instanceof BlockingCache);
+    this.tagRegistry = tagRegistry != null && tagRegistry.isTagged(delegate.getId()) ? tagRegistry : null;
     this.clearOnCommit = false;
     this.entriesToAddOnCommit = new HashMap<>();
     this.entriesMissedInCache = new HashSet<>();
+    this.tagsToInvalidateOnCommit = new HashSet<>();
+    this.versionsOnMiss = new HashMap<>();
+    this.epoch = this.writeBehind ? WriteBehindExecutor.epochOf(delegate) : null;
   }
 
   @Override
@@ -72,13 +136,31 @@ public class TransactionalCache implements Cache {
 
   @Override
   public Object getObject(Object key) {
+    return getObject(key, null);
+  }
+
+  /**
+   * @param key the cache key
+   * @param tags the tags read by the statement, or null if it declares none
+   * @return the cached result, or null on a miss
+   * @since 3.5.4
+   */
+  public Object getObject(Object key, String[] tags) {
     // issue #116
     Object object = delegate.getObject(key);
+    if (object instanceof TaggedEntry) {
+      TaggedEntry entry = (TaggedEntry) object;
+      object = tagRegistry != null && tagRegistry.isCurrent(getId(), entry.getTags(), entry.getVersions()) ? entry.getValue() : null;
+    }
     if (object == null) {
       entriesMissedInCache.add(key);
+      if (tagRegistry != null) {
+        //在查询数据库之前读取标签的版本号，查询期间失效的标签会使该查询结果作废
+        versionsOnMiss.put(key, tagRegistry.snapshot(getId(), tags));
+      }
     }
     // issue #146
-    if (clearOnCommit) {
+    if (clearOnCommit || isInvalidated(tags)) {
       return null;
     } else {
       return object;
@@ -87,7 +169,69 @@ public class TransactionalCache implements Cache {
 
   @Override
   public void putObject(Object key, Object object) {
-    entriesToAddOnCommit.put(key, object);
+    putObject(key, object, null);
+  }
+
+  /**
+   * @param key the cache key
+   * @param object the result of the statement
+   * @param tags the tags read by the statement, or null if it declares none
+   * @since 3.5.4
+   */
+  public void putObject(Object key, Object object, String[] tags) {
+    if (tagRegistry == null) {
+      entriesToAddOnCommit.put(key, object);
+      return;
+    }
+    long[] versions = versionsOnMiss.remove(key);
+    if (isInvalidated(tags)) {
+      //查询结果包含了本事务的修改，提交时在标签失效后再读取版本号
+      versions = null;
+    } else if (versions == null) {
+      versions = tagRegistry.snapshot(getId(), tags);
+    }
+    entriesToAddOnCommit.put(key, new TaggedEntry(tags, versions, object));
+  }
+
+  /**
+   * 提交时使指定的标签失效，本事务之前暂存的依赖这些标签的查询结果会被丢弃
+   *
+   * @param tags the tags written by the statement
+   * @since 3.5.4
+   */
+  public void invalidate(String[] tags) {
+    if (tagRegistry == null) {
+      clear();
+      return;
+    }
+    for (String tag : tags) {
+      tagsToInvalidateOnCommit.add(tag);
+    }
+    Iterator<Object> iterator = entriesToAddOnCommit.values().iterator();
+    while (iterator.hasNext()) {
+      Object object = iterator.next();
+      if (object instanceof TaggedEntry && isInvalidated(((TaggedEntry) object).getTags())) {
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * 依赖指定标签的查询结果是否已被本事务失效，没有声明标签的查询结果依赖所有标签
+   */
+  private boolean isInvalidated(String[] tags) {
+    if (tagsToInvalidateOnCommit.isEmpty()) {
+      return false;
+    }
+    if (tags == null) {
+      return true;
+    }
+    for (String tag : tags) {
+      if (tagsToInvalidateOnCommit.contains(tag)) {
+        return true;
+      }
+    }
+    return false;
   }
 
   @Override
@@ -103,9 +247,29 @@ public class TransactionalCache implements Cache {
 
   public void commit() {
     if (clearOnCommit) {
-      delegate.clear();
+      if (writeBehind) {
+        WriteBehindExecutor.clear(delegate, epoch);
+      } else {
+        delegate.clear();
+      }
+    }
+    if (!tagsToInvalidateOnCommit.isEmpty()) {
+      tagRegistry.invalidate(getId(), tagsToInvalidateOnCommit);
+      for (Object object : entriesToAddOnCommit.values()) {
+        if (object instanceof TaggedEntry && ((TaggedEntry) object).getVersions() == null) {
+          TaggedEntry entry = (TaggedEntry) object;
+          entry.setVersions(tagRegistry.snapshot(getId(), entry.getTags()));
+        }
+      }
+    }
+    if (writeBehind) {
+      Map<Object, Object> entries = pendingEntries();
+      if (!entries.isEmpty()) {
+        WriteBehindExecutor.putAll(delegate, epoch, entries);
+      }
+    } else {
+      flushPendingEntries();
     }
-    flushPendingEntries();
     reset();
   }
 
@@ -118,17 +282,26 @@ public class TransactionalCache implements Cache {
     clearOnCommit = false;
     entriesToAddOnCommit.clear();
     entriesMissedInCache.clear();
+    tagsToInvalidateOnCommit.clear();
+    versionsOnMiss.clear();
   }
 
   private void flushPendingEntries() {
-    for (Map.Entry<Object, Object> entry : entriesToAddOnCommit.entrySet()) {
-      delegate.putObject(entry.getKey(), entry.getValue());
+    Map<Object, Object> entries = pendingEntries();
+    if (!entries.isEmpty()) {
+      delegate.putAll(entries);
     }
+  }
+
+  /**
+   * 待写入的缓存项，未命中的key对应的值为null，以便释放BlockingCache的锁
+   */
+  private Map<Object, Object> pendingEntries() {
+    Map<Object, Object> entries = new HashMap<>(entriesToAddOnCommit);
     for (Object entry : entriesMissedInCache) {
-      if (!entriesToAddOnCommit.containsKey(entry)) {
-        delegate.putObject(entry, null);
-      }
+      entries.putIfAbsent(entry, null);
     }
+    return entries;
   }
 
   private void unlockMissedEntries() {
@@ -142,4 +315,56 @@ public class TransactionalCache implements Cache {
     }
   }
 
+  /**
+   * 所有缓存共用一个后台线程，保证按提交顺序写入。
+   * 队列已满时丢弃新提交的缓存项，提交不会因此阻塞，之后的查询只是未命中缓存。
+   */
+  private static final class WriteBehindExecutor {
+    private static final int QUEUE_CAPACITY = 1024;
+    private static final ExecutorService INSTANCE = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(QUEUE_CAPACITY), runnable -> {
+          Thread thread = new Thread(runnable, "mybatis-cache-write-behind");
+          thread.setDaemon(true);
+          return thread;
+        }, (task, executor) -> {
+          if (log.isDebugEnabled()) {
+            log.debug("The cache write-behind queue is full, discarding committed entries.");
+          }
+        });
+    /**
+     * key = 二级缓存，value = 该缓存的纪元；使用弱引用，不会阻止缓存被回收
+     */
+    private static final Map<Cache, AtomicLong> EPOCHS = Collections.synchronizedMap(new WeakHashMap<>());
+
+    static AtomicLong epochOf(Cache cache) {
+      return EPOCHS.computeIfAbsent(cache, key -> new AtomicLong());
+    }
+
+    /**
+     * 立即清空缓存并开始新的纪元，之前排队的写入都会被丢弃
+     */
+    static void clear(Cache cache, AtomicLong epoch) {
+      synchronized (epoch) {
+        epoch.incrementAndGet();
+        cache.clear();
+      }
+    }
+
+    static void putAll(Cache cache, AtomicLong epoch, Map<Object, Object> entries) {
+      final long expected = epoch.get();
+      INSTANCE.execute(() -> {
+        try {
+          // 检查纪元与写入需要和clear()互斥，否则清空之后仍可能写入过期的缓存项
+          synchronized (epoch) {
+            if (epoch.get() == expected) {
+              cache.putAll(entries);
+            }
+          }
+        } catch (RuntimeException e) {
+          log.warn("Unexpected exception while writing committed entries to the cache " + cache.getId() + ".  Cause: " + e);
+        }
+      });
+    }
+  }
+
 }
@@ -21,6 +21,8 @@ import java.util.Deque;
 import java.util.LinkedList;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheMetrics;
+import org.apache.ibatis.cache.CacheMetricsAware;
 
 /**
  * Weak Reference cache decorator.
@@ -28,11 +30,15 @@ import org.apache.ibatis.cache.Cache;
  * @see SoftCache
  * @author Clinton Begin
  */
-public class WeakCache implements Cache {
+public class WeakCache implements Cache, CacheMetricsAware {
   private final Deque<Object> hardLinksToAvoidGarbageCollection;
   private final ReferenceQueue<Object> queueOfGarbageCollectedEntries;
   private final Cache delegate;
   private int numberOfHardLinks;
+  /**
+   * 缓存的统计指标，未启用时为null
+   */
+  private CacheMetrics metrics;
 
   public WeakCache(Cache delegate) {
     this.delegate = delegate;
@@ -41,6 +47,11 @@ public class WeakCache implements Cache {
     this.queueOfGarbageCollectedEntries = new ReferenceQueue<>();
   }
 
+  @Override
+  public void setMetrics(CacheMetrics metrics) {
+    this.metrics = metrics;
+  }
+
   @Override
   public String getId() {
     return delegate.getId();
@@ -70,7 +81,7 @@ public class WeakCache implements Cache {
     if (weakReference != null) {
       result = weakReference.get();
       if (result == null) {
-        delegate.removeObject(key);
+        evict(key);
       } else {
         hardLinksToAvoidGarbageCollection.addFirst(result);
         if (hardLinksToAvoidGarbageCollection.size() > numberOfHardLinks) {
@@ -97,7 +108,16 @@ public class WeakCache implements Cache {
   private void removeGarbageCollectedItems() {
     WeakEntry sv;
     while ((sv = (WeakEntry) queueOfGarbageCollectedEntries.poll()) != null) {
-      delegate.removeObject(sv.key);
+      evict(sv.key);
+    }
+  }
+
+  /**
+   * 删除value已被GC回收的缓存项
+   */
+  private void evict(Object key) {
+    if (delegate.removeObject(key) != null && metrics != null) {
+      metrics.recordEviction(1);
     }
   }
 
@@ -0,0 +1,142 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.impl;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.apache.ibatis.cache.CacheStats;
+import org.apache.ibatis.cache.decorators.ObjectSizeEstimator;
+
+/**
+ * 有大小限制的一级缓存，按照LRU算法清理缓存项。
+ *    为了不影响正在进行的嵌套查询和延迟加载，缓存项不会在写入时清理，而是由Executor在最外层查询结束后调用{@link #evictIfNecessary(Consumer)}清理。
+ * A local (session level) cache bounded by entries and/or by the estimated heap size of the cached results, evicting
+ * the least recently used entries.
+ * <p>
+ * Entries are not evicted when they are added, because nested queries and deferred loads of the running statement
+ * rely on them. The executor calls {@link #evictIfNecessary(Consumer)} once the outermost query completed.
+ * This class is not thread safe, like the executor that owns it.
+ *
+ * @since 3.5.4
+ */
+public class BoundedLocalCache extends PerpetualCache {
+
+  private final int maxEntries;
+  private final long maxBytes;
+  /**
+   * 按访问顺序记录缓存项的key以及估算的字节数
+   */
+  private final Map<Object, Long> weights = new LinkedHashMap<>(16, .75F, true);
+  private long weightedSize;
+
+  private long hitCount;
+  private long missCount;
+  private long putCount;
+  private long evictionCount;
+  private long clearCount;
+
+  /**
+   * @param id the cache id
+   * @param maxEntries the maximum number of entries, or 0 for no limit
+   * @param maxBytes the maximum estimated heap size of the cached results, or 0 for no limit
+   */
+  public BoundedLocalCache(String id, int maxEntries, long maxBytes) {
+    super(id);
+    this.maxEntries = maxEntries;
+    this.maxBytes = maxBytes;
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    super.putObject(key, value);
+    long weight = maxBytes > 0 ? ObjectSizeEstimator.estimate(value) : 0;
+    Long previous = weights.put(key, weight);
+    weightedSize += previous == null ? weight : weight - previous;
+    putCount++;
+  }
+
+  @Override
+  public void putAll(Map<Object, Object> entries) {
+    for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+      putObject(entry.getKey(), entry.getValue());
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    Object value = super.getObject(key);
+    if (value == null) {
+      missCount++;
+    } else {
+      //更新缓存项的访问顺序
+      weights.get(key);
+      hitCount++;
+    }
+    return value;
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    Long weight = weights.remove(key);
+    if (weight != null) {
+      weightedSize -= weight;
+    }
+    return super.removeObject(key);
+  }
+
+  @Override
+  public void clear() {
+    super.clear();
+    weights.clear();
+    weightedSize = 0;
+    clearCount++;
+  }
+
+  /**
+   * 清理最近最少使用的缓存项，直到缓存大小符合限制
+   *
+   * @param evictionListener called with the key of every evicted entry
+   */
+  public void evictIfNecessary(Consumer<Object> evictionListener) {
+    Iterator<Map.Entry<Object, Long>> iterator = weights.entrySet().iterator();
+    while (isOverflowing() && iterator.hasNext()) {
+      Map.Entry<Object, Long> eldest = iterator.next();
+      iterator.remove();
+      weightedSize -= eldest.getValue();
+      super.removeObject(eldest.getKey());
+      evictionCount++;
+      evictionListener.accept(eldest.getKey());
+    }
+  }
+
+  private boolean isOverflowing() {
+    return (maxEntries > 0 && weights.size() > maxEntries) || (maxBytes > 0 && weightedSize > maxBytes);
+  }
+
+  /**
+   * 获取缓存的统计数据，一级缓存不统计耗时
+   *
+   * @return the statistics of this cache; times are not measured
+   */
+  public CacheStats getStats() {
+    return new CacheStats(getSize(), hitCount, missCount, 0, putCount, 0,
+        evictionCount, clearCount, 0, 0, maxBytes > 0 ? weightedSize : -1);
+  }
+
+}
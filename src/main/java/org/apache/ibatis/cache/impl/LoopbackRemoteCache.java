@@ -0,0 +1,88 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.impl;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheSerializer;
+import org.apache.ibatis.cache.serializer.JdkCacheSerializer;
+
+/**
+ * 进程内模拟的远程缓存，同一个JVM中id相同的实例共享缓存项，缓存项以序列化后的形式保存。
+ * An in-process stand-in for the remote tier of a {@link NearCache}.
+ * <p>
+ * All instances with the same id in the JVM share their entries, like the nodes of a cluster share a distributed
+ * cache. Values are stored serialized, so every read returns a new copy and values must be serializable, as they
+ * would be with a real remote cache.
+ *
+ * @since 3.5.4
+ */
+public class LoopbackRemoteCache implements Cache {
+
+  private static final ConcurrentMap<String, ConcurrentMap<Object, byte[]>> REGIONS = new ConcurrentHashMap<>();
+
+  private final String id;
+  private final ConcurrentMap<Object, byte[]> entries;
+  private final CacheSerializer serializer = new JdkCacheSerializer();
+
+  public LoopbackRemoteCache(String id) {
+    this.id = id;
+    this.entries = REGIONS.computeIfAbsent(id, region -> new ConcurrentHashMap<>());
+  }
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    entries.put(key, serializer.serialize(value));
+  }
+
+  @Override
+  public void putAll(Map<Object, Object> entries) {
+    for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+      putObject(entry.getKey(), entry.getValue());
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    byte[] bytes = entries.get(key);
+    return bytes == null ? null : serializer.deserialize(bytes);
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    byte[] bytes = entries.remove(key);
+    return bytes == null ? null : serializer.deserialize(bytes);
+  }
+
+  @Override
+  public void clear() {
+    entries.clear();
+  }
+
+  @Override
+  public int getSize() {
+    return entries.size();
+  }
+
+}
@@ -0,0 +1,211 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.impl;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.InvalidationBus;
+import org.apache.ibatis.cache.InvalidationMessage;
+import org.apache.ibatis.cache.decorators.TinyLfuCache;
+import org.apache.ibatis.cache.invalidation.LoopbackInvalidationBus;
+import org.apache.ibatis.io.Resources;
+
+/**
+ * 两级缓存：本地的近端缓存加上多个节点共享的远程缓存，清空操作通过失效消息总线通知其他节点删除本地的副本。
+ * A two-tier cache for deployments with several nodes: a bounded local (near) tier in front of a remote tier shared by
+ * all nodes.
+ * <p>
+ * Reads are served from the near tier and fall back to the remote tier. Writes and clears go to both tiers, and clears
+ * are also published on an {@link InvalidationBus}, so the other nodes drop their near copies and read the remote tier
+ * again. Writes are not published: MyBatis only writes results loaded after a miss, and clears the cache before it
+ * changes them. {@link #removeObject(Object)} only drops the near copy, since MyBatis only calls it on rollback to
+ * release entries it missed. A value read or written while an invalidation arrives does not stay in the near tier.
+ * <p>
+ * The remote tier ({@link #setRemote(String)}) is any {@link Cache} implementation with a constructor taking the
+ * cache id, {@link LoopbackRemoteCache} by default. The bus ({@link #setBus(String)}) defaults to the in-process
+ * {@link LoopbackInvalidationBus}. Use it as {@code <cache type="NEAR"/>}; this class is thread-safe. Like other
+ * custom caches it returns the same near copy to every caller, so results must be treated as read-only.
+ *
+ * @since 3.5.4
+ */
+public class NearCache implements Cache, InvalidationBus.Listener {
+
+  private final String id;
+  /**
+   * 当前实例的唯一标识，用于忽略自己发送的失效消息
+   */
+  private final String origin = UUID.randomUUID().toString();
+  /**
+   * 每次本地缓存被失效时加一，用于丢弃与失效操作并发读取到的旧值
+   */
+  private final AtomicLong generation = new AtomicLong();
+  private final TinyLfuCache near;
+  private volatile Cache remote;
+  private volatile InvalidationBus bus;
+
+  public NearCache(String id) {
+    this.id = id;
+    this.near = new TinyLfuCache(new PerpetualCache(id));
+    this.remote = new LoopbackRemoteCache(id);
+    this.bus = new LoopbackInvalidationBus();
+    bus.subscribe(this);
+  }
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  /**
+   * 设置近端缓存的最大缓存项个数，默认值为1024
+   *
+   * @param nearSize the maximum number of entries kept locally
+   */
+  public void setNearSize(int nearSize) {
+    near.setSize(nearSize);
+  }
+
+  /**
+   * 设置远程缓存的类名，该类需要提供参数为缓存id的构造方法
+   *
+   * @param remote the fully qualified class name of the remote {@link Cache}
+   */
+  public void setRemote(String remote) {
+    try {
+      this.remote = (Cache) Resources.classForName(remote).getConstructor(String.class).newInstance(id);
+    } catch (Exception e) {
+      throw new CacheException("Could not instantiate remote cache (" + remote + "). Cause: " + e, e);
+    }
+    invalidateLocally();
+  }
+
+  /**
+   * 设置失效消息总线的类名
+   *
+   * @param bus the fully qualified class name of the {@link InvalidationBus}
+   */
+  public void setBus(String bus) {
+    InvalidationBus instance;
+    try {
+      instance = (InvalidationBus) Resources.classForName(bus).getConstructor().newInstance();
+    } catch (Exception e) {
+      throw new CacheException("Could not instantiate invalidation bus (" + bus + "). Cause: " + e, e);
+    }
+    this.bus.unsubscribe(this);
+    this.bus = instance;
+    instance.subscribe(this);
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    if (value == null) {
+      near.removeObject(key);
+      return;
+    }
+    long before = generation.get();
+    remote.putObject(key, value);
+    putNear(key, value, before);
+  }
+
+  @Override
+  public void putAll(Map<Object, Object> entries) {
+    for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+      putObject(entry.getKey(), entry.getValue());
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    Object value = near.getObject(key);
+    if (value != null) {
+      return value;
+    }
+    long before = generation.get();
+    value = remote.getObject(key);
+    if (value != null) {
+      putNear(key, value, before);
+    }
+    return value;
+  }
+
+  /**
+   * 读取或写入远程缓存期间本地缓存被失效过，不能把可能过期的值放入本地缓存。
+   * 写入之后再检查一次，失效操作可能发生在检查与写入之间。
+   */
+  private void putNear(Object key, Object value, long before) {
+    if (generation.get() != before) {
+      return;
+    }
+    near.putObject(key, value);
+    if (generation.get() != before) {
+      near.removeObject(key);
+    }
+  }
+
+  /**
+   * MyBatis只在回滚时调用该方法释放未命中的缓存项，所以只删除本地的副本，不删除远程缓存，也不通知其他节点
+   */
+  @Override
+  public Object removeObject(Object key) {
+    return near.removeObject(key);
+  }
+
+  @Override
+  public void clear() {
+    remote.clear();
+    invalidateLocally();
+    publish(null);
+  }
+
+  @Override
+  public int getSize() {
+    return remote.getSize();
+  }
+
+  @Override
+  public void onInvalidation(InvalidationMessage message) {
+    if (origin.equals(message.getOrigin()) || !id.equals(message.getCacheId())) {
+      return;
+    }
+    if (message.isClear()) {
+      invalidateLocally();
+    } else {
+      generation.incrementAndGet();
+      near.removeObject(message.getKey());
+    }
+  }
+
+  /**
+   * @return the number of entries in the near tier
+   */
+  public int getNearSize() {
+    return near.getSize();
+  }
+
+  private void invalidateLocally() {
+    generation.incrementAndGet();
+    near.clear();
+  }
+
+  private void publish(Object key) {
+    bus.publish(new InvalidationMessage(origin, id, key));
+  }
+
+}
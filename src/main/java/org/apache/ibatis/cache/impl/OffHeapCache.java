@@ -0,0 +1,423 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.impl;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheMetrics;
+import org.apache.ibatis.cache.CacheMetricsAware;
+import org.apache.ibatis.cache.CacheSerializer;
+import org.apache.ibatis.cache.serializer.JdkCacheSerializer;
+import org.apache.ibatis.io.Resources;
+
+/**
+ * OffHeapCache将缓存项序列化后保存在堆外内存（direct ByteBuffer）中，堆内只保留key和缓存项的位置信息，
+ * 因此大量缓存数据不会增加GC的负担。
+ * Cache that stores serialized values outside of the Java heap.
+ * <p>
+ * The off-heap memory ({@link #setMaxBytes(long)}, 64MB by default) is split into segments of
+ * {@link #setSegmentBytes(int)} bytes that are filled one after another. When every segment is full the oldest one
+ * is recycled and all the entries written to it are evicted, so eviction is first-in first-out at segment
+ * granularity. Values larger than a segment are not cached.
+ * <p>
+ * Reads do not lock: the bytes are copied optimistically and the copy is discarded if the segment was recycled
+ * meanwhile. Values must be {@link Serializable}, and every read returns a new copy, like a read-write cache.
+ * Keys and entry locations stay on the heap. Segments are allocated with {@link ByteBuffer#allocateDirect(int)},
+ * so {@code -XX:MaxDirectMemorySize} must allow for {@code maxBytes}.
+ * <p>
+ * Use it as {@code <cache type="OFF_HEAP"/>}; this class is thread-safe.
+ *
+ * @since 3.5.4
+ */
+public class OffHeapCache implements Cache, CacheMetricsAware {
+
+  private static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+  private static final int DEFAULT_SEGMENT_BYTES = 4 * 1024 * 1024;
+
+  private final String id;
+  /**
+   * 记录每个key对应的缓存项在堆外内存中的位置
+   */
+  private final ConcurrentHashMap<Object, Location> index = new ConcurrentHashMap<>();
+  /**
+   * 写入缓存项和回收段时使用的锁
+   */
+  private final ReentrantLock writeLock = new ReentrantLock();
+
+  private CacheSerializer serializer = new JdkCacheSerializer();
+  private long maxBytes = DEFAULT_MAX_BYTES;
+  private int segmentBytes = DEFAULT_SEGMENT_BYTES;
+  /**
+   * 在第一次写入缓存项时才分配
+   */
+  private Segment[] segments;
+  /**
+   * 当前正在写入的段
+   */
+  private int current;
+  /**
+   * 所有段中已写入的字节数
+   */
+  private long usedBytes;
+  /**
+   * 缓存的统计指标，未启用时为null
+   */
+  private volatile CacheMetrics metrics;
+
+  public OffHeapCache(String id) {
+    this.id = id;
+  }
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  @Override
+  public int getSize() {
+    return index.size();
+  }
+
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  /**
+   * 设置堆外内存的总大小，会清空缓存
+   *
+   * @param maxBytes the off-heap memory used by this cache
+   */
+  public void setMaxBytes(long maxBytes) {
+    if (maxBytes <= 0) {
+      throw new CacheException("The maxBytes of cache '" + id + "' must be positive but was " + maxBytes);
+    }
+    writeLock.lock();
+    try {
+      this.maxBytes = maxBytes;
+      resetSegments();
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  public int getSegmentBytes() {
+    return segmentBytes;
+  }
+
+  /**
+   * 设置每个段的大小，也是单个缓存项序列化后的最大字节数，会清空缓存
+   *
+   * @param segmentBytes the size of each off-heap segment
+   */
+  public void setSegmentBytes(int segmentBytes) {
+    if (segmentBytes <= 0) {
+      throw new CacheException("The segmentBytes of cache '" + id + "' must be positive but was " + segmentBytes);
+    }
+    writeLock.lock();
+    try {
+      this.segmentBytes = segmentBytes;
+      resetSegments();
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  /**
+   * 设置序列化器的类名，默认使用{@link JdkCacheSerializer}，会清空缓存
+   *
+   * @param serializer the fully qualified class name of a {@link CacheSerializer}
+   */
+  public void setSerializer(String serializer) {
+    CacheSerializer instance;
+    try {
+      instance = (CacheSerializer) Resources.classForName(serializer).getConstructor().newInstance();
+    } catch (Exception e) {
+      throw new CacheException("Could not instantiate cache serializer (" + serializer + "). Cause: " + e, e);
+    }
+    writeLock.lock();
+    try {
+      this.serializer = instance;
+      clear();
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  @Override
+  public void setMetrics(CacheMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    if (value == null) {
+      index.remove(key);
+      return;
+    }
+    byte[] bytes = serialize(value);
+    writeLock.lock();
+    try {
+      store(key, bytes);
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  @Override
+  public void putAll(Map<Object, Object> entries) {
+    // 在加锁前完成序列化，整批缓存项只获取一次锁
+    Map<Object, byte[]> serialized = new HashMap<>((int) (entries.size() / 0.75f) + 1);
+    for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+      if (entry.getValue() == null) {
+        index.remove(entry.getKey());
+      } else {
+        serialized.put(entry.getKey(), serialize(entry.getValue()));
+      }
+    }
+    writeLock.lock();
+    try {
+      for (Map.Entry<Object, byte[]> entry : serialized.entrySet()) {
+        store(entry.getKey(), entry.getValue());
+      }
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    Location location = index.get(key);
+    if (location == null) {
+      return null;
+    }
+    byte[] bytes = location.segment.read(location);
+    if (bytes == null) {
+      // 该段已被回收
+      index.remove(key, location);
+      return null;
+    }
+    return serializer.deserialize(bytes);
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    index.remove(key);
+    return null;
+  }
+
+  @Override
+  public void clear() {
+    writeLock.lock();
+    try {
+      index.clear();
+      if (segments != null) {
+        for (Segment segment : segments) {
+          if (segment != null) {
+            segment.reset();
+            segment.keys.clear();
+          }
+        }
+      }
+      current = 0;
+      usedBytes = 0;
+      reportEstimatedBytes();
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  private byte[] serialize(Object value) {
+    if (!(value instanceof Serializable)) {
+      throw new CacheException("OffHeapCache failed to store a non-serializable object: " + value);
+    }
+    return serializer.serialize(value);
+  }
+
+  /**
+   * 将序列化后的缓存项写入当前段，调用者需持有writeLock
+   */
+  private void store(Object key, byte[] bytes) {
+    int segmentSize = (int) Math.min(segmentBytes, maxBytes);
+    if (bytes.length > segmentSize) {
+      // 缓存项太大，不缓存
+      index.remove(key);
+      return;
+    }
+    if (segments == null) {
+      segments = new Segment[(int) Math.max(maxBytes / segmentSize, 1)];
+      segments[0] = new Segment(segmentSize);
+    }
+    Segment segment = segments[current];
+    if (segment.position + bytes.length > segment.buffer.capacity()) {
+      current = (current + 1) % segments.length;
+      if (segments[current] == null) {
+        segments[current] = new Segment(segmentSize);
+      } else {
+        recycle(segments[current]);
+      }
+      segment = segments[current];
+    }
+    int offset = segment.append(bytes);
+    usedBytes += bytes.length;
+    segment.keys.add(key);
+    index.put(key, new Location(segment, segment.generation, offset, bytes.length));
+    reportEstimatedBytes();
+  }
+
+  private void reportEstimatedBytes() {
+    CacheMetrics metrics = this.metrics;
+    if (metrics != null) {
+      metrics.recordEstimatedBytes(usedBytes);
+    }
+  }
+
+  private void resetSegments() {
+    clear();
+    segments = null;
+  }
+
+  /**
+   * 回收指定的段，并删除写入该段的所有缓存项
+   */
+  private void recycle(Segment segment) {
+    usedBytes -= segment.position;
+    segment.reset();
+    int evicted = 0;
+    for (Object key : segment.keys) {
+      Location location = index.get(key);
+      if (location != null && location.segment == segment && index.remove(key, location)) {
+        evicted++;
+      }
+    }
+    segment.keys.clear();
+    CacheMetrics metrics = this.metrics;
+    if (metrics != null && evicted > 0) {
+      metrics.recordEviction(evicted);
+    }
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Cache)) {
+      return false;
+    }
+
+    Cache otherCache = (Cache) o;
+    return getId().equals(otherCache.getId());
+  }
+
+  @Override
+  public int hashCode() {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    return getId().hashCode();
+  }
+
+  private static final class Location {
+    final Segment segment;
+    final int generation;
+    final int offset;
+    final int length;
+
+    Location(Segment segment, int generation, int offset, int length) {
+      this.segment = segment;
+      this.generation = generation;
+      this.offset = offset;
+      this.length = length;
+    }
+  }
+
+  private static final class Segment {
+    final ByteBuffer buffer;
+    /**
+     * 回收段时获取写锁，读取缓存项时使用乐观读
+     */
+    final StampedLock lock = new StampedLock();
+    /**
+     * 每次回收段时加1，用于判断位置信息是否已失效
+     */
+    volatile int generation;
+    // 以下字段由writeLock保护
+    int position;
+    final List<Object> keys = new ArrayList<>();
+
+    Segment(int capacity) {
+      this.buffer = ByteBuffer.allocateDirect(capacity);
+    }
+
+    int append(byte[] bytes) {
+      int offset = position;
+      ByteBuffer view = buffer.duplicate();
+      view.position(offset);
+      view.put(bytes);
+      position += bytes.length;
+      return offset;
+    }
+
+    byte[] read(Location location) {
+      long stamp = lock.tryOptimisticRead();
+      if (location.generation != generation) {
+        return null;
+      }
+      byte[] bytes = copy(location);
+      if (lock.validate(stamp)) {
+        return bytes;
+      }
+      stamp = lock.readLock();
+      try {
+        return location.generation == generation ? copy(location) : null;
+      } finally {
+        lock.unlockRead(stamp);
+      }
+    }
+
+    private byte[] copy(Location location) {
+      byte[] bytes = new byte[location.length];
+      ByteBuffer view = buffer.duplicate();
+      view.position(location.offset);
+      view.get(bytes);
+      return bytes;
+    }
+
+    void reset() {
+      long stamp = lock.writeLock();
+      try {
+        generation++;
+        position = 0;
+      } finally {
+        lock.unlockWrite(stamp);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,74 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.invalidation;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.ibatis.cache.InvalidationBus;
+import org.apache.ibatis.cache.InvalidationMessage;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * 进程内的失效消息总线，所有实例共享同一组订阅者，消息在发送线程中同步投递。
+ * 用于测试，或者在同一个JVM中运行多个SqlSessionFactory的场景。
+ * An in-process {@link InvalidationBus}. All instances in the JVM share the same subscribers and messages are
+ * delivered synchronously on the publishing thread, which makes it suitable for tests and for several
+ * SqlSessionFactories in one JVM. Multi-node deployments need an implementation backed by a messaging system.
+ * <p>
+ * Subscribers are only weakly referenced, so caches of discarded configurations do not stay registered.
+ *
+ * @since 3.5.4
+ */
+public class LoopbackInvalidationBus implements InvalidationBus {
+
+  private static final Log log = LogFactory.getLog(LoopbackInvalidationBus.class);
+
+  private static final List<WeakReference<Listener>> LISTENERS = new CopyOnWriteArrayList<>();
+
+  @Override
+  public void publish(InvalidationMessage message) {
+    for (WeakReference<Listener> reference : LISTENERS) {
+      Listener listener = reference.get();
+      if (listener == null) {
+        LISTENERS.remove(reference);
+        continue;
+      }
+      try {
+        listener.onInvalidation(message);
+      } catch (RuntimeException e) {
+        //一个订阅者出错不影响其他订阅者
+        log.warn("Invalidation listener failed for " + message + ". Cause: " + e);
+      }
+    }
+  }
+
+  @Override
+  public void subscribe(Listener listener) {
+    LISTENERS.add(new WeakReference<>(listener));
+  }
+
+  @Override
+  public void unsubscribe(Listener listener) {
+    LISTENERS.removeIf(reference -> {
+      Listener subscribed = reference.get();
+      return subscribed == null || subscribed == listener;
+    });
+  }
+
+}
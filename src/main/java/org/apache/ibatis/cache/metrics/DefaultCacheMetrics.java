@@ -0,0 +1,96 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheMetrics;
+import org.apache.ibatis.cache.CacheStats;
+
+/**
+ * 默认的缓存统计实现，使用{@link LongAdder}累计各项指标，多线程并发更新时开销很小。
+ * Keeps the cache metrics in memory with {@link LongAdder}s, so concurrent updates do not contend.
+ *
+ * @since 3.5.4
+ */
+public class DefaultCacheMetrics implements CacheMetrics {
+
+  private final LongAdder hitCount = new LongAdder();
+  private final LongAdder missCount = new LongAdder();
+  private final LongAdder totalGetTime = new LongAdder();
+  private final LongAdder putCount = new LongAdder();
+  private final LongAdder totalPutTime = new LongAdder();
+  private final LongAdder evictionCount = new LongAdder();
+  private final LongAdder clearCount = new LongAdder();
+  private final LongAdder loadCount = new LongAdder();
+  private final LongAdder totalLoadTime = new LongAdder();
+  private volatile long estimatedBytes = -1;
+  private volatile Cache cache;
+
+  @Override
+  public void bind(Cache cache) {
+    this.cache = cache;
+  }
+
+  @Override
+  public void recordHit(long nanos) {
+    hitCount.increment();
+    totalGetTime.add(nanos);
+  }
+
+  @Override
+  public void recordMiss(long nanos) {
+    missCount.increment();
+    totalGetTime.add(nanos);
+  }
+
+  @Override
+  public void recordPut(int count, long nanos) {
+    putCount.add(count);
+    totalPutTime.add(nanos);
+  }
+
+  @Override
+  public void recordEviction(int count) {
+    evictionCount.add(count);
+  }
+
+  @Override
+  public void recordClear() {
+    clearCount.increment();
+  }
+
+  @Override
+  public void recordLoad(long nanos) {
+    loadCount.increment();
+    totalLoadTime.add(nanos);
+  }
+
+  @Override
+  public void recordEstimatedBytes(long bytes) {
+    this.estimatedBytes = bytes;
+  }
+
+  @Override
+  public CacheStats snapshot() {
+    Cache cache = this.cache;
+    return new CacheStats(cache == null ? -1 : cache.getSize(), hitCount.sum(), missCount.sum(), totalGetTime.sum(),
+        putCount.sum(), totalPutTime.sum(), evictionCount.sum(), clearCount.sum(), loadCount.sum(),
+        totalLoadTime.sum(), estimatedBytes);
+  }
+
+}
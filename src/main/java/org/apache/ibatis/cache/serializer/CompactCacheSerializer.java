@@ -0,0 +1,613 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.serializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheSerializer;
+import org.apache.ibatis.cache.decorators.SerializedCache;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.reflection.DefaultReflectorFactory;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.ReflectorFactory;
+import org.apache.ibatis.reflection.invoker.Invoker;
+
+/**
+ * 紧凑的二进制序列化器：
+ *    常用的值类型（数字、字符串、日期等）、常用集合以及JavaBean使用带类型标记的紧凑格式写入，
+ *    JavaBean的属性通过{@link Reflector}读写，不写入字段名和类描述信息；其他对象使用java原生序列化方式。
+ * Compact binary cache serializer.
+ * <p>
+ * Numbers, strings, dates, enums, byte arrays, object arrays, {@link ArrayList}, {@link LinkedList},
+ * {@link HashSet}, {@link LinkedHashSet}, {@link HashMap}, {@link LinkedHashMap} and serializable JavaBeans are
+ * written with a one-byte type tag followed by their content; class names are written once per value. A JavaBean
+ * qualifies when it has a default constructor, no custom serialization methods, and a readable and writable
+ * property for each of its non-transient fields; its properties are copied with the {@link Reflector} invokers.
+ * Shared and cyclic references are preserved. Everything else falls back to Java serialization.
+ *
+ * @since 3.5.4
+ */
+public class CompactCacheSerializer implements CacheSerializer {
+
+  private static final byte NULL = 0;
+  private static final byte TRUE = 1;
+  private static final byte FALSE = 2;
+  private static final byte INTEGER = 3;
+  private static final byte LONG = 4;
+  private static final byte SHORT = 5;
+  private static final byte BYTE = 6;
+  private static final byte CHARACTER = 7;
+  private static final byte FLOAT = 8;
+  private static final byte DOUBLE = 9;
+  private static final byte STRING = 10;
+  private static final byte BIG_DECIMAL = 11;
+  private static final byte BIG_INTEGER = 12;
+  private static final byte DATE = 13;
+  private static final byte SQL_DATE = 14;
+  private static final byte SQL_TIME = 15;
+  private static final byte SQL_TIMESTAMP = 16;
+  private static final byte BYTES = 17;
+  private static final byte ENUM = 18;
+  private static final byte ARRAY_LIST = 19;
+  private static final byte LINKED_LIST = 20;
+  private static final byte HASH_SET = 21;
+  private static final byte LINKED_HASH_SET = 22;
+  private static final byte HASH_MAP = 23;
+  private static final byte LINKED_HASH_MAP = 24;
+  private static final byte ARRAY = 25;
+  private static final byte BEAN = 26;
+  private static final byte REFERENCE = 27;
+  private static final byte JAVA = 28;
+
+  private static final Object[] NO_ARGUMENTS = new Object[0];
+  private static final BeanSchema NOT_A_BEAN = new BeanSchema(null, null, null, null);
+
+  private final ReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+  private final Map<Class<?>, BeanSchema> schemas = new ConcurrentHashMap<>();
+
+  @Override
+  public byte[] serialize(Object value) {
+    try {
+      Output output = new Output();
+      write(output, value);
+      return output.toByteArray();
+    } catch (CacheException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new CacheException("Error serializing object.  Cause: " + e, e);
+    }
+  }
+
+  @Override
+  public Object deserialize(byte[] bytes) {
+    try {
+      return read(new Input(bytes));
+    } catch (CacheException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new CacheException("Error deserializing object.  Cause: " + e, e);
+    }
+  }
+
+  private void write(Output out, Object value) throws Exception {
+    if (value == null) {
+      out.write(NULL);
+      return;
+    }
+    Class<?> type = value.getClass();
+    if (type == String.class) {
+      out.write(STRING);
+      out.writeString((String) value);
+    } else if (type == Integer.class) {
+      out.write(INTEGER);
+      out.writeVarLong((Integer) value);
+    } else if (type == Long.class) {
+      out.write(LONG);
+      out.writeVarLong((Long) value);
+    } else if (type == Boolean.class) {
+      out.write((Boolean) value ? TRUE : FALSE);
+    } else if (type == Double.class) {
+      out.write(DOUBLE);
+      out.writeLong(Double.doubleToRawLongBits((Double) value));
+    } else if (type == BigDecimal.class) {
+      BigDecimal decimal = (BigDecimal) value;
+      out.write(BIG_DECIMAL);
+      out.writeVarLong(decimal.scale());
+      out.writeBytes(decimal.unscaledValue().toByteArray());
+    } else if (type == java.sql.Timestamp.class) {
+      java.sql.Timestamp timestamp = (java.sql.Timestamp) value;
+      out.write(SQL_TIMESTAMP);
+      out.writeVarLong(timestamp.getTime());
+      out.writeVarLong(timestamp.getNanos());
+    } else if (type == Date.class) {
+      out.write(DATE);
+      out.writeVarLong(((Date) value).getTime());
+    } else if (type == java.sql.Date.class) {
+      out.write(SQL_DATE);
+      out.writeVarLong(((Date) value).getTime());
+    } else if (type == java.sql.Time.class) {
+      out.write(SQL_TIME);
+      out.writeVarLong(((Date) value).getTime());
+    } else if (type == Short.class) {
+      out.write(SHORT);
+      out.writeVarLong((Short) value);
+    } else if (type == Byte.class) {
+      out.write(BYTE);
+      out.write((Byte) value);
+    } else if (type == Character.class) {
+      out.write(CHARACTER);
+      out.writeVarLong((Character) value);
+    } else if (type == Float.class) {
+      out.write(FLOAT);
+      out.writeVarLong(Float.floatToRawIntBits((Float) value));
+    } else if (type == BigInteger.class) {
+      out.write(BIG_INTEGER);
+      out.writeBytes(((BigInteger) value).toByteArray());
+    } else if (type == byte[].class) {
+      out.write(BYTES);
+      out.writeBytes((byte[]) value);
+    } else if (value instanceof Enum) {
+      out.write(ENUM);
+      out.writeClass(((Enum<?>) value).getDeclaringClass());
+      out.writeString(((Enum<?>) value).name());
+    } else if (out.writeReference(value)) {
+      // 已写入过的对象
+    } else if (type == ArrayList.class || type == LinkedList.class || type == HashSet.class
+        || type == LinkedHashSet.class) {
+      Collection<?> collection = (Collection<?>) value;
+      out.write(type == ArrayList.class ? ARRAY_LIST
+          : type == LinkedList.class ? LINKED_LIST : type == HashSet.class ? HASH_SET : LINKED_HASH_SET);
+      out.writeVarLong(collection.size());
+      for (Object element : collection) {
+        write(out, element);
+      }
+    } else if (type == HashMap.class || type == LinkedHashMap.class) {
+      Map<?, ?> map = (Map<?, ?>) value;
+      out.write(type == HashMap.class ? HASH_MAP : LINKED_HASH_MAP);
+      out.writeVarLong(map.size());
+      for (Map.Entry<?, ?> entry : map.entrySet()) {
+        write(out, entry.getKey());
+        write(out, entry.getValue());
+      }
+    } else if (type.isArray() && !type.getComponentType().isPrimitive()) {
+      Object[] array = (Object[]) value;
+      out.write(ARRAY);
+      out.writeClass(type.getComponentType());
+      out.writeVarLong(array.length);
+      for (Object element : array) {
+        write(out, element);
+      }
+    } else {
+      BeanSchema schema = getSchema(type);
+      if (schema == NOT_A_BEAN) {
+        out.write(JAVA);
+        out.writeBytes(javaSerialize(value));
+      } else {
+        out.write(BEAN);
+        out.writeClass(type);
+        for (Invoker getter : schema.getters) {
+          write(out, getter.invoke(value, NO_ARGUMENTS));
+        }
+      }
+    }
+  }
+
+  private Object read(Input in) throws Exception {
+    byte tag = in.read();
+    switch (tag) {
+      case NULL:
+        return null;
+      case TRUE:
+        return Boolean.TRUE;
+      case FALSE:
+        return Boolean.FALSE;
+      case INTEGER:
+        return (int) in.readVarLong();
+      case LONG:
+        return in.readVarLong();
+      case SHORT:
+        return (short) in.readVarLong();
+      case BYTE:
+        return in.read();
+      case CHARACTER:
+        return (char) in.readVarLong();
+      case FLOAT:
+        return Float.intBitsToFloat((int) in.readVarLong());
+      case DOUBLE:
+        return Double.longBitsToDouble(in.readLong());
+      case STRING:
+        return in.readString();
+      case BIG_DECIMAL: {
+        int scale = (int) in.readVarLong();
+        return new BigDecimal(new BigInteger(in.readBytes()), scale);
+      }
+      case BIG_INTEGER:
+        return new BigInteger(in.readBytes());
+      case DATE:
+        return new Date(in.readVarLong());
+      case SQL_DATE:
+        return new java.sql.Date(in.readVarLong());
+      case SQL_TIME:
+        return new java.sql.Time(in.readVarLong());
+      case SQL_TIMESTAMP: {
+        java.sql.Timestamp timestamp = new java.sql.Timestamp(in.readVarLong());
+        timestamp.setNanos((int) in.readVarLong());
+        return timestamp;
+      }
+      case BYTES:
+        return in.readBytes();
+      case ENUM:
+        return readEnum(in.readClass(), in.readString());
+      case REFERENCE:
+        return in.references.get((int) in.readVarLong());
+      case ARRAY_LIST:
+      case LINKED_LIST:
+      case HASH_SET:
+      case LINKED_HASH_SET: {
+        int size = (int) in.readVarLong();
+        Collection<Object> collection = tag == ARRAY_LIST ? new ArrayList<>(size)
+            : tag == LINKED_LIST ? new LinkedList<>() : tag == HASH_SET ? new HashSet<>(capacity(size))
+            : new LinkedHashSet<>(capacity(size));
+        in.references.add(collection);
+        for (int i = 0; i < size; i++) {
+          collection.add(read(in));
+        }
+        return collection;
+      }
+      case HASH_MAP:
+      case LINKED_HASH_MAP: {
+        int size = (int) in.readVarLong();
+        Map<Object, Object> map = tag == HASH_MAP ? new HashMap<>(capacity(size)) : new LinkedHashMap<>(capacity(size));
+        in.references.add(map);
+        for (int i = 0; i < size; i++) {
+          Object key = read(in);
+          map.put(key, read(in));
+        }
+        return map;
+      }
+      case ARRAY: {
+        Class<?> componentType = in.readClass();
+        int length = (int) in.readVarLong();
+        Object[] array = (Object[]) Array.newInstance(componentType, length);
+        in.references.add(array);
+        for (int i = 0; i < length; i++) {
+          array[i] = read(in);
+        }
+        return array;
+      }
+      case BEAN: {
+        BeanSchema schema = getSchema(in.readClass());
+        if (schema == NOT_A_BEAN) {
+          throw new CacheException("Class is no longer serializable as a bean.");
+        }
+        Object bean = schema.constructor.newInstance();
+        in.references.add(bean);
+        for (int i = 0; i < schema.setters.length; i++) {
+          Object propertyValue = read(in);
+          if (propertyValue != null || !schema.primitives[i]) {
+            schema.setters[i].invoke(bean, new Object[] { propertyValue });
+          }
+        }
+        return bean;
+      }
+      case JAVA: {
+        Object object = javaDeserialize(in.readBytes());
+        in.references.add(object);
+        return object;
+      }
+      default:
+        throw new CacheException("Unknown type tag " + tag + " in serialized cache entry.");
+    }
+  }
+
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  private static Object readEnum(Class<?> type, String name) {
+    return Enum.valueOf((Class<? extends Enum>) type, name);
+  }
+
+  private static int capacity(int size) {
+    return Math.max((int) (size / .75f) + 1, 16);
+  }
+
+  /**
+   * 返回指定类型对应的JavaBean结构，不能按JavaBean处理时返回{@link #NOT_A_BEAN}
+   */
+  private BeanSchema getSchema(Class<?> type) {
+    BeanSchema schema = schemas.get(type);
+    if (schema == null) {
+      schema = schemas.computeIfAbsent(type, this::buildSchema);
+    }
+    return schema;
+  }
+
+  private BeanSchema buildSchema(Class<?> type) {
+    if (!Serializable.class.isAssignableFrom(type) || Externalizable.class.isAssignableFrom(type)
+        || type.isInterface() || Modifier.isAbstract(type.getModifiers()) || type.getClassLoader() == null) {
+      return NOT_A_BEAN;
+    }
+    List<String> fieldNames = new ArrayList<>();
+    for (Class<?> current = type; current != Object.class; current = current.getSuperclass()) {
+      if (current.getClassLoader() == null || declaresSerializationMethod(current)) {
+        return NOT_A_BEAN;
+      }
+      for (Field field : current.getDeclaredFields()) {
+        int modifiers = field.getModifiers();
+        if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers)) {
+          if (fieldNames.contains(field.getName())) {
+            // 父类中有同名字段
+            return NOT_A_BEAN;
+          }
+          fieldNames.add(field.getName());
+        }
+      }
+    }
+    Reflector reflector = reflectorFactory.findForClass(type);
+    if (!reflector.hasDefaultConstructor()) {
+      return NOT_A_BEAN;
+    }
+    Constructor<?> constructor = reflector.getDefaultConstructor();
+    if (!Modifier.isPublic(constructor.getModifiers()) || !Modifier.isPublic(type.getModifiers())) {
+      if (!Reflector.canControlMemberAccessible()) {
+        return NOT_A_BEAN;
+      }
+      constructor.setAccessible(true);
+    }
+    String[] properties = fieldNames.toArray(new String[0]);
+    Arrays.sort(properties);
+    Invoker[] getters = new Invoker[properties.length];
+    Invoker[] setters = new Invoker[properties.length];
+    boolean[] primitives = new boolean[properties.length];
+    for (int i = 0; i < properties.length; i++) {
+      String property = properties[i];
+      if (!reflector.hasGetter(property) || !reflector.hasSetter(property)
+          || reflector.getGetterType(property) != reflector.getSetterType(property)) {
+        return NOT_A_BEAN;
+      }
+      getters[i] = reflector.getGetInvoker(property);
+      setters[i] = reflector.getSetInvoker(property);
+      primitives[i] = reflector.getSetterType(property).isPrimitive();
+    }
+    return new BeanSchema(constructor, getters, setters, primitives);
+  }
+
+  private static boolean declaresSerializationMethod(Class<?> type) {
+    for (Method method : type.getDeclaredMethods()) {
+      switch (method.getName()) {
+        case "writeObject":
+        case "readObject":
+        case "readObjectNoData":
+        case "writeReplace":
+        case "readResolve":
+          return true;
+        default:
+          break;
+      }
+    }
+    return false;
+  }
+
+  private static byte[] javaSerialize(Object value) throws IOException {
+    try (ByteArrayOutputStream bos = new ByteArrayOutputStream();
+         ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+      oos.writeObject(value);
+      oos.flush();
+      return bos.toByteArray();
+    }
+  }
+
+  private static Object javaDeserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+    try (ByteArrayInputStream bis = new ByteArrayInputStream(bytes);
+         ObjectInputStream ois = new SerializedCache.CustomObjectInputStream(bis)) {
+      return ois.readObject();
+    }
+  }
+
+  /**
+   * JavaBean的构造方法以及按属性名排序的属性读写方法
+   */
+  private static final class BeanSchema {
+    final Constructor<?> constructor;
+    final Invoker[] getters;
+    final Invoker[] setters;
+    final boolean[] primitives;
+
+    BeanSchema(Constructor<?> constructor, Invoker[] getters, Invoker[] setters, boolean[] primitives) {
+      this.constructor = constructor;
+      this.getters = getters;
+      this.setters = setters;
+      this.primitives = primitives;
+    }
+  }
+
+  /**
+   * 写入缓冲区，同时记录已写入的类名和可变对象
+   */
+  private static final class Output {
+    private byte[] buffer = new byte[256];
+    private int position;
+    private final Map<Class<?>, Integer> classes = new HashMap<>();
+    private final Map<Object, Integer> references = new IdentityHashMap<>();
+
+    void write(int b) {
+      ensureCapacity(1);
+      buffer[position++] = (byte) b;
+    }
+
+    void writeLong(long value) {
+      ensureCapacity(8);
+      for (int i = 56; i >= 0; i -= 8) {
+        buffer[position++] = (byte) (value >>> i);
+      }
+    }
+
+    /**
+     * 使用ZigZag编码的变长整数
+     */
+    void writeVarLong(long value) {
+      long v = (value << 1) ^ (value >> 63);
+      ensureCapacity(10);
+      while ((v & ~0x7FL) != 0) {
+        buffer[position++] = (byte) ((v & 0x7F) | 0x80);
+        v >>>= 7;
+      }
+      buffer[position++] = (byte) v;
+    }
+
+    void writeBytes(byte[] bytes) {
+      writeVarLong(bytes.length);
+      ensureCapacity(bytes.length);
+      System.arraycopy(bytes, 0, buffer, position, bytes.length);
+      position += bytes.length;
+    }
+
+    void writeString(String value) {
+      writeBytes(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    void writeClass(Class<?> type) {
+      Integer id = classes.get(type);
+      if (id == null) {
+        classes.put(type, classes.size());
+        writeVarLong(-1);
+        writeString(type.getName());
+      } else {
+        writeVarLong(id);
+      }
+    }
+
+    /**
+     * 如果对象已写入过，写入对它的引用并返回true，否则记录该对象并返回false
+     */
+    boolean writeReference(Object value) {
+      Integer id = references.get(value);
+      if (id != null) {
+        write(REFERENCE);
+        writeVarLong(id);
+        return true;
+      }
+      references.put(value, references.size());
+      return false;
+    }
+
+    byte[] toByteArray() {
+      return Arrays.copyOf(buffer, position);
+    }
+
+    private void ensureCapacity(int length) {
+      if (position + length > buffer.length) {
+        buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, position + length));
+      }
+    }
+  }
+
+  private static final class Input {
+    private final byte[] buffer;
+    private int position;
+    private final List<Class<?>> classes = new ArrayList<>();
+    final List<Object> references = new ArrayList<>();
+
+    Input(byte[] buffer) {
+      this.buffer = buffer;
+    }
+
+    byte read() throws EOFException {
+      if (position >= buffer.length) {
+        throw new EOFException();
+      }
+      return buffer[position++];
+    }
+
+    long readLong() throws EOFException {
+      long value = 0;
+      for (int i = 0; i < 8; i++) {
+        value = (value << 8) | (read() & 0xFF);
+      }
+      return value;
+    }
+
+    long readVarLong() throws EOFException {
+      long v = 0;
+      for (int shift = 0; ; shift += 7) {
+        byte b = read();
+        v |= (long) (b & 0x7F) << shift;
+        if ((b & 0x80) == 0) {
+          break;
+        }
+      }
+      return (v >>> 1) ^ -(v & 1);
+    }
+
+    byte[] readBytes() throws EOFException {
+      int length = (int) readVarLong();
+      if (length < 0 || position + length > buffer.length) {
+        throw new EOFException();
+      }
+      byte[] bytes = Arrays.copyOfRange(buffer, position, position + length);
+      position += length;
+      return bytes;
+    }
+
+    String readString() throws EOFException {
+      int length = (int) readVarLong();
+      if (length < 0 || position + length > buffer.length) {
+        throw new EOFException();
+      }
+      String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+      position += length;
+      return value;
+    }
+
+    Class<?> readClass() throws EOFException, ClassNotFoundException {
+      int id = (int) readVarLong();
+      if (id >= 0) {
+        return classes.get(id);
+      }
+      Class<?> type = Resources.classForName(readString());
+      classes.add(type);
+      return type;
+    }
+  }
+
+}
@@ -0,0 +1,173 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 无锁的连接容器
+ * A lock-free container of {@link PoolEntry} objects used by {@link ConcurrentPooledDataSource}.
+ * <p>
+ * Entries live in a shared copy-on-write list and are claimed with a CAS on their state, so checkout and return
+ * never block each other. A returning thread first hands its entry directly to a waiting borrower; otherwise it
+ * remembers the entry in a thread-local list so that the same thread gets it back without scanning the shared list.
+ *
+ * @since 3.5.4
+ */
+class ConcurrentBag {
+
+  private static final int MAX_THREAD_LOCAL_ENTRIES = 16;
+
+  /**
+   * 所有的连接，包括空闲的和正在使用的
+   */
+  private final CopyOnWriteArrayList<PoolEntry> sharedList = new CopyOnWriteArrayList<>();
+  /**
+   * 当前线程最近归还的连接
+   */
+  private final ThreadLocal<List<WeakReference<PoolEntry>>> threadList = ThreadLocal.withInitial(ArrayList::new);
+  /**
+   * 用于将归还的连接直接交给等待的线程
+   */
+  private final SynchronousQueue<PoolEntry> handoffQueue = new SynchronousQueue<>(true);
+  /**
+   * 正在等待连接的线程数
+   */
+  private final AtomicInteger waiters = new AtomicInteger();
+
+  /**
+   * Claims an idle entry without waiting, preferring the entries last returned by the calling thread.
+   *
+   * @return the claimed entry, or null if there is no idle entry
+   */
+  PoolEntry borrow() {
+    List<WeakReference<PoolEntry>> list = threadList.get();
+    for (int i = list.size() - 1; i >= 0; i--) {
+      PoolEntry entry = list.remove(i).get();
+      if (entry != null && entry.compareAndSetState(PoolEntry.STATE_NOT_IN_USE, PoolEntry.STATE_IN_USE)) {
+        return entry;
+      }
+    }
+    for (PoolEntry entry : sharedList) {
+      if (entry.compareAndSetState(PoolEntry.STATE_NOT_IN_USE, PoolEntry.STATE_IN_USE)) {
+        return entry;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Waits for an entry to be handed off by a returning thread.
+   *
+   * @param timeout - how long to wait
+   * @param unit - the unit of timeout
+   * @return the claimed entry, or null if the timeout elapsed
+   * @throws InterruptedException if interrupted while waiting
+   */
+  PoolEntry poll(long timeout, TimeUnit unit) throws InterruptedException {
+    waiters.incrementAndGet();
+    try {
+      // an entry may have been returned before this thread was counted as a waiter
+      PoolEntry entry = borrow();
+      if (entry != null) {
+        return entry;
+      }
+      long remaining = unit.toNanos(timeout);
+      while (remaining > 0) {
+        long start = System.nanoTime();
+        entry = handoffQueue.poll(remaining, TimeUnit.NANOSECONDS);
+        if (entry == null) {
+          return null;
+        }
+        if (entry.compareAndSetState(PoolEntry.STATE_NOT_IN_USE, PoolEntry.STATE_IN_USE)) {
+          return entry;
+        }
+        remaining -= System.nanoTime() - start;
+      }
+      return null;
+    } finally {
+      waiters.decrementAndGet();
+    }
+  }
+
+  /**
+   * Returns a borrowed entry to the bag, handing it directly to a waiting thread if there is one.
+   *
+   * @param entry - the entry to return
+   */
+  void requite(PoolEntry entry) {
+    entry.setState(PoolEntry.STATE_NOT_IN_USE);
+    for (int i = 0; waiters.get() > 0; i++) {
+      if (entry.getState() != PoolEntry.STATE_NOT_IN_USE || handoffQueue.offer(entry)) {
+        return;
+      } else if ((i & 0xff) == 0xff) {
+        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(10));
+      } else {
+        Thread.yield();
+      }
+    }
+    List<WeakReference<PoolEntry>> list = threadList.get();
+    if (list.size() < MAX_THREAD_LOCAL_ENTRIES) {
+      list.add(new WeakReference<>(entry));
+    }
+  }
+
+  void add(PoolEntry entry) {
+    sharedList.add(entry);
+  }
+
+  /**
+   * Removes an entry from the bag and marks it as removed.
+   *
+   * @param entry - the entry to remove
+   * @return true if this call removed the entry, false if it had already been removed
+   */
+  boolean remove(PoolEntry entry) {
+    entry.setState(PoolEntry.STATE_REMOVED);
+    return sharedList.remove(entry);
+  }
+
+  /**
+   * Gets a snapshot of all entries in the bag.
+   *
+   * @return the entries
+   */
+  List<PoolEntry> values() {
+    return new ArrayList<>(sharedList);
+  }
+
+  int getCount(int state) {
+    int count = 0;
+    for (PoolEntry entry : sharedList) {
+      if (entry.getState() == state) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  boolean hasWaiters() {
+    return waiters.get() > 0;
+  }
+
+}
@@ -0,0 +1,374 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * 无锁连接池数据源
+ * A pooled data source that checks out and returns connections without a global lock.
+ * <p>
+ * Connections are kept in a {@link ConcurrentBag}: a thread first reuses the connections it returned most recently,
+ * then claims any idle connection by CAS, and only when the pool is exhausted waits for a connection that a
+ * returning thread hands over directly. The configuration properties and the {@link PoolState} statistics are the
+ * same as those of {@link PooledDataSource}.
+ *
+ * @since 3.5.4
+ */
+public class ConcurrentPooledDataSource extends PooledDataSource {
+
+  private static final Log log = LogFactory.getLog(ConcurrentPooledDataSource.class);
+
+  private final ConcurrentBag bag = new ConcurrentBag();
+  /**
+   * 真正的数据库连接数，包括正在创建的连接
+   */
+  private final AtomicInteger totalConnections = new AtomicInteger();
+
+  public ConcurrentPooledDataSource() {
+    this(new UnpooledDataSource());
+  }
+
+  public ConcurrentPooledDataSource(UnpooledDataSource dataSource) {
+    super(dataSource, ConcurrentPoolState::new);
+  }
+
+  public ConcurrentPooledDataSource(String driver, String url, String username, String password) {
+    this(new UnpooledDataSource(driver, url, username, password));
+    updateConnectionTypeCode();
+  }
+
+  public ConcurrentPooledDataSource(String driver, String url, Properties driverProperties) {
+    this(new UnpooledDataSource(driver, url, driverProperties));
+    updateConnectionTypeCode();
+  }
+
+  public ConcurrentPooledDataSource(ClassLoader driverClassLoader, String driver, String url, String username, String password) {
+    this(new UnpooledDataSource(driverClassLoader, driver, url, username, password));
+    updateConnectionTypeCode();
+  }
+
+  public ConcurrentPooledDataSource(ClassLoader driverClassLoader, String driver, String url, Properties driverProperties) {
+    this(new UnpooledDataSource(driverClassLoader, driver, url, driverProperties));
+    updateConnectionTypeCode();
+  }
+
+  @Override
+  public void forceCloseAll() {
+    super.forceCloseAll();
+    for (PoolEntry entry : bag.values()) {
+      PooledConnection borrower = entry.getAndSetBorrower(null);
+      if (borrower != null) {
+        borrower.invalidate();
+      }
+      discard(entry);
+    }
+  }
+
+  @Override
+  protected void pushConnection(PooledConnection conn) throws SQLException {
+    PoolState state = getPoolState();
+    PoolEntry entry = conn.getPoolEntry();
+    // 连接已经归还过，或者已经被当作超时连接回收，此时entry的借用者已不是conn
+    boolean owned = entry != null && entry.compareAndSetBorrower(conn, null);
+    if (!owned || !conn.isValid()) {
+      if (log.isDebugEnabled()) {
+        log.debug("A bad connection (" + conn.getRealHashCode() + ") attempted to return to the pool, discarding connection.");
+      }
+      if (owned) {
+        conn.invalidate();
+        discard(entry);
+      }
+      state.recordBadConnection();
+      return;
+    }
+    conn.invalidate();
+    state.recordCheckout(conn.getCheckoutTime());
+    entry.setLastUsedTimestamp(conn.getLastUsedTimestamp());
+    entry.setLastValidatedTimestamp(conn.getLastValidatedTimestamp());
+    try {
+      if (!entry.getRealConnection().getAutoCommit()) {
+        entry.getRealConnection().rollback();
+      }
+    } catch (SQLException e) {
+      discard(entry);
+      throw e;
+    }
+    if (conn.getConnectionTypeCode() == getExpectedConnectionTypeCode()
+        && !isPastMaximumLifetime(entry.getCreatedTimestamp(), System.currentTimeMillis())
+        && (bag.hasWaiters() || bag.getCount(PoolEntry.STATE_NOT_IN_USE) < poolMaximumIdleConnections)) {
+      bag.requite(entry);
+      if (log.isDebugEnabled()) {
+        log.debug("Returned connection " + entry.getRealHashCode() + " to pool.");
+      }
+    } else {
+      discard(entry);
+      if (log.isDebugEnabled()) {
+        log.debug("Closed connection " + entry.getRealHashCode() + ".");
+      }
+    }
+  }
+
+  @Override
+  protected PooledConnection popConnection(String username, String password) throws SQLException {
+    PoolState state = getPoolState();
+    boolean countedWait = false;
+    PooledConnection conn = null;
+    long t = System.currentTimeMillis();
+    int localBadConnectionCount = 0;
+
+    while (conn == null) {
+      PoolEntry entry = bag.borrow();
+      if (entry != null) {
+        if (log.isDebugEnabled()) {
+          log.debug("Checked out connection " + entry.getRealHashCode() + " from pool.");
+        }
+      } else {
+        entry = createEntry();
+      }
+      if (entry == null) {
+        entry = claimOverdueEntry();
+      }
+      if (entry == null) {
+        // Must wait
+        long waitTime = getWaitTime(t);
+        if (waitTime <= 0) {
+          state.recordWaitTimeout();
+          if (log.isDebugEnabled()) {
+            log.debug("ConcurrentPooledDataSource: Could not get a connection within " + poolMaximumWaitTime + " milliseconds.");
+          }
+          throw new SQLException("ConcurrentPooledDataSource: Could not get a connection within " + poolMaximumWaitTime + " milliseconds.");
+        }
+        if (!countedWait) {
+          state.recordWait();
+          countedWait = true;
+        }
+        if (log.isDebugEnabled()) {
+          log.debug("Waiting as long as " + waitTime + " milliseconds for connection.");
+        }
+        long wt = System.currentTimeMillis();
+        try {
+          entry = bag.poll(waitTime, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+          break;
+        } finally {
+          state.recordWaitTime(System.currentTimeMillis() - wt);
+        }
+        if (entry == null) {
+          continue;
+        }
+      }
+
+      conn = newPooledConnection(entry);
+      if (conn.isValid()) {
+        try {
+          if (!conn.getRealConnection().getAutoCommit()) {
+            conn.getRealConnection().rollback();
+          }
+        } catch (SQLException e) {
+          discard(entry);
+          throw e;
+        }
+        conn.setConnectionTypeCode(assembleConnectionTypeCode(dataSource.getUrl(), username, password));
+        conn.setCheckoutTimestamp(System.currentTimeMillis());
+        conn.setLastUsedTimestamp(System.currentTimeMillis());
+        entry.setBorrower(conn);
+        state.recordRequest(System.currentTimeMillis() - t);
+      } else {
+        if (log.isDebugEnabled()) {
+          log.debug("A bad connection (" + conn.getRealHashCode() + ") was returned from the pool, getting another connection.");
+        }
+        discard(entry);
+        state.recordBadConnection();
+        localBadConnectionCount++;
+        conn = null;
+        if (localBadConnectionCount > (poolMaximumIdleConnections + poolMaximumLocalBadConnectionTolerance)) {
+          if (log.isDebugEnabled()) {
+            log.debug("ConcurrentPooledDataSource: Could not get a good connection to the database.");
+          }
+          throw new SQLException("ConcurrentPooledDataSource: Could not get a good connection to the database.");
+        }
+      }
+    }
+
+    if (conn == null) {
+      if (log.isDebugEnabled()) {
+        log.debug("ConcurrentPooledDataSource: Unknown severe error condition.  The connection pool returned a null connection.");
+      }
+      throw new SQLException("ConcurrentPooledDataSource: Unknown severe error condition.  The connection pool returned a null connection.");
+    }
+    return conn;
+  }
+
+  @Override
+  protected void housekeep() {
+    long now = System.currentTimeMillis();
+    for (PoolEntry entry : bag.values()) {
+      // 后台维护线程像普通线程一样借出空闲连接，正在使用的连接不受影响
+      if (!entry.compareAndSetState(PoolEntry.STATE_NOT_IN_USE, PoolEntry.STATE_IN_USE)) {
+        continue;
+      }
+      if (isPastMaximumLifetime(entry.getCreatedTimestamp(), now)
+          || (bag.getCount(PoolEntry.STATE_NOT_IN_USE) >= getMinimumIdle() && isPastMaximumIdleTime(entry.getLastUsedTimestamp(), now))) {
+        discard(entry);
+        if (log.isDebugEnabled()) {
+          log.debug("Evicted idle connection " + entry.getRealHashCode() + ".");
+        }
+        continue;
+      }
+      if (isValidationDue(entry.getLastUsedTimestamp(), entry.getLastValidatedTimestamp(), now)) {
+        PooledConnection conn = newPooledConnection(entry);
+        boolean good = pingConnection(conn, true);
+        conn.invalidate();
+        if (!good) {
+          discard(entry);
+          getPoolState().recordBadConnection();
+          continue;
+        }
+        entry.setLastValidatedTimestamp(conn.getLastValidatedTimestamp());
+      }
+      bag.requite(entry);
+    }
+    while (bag.getCount(PoolEntry.STATE_NOT_IN_USE) < getMinimumIdle()) {
+      PoolEntry entry;
+      try {
+        entry = createEntry();
+      } catch (SQLException e) {
+        log.warn("Could not open an idle connection: " + e.getMessage());
+        return;
+      }
+      if (entry == null) {
+        return;
+      }
+      bag.requite(entry);
+      if (log.isDebugEnabled()) {
+        log.debug("Created idle connection " + entry.getRealHashCode() + ".");
+      }
+    }
+  }
+
+  private PooledConnection newPooledConnection(PoolEntry entry) {
+    PooledConnection conn = new PooledConnection(entry.getRealConnection(), this);
+    conn.setPoolEntry(entry);
+    conn.setStatementCache(entry.getStatementCache());
+    conn.setCreatedTimestamp(entry.getCreatedTimestamp());
+    conn.setLastUsedTimestamp(entry.getLastUsedTimestamp());
+    conn.setLastValidatedTimestamp(entry.getLastValidatedTimestamp());
+    return conn;
+  }
+
+  /**
+   * 如果连接数没有达到上限，则创建一个新连接
+   * Opens a new physical connection if the pool has not reached poolMaximumActiveConnections.
+   *
+   * @return the new entry (already in use), or null if the pool is full
+   */
+  private PoolEntry createEntry() throws SQLException {
+    for (;;) {
+      int total = totalConnections.get();
+      if (total >= poolMaximumActiveConnections) {
+        return null;
+      }
+      if (totalConnections.compareAndSet(total, total + 1)) {
+        break;
+      }
+    }
+    try {
+      PoolEntry entry = new PoolEntry(dataSource.getConnection());
+      bag.add(entry);
+      if (log.isDebugEnabled()) {
+        log.debug("Created connection " + entry.getRealHashCode() + ".");
+      }
+      return entry;
+    } catch (SQLException | RuntimeException e) {
+      totalConnections.decrementAndGet();
+      throw e;
+    }
+  }
+
+  /**
+   * 回收一个超过poolMaximumCheckoutTime仍未归还的连接
+   * Claims a connection that has been checked out for longer than poolMaximumCheckoutTime.
+   *
+   * @return the claimed entry, or null if no connection is overdue
+   */
+  private PoolEntry claimOverdueEntry() {
+    for (PoolEntry entry : bag.values()) {
+      PooledConnection borrower = entry.getBorrower();
+      if (borrower == null) {
+        continue;
+      }
+      long checkoutTime = borrower.getCheckoutTime();
+      if (checkoutTime > poolMaximumCheckoutTime && entry.compareAndSetBorrower(borrower, null)) {
+        PoolState state = getPoolState();
+        state.recordOverdueCheckout(checkoutTime);
+        borrower.invalidate();
+        try {
+          if (!entry.getRealConnection().getAutoCommit()) {
+            entry.getRealConnection().rollback();
+          }
+        } catch (SQLException e) {
+          // same as PooledDataSource, the connection is validated again before it is handed out
+          log.debug("Bad connection. Could not roll back");
+        }
+        if (log.isDebugEnabled()) {
+          log.debug("Claimed overdue connection " + entry.getRealHashCode() + ".");
+        }
+        return entry;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * 从连接池中移除并关闭连接
+   */
+  private void discard(PoolEntry entry) {
+    if (!bag.remove(entry)) {
+      return;
+    }
+    totalConnections.decrementAndGet();
+    closeQuietly(entry.getRealConnection());
+  }
+
+  /**
+   * 从{@link ConcurrentBag}中统计空闲/活跃连接数，而不是从PoolState的集合中
+   */
+  private static class ConcurrentPoolState extends PoolState {
+
+    ConcurrentPoolState(PooledDataSource dataSource) {
+      super(dataSource);
+    }
+
+    @Override
+    public int getIdleConnectionCount() {
+      return ((ConcurrentPooledDataSource) dataSource).bag.getCount(PoolEntry.STATE_NOT_IN_USE);
+    }
+
+    @Override
+    public int getActiveConnectionCount() {
+      return ((ConcurrentPooledDataSource) dataSource).bag.getCount(PoolEntry.STATE_IN_USE);
+    }
+  }
+
+}
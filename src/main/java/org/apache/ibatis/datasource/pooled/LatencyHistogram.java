@@ -0,0 +1,138 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 延迟直方图，记录值时不需要加锁
+ * A lock-free histogram of latencies in milliseconds.
+ * <p>
+ * Values are counted in power-of-two buckets: bucket 0 holds 0, and bucket i holds values from 2^(i-1) to 2^i - 1.
+ * Percentiles are therefore reported as the upper bound of the bucket they fall into, which is accurate within a
+ * factor of two and never lower than the real value (except that it is capped to the largest recorded value).
+ *
+ * @since 3.5.4
+ */
+public class LatencyHistogram {
+
+  private static final int BUCKET_COUNT = 32;
+
+  private final LongAdder[] buckets = new LongAdder[BUCKET_COUNT];
+  private final LongAdder count = new LongAdder();
+  private final LongAdder total = new LongAdder();
+  private final LongAccumulator max = new LongAccumulator(Long::max, 0L);
+
+  public LatencyHistogram() {
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      buckets[i] = new LongAdder();
+    }
+  }
+
+  /**
+   * Records a value.
+   *
+   * @param millis the value in milliseconds, negative values are recorded as 0
+   */
+  public void record(long millis) {
+    long value = Math.max(millis, 0L);
+    buckets[bucketIndex(value)].increment();
+    count.increment();
+    total.add(value);
+    max.accumulate(value);
+  }
+
+  public long getCount() {
+    return count.sum();
+  }
+
+  public long getTotal() {
+    return total.sum();
+  }
+
+  public long getMax() {
+    return max.get();
+  }
+
+  public long getMean() {
+    long n = count.sum();
+    return n == 0 ? 0 : total.sum() / n;
+  }
+
+  /**
+   * Gets an upper bound of the given percentile.
+   *
+   * @param percentile a value between 0 and 100 (e.g. 99.9)
+   * @return the upper bound of the bucket that contains the percentile, or 0 if nothing was recorded
+   */
+  public long getPercentile(double percentile) {
+    long[] counts = getBucketCounts();
+    long n = 0;
+    for (long c : counts) {
+      n += c;
+    }
+    if (n == 0) {
+      return 0;
+    }
+    long rank = (long) Math.ceil(n * Math.min(Math.max(percentile, 0d), 100d) / 100d);
+    long seen = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      seen += counts[i];
+      if (seen >= rank && counts[i] > 0) {
+        return Math.min(bucketUpperBound(i), getMax());
+      }
+    }
+    return getMax();
+  }
+
+  /**
+   * Gets the number of values recorded in each bucket.
+   *
+   * @return the counts, index i holds the values up to {@code 2^i - 1}
+   */
+  public long[] getBucketCounts() {
+    long[] counts = new long[BUCKET_COUNT];
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      counts[i] = buckets[i].sum();
+    }
+    return counts;
+  }
+
+  public void reset() {
+    for (LongAdder bucket : buckets) {
+      bucket.reset();
+    }
+    count.reset();
+    total.reset();
+    max.reset();
+  }
+
+  static int bucketIndex(long value) {
+    return value <= 0 ? 0 : Math.min(64 - Long.numberOfLeadingZeros(value), BUCKET_COUNT - 1);
+  }
+
+  static long bucketUpperBound(int index) {
+    return index == BUCKET_COUNT - 1 ? Long.MAX_VALUE : (1L << index) - 1;
+  }
+
+  @Override
+  public String toString() {
+    return "count=" + getCount() + ", mean=" + getMean() + ", p50=" + getPercentile(50) + ", p99="
+        + getPercentile(99) + ", max=" + getMax();
+  }
+
+}
@@ -0,0 +1,128 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.sql.Connection;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.ibatis.executor.statement.StatementCache;
+
+/**
+ * {@link ConcurrentBag}中的一个条目，持有一个真正的数据库连接
+ * A physical connection held by a {@link ConcurrentPooledDataSource}. Each checkout wraps the real connection
+ * in a fresh {@link PooledConnection}, which is recorded as the current borrower of the entry.
+ */
+class PoolEntry {
+
+  static final int STATE_REMOVED = -1;
+  static final int STATE_NOT_IN_USE = 0;
+  static final int STATE_IN_USE = 1;
+
+  private final AtomicInteger state;
+  /**
+   * 当前借出该连接的PooledConnection，空闲时为null
+   */
+  private final AtomicReference<PooledConnection> borrower = new AtomicReference<>();
+  /**
+   * 真正的数据库连接
+   */
+  private final Connection realConnection;
+  private final long createdTimestamp;
+  private volatile long lastUsedTimestamp;
+  private volatile long lastValidatedTimestamp;
+  /**
+   * 该连接上的Statement缓存，在每次借出时交给新的PooledConnection
+   */
+  private volatile StatementCache statementCache;
+
+  /**
+   * Creates a new entry that is already in use by the creating thread.
+   *
+   * @param realConnection - the real connection
+   */
+  PoolEntry(Connection realConnection) {
+    this.realConnection = realConnection;
+    this.state = new AtomicInteger(STATE_IN_USE);
+    this.createdTimestamp = System.currentTimeMillis();
+    this.lastUsedTimestamp = createdTimestamp;
+  }
+
+  int getState() {
+    return state.get();
+  }
+
+  void setState(int newState) {
+    state.set(newState);
+  }
+
+  boolean compareAndSetState(int expectState, int newState) {
+    return state.compareAndSet(expectState, newState);
+  }
+
+  PooledConnection getBorrower() {
+    return borrower.get();
+  }
+
+  void setBorrower(PooledConnection conn) {
+    borrower.set(conn);
+  }
+
+  boolean compareAndSetBorrower(PooledConnection expect, PooledConnection update) {
+    return borrower.compareAndSet(expect, update);
+  }
+
+  PooledConnection getAndSetBorrower(PooledConnection conn) {
+    return borrower.getAndSet(conn);
+  }
+
+  Connection getRealConnection() {
+    return realConnection;
+  }
+
+  int getRealHashCode() {
+    return realConnection == null ? 0 : realConnection.hashCode();
+  }
+
+  long getCreatedTimestamp() {
+    return createdTimestamp;
+  }
+
+  long getLastUsedTimestamp() {
+    return lastUsedTimestamp;
+  }
+
+  void setLastUsedTimestamp(long lastUsedTimestamp) {
+    this.lastUsedTimestamp = lastUsedTimestamp;
+  }
+
+  long getLastValidatedTimestamp() {
+    return lastValidatedTimestamp;
+  }
+
+  void setLastValidatedTimestamp(long lastValidatedTimestamp) {
+    this.lastValidatedTimestamp = lastValidatedTimestamp;
+  }
+
+  StatementCache getStatementCache() {
+    return statementCache;
+  }
+
+  void setStatementCache(StatementCache statementCache) {
+    this.statementCache = statementCache;
+  }
+
+}
@@ -0,0 +1,95 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * 连接池的后台维护线程
+ * Runs {@link PooledDataSource#housekeep()} periodically on a daemon thread shared by all pools.
+ * <p>
+ * The scheduled task only holds a weak reference to its data source, so a data source that is no longer used can
+ * still be garbage collected; its task cancels itself on the next run.
+ *
+ * @since 3.5.4
+ */
+final class PoolHousekeeper {
+
+  private static final Log log = LogFactory.getLog(PoolHousekeeper.class);
+
+  private PoolHousekeeper() {
+    // Prevent Instantiation
+  }
+
+  /**
+   * Schedules the housekeeping of a data source.
+   *
+   * @param dataSource - the data source
+   * @param interval - the delay between two runs in milliseconds
+   * @return the scheduled task, to be cancelled when housekeeping is disabled
+   */
+  static ScheduledFuture<?> schedule(PooledDataSource dataSource, long interval) {
+    Task task = new Task(dataSource);
+    task.future = ExecutorHolder.EXECUTOR.scheduleWithFixedDelay(task, interval, interval, TimeUnit.MILLISECONDS);
+    return task.future;
+  }
+
+  private static class ExecutorHolder {
+    private static final ScheduledThreadPoolExecutor EXECUTOR = new ScheduledThreadPoolExecutor(1, runnable -> {
+      Thread thread = new Thread(runnable, "mybatis-pool-housekeeper");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    static {
+      EXECUTOR.setRemoveOnCancelPolicy(true);
+    }
+  }
+
+  private static class Task implements Runnable {
+
+    private final WeakReference<PooledDataSource> dataSource;
+    private volatile ScheduledFuture<?> future;
+
+    Task(PooledDataSource dataSource) {
+      this.dataSource = new WeakReference<>(dataSource);
+    }
+
+    @Override
+    public void run() {
+      PooledDataSource ds = dataSource.get();
+      if (ds == null) {
+        if (future != null) {
+          future.cancel(false);
+        }
+        return;
+      }
+      try {
+        ds.housekeep();
+      } catch (RuntimeException e) {
+        // an exception would suppress all subsequent runs
+        log.error("Error during pool housekeeping. Cause: " + e, e);
+      }
+    }
+  }
+
+}
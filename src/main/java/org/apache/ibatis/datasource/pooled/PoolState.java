@@ -17,9 +17,19 @@ package org.apache.ibatis.datasource.pooled;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * 用于管理PooledConnection对象状态的组件
+ * 统计数据使用{@link LongAdder}记录，读取统计数据时不需要获取连接池的锁
+ * <p>
+ * Since 3.5.4 the statistics are kept in private counters that are updated without holding the pool lock. The
+ * protected fields <code>requestCount</code>, <code>accumulatedRequestTime</code>,
+ * <code>accumulatedCheckoutTime</code>, <code>claimedOverdueConnectionCount</code>,
+ * <code>accumulatedCheckoutTimeOfOverdueConnections</code>, <code>accumulatedWaitTime</code>,
+ * <code>hadToWaitCount</code> and <code>badConnectionCount</code> have been removed; subclasses must use the
+ * corresponding getters instead.
+ *
  * @author Clinton Begin
  */
 public class PoolState {
@@ -33,89 +43,141 @@ public class PoolState {
    * 活跃的PooledConnection集合
    */
   protected final List<PooledConnection> activeConnections = new ArrayList<>();
+
+  private final LongAdder requests = new LongAdder();
+  private final LongAdder requestTime = new LongAdder();
+  private final LongAdder checkoutTime = new LongAdder();
+  private final LongAdder overdueConnections = new LongAdder();
+  private final LongAdder overdueCheckoutTime = new LongAdder();
+  private final LongAdder waitTime = new LongAdder();
+  private final LongAdder waits = new LongAdder();
+  private final LongAdder badConnections = new LongAdder();
   /**
-   * 请求数据库连接的次数
-   */
-  protected long requestCount = 0;
-  /**
-   * 获取连接的累计时长
-   */
-  protected long accumulatedRequestTime = 0;
-  /**
-   * CheckoutTime表示应用从连接池中取出连接，到归还连接这端时长
-   * accumulatedCheckoutTime记录的是所有连接累计的CheckoutTime时长
-   */
-  protected long accumulatedCheckoutTime = 0;
-  /**
-   * 当连接长时间未被归还给连接池时，会被认为该连接超时
-   * claimedOverdueConnectionCount 记录的是超时的连接个数
-   */
-  protected long claimedOverdueConnectionCount = 0;
-  /**
-   * 累计超时时间
-   */
-  protected long accumulatedCheckoutTimeOfOverdueConnections = 0;
-  /**
-   * 累计等待时间
+   * 超过poolMaximumWaitTime仍未获取到连接的次数
    */
-  protected long accumulatedWaitTime = 0;
+  private final LongAdder waitTimeouts = new LongAdder();
   /**
-   * 等待次数
+   * 获取连接时长的分布
    */
-  protected long hadToWaitCount = 0;
+  private final LatencyHistogram requestTimeHistogram = new LatencyHistogram();
   /**
-   * 无效连接数
+   * CheckoutTime的分布
    */
-  protected long badConnectionCount = 0;
+  private final LatencyHistogram checkoutTimeHistogram = new LatencyHistogram();
 
   public PoolState(PooledDataSource dataSource) {
     this.dataSource = dataSource;
   }
 
-  public synchronized long getRequestCount() {
-    return requestCount;
+  // 以下方法由连接池在获取、归还连接时调用，不需要持有连接池的锁
+  void recordRequest(long time) {
+    requests.increment();
+    requestTime.add(time);
+    requestTimeHistogram.record(time);
   }
 
-  public synchronized long getAverageRequestTime() {
-    return requestCount == 0 ? 0 : accumulatedRequestTime / requestCount;
+  void recordCheckout(long time) {
+    checkoutTime.add(time);
+    checkoutTimeHistogram.record(time);
   }
 
-  public synchronized long getAverageWaitTime() {
-    return hadToWaitCount == 0 ? 0 : accumulatedWaitTime / hadToWaitCount;
+  void recordOverdueCheckout(long time) {
+    overdueConnections.increment();
+    overdueCheckoutTime.add(time);
+    recordCheckout(time);
+  }
 
+  void recordWait() {
+    waits.increment();
   }
 
-  public synchronized long getHadToWaitCount() {
-    return hadToWaitCount;
+  void recordWaitTime(long time) {
+    waitTime.add(time);
   }
 
-  public synchronized long getBadConnectionCount() {
-    return badConnectionCount;
+  void recordWaitTimeout() {
+    waitTimeouts.increment();
   }
 
-  public synchronized long getClaimedOverdueConnectionCount() {
-    return claimedOverdueConnectionCount;
+  void recordBadConnection() {
+    badConnections.increment();
   }
 
-  public synchronized long getAverageOverdueCheckoutTime() {
-    return claimedOverdueConnectionCount == 0 ? 0 : accumulatedCheckoutTimeOfOverdueConnections / claimedOverdueConnectionCount;
+  public long getRequestCount() {
+    return requests.sum();
   }
 
-  public synchronized long getAverageCheckoutTime() {
-    return requestCount == 0 ? 0 : accumulatedCheckoutTime / requestCount;
+  public long getAverageRequestTime() {
+    long count = requests.sum();
+    return count == 0 ? 0 : requestTime.sum() / count;
   }
 
+  public long getAverageWaitTime() {
+    long count = waits.sum();
+    return count == 0 ? 0 : waitTime.sum() / count;
+
+  }
+
+  public long getHadToWaitCount() {
+    return waits.sum();
+  }
+
+  public long getBadConnectionCount() {
+    return badConnections.sum();
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  public long getWaitTimeoutCount() {
+    return waitTimeouts.sum();
+  }
+
+  public long getClaimedOverdueConnectionCount() {
+    return overdueConnections.sum();
+  }
+
+  public long getAverageOverdueCheckoutTime() {
+    long count = overdueConnections.sum();
+    return count == 0 ? 0 : overdueCheckoutTime.sum() / count;
+  }
+
+  public long getAverageCheckoutTime() {
+    long count = requests.sum();
+    return count == 0 ? 0 : checkoutTime.sum() / count;
+  }
+
+  /**
+   * Gets the distribution of the time it took to get a connection from the pool, in milliseconds.
+   *
+   * @return the histogram
+   * @since 3.5.4
+   */
+  public LatencyHistogram getRequestTimeHistogram() {
+    return requestTimeHistogram;
+  }
+
+  /**
+   * Gets the distribution of the time connections were checked out before being returned, in milliseconds.
+   *
+   * @return the histogram
+   * @since 3.5.4
+   */
+  public LatencyHistogram getCheckoutTimeHistogram() {
+    return checkoutTimeHistogram;
+  }
 
-  public synchronized int getIdleConnectionCount() {
+  // 只读取集合的大小，不获取连接池的锁，统计数据允许短暂的不一致
+  public int getIdleConnectionCount() {
     return idleConnections.size();
   }
 
-  public synchronized int getActiveConnectionCount() {
+  public int getActiveConnectionCount() {
     return activeConnections.size();
   }
 
   @Override
-  public synchronized String toString() {
+  public String toString() {
     StringBuilder builder = new StringBuilder();
     builder.append("\n===CONFINGURATION==============================================");
     builder.append("\n jdbcDriver                     ").append(dataSource.getDriver());
@@ -126,20 +188,29 @@ public class PoolState {
     builder.append("\n poolMaxIdleConnections         ").append(dataSource.poolMaximumIdleConnections);
     builder.append("\n poolMaxCheckoutTime            ").append(dataSource.poolMaximumCheckoutTime);
     builder.append("\n poolTimeToWait                 ").append(dataSource.poolTimeToWait);
+    builder.append("\n poolMaximumWaitTime            ").append(dataSource.poolMaximumWaitTime);
+    builder.append("\n poolFairWaiting                ").append(dataSource.poolFairWaiting);
     builder.append("\n poolPingEnabled                ").append(dataSource.poolPingEnabled);
     builder.append("\n poolPingQuery                  ").append(dataSource.poolPingQuery);
     builder.append("\n poolPingConnectionsNotUsedFor  ").append(dataSource.poolPingConnectionsNotUsedFor);
+    builder.append("\n poolHousekeepingInterval       ").append(dataSource.poolHousekeepingInterval);
+    builder.append("\n poolMaximumLifetime            ").append(dataSource.poolMaximumLifetime);
+    builder.append("\n poolMaximumIdleTime            ").append(dataSource.poolMaximumIdleTime);
+    builder.append("\n poolMinimumIdleConnections     ").append(dataSource.poolMinimumIdleConnections);
     builder.append("\n ---STATUS-----------------------------------------------------");
     builder.append("\n activeConnections              ").append(getActiveConnectionCount());
     builder.append("\n idleConnections                ").append(getIdleConnectionCount());
     builder.append("\n requestCount                   ").append(getRequestCount());
     builder.append("\n averageRequestTime             ").append(getAverageRequestTime());
     builder.append("\n averageCheckoutTime            ").append(getAverageCheckoutTime());
+    builder.append("\n requestTimeP99                 ").append(requestTimeHistogram.getPercentile(99));
+    builder.append("\n checkoutTimeP99                ").append(checkoutTimeHistogram.getPercentile(99));
     builder.append("\n claimedOverdue                 ").append(getClaimedOverdueConnectionCount());
     builder.append("\n averageOverdueCheckoutTime     ").append(getAverageOverdueCheckoutTime());
     builder.append("\n hadToWait                      ").append(getHadToWaitCount());
     builder.append("\n averageWaitTime                ").append(getAverageWaitTime());
     builder.append("\n badConnectionCount             ").append(getBadConnectionCount());
+    builder.append("\n waitTimeout                    ").append(getWaitTimeoutCount());
     builder.append("\n===============================================================");
     return builder.toString();
   }
@@ -21,6 +21,7 @@ import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.SQLException;
 
+import org.apache.ibatis.executor.statement.StatementCache;
 import org.apache.ibatis.reflection.ExceptionUtil;
 
 /**
@@ -30,6 +31,8 @@ import org.apache.ibatis.reflection.ExceptionUtil;
 class PooledConnection implements InvocationHandler {
 
   private static final String CLOSE = "close";
+  private static final String UNWRAP = "unwrap";
+  private static final String IS_WRAPPER_FOR = "isWrapperFor";
   private static final Class<?>[] IFACES = new Class<?>[] { Connection.class };
 
   private final int hashCode;
@@ -57,6 +60,10 @@ class PooledConnection implements InvocationHandler {
    * 该连接最后一次被使用的时间戳
    */
   private long lastUsedTimestamp;
+  /**
+   * 最后一次通过测试SQL检测该连接的时间戳
+   */
+  private long lastValidatedTimestamp;
   /**
    * 用于标识该连接所在的连接池
    *
@@ -66,6 +73,14 @@ class PooledConnection implements InvocationHandler {
    * 检测当前PooledConnection是否有效，主要为了防止程序通过close()方法将连接归还给连接池之后，依然通过该连接操作数据库
    */
   private boolean valid;
+  /**
+   * 该连接在{@link ConcurrentPooledDataSource}中对应的条目，其他连接池中为null
+   */
+  private PoolEntry poolEntry;
+  /**
+   * 缓存在真正的数据库连接上的Statement，归还连接后由新的PooledConnection继续使用
+   */
+  private StatementCache statementCache;
 
   /**
    * Constructor for SimplePooledConnection that uses the Connection and PooledDataSource passed in.
@@ -104,6 +119,55 @@ class PooledConnection implements InvocationHandler {
     return valid && realConnection != null && dataSource.pingConnection(this);
   }
 
+  /**
+   * Getter for the pool entry this connection was borrowed from.
+   *
+   * @return the pool entry (or null if the connection is not managed by a {@link ConcurrentPooledDataSource})
+   */
+  PoolEntry getPoolEntry() {
+    return poolEntry;
+  }
+
+  /**
+   * Setter for the pool entry this connection was borrowed from.
+   *
+   * @param poolEntry - the pool entry
+   */
+  void setPoolEntry(PoolEntry poolEntry) {
+    this.poolEntry = poolEntry;
+  }
+
+  /**
+   * Getter for the statement cache of the real connection.
+   *
+   * @return the statement cache (or null if it was not created yet)
+   */
+  StatementCache getStatementCache() {
+    return statementCache;
+  }
+
+  /**
+   * Setter for the statement cache of the real connection, carried over from the previous checkout.
+   *
+   * @param statementCache - the statement cache
+   */
+  void setStatementCache(StatementCache statementCache) {
+    this.statementCache = statementCache;
+  }
+
+  /**
+   * 第一次使用时创建Statement缓存，未设置poolStatementCacheSize时返回null
+   */
+  private StatementCache statementCache() {
+    if (statementCache == null && dataSource.getPoolStatementCacheSize() > 0) {
+      statementCache = new StatementCache(dataSource.getPoolStatementCacheSize());
+      if (poolEntry != null) {
+        poolEntry.setStatementCache(statementCache);
+      }
+    }
+    return statementCache;
+  }
+
   /**
    * Getter for the *real* connection that this wraps.
    *
@@ -185,6 +249,33 @@ class PooledConnection implements InvocationHandler {
     this.lastUsedTimestamp = lastUsedTimestamp;
   }
 
+  /**
+   * Getter for the time that the connection was last validated with the ping query.
+   *
+   * @return - the timestamp
+   */
+  public long getLastValidatedTimestamp() {
+    return lastValidatedTimestamp;
+  }
+
+  /**
+   * Setter for the time that the connection was last validated with the ping query.
+   *
+   * @param lastValidatedTimestamp - the timestamp
+   */
+  public void setLastValidatedTimestamp(long lastValidatedTimestamp) {
+    this.lastValidatedTimestamp = lastValidatedTimestamp;
+  }
+
+  /**
+   * Getter for the time since this connection was last validated with the ping query.
+   *
+   * @return - the time since the last validation
+   */
+  public long getTimeElapsedSinceLastValidation() {
+    return System.currentTimeMillis() - lastValidatedTimestamp;
+  }
+
   /**
    * Getter for the time since this connection was last used.
    *
@@ -269,6 +360,18 @@ class PooledConnection implements InvocationHandler {
       dataSource.pushConnection(this);
       return null;
     }
+    //通过unwrap暴露Statement缓存，供ReuseExecutor使用
+    if (args != null && args.length == 1 && args[0] == StatementCache.class
+        && (UNWRAP.equals(methodName) || IS_WRAPPER_FOR.equals(methodName))) {
+      checkConnection();
+      StatementCache cache = statementCache();
+      if (IS_WRAPPER_FOR.equals(methodName)) {
+        return cache != null;
+      }
+      if (cache != null) {
+        return cache;
+      }
+    }
     try {
       if (!Object.class.equals(method.getDeclaringClass())) {
         // issue #579 toString() should never fail
@@ -22,7 +22,16 @@ import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
 import java.util.logging.Logger;
 
 import javax.sql.DataSource;
@@ -44,12 +53,12 @@ public class PooledDataSource implements DataSource {
   /**
    * 通过PoolState管理连接池的转台并记录统计信息
    */
-  private final PoolState state = new PoolState(this);
+  private final PoolState state;
 
   /**
    * 创建一个PooledDataSource需要一个UnpooledDataSource
    */
-  private final UnpooledDataSource dataSource;
+  protected final UnpooledDataSource dataSource;
 
   // OPTIONAL CONFIGURATION FIELDS
   // 可选配置字段
@@ -69,6 +78,14 @@ public class PooledDataSource implements DataSource {
    * 在无法获取连接时，线程需要等待的时间
    */
   protected int poolTimeToWait = 20000;
+  /**
+   * 获取连接时最多等待的时间，超过该时间抛出SQLException，为0时一直等待
+   */
+  protected int poolMaximumWaitTime;
+  /**
+   * 是否启用公平等待：归还的连接直接交给等待时间最长的线程
+   */
+  protected boolean poolFairWaiting;
   protected int poolMaximumLocalBadConnectionTolerance = 3;
   /**
    * 在检测一个数据库连接是否可用时，会给数据库发送一个测试SQL语句
@@ -82,37 +99,90 @@ public class PooledDataSource implements DataSource {
    * 当poolPingConnectionsNotUsedFor毫秒未使用时，会发送一次测试SQL语句，检测连接是否正常
    */
   protected int poolPingConnectionsNotUsedFor;
+  /**
+   * 后台维护线程的运行间隔，为0时不启动后台维护线程
+   */
+  protected int poolHousekeepingInterval;
+  /**
+   * 连接的最大存活时间，超过该时间的连接会被关闭，为0时不限制
+   */
+  protected int poolMaximumLifetime;
+  /**
+   * 连接的最大空闲时间，超过该时间未被使用的空闲连接会被后台维护线程关闭，为0时不限制
+   */
+  protected int poolMaximumIdleTime;
+  /**
+   * 后台维护线程保持的最小空闲连接数
+   */
+  protected int poolMinimumIdleConnections;
+  /**
+   * 每个连接上缓存的Statement数量，为0时不缓存
+   */
+  protected int poolStatementCacheSize;
+  /**
+   * 后台维护任务
+   */
+  private ScheduledFuture<?> housekeeper;
+  /**
+   * 公平等待模式下等待连接的线程，按等待的先后顺序排列，由state的锁保护
+   */
+  private final Deque<Waiter> waitQueue = new ArrayDeque<>();
+  /**
+   * 已经交给等待线程、但等待线程还没有取走的连接数，这些连接既不在活跃集合也不在空闲集合中，由state的锁保护
+   */
+  private int handedOffConnectionCount;
   /**
    * 该hash用于标志着当前的连接池，在构造函数中初始化
    *    生成规则：{@link PooledDataSource#assembleConnectionTypeCode(String, String, String)}
    */
-  private int expectedConnectionTypeCode;
+  private volatile int expectedConnectionTypeCode;
 
   public PooledDataSource() {
-    dataSource = new UnpooledDataSource();
+    this(new UnpooledDataSource());
   }
 
   public PooledDataSource(UnpooledDataSource dataSource) {
-    this.dataSource = dataSource;
+    this(dataSource, PoolState::new);
   }
 
   public PooledDataSource(String driver, String url, String username, String password) {
-    dataSource = new UnpooledDataSource(driver, url, username, password);
-    expectedConnectionTypeCode = assembleConnectionTypeCode(dataSource.getUrl(), dataSource.getUsername(), dataSource.getPassword());
+    this(new UnpooledDataSource(driver, url, username, password));
+    updateConnectionTypeCode();
   }
 
   public PooledDataSource(String driver, String url, Properties driverProperties) {
-    dataSource = new UnpooledDataSource(driver, url, driverProperties);
-    expectedConnectionTypeCode = assembleConnectionTypeCode(dataSource.getUrl(), dataSource.getUsername(), dataSource.getPassword());
+    this(new UnpooledDataSource(driver, url, driverProperties));
+    updateConnectionTypeCode();
   }
 
   public PooledDataSource(ClassLoader driverClassLoader, String driver, String url, String username, String password) {
-    dataSource = new UnpooledDataSource(driverClassLoader, driver, url, username, password);
-    expectedConnectionTypeCode = assembleConnectionTypeCode(dataSource.getUrl(), dataSource.getUsername(), dataSource.getPassword());
+    this(new UnpooledDataSource(driverClassLoader, driver, url, username, password));
+    updateConnectionTypeCode();
   }
 
   public PooledDataSource(ClassLoader driverClassLoader, String driver, String url, Properties driverProperties) {
-    dataSource = new UnpooledDataSource(driverClassLoader, driver, url, driverProperties);
+    this(new UnpooledDataSource(driverClassLoader, driver, url, driverProperties));
+    updateConnectionTypeCode();
+  }
+
+  /**
+   * 由子类传入创建PoolState的方法，PoolState在构造函数中创建，不会调用可覆盖的方法
+   * Creates a data source whose {@link PoolState} is created by the given factory. The factory is called once, before
+   * the fields of a subclass are initialized, so it must not use them.
+   *
+   * @param dataSource the data source opening the real connections
+   * @param poolStateFactory creates the pool state of this data source
+   * @since 3.5.4
+   */
+  protected PooledDataSource(UnpooledDataSource dataSource, Function<PooledDataSource, PoolState> poolStateFactory) {
+    this.dataSource = dataSource;
+    this.state = poolStateFactory.apply(this);
+  }
+
+  /**
+   * 根据当前的url、用户名和密码计算连接池的标识
+   */
+  final void updateConnectionTypeCode() {
     expectedConnectionTypeCode = assembleConnectionTypeCode(dataSource.getUrl(), dataSource.getUsername(), dataSource.getPassword());
   }
 
@@ -260,6 +330,28 @@ public class PooledDataSource implements DataSource {
     forceCloseAll();
   }
 
+  /**
+   * The maximum time a thread waits to get a connection before an SQLException is thrown.
+   * 0 (the default) means the thread waits until a connection becomes available.
+   *
+   * @param milliseconds the maximum time to wait for a connection
+   * @since 3.5.4
+   */
+  public void setPoolMaximumWaitTime(int milliseconds) {
+    this.poolMaximumWaitTime = milliseconds;
+  }
+
+  /**
+   * Determines if threads waiting for a connection are served in arrival order. When enabled, a returned connection
+   * is handed directly to the thread that has been waiting the longest instead of waking up every waiting thread.
+   *
+   * @param poolFairWaiting True to serve waiting threads in arrival order
+   * @since 3.5.4
+   */
+  public void setPoolFairWaiting(boolean poolFairWaiting) {
+    this.poolFairWaiting = poolFairWaiting;
+  }
+
   /**
    * The query to be used to check a connection.
    *
@@ -291,6 +383,65 @@ public class PooledDataSource implements DataSource {
     forceCloseAll();
   }
 
+  /**
+   * The interval of the background housekeeping, which validates idle connections, closes connections that exceeded
+   * their maximum lifetime or idle time and opens connections up to the minimum idle count. Housekeeping is disabled
+   * when the interval is 0 (the default).
+   *
+   * @param milliseconds the delay between two housekeeping runs
+   * @since 3.5.4
+   */
+  public void setPoolHousekeepingInterval(int milliseconds) {
+    this.poolHousekeepingInterval = milliseconds;
+    scheduleHousekeeping();
+  }
+
+  /**
+   * The maximum time a connection is kept open. Older connections are closed when they are returned to the pool or
+   * found idle by the housekeeping. 0 (the default) means no limit.
+   *
+   * @param milliseconds the maximum lifetime of a connection
+   * @since 3.5.4
+   */
+  public void setPoolMaximumLifetime(int milliseconds) {
+    this.poolMaximumLifetime = milliseconds;
+  }
+
+  /**
+   * The maximum time a connection may stay unused in the pool before the housekeeping closes it.
+   * 0 (the default) means no limit.
+   *
+   * @param milliseconds the maximum idle time of a connection
+   * @since 3.5.4
+   */
+  public void setPoolMaximumIdleTime(int milliseconds) {
+    this.poolMaximumIdleTime = milliseconds;
+  }
+
+  /**
+   * The number of idle connections the housekeeping keeps open, never more than the maximum number of idle
+   * connections.
+   *
+   * @param poolMinimumIdleConnections the minimum number of idle connections
+   * @since 3.5.4
+   */
+  public void setPoolMinimumIdleConnections(int poolMinimumIdleConnections) {
+    this.poolMinimumIdleConnections = poolMinimumIdleConnections;
+  }
+
+  /**
+   * The number of statements the {@link org.apache.ibatis.executor.ReuseExecutor} keeps open on each connection,
+   * so they are reused across sessions. The least recently used statement is closed when the limit is reached.
+   * 0 (the default) means statements are only reused within a session.
+   *
+   * @param poolStatementCacheSize the maximum number of statements cached per connection
+   * @since 3.5.4
+   */
+  public void setPoolStatementCacheSize(int poolStatementCacheSize) {
+    this.poolStatementCacheSize = poolStatementCacheSize;
+    forceCloseAll();
+  }
+
   public String getDriver() {
     return dataSource.getDriver();
   }
@@ -346,6 +497,20 @@ public class PooledDataSource implements DataSource {
     return poolTimeToWait;
   }
 
+  /**
+   * @since 3.5.4
+   */
+  public int getPoolMaximumWaitTime() {
+    return poolMaximumWaitTime;
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  public boolean isPoolFairWaiting() {
+    return poolFairWaiting;
+  }
+
   public String getPoolPingQuery() {
     return poolPingQuery;
   }
@@ -358,6 +523,41 @@ public class PooledDataSource implements DataSource {
     return poolPingConnectionsNotUsedFor;
   }
 
+  /**
+   * @since 3.5.4
+   */
+  public int getPoolHousekeepingInterval() {
+    return poolHousekeepingInterval;
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  public int getPoolMaximumLifetime() {
+    return poolMaximumLifetime;
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  public int getPoolMaximumIdleTime() {
+    return poolMaximumIdleTime;
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  public int getPoolMinimumIdleConnections() {
+    return poolMinimumIdleConnections;
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  public int getPoolStatementCacheSize() {
+    return poolStatementCacheSize;
+  }
+
   /**
    * `PooledDataSource.forceCloseAll()`，当修改`PooledDataSource`的字段是，例如数据库的`URL`、`用户名`、`密码`、`autoCommit`配置等，
    * 都会调用`PooledDataSource.forceCloseAll()`方法将所有的数据库连接都关掉，同时也会将相应的`PooledConnection`对象都设置为无效，
@@ -396,6 +596,7 @@ public class PooledDataSource implements DataSource {
           // ignore
         }
       }
+      signalNextWaiter();
     }
     if (log.isDebugEnabled()) {
       log.debug("PooledDataSource forcefully closed/removed all connections.");
@@ -406,6 +607,10 @@ public class PooledDataSource implements DataSource {
     return state;
   }
 
+  int getExpectedConnectionTypeCode() {
+    return expectedConnectionTypeCode;
+  }
+
   /**
    * 根据数据库连接的url+username+password生成hash值，这个值用来标识着当前的连接池
    * @param url
@@ -413,7 +618,7 @@ public class PooledDataSource implements DataSource {
    * @param password
    * @return
    */
-  private int assembleConnectionTypeCode(String url, String username, String password) {
+  protected int assembleConnectionTypeCode(String url, String username, String password) {
     return ("" + url + username + password).hashCode();
   }
 
@@ -430,33 +635,39 @@ public class PooledDataSource implements DataSource {
       //判断此连接是否有效
       if (conn.isValid()) {
         //判断空闲连接数是否小于最大空闲连接数  （即：判断空闲连接数是否达到上限） 以及此连接是否是该连接池的连接
-        if (state.idleConnections.size() < poolMaximumIdleConnections && conn.getConnectionTypeCode() == expectedConnectionTypeCode) {
+        //有线程在等待时，即使空闲连接数达到上限也将连接交给等待的线程
+        if ((state.idleConnections.size() < poolMaximumIdleConnections || !waitQueue.isEmpty())
+            && conn.getConnectionTypeCode() == expectedConnectionTypeCode
+            && !isPastMaximumLifetime(conn.getCreatedTimestamp(), System.currentTimeMillis())) {
           //空闲连接数没有达到上限
           //累计checkOut时长
-          state.accumulatedCheckoutTime += conn.getCheckoutTime();
+          long checkoutTime = conn.getCheckoutTime();
+          state.recordCheckout(checkoutTime);
           //回滚未提交的事务
           if (!conn.getRealConnection().getAutoCommit()) {
             conn.getRealConnection().rollback();
           }
           //为返还连接创造新的PooledConnection对象
           PooledConnection newConn = new PooledConnection(conn.getRealConnection(), this);
-          //然后将新对象添加到活跃集合
-          state.idleConnections.add(newConn);
           //设置新连接创建时间戳
           newConn.setCreatedTimestamp(conn.getCreatedTimestamp());
           //设置新连接最后使用时间戳
           newConn.setLastUsedTimestamp(conn.getLastUsedTimestamp());
+          newConn.setLastValidatedTimestamp(conn.getLastValidatedTimestamp());
+          //Statement缓存属于真正的数据库连接，继续交给新对象使用
+          newConn.setStatementCache(conn.getStatementCache());
           //将老连接对象设置为无效
           conn.invalidate();
           if (log.isDebugEnabled()) {
             log.debug("Returned connection " + newConn.getRealHashCode() + " to pool.");
           }
-          //唤醒等待的线程
-          state.notifyAll();
+          //然后将新对象添加到空闲集合，并唤醒等待的线程
+          addIdleConnection(newConn);
         } else {
           //空闲连接数已达到上限   或   PooledConnection对象不属于该连接池
           //累计checkOur时长
-          state.accumulatedCheckoutTime += conn.getCheckoutTime();
+          long checkoutTime = conn.getCheckoutTime();
+          state.recordCheckout(checkoutTime);
           //回滚未提交的操作
           if (!conn.getRealConnection().getAutoCommit()) {
             conn.getRealConnection().rollback();
@@ -468,6 +679,8 @@ public class PooledDataSource implements DataSource {
           }
           //最后再将对象设置为无效
           conn.invalidate();
+          //连接数减少了，排在队首的线程可以创建新连接
+          signalNextWaiter();
         }
       } else {
         //如果此连接是无效连接，抛出异常，并且记录先关统计数据
@@ -475,7 +688,7 @@ public class PooledDataSource implements DataSource {
           log.debug("A bad connection (" + conn.getRealHashCode() + ") attempted to return to the pool, discarding connection.");
         }
         //统计无效的PooledConnection对象
-        state.badConnectionCount++;
+        state.recordBadConnection();
       }
     }
   }
@@ -487,7 +700,7 @@ public class PooledDataSource implements DataSource {
    * @return   PooledConnection的代理对象
    * @throws SQLException
    */
-  private PooledConnection popConnection(String username, String password) throws SQLException {
+  protected PooledConnection popConnection(String username, String password) throws SQLException {
     //等待，默认是不等待
     boolean countedWait = false;
     PooledConnection conn = null;
@@ -495,11 +708,25 @@ public class PooledDataSource implements DataSource {
     long t = System.currentTimeMillis();
     //本地错误连接数
     int localBadConnectionCount = 0;
+    //公平等待模式下当前线程在等待队列中的位置
+    Waiter waiter = null;
     //1. 当连接为null的时候，去执行循环
     while (conn == null) {
       synchronized (state) {
-        //2. 判断有没有空闲连接
-        if (!state.idleConnections.isEmpty()) {
+        boolean mustWait = false;
+        if (waiter != null && waiter.connection != null) {
+          //其他线程归还的连接直接交给了当前线程
+          conn = waiter.connection;
+          handedOffConnectionCount--;
+          waiter = null;
+          if (log.isDebugEnabled()) {
+            log.debug("Received connection " + conn.getRealHashCode() + " from pool.");
+          }
+        } else if (!isNextInLine(waiter)) {
+          //公平等待模式下已经有线程在等待，当前线程需要排队
+          mustWait = true;
+        } else if (!state.idleConnections.isEmpty()) {
+          //2. 判断有没有空闲连接
           // Pool has available connection
           //有空闲连接，就获取连接，然后把当前连接从空闲连接中移除
           conn = state.idleConnections.remove(0);
@@ -510,13 +737,16 @@ public class PooledDataSource implements DataSource {
           // Pool does not have available connection
           //如果没有空闲连接
           //首先判断活跃连接是不是小于最大活跃数，如果小于可以创建新连接
-          if (state.activeConnections.size() < poolMaximumActiveConnections) {
+          if (getCheckedOutConnectionCount() < poolMaximumActiveConnections) {
             // Can create new connection
             // 创建一个新连接（这是一个代理对象）
             conn = new PooledConnection(dataSource.getConnection(), this);
             if (log.isDebugEnabled()) {
               log.debug("Created connection " + conn.getRealHashCode() + ".");
             }
+          } else if (state.activeConnections.isEmpty()) {
+            // 所有连接都已交给等待的线程，只能等待
+            mustWait = true;
           } else {
             // Cannot create new connection
             // 如果判断活跃连接数等于最大活跃数，获取最老的活跃连接
@@ -530,11 +760,8 @@ public class PooledDataSource implements DataSource {
               //对超时连接进行统计
 
               //超时连接数+1
-              state.claimedOverdueConnectionCount++;
-              //总累计超时时间 = 原有总累计超时时间+当前连接时间（因为当前连接已经超时）
-              state.accumulatedCheckoutTimeOfOverdueConnections += longestCheckoutTime;
-              //总累计连接时间 = 原有总累计连接时间+ 当前连接时间
-              state.accumulatedCheckoutTime += longestCheckoutTime;
+              //总累计超时时间、总累计连接时间都加上当前连接时间（因为当前连接已经超时）
+              state.recordOverdueCheckout(longestCheckoutTime);
               //从活跃连接中移除最老的这个超时连接
               state.activeConnections.remove(oldestActiveConnection);
               //获取真正的数据库连接，判断数据库提交模式（自动提交事务还是手动）
@@ -560,6 +787,7 @@ public class PooledDataSource implements DataSource {
               conn.setCreatedTimestamp(oldestActiveConnection.getCreatedTimestamp());
               //设置该连接的最后使用时间
               conn.setLastUsedTimestamp(oldestActiveConnection.getLastUsedTimestamp());
+              conn.setLastValidatedTimestamp(oldestActiveConnection.getLastValidatedTimestamp());
               //然后作废之前的最老的超时连接，因为此前只是从集合中移除，并不表示它不能使用，而这一步就是确保这种情况不会出现。
               oldestActiveConnection.invalidate();
               if (log.isDebugEnabled()) {
@@ -567,33 +795,63 @@ public class PooledDataSource implements DataSource {
               }
             } else {
               // 没有空闲连接、活跃的连接数又等于限定的最大连接数（即：无法创建连接）而且无超时连接、则只能阻塞等待
-              // Must wait
-              try {
-                //如果此前没有等待的
-                if (!countedWait) {
-                  //先将等待数+1
-                  state.hadToWaitCount++;
-                  //然后将状态设置为等待状态
-                  countedWait = true;
-                }
-                if (log.isDebugEnabled()) {
-                  log.debug("Waiting as long as " + poolTimeToWait + " milliseconds for connection.");
-                }
-                //获取当前系统时间
-                long wt = System.currentTimeMillis();
-                //获取需要等待的时间，利用Object.wait(需要等待的时间)，让当前线程进行等待
-                state.wait(poolTimeToWait);
-                //更新累计等待时间：累计等待时间=当得系统时间+当前时间-等待直接记录的系统时间
-                state.accumulatedWaitTime += System.currentTimeMillis() - wt;
-              } catch (InterruptedException e) {
-                break;
-              }
+              mustWait = true;
+            }
+          }
+        }
+        if (mustWait) {
+          // Must wait
+          long waitTime = getWaitTime(t);
+          if (waitTime <= 0) {
+            //超过了获取连接的最长等待时间，离开等待队列并快速失败
+            if (waiter != null) {
+              waitQueue.remove(waiter);
+              signalNextWaiter();
+            }
+            state.recordWaitTimeout();
+            if (log.isDebugEnabled()) {
+              log.debug("PooledDataSource: Could not get a connection within " + poolMaximumWaitTime + " milliseconds.");
+            }
+            throw new SQLException("PooledDataSource: Could not get a connection within " + poolMaximumWaitTime + " milliseconds.");
+          }
+          //如果此前没有等待的
+          if (!countedWait) {
+            //先将等待数+1
+            state.recordWait();
+            //然后将状态设置为等待状态
+            countedWait = true;
+          }
+          if (log.isDebugEnabled()) {
+            log.debug("Waiting as long as " + waitTime + " milliseconds for connection.");
+          }
+          if (poolFairWaiting) {
+            //加入等待队列的队尾，在释放锁之后等待
+            if (waiter == null) {
+              waiter = new Waiter();
+              waitQueue.addLast(waiter);
+            }
+          } else {
+            try {
+              //获取当前系统时间
+              long wt = System.currentTimeMillis();
+              //获取需要等待的时间，利用Object.wait(需要等待的时间)，让当前线程进行等待
+              state.wait(waitTime);
+              //更新累计等待时间：累计等待时间=当得系统时间+当前时间-等待直接记录的系统时间
+              state.recordWaitTime(System.currentTimeMillis() - wt);
+            } catch (InterruptedException e) {
+              break;
             }
           }
         }
         // 再次判断连接是否为空
         // 如果不为空
         if (conn != null) {
+          if (waiter != null) {
+            //排在队首的线程自己获取到了连接，离开等待队列并唤醒下一个等待的线程
+            waitQueue.remove(waiter);
+            waiter = null;
+            signalNextWaiter();
+          }
           // ping to server and check the connection is valid or not
           //判断连接是否有效
           if (conn.isValid()) {
@@ -610,16 +868,15 @@ public class PooledDataSource implements DataSource {
             //把当前连接添加到活跃连接集合中
             state.activeConnections.add(conn);
             //然后把连接次数+1
-            state.requestCount++;
             //累计请求连接时间
-            state.accumulatedRequestTime += System.currentTimeMillis() - t;
+            state.recordRequest(System.currentTimeMillis() - t);
           } else {
             //如果当前连接不为空，但是是失效的，那么表明此连接是一个坏连接（无效连接）
             if (log.isDebugEnabled()) {
               log.debug("A bad connection (" + conn.getRealHashCode() + ") was returned from the pool, getting another connection.");
             }
             //无效连接数+1
-            state.badConnectionCount++;
+            state.recordBadConnection();
             //本地错误连接数+1
             localBadConnectionCount++;
             //设置连接为空
@@ -633,7 +890,24 @@ public class PooledDataSource implements DataSource {
           }
         }
       }
-
+      if (waiter != null && waiter.connection == null) {
+        //公平等待模式下不持有锁等待，直到归还连接的线程将连接交给当前线程或者等待超时
+        long wt = System.currentTimeMillis();
+        LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(getWaitTime(t)));
+        state.recordWaitTime(System.currentTimeMillis() - wt);
+        if (Thread.currentThread().isInterrupted()) {
+          synchronized (state) {
+            waitQueue.remove(waiter);
+            if (waiter.connection != null) {
+              handedOffConnectionCount--;
+              addIdleConnection(waiter.connection);
+            } else {
+              signalNextWaiter();
+            }
+          }
+          break;
+        }
+      }
     }
     //此时连接为空，表明发生了未知错误
     if (conn == null) {
@@ -646,6 +920,67 @@ public class PooledDataSource implements DataSource {
     return conn;
   }
 
+  /**
+   * 计算本次需要等待的时间，返回值小于等于0时表示已经超过了poolMaximumWaitTime
+   *
+   * @param requestTimestamp the time the thread started to request a connection
+   * @return the time to wait in milliseconds
+   */
+  long getWaitTime(long requestTimestamp) {
+    long waitTime = poolTimeToWait > 0 ? poolTimeToWait : Long.MAX_VALUE;
+    if (poolMaximumWaitTime > 0) {
+      waitTime = Math.min(waitTime, requestTimestamp + poolMaximumWaitTime - System.currentTimeMillis());
+    }
+    return waitTime;
+  }
+
+  /**
+   * 判断当前线程是否可以直接获取连接：非公平模式、没有线程在等待或者当前线程排在队首。调用时必须持有state的锁
+   */
+  private boolean isNextInLine(Waiter waiter) {
+    return !poolFairWaiting || waitQueue.isEmpty() || waitQueue.peekFirst() == waiter;
+  }
+
+  /**
+   * 将连接交给等待时间最长的线程，没有线程在等待时放入空闲连接集合。调用时必须持有state的锁
+   */
+  private void addIdleConnection(PooledConnection conn) {
+    Waiter waiter = waitQueue.pollFirst();
+    if (waiter != null) {
+      handedOffConnectionCount++;
+      waiter.connection = conn;
+      LockSupport.unpark(waiter.thread);
+    } else {
+      state.idleConnections.add(conn);
+      state.notifyAll();
+    }
+  }
+
+  /**
+   * 已经取出的连接数，包括交给等待线程但还没有被取走的连接，用于判断是否可以创建新连接。调用时必须持有state的锁
+   */
+  private int getCheckedOutConnectionCount() {
+    return state.activeConnections.size() + handedOffConnectionCount;
+  }
+
+  /**
+   * 唤醒排在队首的线程，使其重新尝试获取连接。调用时必须持有state的锁
+   */
+  private void signalNextWaiter() {
+    Waiter waiter = waitQueue.peekFirst();
+    if (waiter != null) {
+      LockSupport.unpark(waiter.thread);
+    }
+  }
+
+  /**
+   * 公平等待模式下等待连接的线程
+   */
+  private static final class Waiter {
+    private final Thread thread = Thread.currentThread();
+    private volatile PooledConnection connection;
+  }
+
   /**
    * 用于测试连接
    * Method to check to see if a connection is still usable
@@ -654,6 +989,17 @@ public class PooledDataSource implements DataSource {
    * @return True if the connection is still usable
    */
   protected boolean pingConnection(PooledConnection conn) {
+    return pingConnection(conn, false);
+  }
+
+  /**
+   * Method to check to see if a connection is still usable
+   *
+   * @param conn - the connection to check
+   * @param force - true to send the ping query even if the connection was used or validated recently
+   * @return True if the connection is still usable
+   */
+  boolean pingConnection(PooledConnection conn, boolean force) {
     boolean result = true;
 
     try {
@@ -671,7 +1017,9 @@ public class PooledDataSource implements DataSource {
       if (poolPingEnabled) {
         //要
         //
-        if (poolPingConnectionsNotUsedFor >= 0 && conn.getTimeElapsedSinceLastUse() > poolPingConnectionsNotUsedFor) {
+        //后台维护线程最近检测过的连接不需要再次检测
+        if (force || (poolPingConnectionsNotUsedFor >= 0 && conn.getTimeElapsedSinceLastUse() > poolPingConnectionsNotUsedFor
+            && conn.getTimeElapsedSinceLastValidation() > poolPingConnectionsNotUsedFor)) {
           try {
             if (log.isDebugEnabled()) {
               log.debug("Testing connection " + conn.getRealHashCode() + " ...");
@@ -684,6 +1032,7 @@ public class PooledDataSource implements DataSource {
               realConn.rollback();
             }
             result = true;
+            conn.setLastValidatedTimestamp(System.currentTimeMillis());
             if (log.isDebugEnabled()) {
               log.debug("Connection " + conn.getRealHashCode() + " is GOOD!");
             }
@@ -705,6 +1054,145 @@ public class PooledDataSource implements DataSource {
     return result;
   }
 
+  private synchronized void scheduleHousekeeping() {
+    if (housekeeper != null) {
+      housekeeper.cancel(false);
+      housekeeper = null;
+    }
+    if (poolHousekeepingInterval > 0) {
+      housekeeper = PoolHousekeeper.schedule(this, poolHousekeepingInterval);
+    }
+  }
+
+  /**
+   * 后台维护：关闭超过最大存活时间或最大空闲时间的空闲连接，检测空闲连接的有效性，并创建连接直到达到最小空闲连接数。
+   * 这样请求线程就不需要执行测试SQL或者创建连接。
+   * Runs one housekeeping pass. Called periodically by a background thread when poolHousekeepingInterval is set.
+   *
+   * @since 3.5.4
+   */
+  protected void housekeep() {
+    long now = System.currentTimeMillis();
+    List<PooledConnection> evicted = new ArrayList<>();
+    List<PooledConnection> toValidate = new ArrayList<>();
+    synchronized (state) {
+      for (Iterator<PooledConnection> it = state.idleConnections.iterator(); it.hasNext();) {
+        PooledConnection conn = it.next();
+        if (isPastMaximumLifetime(conn.getCreatedTimestamp(), now)
+            || (state.idleConnections.size() > getMinimumIdle() && isPastMaximumIdleTime(conn.getLastUsedTimestamp(), now))) {
+          it.remove();
+          evicted.add(conn);
+        } else if (isValidationDue(conn.getLastUsedTimestamp(), conn.getLastValidatedTimestamp(), now)) {
+          // 检测期间将连接当作活跃连接，使连接数的统计保持正确
+          it.remove();
+          conn.setCheckoutTimestamp(now);
+          state.activeConnections.add(conn);
+          toValidate.add(conn);
+        }
+      }
+    }
+    for (PooledConnection conn : evicted) {
+      conn.invalidate();
+      closeQuietly(conn.getRealConnection());
+      if (log.isDebugEnabled()) {
+        log.debug("Evicted idle connection " + conn.getRealHashCode() + ".");
+      }
+    }
+    for (PooledConnection conn : toValidate) {
+      boolean good = pingConnection(conn, true);
+      synchronized (state) {
+        // forceCloseAll() may have closed the connection in the meantime
+        if (removeIdentical(state.activeConnections, conn)) {
+          if (good) {
+            addIdleConnection(conn);
+          } else {
+            state.recordBadConnection();
+            conn.invalidate();
+            closeQuietly(conn.getRealConnection());
+          }
+        }
+      }
+    }
+    fillIdleConnections();
+  }
+
+  private void fillIdleConnections() {
+    while (true) {
+      synchronized (state) {
+        if (state.idleConnections.size() >= getMinimumIdle()
+            || state.idleConnections.size() + getCheckedOutConnectionCount() >= poolMaximumActiveConnections) {
+          return;
+        }
+      }
+      PooledConnection conn;
+      try {
+        conn = new PooledConnection(dataSource.getConnection(), this);
+      } catch (SQLException e) {
+        log.warn("Could not open an idle connection: " + e.getMessage());
+        return;
+      }
+      boolean added = false;
+      synchronized (state) {
+        if (state.idleConnections.size() < getMinimumIdle()
+            && state.idleConnections.size() + getCheckedOutConnectionCount() < poolMaximumActiveConnections) {
+          addIdleConnection(conn);
+          added = true;
+        }
+      }
+      if (!added) {
+        closeQuietly(conn.getRealConnection());
+        return;
+      }
+      if (log.isDebugEnabled()) {
+        log.debug("Created idle connection " + conn.getRealHashCode() + ".");
+      }
+    }
+  }
+
+  /**
+   * PooledConnection.equals()只比较真正连接的hashCode，这里需要按引用移除
+   */
+  private static boolean removeIdentical(List<PooledConnection> connections, PooledConnection conn) {
+    for (Iterator<PooledConnection> it = connections.iterator(); it.hasNext();) {
+      if (it.next() == conn) {
+        it.remove();
+        return true;
+      }
+    }
+    return false;
+  }
+
+  int getMinimumIdle() {
+    return Math.min(poolMinimumIdleConnections, poolMaximumIdleConnections);
+  }
+
+  boolean isPastMaximumLifetime(long createdTimestamp, long now) {
+    return poolMaximumLifetime > 0 && now - createdTimestamp > poolMaximumLifetime;
+  }
+
+  boolean isPastMaximumIdleTime(long lastUsedTimestamp, long now) {
+    return poolMaximumIdleTime > 0 && now - lastUsedTimestamp > poolMaximumIdleTime;
+  }
+
+  /**
+   * 判断连接是否会在下一次后台维护之前需要执行测试SQL
+   */
+  boolean isValidationDue(long lastUsedTimestamp, long lastValidatedTimestamp, long now) {
+    return poolPingEnabled && poolPingConnectionsNotUsedFor >= 0
+        && now + poolHousekeepingInterval - Math.max(lastUsedTimestamp, lastValidatedTimestamp) > poolPingConnectionsNotUsedFor;
+  }
+
+  static void closeQuietly(Connection realConn) {
+    try {
+      if (!realConn.getAutoCommit()) {
+        realConn.rollback();
+      }
+      realConn.close();
+    } catch (Exception e) {
+      // ignore
+    }
+  }
+
   /**
    * Unwraps a pooled connection to get to the 'real' connection
    *
@@ -723,6 +1211,9 @@ public class PooledDataSource implements DataSource {
 
   @Override
   protected void finalize() throws Throwable {
+    if (housekeeper != null) {
+      housekeeper.cancel(false);
+    }
     forceCloseAll();
     super.finalize();
   }
@@ -24,6 +24,8 @@ import java.util.List;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cache.CacheStats;
+import org.apache.ibatis.cache.impl.BoundedLocalCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.statement.StatementUtil;
@@ -65,13 +67,20 @@ public abstract class BaseExecutor implements Executor {
   protected BaseExecutor(Configuration configuration, Transaction transaction) {
     this.transaction = transaction;
     this.deferredLoads = new ConcurrentLinkedQueue<>();
-    this.localCache = new PerpetualCache("LocalCache");
+    this.localCache = createLocalCache(configuration);
     this.localOutputParameterCache = new PerpetualCache("LocalOutputParameterCache");
     this.closed = false;
     this.configuration = configuration;
     this.wrapper = this;
   }
 
+  private static PerpetualCache createLocalCache(Configuration configuration) {
+    if (configuration != null && (configuration.getLocalCacheSize() > 0 || configuration.getLocalCacheMaxBytes() > 0)) {
+      return new BoundedLocalCache("LocalCache", configuration.getLocalCacheSize(), configuration.getLocalCacheMaxBytes());
+    }
+    return new PerpetualCache("LocalCache");
+  }
+
   @Override
   public Transaction getTransaction() {
     if (closed) {
@@ -94,6 +103,9 @@ public abstract class BaseExecutor implements Executor {
       // Ignore.  There's nothing that can be done at this point.
       log.warn("Unexpected exception on closing transaction.  Cause: " + e);
     } finally {
+      if (log.isDebugEnabled() && localCache instanceof BoundedLocalCache) {
+        log.debug("Local cache statistics: " + ((BoundedLocalCache) localCache).getStats());
+      }
       transaction = null;
       deferredLoads = null;
       localCache = null;
@@ -170,11 +182,27 @@ public abstract class BaseExecutor implements Executor {
       if (configuration.getLocalCacheScope() == LocalCacheScope.STATEMENT) {
         // issue #482
         clearLocalCache();
+      } else {
+        evictLocalCacheIfNecessary();
       }
     }
     return list;
   }
 
+  @Override
+  public CacheStats getLocalCacheStats() {
+    return localCache instanceof BoundedLocalCache ? ((BoundedLocalCache) localCache).getStats() : null;
+  }
+
+  /**
+   * 最外层查询结束后清理超出限制的一级缓存，同时删除对应的存储过程输出参数
+   */
+  private void evictLocalCacheIfNecessary() {
+    if (localCache instanceof BoundedLocalCache) {
+      ((BoundedLocalCache) localCache).evictIfNecessary(localOutputParameterCache::removeObject);
+    }
+  }
+
   @Override
   public <E> Cursor<E> queryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds) throws SQLException {
     BoundSql boundSql = ms.getBoundSql(parameter);
@@ -199,12 +227,13 @@ public abstract class BaseExecutor implements Executor {
     if (closed) {
       throw new ExecutorException("Executor was closed.");
     }
-    CacheKey cacheKey = new CacheKey();
+    List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
+    // id、offset、limit、sql、environment共5个组成部分，再加上每个参数
+    CacheKey cacheKey = new CacheKey(parameterMappings.size() + 5);
     cacheKey.update(ms.getId());
     cacheKey.update(rowBounds.getOffset());
     cacheKey.update(rowBounds.getLimit());
     cacheKey.update(boundSql.getSql());
-    List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
     TypeHandlerRegistry typeHandlerRegistry = ms.getConfiguration().getTypeHandlerRegistry();
     // mimic DefaultParameterHandler logic
     for (ParameterMapping parameterMapping : parameterMappings) {
@@ -17,25 +17,94 @@ package org.apache.ibatis.executor;
 
 import java.sql.BatchUpdateException;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
+import org.apache.ibatis.cache.decorators.ObjectSizeEstimator;
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
 import org.apache.ibatis.executor.keygen.NoKeyGenerator;
+import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.apache.ibatis.executor.statement.RoutingStatementHandler;
 import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.executor.statement.StatementUtil;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.jdbc.ConnectionLogger;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.ParameterMode;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.mapping.StatementType;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.scripting.defaults.DefaultParameterHandler;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.transaction.Transaction;
+import org.apache.ibatis.type.TypeHandlerRegistry;
 
 /**
+ * 批量执行更新语句，连续执行的相同语句会加入同一个JDBC批次。
+ *    开启{@link Configuration#isBatchGroupingEnabled()}后，交替执行的插入语句（例如依次插入父表和子表）也会按语句分组，
+ *    每组使用一个Statement，flush时按照每组第一次执行的顺序执行。
+ *    注意：分组不会考虑表之间的外键依赖，插入语句可能被移到它所引用的其他表的插入之前执行。
+ * Executes updates in JDBC batches. Consecutive executions of the same statement share one batch.
+ * <p>
+ * With {@link Configuration#isBatchGroupingEnabled()} interleaved inserts (e.g. parent, child, parent, child) are also
+ * grouped: every distinct statement and SQL keeps its own open batch, and the batches are executed in the order of
+ * their first execution when flushed. To keep that order safe, an insert only joins an earlier batch if no update or
+ * delete batch was opened after it, and updates and deletes only join the last batch, as without grouping.
+ * <p>
+ * Grouping does not know about dependencies between tables: an insert can move ahead of inserts into other tables it
+ * references. For example child C0 (of an existing parent), parent P1 and child C1 (of P1) yield the batches
+ * [C0, C1] and [P1], so C1 is executed before P1 and violates its foreign key. Only enable grouping when the first
+ * insert of every grouped statement comes after the inserts it depends on, or call {@link #flushStatements()} between
+ * dependent inserts.
+ * <p>
+ * When a batch reaches {@link Configuration#getBatchFlushRows()} rows or {@link Configuration#getBatchFlushBytes()}
+ * estimated bytes of bound parameter values, all open batches are flushed before the next update is queued. The
+ * results of these automatic flushes are passed to the {@link Configuration#getBatchResultListener()} if one is
+ * configured, and are otherwise kept and returned by the next {@link #flushStatements()}. Without a listener the
+ * parameter objects of every flushed row therefore stay in memory until then, so automatic flushes only bound the
+ * memory of the driver and the open statements, not that of the executor.
+ * <p>
+ * With {@link Configuration#isBatchPipelineEnabled()} these automatic flushes run on a worker thread bound to the
+ * executor, so the caller collects the next batch while the previous one is executed. The connection is only used by
+ * one thread at a time: the caller only keeps the statement handlers of the rows, and the thread that executes a batch
+ * prepares its statement, binds every row, adds it to the batch, executes it and processes the generated keys. So
+ * parameter binding errors are reported when the batch is flushed. The connection and the transaction timeout are
+ * obtained on the caller thread before a batch is handed to the worker. At most one batch is in flight: the next
+ * flush, query or commit waits for it and rethrows its failure, rollback and close wait for it and ignore it. Batches
+ * with a key generator other than {@link Jdbc3KeyGenerator} are always flushed on the caller thread, and the caller
+ * waits for the batch in flight before it executes such a statement, because those run statements on the executor.
+ * Batches holding multi-row inserts are flushed on the caller thread too.
+ * <p>
+ * With {@link Configuration#getMultiRowInsertSizes()} a batch of single-row <code>INSERT ... VALUES (...)</code>
+ * statements is executed as multi-row <code>VALUES (...), (...)</code> statements of the configured sizes. The rows
+ * are split greedily into the largest sizes that fit and the rest is inserted one row per statement, so every insert
+ * only uses a few distinct SQL strings. Generated keys are assigned to the parameter objects in row order, and the
+ * update counts still hold one entry per row. The rows are bound at an offset of the multi-row statement, bypassing
+ * {@link StatementHandler#parameterize(Statement)} and {@link StatementHandler#batch(Statement)}, so inserts are only
+ * rewritten when no plugin intercepts {@link StatementHandler} or {@link ParameterHandler} and the language driver of
+ * the statement creates a {@link DefaultParameterHandler}. The rows are still bound by the parameter handler created by
+ * {@link Configuration#newParameterHandler(MappedStatement, Object, BoundSql)}.
+ *
  * @author Jeff Butler
  */
 public class BatchExecutor extends BaseExecutor {
@@ -44,40 +113,305 @@ public class BatchExecutor extends BaseExecutor {
 
   private final List<Statement> statementList = new ArrayList<>();
   private final List<BatchResult> batchResultList = new ArrayList<>();
-  private String currentSql;
-  private MappedStatement currentStatement;
+  /**
+   * 是否将交替执行的插入语句分组
+   */
+  private final boolean grouping;
+  /**
+   * 每个批次的估算参数字节数，与batchResultList一一对应，只在设置了batchFlushBytes时统计
+   */
+  private final List<Long> batchBytesList = new ArrayList<>();
+  /**
+   * 自动flush后没有交给监听器的结果，由下一次flushStatements返回
+   */
+  private final List<BatchResult> flushedResults = new ArrayList<>();
+  private final int flushRows;
+  private final long flushBytes;
+  private final BatchResultListener listener;
+  private final boolean pipelined;
+  /**
+   * 执行自动flush的后台线程，第一次异步flush时创建，空闲时自动退出
+   */
+  private ExecutorService flushWorker;
+  /**
+   * 正在后台执行的批次
+   */
+  private Future<List<BatchResult>> pendingFlush;
+  /**
+   * 流水线模式下延迟创建Statement的批次，与batchResultList一一对应，保存每一行的StatementHandler，
+   *    由执行批次的线程创建Statement并绑定参数；其他批次为null
+   */
+  private final List<List<StatementHandler>> deferredRowsList = new ArrayList<>();
+  /**
+   * 改写为多行插入的批次，与batchResultList一一对应，未改写的批次为null，对应的Statement在flush时创建
+   */
+  private final List<MultiRowInsert> multiRowInsertList = new ArrayList<>();
+  /**
+   * 多行插入每条语句的行数，从大到小排列，最后一个总是1，为空时不改写
+   */
+  private final int[] multiRowSizes;
 
   public BatchExecutor(Configuration configuration, Transaction transaction) {
     super(configuration, transaction);
+    this.grouping = configuration.isBatchGroupingEnabled();
+    this.flushRows = configuration.getBatchFlushRows();
+    this.flushBytes = configuration.getBatchFlushBytes();
+    this.listener = configuration.getBatchResultListener();
+    this.pipelined = configuration.isBatchPipelineEnabled();
+    this.multiRowSizes = multiRowSizes(configuration.getMultiRowInsertSizes());
+  }
+
+  private static int[] multiRowSizes(Set<Integer> sizes) {
+    if (sizes == null || sizes.isEmpty()) {
+      return new int[0];
+    }
+    return Stream.concat(sizes.stream().filter(size -> size > 1), Stream.of(1))
+        .sorted(Comparator.reverseOrder()).mapToInt(Integer::intValue).toArray();
   }
 
   @Override
   public int doUpdate(MappedStatement ms, Object parameterObject) throws SQLException {
+    if (pendingFlush != null && !hasBatchKeyGenerator(ms)) {
+      //selectKey在创建StatementHandler时可能执行查询，先等待后台的批次执行完，连接同一时间只由一个线程使用
+      awaitPendingFlush(false);
+    }
     final Configuration configuration = ms.getConfiguration();
     final StatementHandler handler = configuration.newStatementHandler(this, ms, parameterObject, RowBounds.DEFAULT, null, null);
     final BoundSql boundSql = handler.getBoundSql();
     final String sql = boundSql.getSql();
-    final Statement stmt;
-    if (sql.equals(currentSql) && ms.equals(currentStatement)) {
-      int last = statementList.size() - 1;
-      stmt = statementList.get(last);
-      applyTransactionTimeout(stmt);
-      handler.parameterize(stmt);//fix Issues 322
-      BatchResult batchResult = batchResultList.get(last);
+    int index = findBatch(ms, sql);
+    MultiRowInsert multiRowInsert = index >= 0 ? multiRowInsertList.get(index) : parseMultiRowInsert(ms, handler, parameterObject);
+    if (index >= 0) {
+      BatchResult batchResult = batchResultList.get(index);
       batchResult.addParameterObject(parameterObject);
+      List<StatementHandler> deferredRows = deferredRowsList.get(index);
+      if (multiRowInsert != null) {
+        multiRowInsert.addRow(boundSql);
+      } else if (deferredRows != null) {
+        deferredRows.add(handler);
+      } else {
+        Statement stmt = statementList.get(index);
+        applyTransactionTimeout(stmt);
+        handler.parameterize(stmt);//fix Issues 322
+        handler.batch(stmt);
+      }
     } else {
-      Connection connection = getConnection(ms.getStatementLog());
-      stmt = handler.prepare(connection, transaction.getTimeout());
-      handler.parameterize(stmt);    //fix Issues 322
-      currentSql = sql;
-      currentStatement = ms;
-      statementList.add(stmt);
+      if (multiRowInsert != null) {
+        //多行插入的Statement在flush时按行数创建
+        multiRowInsert.addRow(boundSql);
+        statementList.add(null);
+        deferredRowsList.add(null);
+      } else if (pipelined) {
+        //流水线模式下调用线程不使用连接，Statement由执行批次的线程创建
+        List<StatementHandler> deferredRows = new ArrayList<>();
+        deferredRows.add(handler);
+        statementList.add(null);
+        deferredRowsList.add(deferredRows);
+      } else {
+        Connection connection = getConnection(ms.getStatementLog());
+        Statement stmt = handler.prepare(connection, transaction.getTimeout());
+        handler.parameterize(stmt);    //fix Issues 322
+        handler.batch(stmt);
+        statementList.add(stmt);
+        deferredRowsList.add(null);
+      }
       batchResultList.add(new BatchResult(ms, sql, parameterObject));
+      batchBytesList.add(0L);
+      multiRowInsertList.add(multiRowInsert);
+      index = statementList.size() - 1;
+    }
+    if (isFlushRequired(index, boundSql, parameterObject)) {
+      //达到阈值后自动flush，释放驱动和执行器中积累的批次
+      if (pipelined && canFlushAsync()) {
+        flushAsync();
+      } else {
+        List<BatchResult> results = doFlushStatements(false);
+        if (listener == null) {
+          flushedResults.addAll(results);
+        }
+      }
     }
-    handler.batch(stmt);
     return BATCH_UPDATE_RETURN_VALUE;
   }
 
+  private boolean isFlushRequired(int index, BoundSql boundSql, Object parameterObject) {
+    if (flushRows > 0 && batchResultList.get(index).getParameterObjects().size() >= flushRows) {
+      return true;
+    }
+    if (flushBytes > 0) {
+      long bytes = batchBytesList.get(index) + estimateBoundValues(boundSql, parameterObject);
+      batchBytesList.set(index, bytes);
+      return bytes >= flushBytes;
+    }
+    return false;
+  }
+
+  /**
+   * 只估算绑定到占位符的参数值，不遍历整个参数对象，避免参数对象引用大对象图（例如整个集合）时每次更新都遍历一遍
+   */
+  private long estimateBoundValues(BoundSql boundSql, Object parameterObject) {
+    List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
+    if (parameterMappings == null || parameterMappings.isEmpty()) {
+      return 0;
+    }
+    TypeHandlerRegistry typeHandlerRegistry = configuration.getTypeHandlerRegistry();
+    MetaObject metaObject = null;
+    long bytes = 0;
+    for (ParameterMapping parameterMapping : parameterMappings) {
+      if (parameterMapping.getMode() == ParameterMode.OUT) {
+        continue;
+      }
+      Object value;
+      String propertyName = parameterMapping.getProperty();
+      if (boundSql.hasAdditionalParameter(propertyName)) {
+        value = boundSql.getAdditionalParameter(propertyName);
+      } else if (parameterObject == null) {
+        value = null;
+      } else if (typeHandlerRegistry.hasTypeHandler(parameterObject.getClass())) {
+        value = parameterObject;
+      } else {
+        if (metaObject == null) {
+          metaObject = configuration.newMetaObject(parameterObject);
+        }
+        value = metaObject.getValue(propertyName);
+      }
+      bytes += ObjectSizeEstimator.estimate(value);
+    }
+    return bytes;
+  }
+
+  /**
+   * 多行插入按偏移量绑定每一行的参数，不经过StatementHandler的parameterize和batch，
+   *    所以只在StatementHandler和ParameterHandler都没有被插件拦截、并且语言驱动使用DefaultParameterHandler时改写
+   */
+  private MultiRowInsert parseMultiRowInsert(MappedStatement ms, StatementHandler handler, Object parameterObject) {
+    if (multiRowSizes.length == 0 || ms.getSqlCommandType() != SqlCommandType.INSERT
+        || ms.getStatementType() != StatementType.PREPARED || !hasBatchKeyGenerator(ms)
+        || !(handler instanceof RoutingStatementHandler)) {
+      return null;
+    }
+    BoundSql boundSql = handler.getBoundSql();
+    if (!(ms.getConfiguration().newParameterHandler(ms, parameterObject, boundSql) instanceof DefaultParameterHandler)) {
+      return null;
+    }
+    return MultiRowInsert.parse(boundSql.getSql(), boundSql.getParameterMappings().size());
+  }
+
+  private boolean canFlushAsync() {
+    //多行插入在flush时才获取连接并创建Statement，不能放到后台线程，否则会和事务在调用线程上的延迟获取连接冲突
+    for (MultiRowInsert multiRowInsert : multiRowInsertList) {
+      if (multiRowInsert != null) {
+        return false;
+      }
+    }
+    for (BatchResult batchResult : batchResultList) {
+      if (!hasBatchKeyGenerator(batchResult.getMappedStatement())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * 只使用JDBC生成主键或不生成主键的语句，执行前后都不需要通过执行器执行其他语句
+   */
+  private static boolean hasBatchKeyGenerator(MappedStatement ms) {
+    Class<?> keyGeneratorType = ms.getKeyGenerator().getClass();
+    return Jdbc3KeyGenerator.class.equals(keyGeneratorType) || NoKeyGenerator.class.equals(keyGeneratorType);
+  }
+
+  /**
+   * 把当前的批次交给后台线程执行，调用线程可以继续收集下一批的行
+   */
+  private void flushAsync() throws SQLException {
+    awaitPendingFlush(false);
+    //在调用线程上获取连接和事务超时时间，事务可能与线程绑定（例如延迟获取连接或由Spring管理的事务），后台线程只使用这个连接
+    final Connection connection = transaction.getConnection();
+    final Integer transactionTimeout = transaction.getTimeout();
+    final List<Statement> statements = new ArrayList<>(statementList);
+    final List<BatchResult> batchResults = new ArrayList<>(batchResultList);
+    final List<MultiRowInsert> multiRowInserts = new ArrayList<>(multiRowInsertList);
+    final List<List<StatementHandler>> deferredRows = new ArrayList<>(deferredRowsList);
+    statementList.clear();
+    batchResultList.clear();
+    batchBytesList.clear();
+    multiRowInsertList.clear();
+    deferredRowsList.clear();
+    if (flushWorker == null) {
+      flushWorker = new ThreadPoolExecutor(0, 1, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+        Thread thread = new Thread(runnable, "mybatis-batch-flush");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+    pendingFlush = flushWorker.submit(() -> {
+      try {
+        return executeBatches(connection, transactionTimeout, statements, batchResults, multiRowInserts, deferredRows);
+      } finally {
+        //工作线程会被后续的flush复用，不能保留这次flush的错误上下文
+        ErrorContext.instance().reset();
+      }
+    });
+  }
+
+  /**
+   * 等待后台执行的批次完成
+   *
+   * @param isRollback true to ignore the failure of the pending batch, as the transaction is rolled back anyway
+   */
+  private void awaitPendingFlush(boolean isRollback) throws SQLException {
+    if (pendingFlush == null) {
+      return;
+    }
+    Future<List<BatchResult>> pending = pendingFlush;
+    pendingFlush = null;
+    List<BatchResult> results;
+    try {
+      results = pending.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ExecutorException("Interrupted while waiting for a pipelined batch to complete.", e);
+    } catch (ExecutionException e) {
+      if (isRollback) {
+        return;
+      }
+      Throwable cause = e.getCause();
+      if (cause instanceof SQLException) {
+        throw (SQLException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new ExecutorException("Error executing a pipelined batch.  Cause: " + cause, cause);
+    }
+    if (listener == null && !isRollback) {
+      flushedResults.addAll(results);
+    }
+  }
+
+  /**
+   * 查找可以加入的批次
+   *
+   * @return the index of the open batch the statement can be added to, or -1 to open a new one
+   */
+  private int findBatch(MappedStatement ms, String sql) {
+    int last = batchResultList.size() - 1;
+    boolean insert = ms.getSqlCommandType() == SqlCommandType.INSERT;
+    int first = grouping && insert ? 0 : Math.max(last, 0);
+    for (int i = last; i >= first; i--) {
+      BatchResult batchResult = batchResultList.get(i);
+      if (ms.equals(batchResult.getMappedStatement()) && sql.equals(batchResult.getSql())) {
+        return i;
+      }
+      //插入语句不能越过之后打开的更新或删除批次
+      if (batchResult.getMappedStatement().getSqlCommandType() != SqlCommandType.INSERT) {
+        break;
+      }
+    }
+    return -1;
+  }
+
   @Override
   public <E> List<E> doQuery(MappedStatement ms, Object parameterObject, RowBounds rowBounds, ResultHandler resultHandler, BoundSql boundSql)
       throws SQLException {
@@ -111,14 +445,69 @@ public class BatchExecutor extends BaseExecutor {
   @Override
   public List<BatchResult> doFlushStatements(boolean isRollback) throws SQLException {
     try {
-      List<BatchResult> results = new ArrayList<>();
+      awaitPendingFlush(isRollback);
+      List<BatchResult> results = new ArrayList<>(flushedResults);
+      flushedResults.clear();
       if (isRollback) {
         return Collections.emptyList();
       }
-      for (int i = 0, n = statementList.size(); i < n; i++) {
-        Statement stmt = statementList.get(i);
-        applyTransactionTimeout(stmt);
-        BatchResult batchResult = batchResultList.get(i);
+      results.addAll(executeBatches(null, transaction.getTimeout(), statementList, batchResultList, multiRowInsertList,
+          deferredRowsList));
+      return results;
+    } finally {
+      for (Statement stmt : statementList) {
+        closeStatement(stmt);
+      }
+      statementList.clear();
+      batchResultList.clear();
+      batchBytesList.clear();
+      multiRowInsertList.clear();
+      deferredRowsList.clear();
+    }
+  }
+
+  @Override
+  public void close(boolean forceRollback) {
+    try {
+      super.close(forceRollback);
+    } finally {
+      if (flushWorker != null) {
+        flushWorker.shutdown();
+        flushWorker = null;
+      }
+    }
+  }
+
+  /**
+   * 依次执行批次并处理生成的主键，执行完成后关闭Statement
+   *
+   * @param connection the connection obtained by the calling thread, or null to get it from the transaction
+   */
+  private List<BatchResult> executeBatches(Connection connection, Integer transactionTimeout, List<Statement> statements,
+      List<BatchResult> batchResults, List<MultiRowInsert> multiRowInserts, List<List<StatementHandler>> deferredRows)
+      throws SQLException {
+    try {
+      List<BatchResult> results = new ArrayList<>();
+      for (int i = 0, n = statements.size(); i < n; i++) {
+        BatchResult batchResult = batchResults.get(i);
+        if (deferredRows.get(i) != null) {
+          statements.set(i, prepareDeferredBatch(connection, transactionTimeout, batchResult, deferredRows.get(i)));
+        }
+        Statement stmt = statements.get(i);
+        MultiRowInsert multiRowInsert = multiRowInserts.get(i);
+        if (multiRowInsert != null) {
+          try {
+            executeMultiRowInsert(batchResult, multiRowInsert);
+          } catch (BatchUpdateException e) {
+            throw batchExecutorException(e, i, results, batchResult);
+          }
+          results.add(batchResult);
+          if (listener != null) {
+            listener.onBatchResult(batchResult);
+          }
+          continue;
+        }
+        StatementUtil.applyTransactionTimeout(stmt, stmt.getQueryTimeout(), transactionTimeout);
         try {
           batchResult.setUpdateCounts(stmt.executeBatch());
           MappedStatement ms = batchResult.getMappedStatement();
@@ -135,29 +524,113 @@ public class BatchExecutor extends BaseExecutor {
           // Close statement to close cursor #1109
           closeStatement(stmt);
         } catch (BatchUpdateException e) {
-          StringBuilder message = new StringBuilder();
-          message.append(batchResult.getMappedStatement().getId())
-              .append(" (batch index #")
-              .append(i + 1)
-              .append(")")
-              .append(" failed.");
-          if (i > 0) {
-            message.append(" ")
-                .append(i)
-                .append(" prior sub executor(s) completed successfully, but will be rolled back.");
-          }
-          throw new BatchExecutorException(message.toString(), e, results, batchResult);
+          throw batchExecutorException(e, i, results, batchResult);
         }
         results.add(batchResult);
+        if (listener != null) {
+          listener.onBatchResult(batchResult);
+        }
       }
       return results;
     } finally {
-      for (Statement stmt : statementList) {
+      for (Statement stmt : statements) {
         closeStatement(stmt);
       }
-      currentSql = null;
-      statementList.clear();
-      batchResultList.clear();
+    }
+  }
+
+
+  /**
+   * 创建延迟执行的批次的Statement，并依次绑定每一行的参数
+   */
+  private Statement prepareDeferredBatch(Connection connection, Integer transactionTimeout, BatchResult batchResult,
+      List<StatementHandler> rows) throws SQLException {
+    Log statementLog = batchResult.getMappedStatement().getStatementLog();
+    Connection statementConnection;
+    if (connection == null) {
+      statementConnection = getConnection(statementLog);
+    } else if (statementLog.isDebugEnabled()) {
+      statementConnection = ConnectionLogger.newInstance(connection, statementLog, queryStack);
+    } else {
+      statementConnection = connection;
+    }
+    Statement stmt = rows.get(0).prepare(statementConnection, transactionTimeout);
+    try {
+      for (StatementHandler handler : rows) {
+        handler.parameterize(stmt);
+        handler.batch(stmt);
+      }
+    } catch (SQLException | RuntimeException e) {
+      closeStatement(stmt);
+      throw e;
+    }
+    return stmt;
+  }
+
+  private BatchExecutorException batchExecutorException(BatchUpdateException e, int i, List<BatchResult> results,
+      BatchResult batchResult) {
+    StringBuilder message = new StringBuilder();
+    message.append(batchResult.getMappedStatement().getId())
+        .append(" (batch index #")
+        .append(i + 1)
+        .append(")")
+        .append(" failed.");
+    if (i > 0) {
+      message.append(" ")
+          .append(i)
+          .append(" prior sub executor(s) completed successfully, but will be rolled back.");
+    }
+    return new BatchExecutorException(message.toString(), e, results, batchResult);
+  }
+
+  /**
+   * 将批次中的行按配置的行数分组，每种行数使用一个多行插入的Statement
+   */
+  private void executeMultiRowInsert(BatchResult batchResult, MultiRowInsert multiRowInsert) throws SQLException {
+    int rowCount = batchResult.getParameterObjects().size();
+    int[] updateCounts = new int[rowCount];
+    int start = 0;
+    for (int size : multiRowSizes) {
+      int end = start + (rowCount - start) / size * size;
+      if (end > start) {
+        executeMultiRowInsert(batchResult, multiRowInsert, size, start, end, updateCounts);
+        start = end;
+      }
+    }
+    batchResult.setUpdateCounts(updateCounts);
+  }
+
+  private void executeMultiRowInsert(BatchResult batchResult, MultiRowInsert multiRowInsert, int size, int start, int end,
+      int[] updateCounts) throws SQLException {
+    MappedStatement ms = batchResult.getMappedStatement();
+    List<Object> parameterObjects = batchResult.getParameterObjects();
+    List<BoundSql> rows = multiRowInsert.getRows();
+    BoundSql boundSql = new BoundSql(ms.getConfiguration(), multiRowInsert.getSql(size),
+        rows.get(start).getParameterMappings(), parameterObjects.get(start));
+    StatementHandler handler = ms.getConfiguration().newStatementHandler(this, ms, parameterObjects.get(start),
+        RowBounds.DEFAULT, null, boundSql);
+    Statement stmt = handler.prepare(getConnection(ms.getStatementLog()), transaction.getTimeout());
+    try {
+      PreparedStatement ps = (PreparedStatement) stmt;
+      int columns = boundSql.getParameterMappings().size();
+      for (int i = start; i < end; i += size) {
+        for (int row = 0; row < size; row++) {
+          ParameterHandler parameterHandler = ms.getConfiguration().newParameterHandler(ms, parameterObjects.get(i + row), rows.get(i + row));
+          ((DefaultParameterHandler) parameterHandler).setParameters(ps, row * columns);
+        }
+        ps.addBatch();
+      }
+      int[] counts = ps.executeBatch();
+      for (int i = 0; i < counts.length; i++) {
+        //多行语句返回插入的总行数，换算为每行一个结果
+        int count = size == 1 ? counts[i] : counts[i] == size ? 1 : Statement.SUCCESS_NO_INFO;
+        Arrays.fill(updateCounts, start + i * size, Math.min(start + (i + 1) * size, end), count);
+      }
+      if (Jdbc3KeyGenerator.class.equals(ms.getKeyGenerator().getClass())) {
+        ((Jdbc3KeyGenerator) ms.getKeyGenerator()).processBatch(ms, stmt, parameterObjects.subList(start, end));
+      }
+    } finally {
+      closeStatement(stmt);
     }
   }
 
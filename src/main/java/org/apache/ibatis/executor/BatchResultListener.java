@@ -0,0 +1,37 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+/**
+ * 接收{@link BatchExecutor}执行完成的批次
+ * Receives the batches executed by the {@link BatchExecutor}, including the ones flushed automatically when
+ * {@link org.apache.ibatis.session.Configuration#getBatchFlushRows()} or
+ * {@link org.apache.ibatis.session.Configuration#getBatchFlushBytes()} is reached.
+ * <p>
+ * One instance is shared by all sessions of a configuration, so implementations must be thread safe.
+ *
+ * @since 3.5.4
+ */
+public interface BatchResultListener {
+
+  /**
+   * Called after a batch was executed successfully and its generated keys were processed.
+   *
+   * @param batchResult the executed batch
+   */
+  void onBatchResult(BatchResult batchResult);
+
+}
@@ -20,6 +20,8 @@ import java.util.List;
 
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cache.CacheStats;
+import org.apache.ibatis.cache.CacheMetrics;
 import org.apache.ibatis.cache.TransactionalCacheManager;
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.mapping.BoundSql;
@@ -46,10 +48,18 @@ public class CachingExecutor implements Executor {
    * 默认是{@link SimpleExecutor}
    */
   private final Executor delegate;
-  private final TransactionalCacheManager tcm = new TransactionalCacheManager();
+  private final TransactionalCacheManager tcm;
 
   public CachingExecutor(Executor delegate) {
+    this(delegate, new TransactionalCacheManager());
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  public CachingExecutor(Executor delegate, TransactionalCacheManager tcm) {
     this.delegate = delegate;
+    this.tcm = tcm;
     delegate.setExecutorWrapper(this);
   }
 
@@ -109,10 +119,15 @@ public class CachingExecutor implements Executor {
       if (ms.isUseCache() && resultHandler == null) {
         ensureNoOutParams(ms, boundSql);
         @SuppressWarnings("unchecked")
-        List<E> list = (List<E>) tcm.getObject(cache, key);
+        List<E> list = (List<E>) tcm.getObject(cache, key, ms.getCacheTags());
         if (list == null) {
+          CacheMetrics metrics = ms.getConfiguration().getCacheMetrics(cache.getId());
+          long start = metrics == null ? 0 : System.nanoTime();
           list = delegate.query(ms, parameterObject, rowBounds, resultHandler, key, boundSql);
-          tcm.putObject(cache, key, list); // issue #578 and #116
+          if (metrics != null) {
+            metrics.recordLoad(System.nanoTime() - start);
+          }
+          tcm.putObject(cache, key, list, ms.getCacheTags()); // issue #578 and #116
         }
         return list;
       }
@@ -172,6 +187,11 @@ public class CachingExecutor implements Executor {
     delegate.clearLocalCache();
   }
 
+  @Override
+  public CacheStats getLocalCacheStats() {
+    return delegate.getLocalCacheStats();
+  }
+
   /**
    * 检查是否有必要刷新缓存，然后根据情况做是否刷新的操作
    * @param ms
@@ -179,7 +199,12 @@ public class CachingExecutor implements Executor {
   private void flushCacheIfRequired(MappedStatement ms) {
     Cache cache = ms.getCache();
     if (cache != null && ms.isFlushCacheRequired()) {
-      tcm.clear(cache);
+      //声明了标签的语句只使依赖这些标签的缓存项失效
+      if (ms.getCacheTags() != null) {
+        tcm.invalidate(cache, ms.getCacheTags());
+      } else {
+        tcm.clear(cache);
+      }
     }
   }
 
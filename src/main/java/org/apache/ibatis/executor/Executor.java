@@ -19,6 +19,7 @@ import java.sql.SQLException;
 import java.util.List;
 
 import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cache.CacheStats;
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
@@ -54,6 +55,16 @@ public interface Executor {
 
   void clearLocalCache();
 
+  /**
+   * 获取一级缓存的统计数据
+   *
+   * @return the statistics of the local cache, or null if it is not bounded
+   * @since 3.5.4
+   */
+  default CacheStats getLocalCacheStats() {
+    return null;
+  }
+
   void deferLoad(MappedStatement ms, MetaObject resultObject, String property, CacheKey key, Class<?> targetType);
 
   Transaction getTransaction();
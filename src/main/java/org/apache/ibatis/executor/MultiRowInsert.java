@@ -0,0 +1,123 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.ibatis.mapping.BoundSql;
+
+/**
+ * 可以改写为多行VALUES语句的单行插入批次
+ * A batch of single-row <code>INSERT INTO ... VALUES (...)</code> statements that {@link BatchExecutor} rewrites
+ * into multi-row <code>VALUES (...), (...)</code> statements. Keeps the parsed SQL and the bound SQL of every row.
+ *
+ * @since 3.5.4
+ */
+final class MultiRowInsert {
+
+  private static final Pattern VALUES = Pattern.compile("(?<=[\\s)])values\\s*\\(", Pattern.CASE_INSENSITIVE);
+
+  /**
+   * VALUES之前的部分，包含VALUES关键字
+   */
+  private final String prefix;
+  /**
+   * 一行的值，包含括号
+   */
+  private final String values;
+  private final List<BoundSql> rows = new ArrayList<>();
+
+  private MultiRowInsert(String prefix, String values) {
+    this.prefix = prefix;
+    this.values = values;
+  }
+
+  /**
+   * 解析单行插入语句，只接受以一组VALUES结尾、并且所有占位符都在VALUES中的语句
+   *
+   * @param sql the SQL of the insert
+   * @param parameterCount the number of parameter mappings of the SQL
+   * @return the parsed insert, or null if the SQL can not be rewritten
+   */
+  static MultiRowInsert parse(String sql, int parameterCount) {
+    String trimmed = sql.trim();
+    if (!trimmed.toLowerCase(Locale.ENGLISH).startsWith("insert") || !trimmed.endsWith(")")) {
+      return null;
+    }
+    Matcher matcher = VALUES.matcher(trimmed);
+    if (!matcher.find()) {
+      return null;
+    }
+    int open = matcher.end() - 1;
+    if (trimmed.substring(0, open).indexOf('?') >= 0) {
+      return null;
+    }
+    //VALUES后必须只有一组括号，并且其中的占位符数量与参数一致
+    int depth = 0;
+    int placeholders = 0;
+    boolean quoted = false;
+    for (int i = open; i < trimmed.length(); i++) {
+      char c = trimmed.charAt(i);
+      if (c == '\'') {
+        quoted = !quoted;
+      } else if (quoted) {
+        continue;
+      } else if (c == '(') {
+        depth++;
+      } else if (c == ')') {
+        depth--;
+        if (depth == 0 && i != trimmed.length() - 1) {
+          return null;
+        }
+      } else if (c == '?') {
+        placeholders++;
+      }
+    }
+    if (quoted || depth != 0 || placeholders != parameterCount) {
+      return null;
+    }
+    return new MultiRowInsert(trimmed.substring(0, open), trimmed.substring(open));
+  }
+
+  void addRow(BoundSql boundSql) {
+    rows.add(boundSql);
+  }
+
+  List<BoundSql> getRows() {
+    return rows;
+  }
+
+  /**
+   * @param rowCount the number of rows
+   * @return the SQL inserting the given number of rows
+   */
+  String getSql(int rowCount) {
+    StringBuilder sql = new StringBuilder(prefix.length() + (values.length() + 2) * rowCount);
+    sql.append(prefix);
+    for (int i = 0; i < rowCount; i++) {
+      if (i > 0) {
+        sql.append(", ");
+      }
+      sql.append(values);
+    }
+    return sql.toString();
+  }
+
+}
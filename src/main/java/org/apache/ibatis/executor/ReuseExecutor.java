@@ -18,13 +18,16 @@ package org.apache.ibatis.executor;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.statement.StatementCache;
 import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.executor.statement.StatementUtil;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
@@ -34,11 +37,26 @@ import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.transaction.Transaction;
 
 /**
+ * 复用Statement的执行器
+ * Reuses the statements prepared for the same SQL. By default the statements are kept until the next flush, commit or
+ * rollback of the session. If the connection exposes a {@link StatementCache} (see the
+ * <code>poolStatementCacheSize</code> property of the pooled data sources) the statements are kept in that cache instead,
+ * so they are reused across transactions and sessions on the same physical connection.
+ *
  * @author Clinton Begin
  */
 public class ReuseExecutor extends BaseExecutor {
 
   private final Map<String, Statement> statementMap = new HashMap<>();
+  /**
+   * 连接上的Statement缓存，连接不支持时为null
+   */
+  private StatementCache statementCache;
+  private boolean statementCacheResolved;
+  /**
+   * 被连接上的缓存淘汰的Statement，可能还在使用中，flush时关闭
+   */
+  private final List<Statement> evictedStatements = new ArrayList<>();
 
   public ReuseExecutor(Configuration configuration, Transaction transaction) {
     super(configuration, transaction);
@@ -48,7 +66,7 @@ public class ReuseExecutor extends BaseExecutor {
   public int doUpdate(MappedStatement ms, Object parameter) throws SQLException {
     Configuration configuration = ms.getConfiguration();
     StatementHandler handler = configuration.newStatementHandler(this, ms, parameter, RowBounds.DEFAULT, null, null);
-    Statement stmt = prepareStatement(handler, ms.getStatementLog());
+    Statement stmt = prepareStatement(handler, ms);
     return handler.update(stmt);
   }
 
@@ -56,7 +74,7 @@ public class ReuseExecutor extends BaseExecutor {
   public <E> List<E> doQuery(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler, BoundSql boundSql) throws SQLException {
     Configuration configuration = ms.getConfiguration();
     StatementHandler handler = configuration.newStatementHandler(wrapper, ms, parameter, rowBounds, resultHandler, boundSql);
-    Statement stmt = prepareStatement(handler, ms.getStatementLog());
+    Statement stmt = prepareStatement(handler, ms);
     return handler.query(stmt, resultHandler);
   }
 
@@ -64,7 +82,7 @@ public class ReuseExecutor extends BaseExecutor {
   protected <E> Cursor<E> doQueryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds, BoundSql boundSql) throws SQLException {
     Configuration configuration = ms.getConfiguration();
     StatementHandler handler = configuration.newStatementHandler(wrapper, ms, parameter, rowBounds, null, boundSql);
-    Statement stmt = prepareStatement(handler, ms.getStatementLog());
+    Statement stmt = prepareStatement(handler, ms);
     return handler.queryCursor(stmt);
   }
 
@@ -74,14 +92,34 @@ public class ReuseExecutor extends BaseExecutor {
       closeStatement(stmt);
     }
     statementMap.clear();
+    for (Statement stmt : evictedStatements) {
+      closeStatement(stmt);
+    }
+    evictedStatements.clear();
     return Collections.emptyList();
   }
 
-  private Statement prepareStatement(StatementHandler handler, Log statementLog) throws SQLException {
+  private Statement prepareStatement(StatementHandler handler, MappedStatement ms) throws SQLException {
     Statement stmt;
+    Log statementLog = ms.getStatementLog();
     BoundSql boundSql = handler.getBoundSql();
     String sql = boundSql.getSql();
-    if (hasStatementFor(sql)) {
+    StatementCache statementCache = getStatementCache(statementLog);
+    if (statementCache != null) {
+      //缓存在会话之间共享，不同语句的相同SQL可能使用不同的ResultSetType或主键生成方式，所以缓存键包含语句id
+      String key = ms.getId() + ":" + sql;
+      stmt = statementCache.get(key);
+      if (stmt != null) {
+        resetStatementTimeout(stmt, ms);
+      } else {
+        Connection connection = getConnection(statementLog);
+        stmt = handler.prepare(connection, transaction.getTimeout());
+        Statement evicted = statementCache.put(key, stmt);
+        if (evicted != null) {
+          evictedStatements.add(evicted);
+        }
+      }
+    } else if (hasStatementFor(sql)) {
       stmt = getStatement(sql);
       applyTransactionTimeout(stmt);
     } else {
@@ -93,6 +131,26 @@ public class ReuseExecutor extends BaseExecutor {
     return stmt;
   }
 
+  /**
+   * 缓存中的Statement可能保留着之前事务设置的更短超时时间，先恢复语句配置的超时时间再应用当前事务的超时时间
+   */
+  private void resetStatementTimeout(Statement stmt, MappedStatement ms) throws SQLException {
+    Integer queryTimeout = ms.getTimeout() != null ? ms.getTimeout() : configuration.getDefaultStatementTimeout();
+    stmt.setQueryTimeout(queryTimeout != null ? queryTimeout : 0);
+    StatementUtil.applyTransactionTimeout(stmt, queryTimeout, transaction.getTimeout());
+  }
+
+  private StatementCache getStatementCache(Log statementLog) throws SQLException {
+    if (!statementCacheResolved) {
+      Connection connection = getConnection(statementLog);
+      if (connection.isWrapperFor(StatementCache.class)) {
+        statementCache = connection.unwrap(StatementCache.class);
+      }
+      statementCacheResolved = true;
+    }
+    return statementCache;
+  }
+
   private boolean hasStatementFor(String sql) {
     try {
       return statementMap.keySet().contains(sql) && !statementMap.get(sql).getConnection().isClosed();
@@ -0,0 +1,123 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.apache.ibatis.executor.result.ResultMapException;
+import org.apache.ibatis.reflection.ExceptionUtil;
+import org.apache.ibatis.reflection.ReflectionException;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.type.TypeHandler;
+
+/**
+ * 预编译的行映射计划：针对某个(ResultMap, 结果集列)组合，在第一次处理时生成由(列索引, TypeHandler, setter)组成的数组，
+ * 之后的每一行按顺序执行这些步骤，不再进行列名查找，也不再为每行创建MetaObject对象。
+ * 计划只保存列索引，不引用ResultSetWrapper，由{@link org.apache.ibatis.session.Configuration}缓存，列签名相同的结果集共用同一个计划。
+ *
+ * A flat mapping plan for a simple result map, built by {@link DefaultResultSetHandler} when
+ * {@code compiledRowMappingEnabled} is set and shared by all result sets with the same columns.
+ *
+ * @since 3.5.4
+ */
+public final class CompiledRowMapping {
+
+  /**
+   * 标记无法编译的ResultMap，避免每行都重新尝试
+   */
+  static final CompiledRowMapping NOT_COMPILABLE = new CompiledRowMapping(null, new Step[0]);
+
+  private final Class<?> type;
+  private final Step[] steps;
+
+  CompiledRowMapping(Class<?> type, List<Step> steps) {
+    this(type, steps.toArray(new Step[0]));
+  }
+
+  private CompiledRowMapping(Class<?> type, Step[] steps) {
+    this.type = type;
+    this.steps = steps;
+  }
+
+  /**
+   * @return whether this plan was built for objects of the given class
+   */
+  boolean appliesTo(Object rowValue) {
+    return rowValue.getClass() == type;
+  }
+
+  /**
+   * 按顺序读取各列的值并调用对应的setter方法
+   * @return true if any column had a non-null value
+   */
+  boolean apply(ResultSet rs, Object rowValue, boolean callSettersOnNulls) throws SQLException {
+    boolean foundValues = false;
+    for (Step step : steps) {
+      final Object value = step.getValue(rs);
+      if (value != null) {
+        foundValues = true;
+      }
+      if (value != null || (callSettersOnNulls && !step.primitive)) {
+        // gcode issue #377, call setter on nulls (value is not 'found')
+        step.setValue(rowValue, value);
+      }
+    }
+    return foundValues;
+  }
+
+  static final class Step {
+    private final int columnIndex;
+    /**
+     * 列名，读取失败时用于错误信息
+     */
+    private final String column;
+    private final TypeHandler<?> typeHandler;
+    private final String property;
+    private final Invoker setter;
+    private final boolean primitive;
+
+    Step(int columnIndex, String column, TypeHandler<?> typeHandler, String property, Invoker setter, boolean primitive) {
+      this.columnIndex = columnIndex;
+      this.column = column;
+      this.typeHandler = typeHandler;
+      this.property = property;
+      this.setter = setter;
+      this.primitive = primitive;
+    }
+
+    private Object getValue(ResultSet rs) throws SQLException {
+      try {
+        return typeHandler.getResult(rs, columnIndex);
+      } catch (ResultMapException e) {
+        // 与DefaultResultSetHandler.getColumnValue()一样在错误信息中给出列名
+        final Throwable cause = e.getCause() != null ? e.getCause() : e;
+        throw new ResultMapException("Error attempting to get column '" + column + "' from result set.  Cause: " + cause, cause);
+      }
+    }
+
+    private void setValue(Object rowValue, Object value) {
+      try {
+        setter.invoke(rowValue, new Object[] { value });
+      } catch (Throwable t) {
+        // 与BeanWrapper.setBeanProperty()抛出相同的异常
+        Throwable cause = ExceptionUtil.unwrapThrowable(t);
+        throw new ReflectionException("Could not set property '" + property + "' of '" + rowValue.getClass() + "' with value '" + value + "' Cause: " + cause.toString(), cause);
+      }
+    }
+  }
+}
@@ -21,6 +21,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -51,6 +52,7 @@ import org.apache.ibatis.mapping.ResultMap;
 import org.apache.ibatis.mapping.ResultMapping;
 import org.apache.ibatis.reflection.MetaClass;
 import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.Reflector;
 import org.apache.ibatis.reflection.ReflectorFactory;
 import org.apache.ibatis.reflection.factory.ObjectFactory;
 import org.apache.ibatis.session.AutoMappingBehavior;
@@ -95,6 +97,9 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   // Cached Automappings
   private final Map<String, List<UnMappedColumnAutoMapping>> autoMappingsCache = new HashMap<>();
 
+  // compiled row mappings of the current result set
+  private final Map<String, CompiledRowMapping> compiledRowMappings = new HashMap<>();
+
   // temporary marking flag that indicate using constructor mapping (use field to reduce memory usage)
   private boolean useConstructorMappings;
 
@@ -105,12 +110,14 @@ public class DefaultResultSetHandler implements ResultSetHandler {
 
   private static class UnMappedColumnAutoMapping {
     private final String column;
+    private final int columnIndex;
     private final String property;
     private final TypeHandler<?> typeHandler;
     private final boolean primitive;
 
-    public UnMappedColumnAutoMapping(String column, String property, TypeHandler<?> typeHandler, boolean primitive) {
+    public UnMappedColumnAutoMapping(String column, int columnIndex, String property, TypeHandler<?> typeHandler, boolean primitive) {
       this.column = column;
+      this.columnIndex = columnIndex;
       this.property = property;
       this.typeHandler = typeHandler;
       this.primitive = primitive;
@@ -282,6 +289,9 @@ public class DefaultResultSetHandler implements ResultSetHandler {
 
   private void cleanUpAfterHandlingResultSet() {
     nestedResultObjects.clear();
+    compiledRowMappings.clear();
+    // cached auto mappings hold column indexes of this result set
+    autoMappingsCache.clear();
   }
 
   private void validateResultMapsCount(ResultSetWrapper rsw, int resultMapCount) {
@@ -396,12 +406,17 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     final ResultLoaderMap lazyLoader = new ResultLoaderMap();
     Object rowValue = createResultObject(rsw, resultMap, lazyLoader, columnPrefix);
     if (rowValue != null && !hasTypeHandlerForResultObject(rsw, resultMap.getType())) {
-      final MetaObject metaObject = configuration.newMetaObject(rowValue);
       boolean foundValues = this.useConstructorMappings;
-      if (shouldApplyAutomaticMappings(resultMap, false)) {
-        foundValues = applyAutomaticMappings(rsw, resultMap, metaObject, columnPrefix) || foundValues;
+      final CompiledRowMapping compiledRowMapping = getCompiledRowMapping(rsw, resultMap, rowValue, columnPrefix);
+      if (compiledRowMapping != null) {
+        foundValues = compiledRowMapping.apply(rsw.getResultSet(), rowValue, configuration.isCallSettersOnNulls()) || foundValues;
+      } else {
+        final MetaObject metaObject = configuration.newMetaObject(rowValue);
+        if (shouldApplyAutomaticMappings(resultMap, false)) {
+          foundValues = applyAutomaticMappings(rsw, resultMap, metaObject, columnPrefix) || foundValues;
+        }
+        foundValues = applyPropertyMappings(rsw, resultMap, metaObject, lazyLoader, columnPrefix) || foundValues;
       }
-      foundValues = applyPropertyMappings(rsw, resultMap, metaObject, lazyLoader, columnPrefix) || foundValues;
       foundValues = lazyLoader.size() > 0 || foundValues;
       rowValue = foundValues || configuration.isReturnInstanceForEmptyRow() ? rowValue : null;
     }
@@ -426,19 +441,15 @@ public class DefaultResultSetHandler implements ResultSetHandler {
 
   private boolean applyPropertyMappings(ResultSetWrapper rsw, ResultMap resultMap, MetaObject metaObject, ResultLoaderMap lazyLoader, String columnPrefix)
       throws SQLException {
-    final List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, columnPrefix);
+    final int[] columnIndexes = rsw.getPropertyColumnIndexes(resultMap, columnPrefix);
     boolean foundValues = false;
     final List<ResultMapping> propertyMappings = resultMap.getPropertyResultMappings();
-    for (ResultMapping propertyMapping : propertyMappings) {
-      String column = prependPrefix(propertyMapping.getColumn(), columnPrefix);
-      if (propertyMapping.getNestedResultMapId() != null) {
-        // the user added a column attribute to a nested result map, ignore it
-        column = null;
-      }
+    for (int i = 0; i < columnIndexes.length; i++) {
+      final ResultMapping propertyMapping = propertyMappings.get(i);
       if (propertyMapping.isCompositeResult()
-          || (column != null && mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH)))
+          || columnIndexes[i] != ResultSetWrapper.NOT_MAPPED
           || propertyMapping.getResultSet() != null) {
-        Object value = getPropertyMappingValue(rsw.getResultSet(), metaObject, propertyMapping, lazyLoader, columnPrefix);
+        Object value = getPropertyMappingValue(rsw.getResultSet(), metaObject, propertyMapping, lazyLoader, columnPrefix, columnIndexes[i]);
         // issue #541 make property optional
         final String property = propertyMapping.getProperty();
         if (property == null) {
@@ -459,8 +470,8 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     return foundValues;
   }
 
-  private Object getPropertyMappingValue(ResultSet rs, MetaObject metaResultObject, ResultMapping propertyMapping, ResultLoaderMap lazyLoader, String columnPrefix)
-      throws SQLException {
+  private Object getPropertyMappingValue(ResultSet rs, MetaObject metaResultObject, ResultMapping propertyMapping, ResultLoaderMap lazyLoader, String columnPrefix,
+      int columnIndex) throws SQLException {
     if (propertyMapping.getNestedQueryId() != null) {
       return getNestedQueryMappingValue(rs, metaResultObject, propertyMapping, lazyLoader, columnPrefix);
     } else if (propertyMapping.getResultSet() != null) {
@@ -469,8 +480,24 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     } else {
       final TypeHandler<?> typeHandler = propertyMapping.getTypeHandler();
       final String column = prependPrefix(propertyMapping.getColumn(), columnPrefix);
+      return getColumnValue(typeHandler, rs, column, columnIndex);
+    }
+  }
+
+  /**
+   * Reads the column by index when it has been resolved, saving the driver a name lookup per cell.
+   */
+  private Object getColumnValue(TypeHandler<?> typeHandler, ResultSet rs, String column, int columnIndex) throws SQLException {
+    if (columnIndex == ResultSetWrapper.READ_BY_NAME || columnIndex == ResultSetWrapper.NOT_MAPPED) {
       return typeHandler.getResult(rs, column);
     }
+    try {
+      return typeHandler.getResult(rs, columnIndex);
+    } catch (ResultMapException e) {
+      // keep reporting the column by name as the name based lookup does
+      final Throwable cause = e.getCause() != null ? e.getCause() : e;
+      throw new ResultMapException("Error attempting to get column '" + column + "' from result set.  Cause: " + cause, cause);
+    }
   }
 
   private List<UnMappedColumnAutoMapping> createAutomaticMappings(ResultSetWrapper rsw, ResultMap resultMap, MetaObject metaObject, String columnPrefix) throws SQLException {
@@ -498,7 +525,8 @@ public class DefaultResultSetHandler implements ResultSetHandler {
           final Class<?> propertyType = metaObject.getSetterType(property);
           if (typeHandlerRegistry.hasTypeHandler(propertyType, rsw.getJdbcType(columnName))) {
             final TypeHandler<?> typeHandler = rsw.getTypeHandler(propertyType, columnName);
-            autoMapping.add(new UnMappedColumnAutoMapping(columnName, property, typeHandler, propertyType.isPrimitive()));
+            autoMapping.add(new UnMappedColumnAutoMapping(columnName, rsw.getColumnIndex(columnName), property, typeHandler,
+                propertyType.isPrimitive()));
           } else {
             configuration.getAutoMappingUnknownColumnBehavior()
                 .doAction(mappedStatement, columnName, property, propertyType);
@@ -518,7 +546,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     boolean foundValues = false;
     if (!autoMapping.isEmpty()) {
       for (UnMappedColumnAutoMapping mapping : autoMapping) {
-        final Object value = mapping.typeHandler.getResult(rsw.getResultSet(), mapping.column);
+        final Object value = getColumnValue(mapping.typeHandler, rsw.getResultSet(), mapping.column, mapping.columnIndex);
         if (value != null) {
           foundValues = true;
         }
@@ -531,6 +559,83 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     return foundValues;
   }
 
+  //
+  // COMPILED ROW MAPPINGS
+  //
+
+  private CompiledRowMapping getCompiledRowMapping(ResultSetWrapper rsw, ResultMap resultMap, Object rowValue, String columnPrefix) throws SQLException {
+    if (!configuration.isCompiledRowMappingEnabled()) {
+      return null;
+    }
+    final String mapKey = resultMap.getId() + ":" + columnPrefix;
+    CompiledRowMapping compiledRowMapping = compiledRowMappings.get(mapKey);
+    if (compiledRowMapping == null) {
+      // 计划只保存列索引，列签名相同的结果集共用Configuration中缓存的计划，不需要为每个结果集重新编译
+      final String planKey = mapKey + ":" + rowValue.getClass().getName() + ":" + shouldApplyAutomaticMappings(resultMap, false)
+          + ":" + rsw.getColumnSignature();
+      final Map<String, CompiledRowMapping> plans = configuration.getCompiledRowMappings();
+      compiledRowMapping = plans.get(planKey);
+      if (compiledRowMapping == null) {
+        compiledRowMapping = compileRowMapping(rsw, resultMap, rowValue, columnPrefix);
+        plans.putIfAbsent(planKey, compiledRowMapping);
+      }
+      compiledRowMappings.put(mapKey, compiledRowMapping);
+    }
+    return compiledRowMapping != CompiledRowMapping.NOT_COMPILABLE && compiledRowMapping.appliesTo(rowValue) ? compiledRowMapping : null;
+  }
+
+  /**
+   * Builds the (column index, type handler, setter) steps that applyAutomaticMappings and applyPropertyMappings
+   * would perform for a plain bean, or returns NOT_COMPILABLE when the result map needs the MetaObject path
+   * (nested queries, result sets, composite columns, nested properties or wrapped result objects).
+   */
+  private CompiledRowMapping compileRowMapping(ResultSetWrapper rsw, ResultMap resultMap, Object rowValue, String columnPrefix) throws SQLException {
+    if (rowValue instanceof Map || rowValue instanceof Collection || configuration.getObjectWrapperFactory().hasWrapperFor(rowValue)) {
+      return CompiledRowMapping.NOT_COMPILABLE;
+    }
+    final Reflector reflector = reflectorFactory.findForClass(rowValue.getClass());
+    final List<CompiledRowMapping.Step> steps = new ArrayList<>();
+    if (shouldApplyAutomaticMappings(resultMap, false)) {
+      final MetaObject metaObject = configuration.newMetaObject(rowValue);
+      for (UnMappedColumnAutoMapping mapping : createAutomaticMappings(rsw, resultMap, metaObject, columnPrefix)) {
+        if (!addCompiledStep(steps, rsw, reflector, mapping.column, mapping.typeHandler, mapping.property)) {
+          return CompiledRowMapping.NOT_COMPILABLE;
+        }
+      }
+    }
+    final List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, columnPrefix);
+    for (ResultMapping propertyMapping : resultMap.getPropertyResultMappings()) {
+      if (propertyMapping.getNestedQueryId() != null || propertyMapping.getNestedResultMapId() != null
+          || propertyMapping.getResultSet() != null || propertyMapping.isCompositeResult()) {
+        return CompiledRowMapping.NOT_COMPILABLE;
+      }
+      final String column = prependPrefix(propertyMapping.getColumn(), columnPrefix);
+      if (column != null && mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH))
+          && !addCompiledStep(steps, rsw, reflector, column, propertyMapping.getTypeHandler(), propertyMapping.getProperty())) {
+        return CompiledRowMapping.NOT_COMPILABLE;
+      }
+    }
+    return new CompiledRowMapping(rowValue.getClass(), steps);
+  }
+
+  private boolean addCompiledStep(List<CompiledRowMapping.Step> steps, ResultSetWrapper rsw, Reflector reflector, String column,
+      TypeHandler<?> typeHandler, String property) {
+    if (property == null || property.indexOf('.') >= 0 || property.indexOf('[') >= 0 || !reflector.hasSetter(property)) {
+      return false;
+    }
+    int columnIndex = rsw.getColumnIndex(column);
+    if (columnIndex == ResultSetWrapper.READ_BY_NAME) {
+      try {
+        columnIndex = rsw.getResultSet().findColumn(column);
+      } catch (SQLException e) {
+        return false;
+      }
+    }
+    steps.add(new CompiledRowMapping.Step(columnIndex, column, typeHandler, property, reflector.getSetInvoker(property),
+        reflector.getSetterType(property).isPrimitive()));
+    return true;
+  }
+
   // MULTIPLE RESULT SETS
 
   private void linkToParents(ResultSet rs, ResultMapping parentMapping, Object rowValue) throws SQLException {
@@ -1006,9 +1111,11 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   //
 
   private CacheKey createRowKey(ResultMap resultMap, ResultSetWrapper rsw, String columnPrefix) throws SQLException {
-    final CacheKey cacheKey = new CacheKey();
-    cacheKey.update(resultMap.getId());
     List<ResultMapping> resultMappings = getResultMappingsForRowKey(resultMap);
+    // 每个参与计算的列贡献列名和列值两个组成部分
+    final CacheKey cacheKey = new CacheKey(resultMappings.isEmpty()
+        ? rsw.getColumnNames().size() * 2 + 1 : resultMappings.size() * 2 + 1);
+    cacheKey.update(resultMap.getId());
     if (resultMappings.isEmpty()) {
       if (Map.class.isAssignableFrom(resultMap.getType())) {
         createRowKeyForMap(rsw, cacheKey);
@@ -28,6 +28,7 @@ import java.util.Map;
 import java.util.Set;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.type.JdbcType;
 import org.apache.ibatis.type.ObjectTypeHandler;
@@ -40,6 +41,12 @@ import org.apache.ibatis.type.UnknownTypeHandler;
  */
 public class ResultSetWrapper {
 
+  /**
+   * @see #getPropertyColumnIndexes(ResultMap, String)
+   */
+  public static final int NOT_MAPPED = -1;
+  public static final int READ_BY_NAME = 0;
+
   private final ResultSet resultSet;
   private final TypeHandlerRegistry typeHandlerRegistry;
   private final List<String> columnNames = new ArrayList<>();
@@ -48,6 +55,10 @@ public class ResultSetWrapper {
   private final Map<String, Map<Class<?>, TypeHandler<?>>> typeHandlerMap = new HashMap<>();
   private final Map<String, List<String>> mappedColumnNamesMap = new HashMap<>();
   private final Map<String, List<String>> unMappedColumnNamesMap = new HashMap<>();
+  // upper case column label -> first 1-based index, empty when columns are not read by label
+  private final Map<String, Integer> columnIndexMap = new HashMap<>();
+  private final Map<String, int[]> propertyColumnIndexesMap = new HashMap<>();
+  private String columnSignature;
 
   public ResultSetWrapper(ResultSet rs, Configuration configuration) throws SQLException {
     super();
@@ -57,6 +68,11 @@ public class ResultSetWrapper {
     final int columnCount = metaData.getColumnCount();
     for (int i = 1; i <= columnCount; i++) {
       columnNames.add(configuration.isUseColumnLabel() ? metaData.getColumnLabel(i) : metaData.getColumnName(i));
+      final String columnLabel = configuration.isUseColumnLabel() ? columnNames.get(i - 1) : null;
+      if (columnLabel != null) {
+        // ResultSet#findColumn() returns the first column matching the label
+        columnIndexMap.putIfAbsent(columnLabel.toUpperCase(Locale.ENGLISH), i);
+      }
       jdbcTypes.add(JdbcType.forCode(metaData.getColumnType(i)));
       classNames.add(metaData.getColumnClassName(i));
     }
@@ -176,6 +192,74 @@ public class ResultSetWrapper {
     return unMappedColumnNames;
   }
 
+  /**
+   * 解析列名对应的列索引，使TypeHandler可以通过getResult(rs, int)读取数据，避免JDBC驱动对每个单元格进行列名查找
+   *
+   * @param columnName the column label, case insensitive
+   * @return the 1-based column index, or {@link #READ_BY_NAME} if the column must be read by name
+   * @since 3.5.4
+   */
+  public int getColumnIndex(String columnName) {
+    Integer index = columnIndexMap.get(columnName.toUpperCase(Locale.ENGLISH));
+    return index == null ? READ_BY_NAME : index;
+  }
+
+  /**
+   * 结果集各列的名称、标签、JDBC类型和Java类型组成的签名，签名相同的结果集中同名的列位于相同的索引并使用相同的TypeHandler
+   *
+   * @return the signature of the columns of this result set
+   * @since 3.5.4
+   */
+  public String getColumnSignature() throws SQLException {
+    if (columnSignature == null) {
+      final ResultSetMetaData metaData = resultSet.getMetaData();
+      final StringBuilder builder = new StringBuilder();
+      for (int i = 0; i < columnNames.size(); i++) {
+        builder.append(columnNames.get(i)).append('\u0000').append(metaData.getColumnLabel(i + 1)).append('\u0000')
+            .append(jdbcTypes.get(i)).append('\u0000').append(classNames.get(i)).append('\u0001');
+      }
+      columnSignature = builder.toString();
+    }
+    return columnSignature;
+  }
+
+  /**
+   * Resolves the columns of {@link ResultMap#getPropertyResultMappings()} once per result map and column prefix.
+   * Each element is the 1-based index to read the column with, {@link #READ_BY_NAME} when the column is present
+   * but must be read by name, or {@link #NOT_MAPPED} when the column is not in this result set.
+   *
+   * @since 3.5.4
+   */
+  public int[] getPropertyColumnIndexes(ResultMap resultMap, String columnPrefix) throws SQLException {
+    final String mapKey = getMapKey(resultMap, columnPrefix);
+    int[] columnIndexes = propertyColumnIndexesMap.get(mapKey);
+    if (columnIndexes == null) {
+      final List<String> mappedColumnNames = getMappedColumnNames(resultMap, columnPrefix);
+      final List<ResultMapping> propertyMappings = resultMap.getPropertyResultMappings();
+      columnIndexes = new int[propertyMappings.size()];
+      for (int i = 0; i < columnIndexes.length; i++) {
+        final ResultMapping propertyMapping = propertyMappings.get(i);
+        final String column = prependPrefix(propertyMapping.getColumn(), columnPrefix);
+        // the user added a column attribute to a nested result map, ignore it
+        if (column == null || propertyMapping.getNestedResultMapId() != null
+            || !mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH))) {
+          columnIndexes[i] = NOT_MAPPED;
+        } else {
+          columnIndexes[i] = getColumnIndex(column);
+        }
+      }
+      propertyColumnIndexesMap.put(mapKey, columnIndexes);
+    }
+    return columnIndexes;
+  }
+
+  private String prependPrefix(String columnName, String prefix) {
+    if (columnName == null || columnName.length() == 0 || prefix == null || prefix.length() == 0) {
+      return columnName;
+    }
+    return prefix + columnName;
+  }
+
   private String getMapKey(ResultMap resultMap, String columnPrefix) {
     return resultMap.getId() + ":" + columnPrefix;
   }
@@ -0,0 +1,81 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.statement;
+
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 绑定在一个物理数据库连接上的Statement缓存，按LRU淘汰
+ * A bounded LRU cache of the statements prepared on one physical connection. A connection pool that keeps such a
+ * cache for each of its connections exposes it through {@link java.sql.Connection#unwrap(Class)}, and the
+ * {@link org.apache.ibatis.executor.ReuseExecutor} then reuses the cached statements across transactions and sessions.
+ * <p>
+ * Evicted statements are returned to the caller instead of being closed, because the session that evicted them may
+ * still be reading one of their result sets. The cache is not thread safe: a connection is used by one thread at a time.
+ *
+ * @since 3.5.4
+ */
+public class StatementCache {
+
+  private final int maxSize;
+  private final LinkedHashMap<String, Statement> statements;
+
+  /**
+   * @param maxSize the maximum number of statements kept in the cache
+   */
+  public StatementCache(int maxSize) {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException("The statement cache size must be positive, but was " + maxSize);
+    }
+    this.maxSize = maxSize;
+    //访问顺序排列，最久未使用的在最前
+    this.statements = new LinkedHashMap<>(16, 0.75f, true);
+  }
+
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  public int size() {
+    return statements.size();
+  }
+
+  public Statement get(String key) {
+    return statements.get(key);
+  }
+
+  /**
+   * Adds a statement to the cache.
+   *
+   * @param key the key of the statement
+   * @param statement the statement
+   * @return the least recently used statement removed to make room for the new one, or null. The caller must close it.
+   */
+  public Statement put(String key, Statement statement) {
+    statements.put(key, statement);
+    if (statements.size() <= maxSize) {
+      return null;
+    }
+    Iterator<Map.Entry<String, Statement>> iterator = statements.entrySet().iterator();
+    Statement eldest = iterator.next().getValue();
+    iterator.remove();
+    return eldest;
+  }
+
+}
@@ -24,9 +24,14 @@ import java.util.Properties;
 import org.apache.ibatis.builder.InitializingObject;
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheMetrics;
+import org.apache.ibatis.cache.CacheMetricsAware;
+import org.apache.ibatis.cache.CacheSerializer;
+import org.apache.ibatis.cache.ThreadSafeCache;
 import org.apache.ibatis.cache.decorators.BlockingCache;
+import org.apache.ibatis.cache.decorators.ConcurrentLruCache;
+import org.apache.ibatis.cache.decorators.ExpiringCache;
 import org.apache.ibatis.cache.decorators.LoggingCache;
-import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.decorators.ScheduledCache;
 import org.apache.ibatis.cache.decorators.SerializedCache;
 import org.apache.ibatis.cache.decorators.SynchronizedCache;
@@ -47,7 +52,7 @@ public class CacheBuilder {
    */
   private Class<? extends Cache> implementation;
   /**
-   * 装饰器集合，默认只包含{@link LruCache}
+   * 装饰器集合，默认只包含{@link ConcurrentLruCache}
    */
   private final List<Class<? extends Cache>> decorators;
   /**
@@ -58,10 +63,26 @@ public class CacheBuilder {
    * 清理时间周期
    */
   private Long clearInterval;
+  /**
+   * 缓存项写入后的存活时间
+   */
+  private Long timeToLive;
+  /**
+   * 缓存项最后一次访问后的存活时间
+   */
+  private Long timeToIdle;
+  /**
+   * 提前刷新缓存项的比例
+   */
+  private Double refreshAhead;
   /**
    * 是否可读写
    */
   private boolean readWrite;
+  /**
+   * 可读写缓存使用的序列化器
+   */
+  private Class<? extends CacheSerializer> serializer;
   /**
    * 其他配置信息
    */
@@ -70,6 +91,10 @@ public class CacheBuilder {
    * 是否阻塞
    */
   private boolean blocking;
+  /**
+   * 缓存的统计指标
+   */
+  private CacheMetrics metrics;
 
   public CacheBuilder(String id) {
     this.id = id;
@@ -98,16 +123,56 @@ public class CacheBuilder {
     return this;
   }
 
+  /**
+   * @since 3.5.4
+   */
+  public CacheBuilder timeToLive(Long timeToLive) {
+    this.timeToLive = timeToLive;
+    return this;
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  public CacheBuilder timeToIdle(Long timeToIdle) {
+    this.timeToIdle = timeToIdle;
+    return this;
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  public CacheBuilder refreshAhead(Double refreshAhead) {
+    this.refreshAhead = refreshAhead;
+    return this;
+  }
+
   public CacheBuilder readWrite(boolean readWrite) {
     this.readWrite = readWrite;
     return this;
   }
 
+  /**
+   * @since 3.5.4
+   */
+  public CacheBuilder serializer(Class<? extends CacheSerializer> serializer) {
+    this.serializer = serializer;
+    return this;
+  }
+
   public CacheBuilder blocking(boolean blocking) {
     this.blocking = blocking;
     return this;
   }
 
+  /**
+   * @since 3.5.4
+   */
+  public CacheBuilder metrics(CacheMetrics metrics) {
+    this.metrics = metrics;
+    return this;
+  }
+
   public CacheBuilder properties(Properties properties) {
     this.properties = properties;
     return this;
@@ -122,6 +187,7 @@ public class CacheBuilder {
     Cache cache = newBaseCacheInstance(implementation, id);
     //根据<cache>节点下配置的<property>信息，初始化Cache对象
     setCacheProperties(cache);
+    applyMetrics(cache);
     // issue #352, do not apply decorators to custom caches
     // 问题＃352，请勿将装饰器应用于自定义缓存
     // 检测cache对象的类型，如果是PerpetualCache类型，则为其添加decorators集合中的装饰器，
@@ -131,6 +197,7 @@ public class CacheBuilder {
         cache = newCacheDecoratorInstance(decorator, cache);
         //为装饰器添加属性
         setCacheProperties(cache);
+        applyMetrics(cache);
       }
       //添加Mybatis中提供的标准装饰器
       cache = setStandardDecorators(cache);
@@ -138,16 +205,29 @@ public class CacheBuilder {
     //如果不是LoggingCache的子类，则添加LoggingCache装饰器
     else if (!LoggingCache.class.isAssignableFrom(cache.getClass())) {
       cache = new LoggingCache(cache);
+      applyMetrics(cache);
+    }
+    if (metrics != null) {
+      metrics.bind(cache);
     }
     //如果是自定义类型的Cache接口实现，则不添加decorators集合中的装饰器
     return cache;
   }
 
+  /**
+   * 为需要统计指标的Cache或装饰器设置{@link #metrics}
+   */
+  private void applyMetrics(Cache cache) {
+    if (metrics != null && cache instanceof CacheMetricsAware) {
+      ((CacheMetricsAware) cache).setMetrics(metrics);
+    }
+  }
+
   private void setDefaultImplementations() {
     if (implementation == null) {
       implementation = PerpetualCache.class;
       if (decorators.isEmpty()) {
-        decorators.add(LruCache.class);
+        decorators.add(ConcurrentLruCache.class);
       }
     }
   }
@@ -156,6 +236,8 @@ public class CacheBuilder {
     try {
       //创建cache对象对应的MetaObject对象
       MetaObject metaCache = SystemMetaObject.forObject(cache);
+      //声明了线程安全的缓存（例如TinyLfuCache）不需要再添加SynchronizedCache装饰器，其余标准装饰器都是线程安全的
+      boolean concurrent = cache instanceof ThreadSafeCache;
       if (size != null && metaCache.hasSetter("size")) {
         metaCache.setValue("size", size);
       }
@@ -165,15 +247,34 @@ public class CacheBuilder {
         cache = new ScheduledCache(cache);
         //设置ScheduledCache下的clearInterval字段
         ((ScheduledCache) cache).setClearInterval(clearInterval);
+        applyMetrics(cache);
+      }
+      //检测是否指定了timeToLive或timeToIdle字段，添加ExpiringCache装饰器
+      if (timeToLive != null || timeToIdle != null) {
+        ExpiringCache expiringCache = new ExpiringCache(cache);
+        if (timeToLive != null) {
+          expiringCache.setTimeToLive(timeToLive);
+        }
+        if (timeToIdle != null) {
+          expiringCache.setTimeToIdle(timeToIdle);
+        }
+        if (refreshAhead != null) {
+          expiringCache.setRefreshAhead(refreshAhead);
+        }
+        cache = expiringCache;
+        applyMetrics(cache);
       }
       //是否只读
       if (readWrite) {
         //添加SerializedCache装饰器
-        cache = new SerializedCache(cache);
+        cache = serializer == null ? new SerializedCache(cache) : new SerializedCache(cache, newSerializerInstance(serializer));
       }
       //默认添加LoggingCache和SynchronizedCache两个装饰器
       cache = new LoggingCache(cache);
-      cache = new SynchronizedCache(cache);
+      applyMetrics(cache);
+      if (!concurrent) {
+        cache = new SynchronizedCache(cache);
+      }
       //是否阻塞
       if (blocking) {
         //添加BlockingCache装饰器
@@ -277,6 +378,14 @@ public class CacheBuilder {
     }
   }
 
+  private CacheSerializer newSerializerInstance(Class<? extends CacheSerializer> serializerClass) {
+    try {
+      return serializerClass.getConstructor().newInstance();
+    } catch (Exception e) {
+      throw new CacheException("Could not instantiate cache serializer (" + serializerClass + "). Cause: " + e, e);
+    }
+  }
+
   private Constructor<? extends Cache> getCacheDecoratorConstructor(Class<? extends Cache> cacheClass) {
     try {
       return cacheClass.getConstructor(Cache.class);
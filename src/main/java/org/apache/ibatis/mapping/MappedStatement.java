@@ -16,6 +16,7 @@
 package org.apache.ibatis.mapping;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -71,6 +72,7 @@ public final class MappedStatement {
   private Log statementLog;
   private LanguageDriver lang;
   private String[] resultSets;
+  private String[] cacheTags;
 
   MappedStatement() {
     // constructor disabled
@@ -189,6 +191,18 @@ public final class MappedStatement {
       return this;
     }
 
+    /**
+     * @since 3.5.4
+     */
+    public Builder cacheTags(String cacheTags) {
+      String[] tags = delimitedStringToArray(cacheTags);
+      if (tags != null) {
+        tags = Arrays.stream(tags).map(String::trim).filter(tag -> !tag.isEmpty()).distinct().toArray(String[]::new);
+      }
+      mappedStatement.cacheTags = tags == null || tags.length == 0 ? null : tags;
+      return this;
+    }
+
     /**
      * @deprecated Use {@link #resultSets}
      */
@@ -300,6 +314,16 @@ public final class MappedStatement {
     return resultSets;
   }
 
+  /**
+   * 该语句读取或修改的缓存标签（一般是表名）
+   *
+   * @return the cache tags, or null if the statement declares none
+   * @since 3.5.4
+   */
+  public String[] getCacheTags() {
+    return cacheTags;
+  }
+
   /**
    * @deprecated Use {@link #getResultSets()}
    */
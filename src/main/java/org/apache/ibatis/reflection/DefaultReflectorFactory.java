@@ -18,6 +18,9 @@ package org.apache.ibatis.reflection;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
+import org.apache.ibatis.reflection.invoker.DefaultInvokerFactory;
+import org.apache.ibatis.reflection.invoker.InvokerFactory;
+
 /**
  * mybatis提供的默认的{@link ReflectorFactory}的实现，
  *    除了mybatis自己提供的这个实现外，我们还可以在mybatis-config.xml中指定自定义的ReflectorFactory的实现，从而实现功能上的扩展。
@@ -32,8 +35,29 @@ public class DefaultReflectorFactory implements ReflectorFactory {
    * 使用ConcurrentMap集合实现对Reflector的缓存
    */
   private final ConcurrentMap<Class<?>, Reflector> reflectorMap = new ConcurrentHashMap<>();
+  /**
+   * 创建Reflector对象时使用的InvokerFactory，决定了属性的访问方式
+   */
+  private final InvokerFactory invokerFactory;
 
   public DefaultReflectorFactory() {
+    this(new DefaultInvokerFactory());
+  }
+
+  /**
+   * @param invokerFactory the factory the created {@link Reflector}s use to access properties
+   * @since 3.5.4
+   */
+  public DefaultReflectorFactory(InvokerFactory invokerFactory) {
+    this.invokerFactory = invokerFactory;
+  }
+
+  /**
+   * @return the factory the created {@link Reflector}s use to access properties
+   * @since 3.5.4
+   */
+  public InvokerFactory getInvokerFactory() {
+    return invokerFactory;
   }
 
   @Override
@@ -57,10 +81,10 @@ public class DefaultReflectorFactory implements ReflectorFactory {
     if (classCacheEnabled) {
       //如果可以拿到缓存，就直接放回，如果不能，就先创建，然后放入map，最后再取出
       // synchronized (type) removed see issue #461
-      return reflectorMap.computeIfAbsent(type, Reflector::new);
+      return reflectorMap.computeIfAbsent(type, t -> new Reflector(t, invokerFactory));
     } else {
       //未开启缓存，则直接创建并返回Reflector对象
-      return new Reflector(type);
+      return new Reflector(type, invokerFactory);
     }
   }
 
@@ -0,0 +1,35 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection;
+
+import org.apache.ibatis.reflection.invoker.MethodHandleInvokerFactory;
+
+/**
+ * 使用{@link MethodHandleInvokerFactory}创建Reflector对象的{@link ReflectorFactory}，
+ * 属性的读写通过生成的访问器完成，而不是每次都调用Method.invoke()。
+ * 可以在mybatis-config.xml中通过&lt;reflectorFactory type="org.apache.ibatis.reflection.MethodHandleReflectorFactory"/&gt;启用。
+ *
+ * A {@link ReflectorFactory} whose {@link Reflector}s read and write properties through accessors generated
+ * with method handles instead of reflection.
+ *
+ * @since 3.5.4
+ */
+public class MethodHandleReflectorFactory extends DefaultReflectorFactory {
+
+  public MethodHandleReflectorFactory() {
+    super(new MethodHandleInvokerFactory());
+  }
+}
@@ -36,10 +36,10 @@ import java.util.Map.Entry;
 import java.util.function.Function;
 
 import org.apache.ibatis.reflection.invoker.AmbiguousMethodInvoker;
-import org.apache.ibatis.reflection.invoker.GetFieldInvoker;
+import org.apache.ibatis.reflection.invoker.DefaultInvokerFactory;
 import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.invoker.InvokerFactory;
 import org.apache.ibatis.reflection.invoker.MethodInvoker;
-import org.apache.ibatis.reflection.invoker.SetFieldInvoker;
 import org.apache.ibatis.reflection.property.PropertyNamer;
 
 /**
@@ -88,14 +88,28 @@ public class Reflector {
    * 记录了所有属性名称的集合
    */
   private Map<String, String> caseInsensitivePropertyMap = new HashMap<>();
+  /**
+   * 负责创建getter/setter方法以及字段对应的Invoker对象
+   */
+  private final InvokerFactory invokerFactory;
 
   /**
    * 此构造方法中会解析指定的Class对象，并填充上述集合
    * @param clazz 需要解析的Class对象
    */
   public Reflector(Class<?> clazz) {
+    this(clazz, new DefaultInvokerFactory());
+  }
+
+  /**
+   * @param clazz 需要解析的Class对象
+   * @param invokerFactory 用于创建属性对应的Invoker对象
+   * @since 3.5.4
+   */
+  public Reflector(Class<?> clazz, InvokerFactory invokerFactory) {
     //初始化type字段
     type = clazz;
+    this.invokerFactory = invokerFactory;
     //查找clazz的默认构造方法（无参构造方法），具体实现是通过反射遍历所有构造方法
     addDefaultConstructor(clazz);
     //处理clazz中的getter方法，填充getMethods集合和getTypes集合
@@ -223,11 +237,11 @@ public class Reflector {
      *    1. 如果有含糊不清的直接报错，
      *    2. 如果验证通过，则进行方法的封装
      */
-    MethodInvoker invoker = isAmbiguous
+    Invoker invoker = isAmbiguous
         ? new AmbiguousMethodInvoker(method, MessageFormat.format(
             "Illegal overloaded getter method with ambiguous type for property ''{0}'' in class ''{1}''. This breaks the JavaBeans specification and can cause unpredictable results.",
             name, method.getDeclaringClass().getName()))
-        : new MethodInvoker(method);
+        : invokerFactory.newMethodInvoker(method);
 
     getMethods.put(name, invoker);
     /**
@@ -309,7 +323,7 @@ public class Reflector {
   }
 
   private void addSetMethod(String name, Method method) {
-    MethodInvoker invoker = new MethodInvoker(method);
+    Invoker invoker = invokerFactory.newMethodInvoker(method);
     setMethods.put(name, invoker);
     Type[] paramTypes = TypeParameterResolver.resolveParamTypes(method, type);
     setTypes.put(name, typeToClass(paramTypes[0]));
@@ -359,7 +373,7 @@ public class Reflector {
 
   private void addSetField(Field field) {
     if (isValidPropertyName(field.getName())) {
-      setMethods.put(field.getName(), new SetFieldInvoker(field));
+      setMethods.put(field.getName(), invokerFactory.newSetFieldInvoker(field));
       Type fieldType = TypeParameterResolver.resolveFieldType(field, type);
       setTypes.put(field.getName(), typeToClass(fieldType));
     }
@@ -367,7 +381,7 @@ public class Reflector {
 
   private void addGetField(Field field) {
     if (isValidPropertyName(field.getName())) {
-      getMethods.put(field.getName(), new GetFieldInvoker(field));
+      getMethods.put(field.getName(), invokerFactory.newGetFieldInvoker(field));
       Type fieldType = TypeParameterResolver.resolveFieldType(field, type);
       getTypes.put(field.getName(), typeToClass(fieldType));
     }
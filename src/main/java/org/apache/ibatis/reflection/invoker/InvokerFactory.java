@@ -0,0 +1,53 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+/**
+ * 负责为{@link org.apache.ibatis.reflection.Reflector}创建属性对应的{@link Invoker}对象，
+ * 通过替换该工厂可以改变getter/setter方法以及字段的访问方式。
+ *
+ * Creates the {@link Invoker}s a {@link org.apache.ibatis.reflection.Reflector} uses to read and write properties.
+ *
+ * @see DefaultInvokerFactory
+ * @see MethodHandleInvokerFactory
+ * @since 3.5.4
+ */
+public interface InvokerFactory {
+
+  /**
+   * 为getter方法（无参数）或setter方法（一个参数）创建Invoker对象
+   * @param method the getter or setter method
+   * @return an invoker calling the method
+   */
+  Invoker newMethodInvoker(Method method);
+
+  /**
+   * 为没有getter方法的字段创建Invoker对象
+   * @param field the field to read
+   * @return an invoker reading the field
+   */
+  Invoker newGetFieldInvoker(Field field);
+
+  /**
+   * 为没有setter方法的字段创建Invoker对象
+   * @param field the field to write
+   * @return an invoker writing the field
+   */
+  Invoker newSetFieldInvoker(Field field);
+}
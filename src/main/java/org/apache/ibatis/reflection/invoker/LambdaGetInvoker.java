@@ -0,0 +1,50 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.function.Function;
+
+/**
+ * 通过{@link java.lang.invoke.LambdaMetafactory}生成的{@link Function}调用getter方法，避免了每次调用Method.invoke()的反射开销。
+ * 继承{@link MethodInvoker}是为了保留对应的Method对象，{@link org.apache.ibatis.reflection.MetaClass}需要通过它解析泛型类型。
+ *
+ * @see MethodHandleInvokerFactory
+ * @since 3.5.4
+ */
+public class LambdaGetInvoker extends MethodInvoker {
+  private final Class<?> declaringClass;
+  private final Function<Object, Object> getter;
+
+  public LambdaGetInvoker(Method method, Function<Object, Object> getter) {
+    super(method);
+    this.declaringClass = method.getDeclaringClass();
+    this.getter = getter;
+  }
+
+  @Override
+  public Object invoke(Object target, Object[] args) throws InvocationTargetException {
+    // 先按Method.invoke()的规则校验参数，保证lambda内部抛出的ClassCastException、NullPointerException只可能来自getter方法本身
+    LambdaSetInvoker.checkTarget(declaringClass, target);
+    try {
+      return getter.apply(target);
+    } catch (Throwable t) {
+      // 与Method.invoke()保持一致，将getter方法抛出的异常封装成InvocationTargetException
+      throw new InvocationTargetException(t);
+    }
+  }
+}
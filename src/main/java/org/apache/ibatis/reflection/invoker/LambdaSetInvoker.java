@@ -0,0 +1,77 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.function.BiConsumer;
+
+/**
+ * 通过{@link java.lang.invoke.LambdaMetafactory}生成的{@link BiConsumer}调用setter方法，避免了每次调用Method.invoke()的反射开销。
+ * 继承{@link MethodInvoker}是为了保留对应的Method对象，{@link org.apache.ibatis.reflection.MetaClass}需要通过它解析泛型类型。
+ *
+ * @see MethodHandleInvokerFactory
+ * @since 3.5.4
+ */
+public class LambdaSetInvoker extends MethodInvoker {
+  private final Class<?> declaringClass;
+  /**
+   * setter方法的参数类型，基本类型已转换为对应的包装类型
+   */
+  private final Class<?> parameterType;
+  private final boolean primitive;
+  private final BiConsumer<Object, Object> setter;
+
+  public LambdaSetInvoker(Method method, BiConsumer<Object, Object> setter) {
+    super(method);
+    Class<?> type = method.getParameterTypes()[0];
+    this.declaringClass = method.getDeclaringClass();
+    this.primitive = type.isPrimitive();
+    this.parameterType = primitive ? MethodType.methodType(type).wrap().returnType() : type;
+    this.setter = setter;
+  }
+
+  @Override
+  public Object invoke(Object target, Object[] args) throws IllegalAccessException, InvocationTargetException {
+    // 先按Method.invoke()的规则校验参数，参数错误抛出IllegalArgumentException，不会被当作setter方法抛出的异常
+    checkTarget(declaringClass, target);
+    Object value = args[0];
+    if (value == null ? primitive : !parameterType.isInstance(value)) {
+      if (value != null) {
+        // 基本类型参数可能需要拓宽转换（例如将Integer传给long参数），交给Method.invoke()处理，不匹配时同样抛出IllegalArgumentException
+        return super.invoke(target, args);
+      }
+      throw new IllegalArgumentException("argument type mismatch");
+    }
+    try {
+      setter.accept(target, value);
+      return null;
+    } catch (Throwable t) {
+      // 与Method.invoke()保持一致，将setter方法抛出的异常封装成InvocationTargetException
+      throw new InvocationTargetException(t);
+    }
+  }
+
+  static void checkTarget(Class<?> declaringClass, Object target) {
+    if (target == null) {
+      throw new NullPointerException("target is null");
+    }
+    if (!declaringClass.isInstance(target)) {
+      throw new IllegalArgumentException("object is not an instance of declaring class");
+    }
+  }
+}
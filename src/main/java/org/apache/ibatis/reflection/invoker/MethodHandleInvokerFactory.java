@@ -0,0 +1,175 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodHandles.Lookup;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import org.apache.ibatis.reflection.Reflector;
+
+/**
+ * 通过{@link LambdaMetafactory}为getter/setter方法生成{@link Function}/{@link BiConsumer}，生成的Invoker对象随{@link Reflector}一起缓存。
+ * 无法生成时（例如静态方法、不可访问的类或模块）退化为基于反射的Invoker；字段仍然通过反射访问。
+ *
+ * An {@link InvokerFactory} that replaces {@link Method#invoke(Object, Object...)} with accessors generated through
+ * {@link LambdaMetafactory}. Methods the metafactory cannot bind, and fields, are handled by the fallback factory.
+ *
+ * @see org.apache.ibatis.reflection.MethodHandleReflectorFactory
+ * @since 3.5.4
+ */
+public class MethodHandleInvokerFactory implements InvokerFactory {
+
+  private static final int ALLOWED_MODES = MethodHandles.Lookup.PRIVATE | MethodHandles.Lookup.PROTECTED
+      | MethodHandles.Lookup.PACKAGE | MethodHandles.Lookup.PUBLIC;
+  private static final MethodType GETTER_FACTORY_TYPE = MethodType.methodType(Function.class);
+  private static final MethodType GETTER_SAM_TYPE = MethodType.methodType(Object.class, Object.class);
+  private static final MethodType SETTER_FACTORY_TYPE = MethodType.methodType(BiConsumer.class);
+  private static final MethodType SETTER_SAM_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+  /**
+   * Java9及以上版本的MethodHandles.privateLookupIn()方法
+   */
+  private static final Method privateLookupInMethod;
+  /**
+   * Java8中MethodHandles.Lookup的(Class, int)构造器
+   */
+  private static final Constructor<Lookup> lookupConstructor;
+
+  static {
+    Method privateLookupIn;
+    try {
+      privateLookupIn = MethodHandles.class.getMethod("privateLookupIn", Class.class, MethodHandles.Lookup.class);
+    } catch (NoSuchMethodException e) {
+      privateLookupIn = null;
+    }
+    privateLookupInMethod = privateLookupIn;
+
+    Constructor<Lookup> lookup = null;
+    if (privateLookupInMethod == null) {
+      // JDK 1.8
+      try {
+        lookup = MethodHandles.Lookup.class.getDeclaredConstructor(Class.class, int.class);
+        lookup.setAccessible(true);
+      } catch (Exception e) {
+        lookup = null;
+      }
+    }
+    lookupConstructor = lookup;
+  }
+
+  private final InvokerFactory fallback;
+
+  public MethodHandleInvokerFactory() {
+    this(new DefaultInvokerFactory());
+  }
+
+  /**
+   * @param fallback the factory used for members that cannot be accessed through method handles
+   */
+  public MethodHandleInvokerFactory(InvokerFactory fallback) {
+    this.fallback = fallback;
+  }
+
+  @Override
+  public Invoker newMethodInvoker(Method method) {
+    boolean setter = method.getParameterTypes().length == 1;
+    if (Modifier.isStatic(method.getModifiers()) || !setter && method.getReturnType() == void.class
+        || !isResolvable(method.getDeclaringClass())) {
+      return fallback.newMethodInvoker(method);
+    }
+    try {
+      return setter ? newLambdaSetInvoker(method) : newLambdaGetInvoker(method);
+    } catch (Throwable e) {
+      // 无法生成访问器（例如目标类所在的模块未开放），退化为反射
+      return fallback.newMethodInvoker(method);
+    }
+  }
+
+  @Override
+  public Invoker newGetFieldInvoker(Field field) {
+    return fallback.newGetFieldInvoker(field);
+  }
+
+  @Override
+  public Invoker newSetFieldInvoker(Field field) {
+    return fallback.newSetFieldInvoker(field);
+  }
+
+  @SuppressWarnings("unchecked")
+  private Invoker newLambdaGetInvoker(Method method) throws Throwable {
+    Class<?> type = method.getReturnType();
+    Lookup lookup = privateLookupIn(method.getDeclaringClass());
+    MethodHandle handle = lookup.unreflect(method);
+    CallSite site = LambdaMetafactory.metafactory(lookup, "apply", GETTER_FACTORY_TYPE, GETTER_SAM_TYPE, handle,
+        MethodType.methodType(wrap(type), method.getDeclaringClass()));
+    return new LambdaGetInvoker(method, (Function<Object, Object>) site.getTarget().invokeWithArguments());
+  }
+
+  @SuppressWarnings("unchecked")
+  private Invoker newLambdaSetInvoker(Method method) throws Throwable {
+    Class<?> type = method.getParameterTypes()[0];
+    Lookup lookup = privateLookupIn(method.getDeclaringClass());
+    MethodHandle handle = lookup.unreflect(method);
+    CallSite site = LambdaMetafactory.metafactory(lookup, "accept", SETTER_FACTORY_TYPE, SETTER_SAM_TYPE, handle,
+        MethodType.methodType(void.class, method.getDeclaringClass(), wrap(type)));
+    return new LambdaSetInvoker(method, (BiConsumer<Object, Object>) site.getTarget().invokeWithArguments());
+  }
+
+  /**
+   * 获取对目标类拥有私有访问权限的Lookup对象，生成的lambda类由目标类所在的类加载器加载
+   */
+  private Lookup privateLookupIn(Class<?> declaringClass) throws Exception {
+    if (privateLookupInMethod != null) {
+      return (Lookup) privateLookupInMethod.invoke(null, declaringClass, MethodHandles.lookup());
+    }
+    if (lookupConstructor != null) {
+      return lookupConstructor.newInstance(declaringClass, ALLOWED_MODES);
+    }
+    throw new IllegalStateException("Could not obtain a private lookup in " + declaringClass);
+  }
+
+  /**
+   * 生成的lambda类会通过类名引用目标类，因此lambda等无法通过类名加载的类不能作为宿主；
+   * JDK自身的类（由启动类加载器加载）在Java9以上的模块系统中不允许私有访问，也直接使用反射
+   */
+  private static boolean isResolvable(Class<?> declaringClass) {
+    if (declaringClass.isSynthetic() || declaringClass.getClassLoader() == null) {
+      return false;
+    }
+    try {
+      return Class.forName(declaringClass.getName(), false, declaringClass.getClassLoader()) == declaringClass;
+    } catch (ClassNotFoundException | LinkageError e) {
+      return false;
+    }
+  }
+
+  private static Class<?> wrap(Class<?> type) {
+    if (!type.isPrimitive()) {
+      return type;
+    }
+    return MethodType.methodType(type).wrap().returnType();
+  }
+}
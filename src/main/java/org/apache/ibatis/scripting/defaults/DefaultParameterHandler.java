@@ -72,6 +72,18 @@ public class DefaultParameterHandler implements ParameterHandler {
 
   @Override
   public void setParameters(PreparedStatement ps) {
+    setParameters(ps, 0);
+  }
+
+  /**
+   * 从指定位置开始设置参数，用于多行插入语句中的某一行
+   * Sets the parameters starting after the given number of placeholders, e.g. for one row of a multi-row insert.
+   *
+   * @param ps the statement
+   * @param offset the number of placeholders before the first parameter of this handler
+   * @since 3.5.4
+   */
+  public void setParameters(PreparedStatement ps, int offset) {
     ErrorContext.instance().activity("setting parameters").object(mappedStatement.getParameterMap().getId());
     List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
     if (parameterMappings != null) {
@@ -96,7 +108,7 @@ public class DefaultParameterHandler implements ParameterHandler {
             jdbcType = configuration.getJdbcTypeForNull();
           }
           try {
-            typeHandler.setParameter(ps, i + 1, value, jdbcType);
+            typeHandler.setParameter(ps, offset + i + 1, value, jdbcType);
           } catch (TypeException | SQLException e) {
             throw new TypeException("Could not set parameters for mapping: " + parameterMapping + ". Cause: " + e, e);
           }
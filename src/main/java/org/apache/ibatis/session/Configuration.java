@@ -25,6 +25,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiFunction;
 
 import org.apache.ibatis.binding.MapperRegistry;
@@ -34,15 +35,29 @@ import org.apache.ibatis.builder.ResultMapResolver;
 import org.apache.ibatis.builder.annotation.MethodResolver;
 import org.apache.ibatis.builder.xml.XMLStatementBuilder;
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheMetrics;
+import org.apache.ibatis.cache.CacheTagRegistry;
+import org.apache.ibatis.cache.TransactionalCacheManager;
+import org.apache.ibatis.cache.decorators.ConcurrentFifoCache;
+import org.apache.ibatis.cache.decorators.ConcurrentLruCache;
+import org.apache.ibatis.cache.decorators.ConcurrentSoftCache;
 import org.apache.ibatis.cache.decorators.FifoCache;
 import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.decorators.SoftCache;
+import org.apache.ibatis.cache.decorators.TinyLfuCache;
 import org.apache.ibatis.cache.decorators.WeakCache;
+import org.apache.ibatis.cache.impl.NearCache;
+import org.apache.ibatis.cache.impl.OffHeapCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.serializer.CompactCacheSerializer;
+import org.apache.ibatis.cache.serializer.JdkCacheSerializer;
 import org.apache.ibatis.datasource.jndi.JndiDataSourceFactory;
+import org.apache.ibatis.datasource.pooled.ConcurrentPooledDataSourceFactory;
 import org.apache.ibatis.datasource.pooled.PooledDataSourceFactory;
 import org.apache.ibatis.datasource.unpooled.UnpooledDataSourceFactory;
 import org.apache.ibatis.executor.BatchExecutor;
+import org.apache.ibatis.executor.BatchResultListener;
 import org.apache.ibatis.executor.CachingExecutor;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.ReuseExecutor;
@@ -52,6 +67,7 @@ import org.apache.ibatis.executor.loader.ProxyFactory;
 import org.apache.ibatis.executor.loader.cglib.CglibProxyFactory;
 import org.apache.ibatis.executor.loader.javassist.JavassistProxyFactory;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.apache.ibatis.executor.resultset.CompiledRowMapping;
 import org.apache.ibatis.executor.resultset.DefaultResultSetHandler;
 import org.apache.ibatis.executor.resultset.ResultSetHandler;
 import org.apache.ibatis.executor.statement.RoutingStatementHandler;
@@ -116,11 +132,37 @@ public class Configuration {
   protected boolean callSettersOnNulls;
   protected boolean useActualParamName = true;
   protected boolean returnInstanceForEmptyRow;
+  protected boolean compiledRowMappingEnabled;
+  protected boolean cacheWriteBehindEnabled;
+  protected Class<? extends CacheMetrics> cacheMetricsImpl;
+  protected boolean batchGroupingEnabled;
+  /**
+   * 批量执行器中单个批次自动flush的行数，0表示不自动flush
+   */
+  protected int batchFlushRows;
+  /**
+   * 批量执行器中单个批次自动flush的估算参数字节数，0表示不自动flush
+   */
+  protected long batchFlushBytes;
+  protected BatchResultListener batchResultListener;
+  protected boolean batchPipelineEnabled;
+  /**
+   * 批量插入改写为多行VALUES语句时每条语句的行数，为空时不改写
+   */
+  protected Set<Integer> multiRowInsertSizes = new HashSet<>();
 
   protected String logPrefix;
   protected Class<? extends Log> logImpl;
   protected Class<? extends VFS> vfsImpl;
   protected LocalCacheScope localCacheScope = LocalCacheScope.SESSION;
+  /**
+   * 一级缓存的最大缓存项个数，0表示不限制
+   */
+  protected int localCacheSize;
+  /**
+   * 一级缓存估算的最大字节数，0表示不限制
+   */
+  protected long localCacheMaxBytes;
   protected JdbcType jdbcTypeForNull = JdbcType.OTHER;
   protected Set<String> lazyLoadTriggerMethods = new HashSet<>(Arrays.asList("equals", "clone", "hashCode", "toString"));
   protected Integer defaultStatementTimeout;
@@ -173,6 +215,18 @@ public class Configuration {
    * value = Cache对象（二级缓存）
    */
   protected final Map<String, Cache> caches = new StrictMap<>("Caches collection");
+  /**
+   * key = Cache的ID，value = 该缓存的统计指标
+   */
+  protected final Map<String, CacheMetrics> cacheMetrics = new HashMap<>();
+  /**
+   * 使用了标签的二级缓存中每个标签的版本号
+   */
+  protected final CacheTagRegistry cacheTagRegistry = new CacheTagRegistry();
+  /**
+   * 预编译的行映射计划，key = ResultMap的ID、列前缀、结果对象类型和结果集的列签名
+   */
+  protected final Map<String, CompiledRowMapping> compiledRowMappings = new ConcurrentHashMap<>();
   /**
    * 用于存储ResultMap
    */
@@ -226,13 +280,23 @@ public class Configuration {
 
     typeAliasRegistry.registerAlias("JNDI", JndiDataSourceFactory.class);
     typeAliasRegistry.registerAlias("POOLED", PooledDataSourceFactory.class);
+    typeAliasRegistry.registerAlias("CONCURRENT_POOLED", ConcurrentPooledDataSourceFactory.class);
     typeAliasRegistry.registerAlias("UNPOOLED", UnpooledDataSourceFactory.class);
 
     typeAliasRegistry.registerAlias("PERPETUAL", PerpetualCache.class);
+    typeAliasRegistry.registerAlias("OFF_HEAP", OffHeapCache.class);
+    typeAliasRegistry.registerAlias("NEAR", NearCache.class);
     typeAliasRegistry.registerAlias("FIFO", FifoCache.class);
     typeAliasRegistry.registerAlias("LRU", LruCache.class);
     typeAliasRegistry.registerAlias("SOFT", SoftCache.class);
     typeAliasRegistry.registerAlias("WEAK", WeakCache.class);
+    typeAliasRegistry.registerAlias("TINYLFU", TinyLfuCache.class);
+    typeAliasRegistry.registerAlias("CONCURRENT_LRU", ConcurrentLruCache.class);
+    typeAliasRegistry.registerAlias("CONCURRENT_FIFO", ConcurrentFifoCache.class);
+    typeAliasRegistry.registerAlias("CONCURRENT_SOFT", ConcurrentSoftCache.class);
+
+    typeAliasRegistry.registerAlias("JDK", JdkCacheSerializer.class);
+    typeAliasRegistry.registerAlias("COMPACT", CompactCacheSerializer.class);
 
     typeAliasRegistry.registerAlias("DB_VENDOR", VendorDatabaseIdProvider.class);
 
@@ -309,6 +373,148 @@ public class Configuration {
     this.returnInstanceForEmptyRow = returnEmptyInstance;
   }
 
+  /**
+   * 是否为简单的ResultMap预编译行映射计划
+   *
+   * @since 3.5.4
+   */
+  public boolean isCompiledRowMappingEnabled() {
+    return compiledRowMappingEnabled;
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  public void setCompiledRowMappingEnabled(boolean compiledRowMappingEnabled) {
+    this.compiledRowMappingEnabled = compiledRowMappingEnabled;
+  }
+
+  /**
+   * 事务提交时是否由后台线程将暂存的缓存项写入二级缓存
+   *
+   * @since 3.5.4
+   */
+  public boolean isCacheWriteBehindEnabled() {
+    return cacheWriteBehindEnabled;
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  public void setCacheWriteBehindEnabled(boolean cacheWriteBehindEnabled) {
+    this.cacheWriteBehindEnabled = cacheWriteBehindEnabled;
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  public Class<? extends CacheMetrics> getCacheMetricsImpl() {
+    return cacheMetricsImpl;
+  }
+
+  /**
+   * 设置二级缓存统计指标的实现类，设置为null时不统计
+   *
+   * @since 3.5.4
+   */
+  public void setCacheMetricsImpl(Class<? extends CacheMetrics> cacheMetricsImpl) {
+    this.cacheMetricsImpl = cacheMetricsImpl;
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  public boolean isBatchGroupingEnabled() {
+    return batchGroupingEnabled;
+  }
+
+  /**
+   * @param batchGroupingEnabled whether the batch executor groups interleaved inserts by statement
+   * @since 3.5.4
+   */
+  public void setBatchGroupingEnabled(boolean batchGroupingEnabled) {
+    this.batchGroupingEnabled = batchGroupingEnabled;
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  public int getBatchFlushRows() {
+    return batchFlushRows;
+  }
+
+  /**
+   * @param batchFlushRows the number of rows after which the batch executor flushes a batch, or 0 to never flush automatically
+   * @since 3.5.4
+   */
+  public void setBatchFlushRows(int batchFlushRows) {
+    this.batchFlushRows = batchFlushRows;
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  public long getBatchFlushBytes() {
+    return batchFlushBytes;
+  }
+
+  /**
+   * @param batchFlushBytes the estimated parameter size after which the batch executor flushes a batch, or 0 to never flush automatically
+   * @since 3.5.4
+   */
+  public void setBatchFlushBytes(long batchFlushBytes) {
+    this.batchFlushBytes = batchFlushBytes;
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  public BatchResultListener getBatchResultListener() {
+    return batchResultListener;
+  }
+
+  /**
+   * @param batchResultListener the listener receiving every batch executed by the batch executor
+   * @since 3.5.4
+   */
+  public void setBatchResultListener(BatchResultListener batchResultListener) {
+    this.batchResultListener = batchResultListener;
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  public boolean isBatchPipelineEnabled() {
+    return batchPipelineEnabled;
+  }
+
+  /**
+   * 开启后调用线程只收集每一行的参数，由执行批次的线程创建Statement、绑定参数并执行，连接同一时间只由一个线程使用。
+   * The calling thread then only collects the rows, and the thread executing a batch prepares, binds and executes
+   * it, so the connection is never used by two threads at once.
+   *
+   * @param batchPipelineEnabled whether the batch executor runs automatic flushes on a worker thread
+   * @since 3.5.4
+   */
+  public void setBatchPipelineEnabled(boolean batchPipelineEnabled) {
+    this.batchPipelineEnabled = batchPipelineEnabled;
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  public Set<Integer> getMultiRowInsertSizes() {
+    return multiRowInsertSizes;
+  }
+
+  /**
+   * @param multiRowInsertSizes the numbers of rows of the multi-row inserts the batch executor rewrites batched inserts into
+   * @since 3.5.4
+   */
+  public void setMultiRowInsertSizes(Set<Integer> multiRowInsertSizes) {
+    this.multiRowInsertSizes = multiRowInsertSizes;
+  }
+
   public String getDatabaseId() {
     return databaseId;
   }
@@ -506,6 +712,36 @@ public class Configuration {
     this.localCacheScope = localCacheScope;
   }
 
+  /**
+   * @since 3.5.4
+   */
+  public int getLocalCacheSize() {
+    return localCacheSize;
+  }
+
+  /**
+   * @param localCacheSize the maximum number of results kept in the local cache, or 0 for no limit
+   * @since 3.5.4
+   */
+  public void setLocalCacheSize(int localCacheSize) {
+    this.localCacheSize = localCacheSize;
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  public long getLocalCacheMaxBytes() {
+    return localCacheMaxBytes;
+  }
+
+  /**
+   * @param localCacheMaxBytes the maximum estimated heap size of the results kept in the local cache, or 0 for no limit
+   * @since 3.5.4
+   */
+  public void setLocalCacheMaxBytes(long localCacheMaxBytes) {
+    this.localCacheMaxBytes = localCacheMaxBytes;
+  }
+
   public JdbcType getJdbcTypeForNull() {
     return jdbcTypeForNull;
   }
@@ -676,7 +912,7 @@ public class Configuration {
       /**
        *  观察这个赋值过程传入的是executorType指定的Executor，默认是{@link SimpleExecutor}
        */
-      executor = new CachingExecutor(executor);
+      executor = new CachingExecutor(executor, new TransactionalCacheManager(cacheWriteBehindEnabled, cacheTagRegistry));
     }
     executor = (Executor) interceptorChain.pluginAll(executor);
     return executor;
@@ -718,6 +954,54 @@ public class Configuration {
     return caches.get(id);
   }
 
+  /**
+   * 创建缓存的统计指标，未设置cacheMetricsImpl时返回null
+   *
+   * @since 3.5.4
+   */
+  public CacheMetrics newCacheMetrics() {
+    if (cacheMetricsImpl == null) {
+      return null;
+    }
+    try {
+      return cacheMetricsImpl.getConstructor().newInstance();
+    } catch (Exception e) {
+      throw new CacheException("Could not instantiate cache metrics (" + cacheMetricsImpl.getName() + "). Cause: " + e, e);
+    }
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  public void addCacheMetrics(String id, CacheMetrics metrics) {
+    cacheMetrics.put(id, metrics);
+  }
+
+  /**
+   * 获取指定缓存的统计指标
+   *
+   * @param id the cache id, usually a namespace
+   * @return the metrics of the cache, or null if it has none
+   * @since 3.5.4
+   */
+  public CacheMetrics getCacheMetrics(String id) {
+    return cacheMetrics.get(id);
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  public Map<String, CompiledRowMapping> getCompiledRowMappings() {
+    return compiledRowMappings;
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  public CacheTagRegistry getCacheTagRegistry() {
+    return cacheTagRegistry;
+  }
+
   public boolean hasCache(String id) {
     return caches.containsKey(id);
   }
@@ -20,6 +20,7 @@ import java.sql.Connection;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.ibatis.cache.CacheStats;
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.BatchResult;
 
@@ -277,6 +278,16 @@ public interface SqlSession extends Closeable {
    */
   void clearCache();
 
+  /**
+   * 获取一级缓存的统计数据，只有设置了localCacheSize或localCacheMaxBytes时才会统计
+   * Retrieves the statistics of the local session cache.
+   * @return the statistics, or null if the local cache is not bounded
+   * @since 3.5.4
+   */
+  default CacheStats getLocalCacheStats() {
+    return null;
+  }
+
   /**
    * 获取Configuration对象
    * Retrieves current configuration.
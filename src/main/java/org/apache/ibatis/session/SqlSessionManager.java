@@ -25,6 +25,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 
+import org.apache.ibatis.cache.CacheStats;
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.BatchResult;
 import org.apache.ibatis.reflection.ExceptionUtil;
@@ -279,6 +280,12 @@ public class SqlSessionManager implements SqlSessionFactory, SqlSession {
     sqlSession.clearCache();
   }
 
+  @Override
+  public CacheStats getLocalCacheStats() {
+    final SqlSession sqlSession = localSqlSession.get();
+    return sqlSession == null ? null : sqlSession.getLocalCacheStats();
+  }
+
   @Override
   public void commit() {
     final SqlSession sqlSession = localSqlSession.get();
@@ -29,6 +29,7 @@ import java.util.Properties;
 import org.apache.ibatis.builder.mapper.CustomMapper;
 import org.apache.ibatis.builder.typehandler.CustomIntegerTypeHandler;
 import org.apache.ibatis.builder.xml.XMLConfigBuilder;
+import org.apache.ibatis.cache.metrics.DefaultCacheMetrics;
 import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
 import org.apache.ibatis.domain.blog.Author;
 import org.apache.ibatis.domain.blog.Blog;
@@ -91,11 +92,22 @@ class XmlConfigBuilderTest {
       assertThat(config.isMapUnderscoreToCamelCase()).isFalse();
       assertThat(config.isSafeRowBoundsEnabled()).isFalse();
       assertThat(config.getLocalCacheScope()).isEqualTo(LocalCacheScope.SESSION);
+      assertThat(config.getLocalCacheSize()).isEqualTo(0);
+      assertThat(config.getLocalCacheMaxBytes()).isEqualTo(0L);
       assertThat(config.getJdbcTypeForNull()).isEqualTo(JdbcType.OTHER);
       assertThat(config.getLazyLoadTriggerMethods()).isEqualTo(new HashSet<>(Arrays.asList("equals", "clone", "hashCode", "toString")));
       assertThat(config.isSafeResultHandlerEnabled()).isTrue();
       assertThat(config.getDefaultScriptingLanuageInstance()).isInstanceOf(XMLLanguageDriver.class);
       assertThat(config.isCallSettersOnNulls()).isFalse();
+      assertThat(config.isCompiledRowMappingEnabled()).isFalse();
+      assertThat(config.isCacheWriteBehindEnabled()).isFalse();
+      assertThat(config.getCacheMetricsImpl()).isNull();
+      assertThat(config.isBatchGroupingEnabled()).isFalse();
+      assertThat(config.getBatchFlushRows()).isEqualTo(0);
+      assertThat(config.getBatchFlushBytes()).isEqualTo(0L);
+      assertThat(config.getBatchResultListener()).isNull();
+      assertThat(config.isBatchPipelineEnabled()).isFalse();
+      assertThat(config.getMultiRowInsertSizes()).isEmpty();
       assertNull(config.getLogPrefix());
       assertNull(config.getLogImpl());
       assertNull(config.getConfigurationFactory());
@@ -185,11 +197,22 @@ class XmlConfigBuilderTest {
       assertThat(config.isMapUnderscoreToCamelCase()).isTrue();
       assertThat(config.isSafeRowBoundsEnabled()).isTrue();
       assertThat(config.getLocalCacheScope()).isEqualTo(LocalCacheScope.STATEMENT);
+      assertThat(config.getLocalCacheSize()).isEqualTo(256);
+      assertThat(config.getLocalCacheMaxBytes()).isEqualTo(1048576L);
       assertThat(config.getJdbcTypeForNull()).isEqualTo(JdbcType.NULL);
       assertThat(config.getLazyLoadTriggerMethods()).isEqualTo(new HashSet<>(Arrays.asList("equals", "clone", "hashCode", "toString", "xxx")));
       assertThat(config.isSafeResultHandlerEnabled()).isFalse();
       assertThat(config.getDefaultScriptingLanuageInstance()).isInstanceOf(RawLanguageDriver.class);
       assertThat(config.isCallSettersOnNulls()).isTrue();
+      assertThat(config.isCompiledRowMappingEnabled()).isTrue();
+      assertThat(config.isCacheWriteBehindEnabled()).isTrue();
+      assertThat(config.getCacheMetricsImpl()).isEqualTo(DefaultCacheMetrics.class);
+      assertThat(config.isBatchGroupingEnabled()).isTrue();
+      assertThat(config.getBatchFlushRows()).isEqualTo(1000);
+      assertThat(config.getBatchFlushBytes()).isEqualTo(4194304L);
+      assertThat(config.isBatchPipelineEnabled()).isTrue();
+      assertThat(config.getMultiRowInsertSizes()).containsExactlyInAnyOrder(10, 100);
+      assertThat(config.getBatchResultListener()).isNull();
       assertThat(config.getLogPrefix()).isEqualTo("mybatis_");
       assertThat(config.getLogImpl().getName()).isEqualTo(Slf4jImpl.class.getName());
       assertThat(config.getVfsImpl().getName()).isEqualTo(JBoss6VFS.class.getName());
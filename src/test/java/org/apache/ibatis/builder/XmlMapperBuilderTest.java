@@ -16,9 +16,12 @@
 package org.apache.ibatis.builder;
 
 import java.io.InputStream;
+import java.lang.reflect.Field;
 import java.util.regex.Pattern;
 
 import org.apache.ibatis.builder.xml.XMLMapperBuilder;
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.decorators.ExpiringCache;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.ResultSetType;
@@ -165,6 +168,27 @@ class XmlMapperBuilderTest {
       .hasMessage("The mapper element requires a namespace attribute to be specified.");
   }
 
+  @Test
+  void shouldApplyCacheExpiryAttributes() throws Exception {
+    Configuration configuration = new Configuration();
+    String resource = "org/apache/ibatis/builder/ExpiringCacheMapper.xml";
+    try (InputStream inputStream = Resources.getResourceAsStream(resource)) {
+      XMLMapperBuilder builder = new XMLMapperBuilder(inputStream, configuration, resource, configuration.getSqlFragments());
+      builder.parse();
+    }
+
+    Cache cache = configuration.getCache("org.apache.ibatis.builder.ExpiringCacheMapper");
+    while (!(cache instanceof ExpiringCache)) {
+      Field field = cache.getClass().getDeclaredField("delegate");
+      field.setAccessible(true);
+      cache = (Cache) field.get(cache);
+    }
+    ExpiringCache expiringCache = (ExpiringCache) cache;
+    assertThat(expiringCache.getTimeToLive()).isEqualTo(60000);
+    assertThat(expiringCache.getTimeToIdle()).isEqualTo(10000);
+    assertThat(expiringCache.getRefreshAhead()).isEqualTo(0.75);
+  }
+
   @Test
   void useCacheRefNamespaceIsNull() {
     MapperBuilderAssistant builder = new MapperBuilderAssistant(new Configuration(), "resource");
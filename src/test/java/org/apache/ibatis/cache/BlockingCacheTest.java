@@ -0,0 +1,123 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.cache.decorators.BlockingCache;
+import org.apache.ibatis.cache.decorators.SynchronizedCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.junit.jupiter.api.Test;
+
+class BlockingCacheTest {
+
+  @Test
+  void shouldShareOneLoadBetweenConcurrentMisses() throws Exception {
+    BlockingCache cache = new BlockingCache(new SynchronizedCache(new PerpetualCache("default")));
+    AtomicInteger loads = new AtomicInteger();
+    CountDownLatch start = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<Object>> futures = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        futures.add(executor.submit(() -> {
+          start.await();
+          Object value = cache.getObject("key");
+          if (value == null) {
+            loads.incrementAndGet();
+            Thread.sleep(200);
+            value = "loaded";
+            cache.putObject("key", value);
+          }
+          return value;
+        }));
+      }
+      start.countDown();
+      for (Future<Object> future : futures) {
+        assertEquals("loaded", future.get(10, TimeUnit.SECONDS));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    assertEquals(1, loads.get());
+    assertTrue(locksOf(cache).isEmpty());
+  }
+
+  @Test
+  void shouldHandOverLoadWhenLoaderGivesUp() throws Exception {
+    BlockingCache cache = new BlockingCache(new SynchronizedCache(new PerpetualCache("default")));
+    assertNull(cache.getObject("key"));
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<Object> waiter = executor.submit(() -> cache.getObject("key"));
+      Thread.sleep(100);
+      assertFalse(waiter.isDone());
+      cache.removeObject("key");
+      assertNull(waiter.get(10, TimeUnit.SECONDS));
+      executor.submit(() -> cache.putObject("key", "value")).get(10, TimeUnit.SECONDS);
+    } finally {
+      executor.shutdownNow();
+    }
+    assertEquals("value", cache.getObject("key"));
+    assertTrue(locksOf(cache).isEmpty());
+  }
+
+  @Test
+  void shouldNotBlockReadsOfOtherKeys() throws Exception {
+    BlockingCache cache = new BlockingCache(new SynchronizedCache(new PerpetualCache("default")));
+    cache.putObject("other", "value");
+    assertNull(cache.getObject("key"));
+    assertEquals("value", cache.getObject("other"));
+    assertNull(cache.getObject("key"));
+    cache.putObject("key", "loaded");
+    assertEquals("loaded", cache.getObject("key"));
+    assertTrue(locksOf(cache).isEmpty());
+  }
+
+  @Test
+  void shouldTimeOutWaitingForLoad() throws Exception {
+    BlockingCache cache = new BlockingCache(new SynchronizedCache(new PerpetualCache("default")));
+    cache.setTimeout(100);
+    assertNull(cache.getObject("key"));
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<Object> waiter = executor.submit(() -> cache.getObject("key"));
+      Exception e = assertThrows(Exception.class, () -> waiter.get(10, TimeUnit.SECONDS));
+      assertTrue(e.getCause() instanceof CacheException);
+    } finally {
+      executor.shutdownNow();
+      cache.removeObject("key");
+    }
+  }
+
+  private static Map<?, ?> locksOf(BlockingCache cache) throws Exception {
+    Field field = BlockingCache.class.getDeclaredField("locks");
+    field.setAccessible(true);
+    return (Map<?, ?>) field.get(cache);
+  }
+
+}
@@ -0,0 +1,100 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.ibatis.cache.impl.BoundedLocalCache;
+import org.junit.jupiter.api.Test;
+
+class BoundedLocalCacheTest {
+
+  @Test
+  void shouldNotEvictBeforeRequested() {
+    BoundedLocalCache cache = new BoundedLocalCache("local", 5, 0);
+    for (int i = 0; i < 10; i++) {
+      cache.putObject(i, i);
+    }
+    assertEquals(10, cache.getSize());
+    cache.evictIfNecessary(key -> { });
+    assertEquals(5, cache.getSize());
+  }
+
+  @Test
+  void shouldEvictLeastRecentlyUsedEntries() {
+    BoundedLocalCache cache = new BoundedLocalCache("local", 2, 0);
+    List<Object> evicted = new ArrayList<>();
+    cache.putObject(0, 0);
+    cache.putObject(1, 1);
+    cache.getObject(0);
+    cache.putObject(2, 2);
+    cache.evictIfNecessary(evicted::add);
+    assertEquals(Arrays.asList(1), evicted);
+    assertNotNull(cache.getObject(0));
+    assertNull(cache.getObject(1));
+    assertNotNull(cache.getObject(2));
+  }
+
+  @Test
+  void shouldEvictByEstimatedBytes() {
+    BoundedLocalCache cache = new BoundedLocalCache("local", 0, 4096);
+    for (int i = 0; i < 100; i++) {
+      cache.putObject(i, new byte[1024]);
+    }
+    cache.evictIfNecessary(key -> { });
+    assertTrue(cache.getSize() < 4);
+    assertTrue(cache.getStats().getEstimatedBytes() <= 4096);
+    assertNotNull(cache.getObject(99));
+  }
+
+  @Test
+  void shouldReplaceEntriesWithoutLeakingWeight() {
+    BoundedLocalCache cache = new BoundedLocalCache("local", 0, 1 << 20);
+    cache.putObject(0, new byte[1024]);
+    long oneEntry = cache.getStats().getEstimatedBytes();
+    cache.putObject(0, new byte[1024]);
+    assertEquals(oneEntry, cache.getStats().getEstimatedBytes());
+    cache.removeObject(0);
+    assertEquals(0, cache.getStats().getEstimatedBytes());
+  }
+
+  @Test
+  void shouldCollectStatistics() {
+    BoundedLocalCache cache = new BoundedLocalCache("local", 1, 0);
+    cache.putObject(0, 0);
+    cache.putObject(1, 1);
+    cache.getObject(1);
+    cache.getObject(2);
+    cache.evictIfNecessary(key -> { });
+    cache.clear();
+    CacheStats stats = cache.getStats();
+    assertEquals(0, stats.getSize());
+    assertEquals(1, stats.getHitCount());
+    assertEquals(1, stats.getMissCount());
+    assertEquals(2, stats.getPutCount());
+    assertEquals(1, stats.getEvictionCount());
+    assertEquals(1, stats.getClearCount());
+    assertEquals(-1, stats.getEstimatedBytes());
+  }
+
+}
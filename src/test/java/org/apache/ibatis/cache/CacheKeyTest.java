@@ -103,6 +103,62 @@ class CacheKeyTest {
     Assertions.assertEquals(cacheKey, serialize(cacheKey));
   }
 
+  @Test
+  void primitiveUpdatesShouldEqualBoxedUpdates() {
+    CacheKey primitive = new CacheKey();
+    primitive.update(5);
+    primitive.update(7L);
+    CacheKey boxed = new CacheKey(new Object[] { Integer.valueOf(5), Long.valueOf(7L) });
+    assertEquals(primitive, boxed);
+    assertEquals(primitive.hashCode(), boxed.hashCode());
+    assertEquals(primitive.toString(), boxed.toString());
+  }
+
+  @Test
+  void intAndLongComponentsShouldNotBeEqual() {
+    CacheKey intKey = new CacheKey();
+    intKey.update(5);
+    CacheKey longKey = new CacheKey();
+    longKey.update(5L);
+    assertNotEquals(intKey, longKey);
+  }
+
+  @Test
+  void shouldGrowBeyondExpectedUpdateCount() {
+    CacheKey key1 = new CacheKey(1);
+    CacheKey key2 = new CacheKey();
+    for (int i = 0; i < 20; i++) {
+      key1.update("value" + i);
+      key1.update(i);
+      key2.update("value" + i);
+      key2.update(i);
+    }
+    assertEquals(40, key1.getUpdateCount());
+    assertEquals(key1, key2);
+    assertEquals(key1.hashCode(), key2.hashCode());
+  }
+
+  @Test
+  void cloneShouldNotShareComponents() throws Exception {
+    CacheKey key = new CacheKey(1);
+    key.update(1L);
+    CacheKey clonedKey = key.clone();
+    assertEquals(key, clonedKey);
+    clonedKey.update(2L);
+    key.update(3L);
+    assertNotEquals(key, clonedKey);
+    assertEquals(2, key.getUpdateCount());
+  }
+
+  @Test
+  void serializationWithPrimitivesTest() throws Exception {
+    CacheKey cacheKey = new CacheKey();
+    cacheKey.update("serializable");
+    cacheKey.update(10);
+    cacheKey.update(20L);
+    Assertions.assertEquals(cacheKey, serialize(cacheKey));
+  }
+
   private static <T> T serialize(T object) throws Exception {
       ByteArrayOutputStream baos = new ByteArrayOutputStream();
       new ObjectOutputStream(baos).writeObject(object);
@@ -0,0 +1,91 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.ibatis.cache.decorators.TinyLfuCache;
+import org.apache.ibatis.cache.impl.OffHeapCache;
+import org.apache.ibatis.cache.metrics.DefaultCacheMetrics;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.junit.jupiter.api.Test;
+
+class CacheMetricsTest {
+
+  @Test
+  void shouldRecordReadsWritesAndEvictions() {
+    CacheMetrics metrics = new DefaultCacheMetrics();
+    Cache cache = new CacheBuilder("default").size(2).metrics(metrics).build();
+    cache.putObject(0, 0);
+    cache.putObject(1, 1);
+    assertEquals(0, cache.getObject(0));
+    assertNull(cache.getObject(2));
+    cache.putObject(2, 2);
+    CacheStats stats = metrics.snapshot();
+    assertEquals(3, stats.getPutCount());
+    assertEquals(1, stats.getHitCount());
+    assertEquals(1, stats.getMissCount());
+    assertEquals(2, stats.getRequestCount());
+    assertEquals(1, stats.getEvictionCount());
+    assertEquals(2, stats.getSize());
+    assertEquals(-1, stats.getEstimatedBytes());
+  }
+
+  @Test
+  void shouldRecordBulkPutsAndClears() {
+    CacheMetrics metrics = new DefaultCacheMetrics();
+    Cache cache = new CacheBuilder("default").metrics(metrics).build();
+    Map<Object, Object> entries = new HashMap<>();
+    entries.put(0, 0);
+    entries.put(1, 1);
+    cache.putAll(entries);
+    cache.clear();
+    CacheStats stats = metrics.snapshot();
+    assertEquals(2, stats.getPutCount());
+    assertEquals(1, stats.getClearCount());
+    assertEquals(0, stats.getSize());
+  }
+
+  @Test
+  void shouldRecordEstimatedBytesOfBoundedCaches() {
+    CacheMetrics metrics = new DefaultCacheMetrics();
+    Properties properties = new Properties();
+    properties.setProperty("maxBytes", "1048576");
+    Cache cache = new CacheBuilder("default").addDecorator(TinyLfuCache.class).properties(properties).metrics(metrics).build();
+    cache.putObject(0, "value");
+    assertTrue(metrics.snapshot().getEstimatedBytes() > 0);
+
+    CacheMetrics offHeapMetrics = new DefaultCacheMetrics();
+    Cache offHeapCache = new CacheBuilder("default").implementation(OffHeapCache.class).metrics(offHeapMetrics).build();
+    offHeapCache.putObject(0, "value");
+    assertTrue(offHeapMetrics.snapshot().getEstimatedBytes() > 0);
+    offHeapCache.clear();
+    assertEquals(0, offHeapMetrics.snapshot().getEstimatedBytes());
+  }
+
+  @Test
+  void shouldReportNoRatioBeforeFirstRead() {
+    CacheStats stats = new DefaultCacheMetrics().snapshot();
+    assertEquals(0, stats.getHitRatio());
+    assertEquals(0, stats.getAverageGetTime());
+    assertEquals(-1, stats.getSize());
+  }
+
+}
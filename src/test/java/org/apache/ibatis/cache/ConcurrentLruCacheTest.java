@@ -0,0 +1,128 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.cache.decorators.ConcurrentLruCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.junit.jupiter.api.Test;
+
+class ConcurrentLruCacheTest {
+
+  @Test
+  void shouldRemoveLeastRecentlyUsedItemInBeyondFiveEntries() {
+    ConcurrentLruCache cache = new ConcurrentLruCache(new PerpetualCache("default"));
+    cache.setSize(5);
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+    }
+    assertEquals(0, cache.getObject(0));
+    cache.putObject(5, 5);
+    assertNull(cache.getObject(1));
+    assertEquals(0, cache.getObject(0));
+    assertEquals(5, cache.getSize());
+  }
+
+  @Test
+  void shouldEvictUnreadItemsFirst() {
+    ConcurrentLruCache cache = new ConcurrentLruCache(new PerpetualCache("default"));
+    cache.setSize(3);
+    Map<Object, Object> entries = new HashMap<>();
+    for (int i = 0; i < 3; i++) {
+      entries.put(i, i);
+    }
+    cache.putAll(entries);
+    cache.getObject(0);
+    cache.getObject(2);
+    cache.putObject(3, 3);
+    cache.putObject(4, 4);
+    assertNull(cache.getObject(1));
+    assertEquals(3, cache.getSize());
+    assertNotNull(cache.getObject(4));
+  }
+
+  @Test
+  void shouldNotEvictAnotherEntryForRemovedItems() {
+    ConcurrentLruCache cache = new ConcurrentLruCache(new PerpetualCache("default"));
+    cache.setSize(2);
+    cache.putObject(0, 0);
+    cache.removeObject(0);
+    cache.putObject(1, 1);
+    cache.putObject(2, 2);
+    assertEquals(1, cache.getObject(1));
+    assertEquals(2, cache.getObject(2));
+  }
+
+  @Test
+  void shouldRemoveItemOnDemand() {
+    ConcurrentLruCache cache = new ConcurrentLruCache(new PerpetualCache("default"));
+    cache.putObject(0, 0);
+    assertNotNull(cache.getObject(0));
+    cache.removeObject(0);
+    assertNull(cache.getObject(0));
+  }
+
+  @Test
+  void shouldFlushAllItemsOnDemand() {
+    ConcurrentLruCache cache = new ConcurrentLruCache(new PerpetualCache("default"));
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+    }
+    assertNotNull(cache.getObject(0));
+    assertNotNull(cache.getObject(4));
+    cache.clear();
+    assertNull(cache.getObject(0));
+    assertNull(cache.getObject(4));
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  void shouldStayBoundedUnderConcurrentReadsAndWrites() throws Exception {
+    ConcurrentLruCache cache = new ConcurrentLruCache(new PerpetualCache("default"));
+    cache.setSize(100);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        final int offset = t * 10000;
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < 10000; i++) {
+            cache.putObject(offset + i, i);
+            cache.getObject(offset + i / 2);
+            cache.putObject(offset, i);
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get(30, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    assertTrue(cache.getSize() <= 100);
+  }
+
+}
@@ -15,6 +15,9 @@
  */
 package org.apache.ibatis.cache;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import org.apache.ibatis.cache.decorators.FifoCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import static org.junit.jupiter.api.Assertions.*;
@@ -35,6 +38,24 @@ class FifoCacheTest {
     assertEquals(5, cache.getSize());
   }
 
+  @Test
+  void shouldRemoveItemsBeyondSizeWhenPuttingAll() {
+    FifoCache cache = new FifoCache(new PerpetualCache("default"));
+    cache.setSize(5);
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+    }
+    assertEquals(0, cache.getObject(0));
+    Map<Object, Object> entries = new LinkedHashMap<>();
+    entries.put(5, 5);
+    entries.put(6, 6);
+    cache.putAll(entries);
+    assertNull(cache.getObject(0));
+    assertEquals(5, cache.getObject(5));
+    assertEquals(6, cache.getObject(6));
+    assertEquals(5, cache.getSize());
+  }
+
   @Test
   void shouldRemoveItemOnDemand() {
     FifoCache cache = new FifoCache(new PerpetualCache("default"));
@@ -0,0 +1,153 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.ibatis.cache.decorators.LoggingCache;
+import org.apache.ibatis.cache.impl.LoopbackRemoteCache;
+import org.apache.ibatis.cache.impl.NearCache;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.junit.jupiter.api.Test;
+
+class NearCacheTest {
+
+  @Test
+  void shouldShareEntriesThroughTheRemoteTier() {
+    NearCache node1 = new NearCache("shouldShareEntriesThroughTheRemoteTier");
+    NearCache node2 = new NearCache("shouldShareEntriesThroughTheRemoteTier");
+    node1.putObject("key", "value");
+    assertEquals(0, node2.getNearSize());
+    assertEquals("value", node2.getObject("key"));
+    assertEquals(1, node2.getNearSize());
+  }
+
+  @Test
+  void shouldInvalidateNearCopiesOfOtherNodes() {
+    NearCache node1 = new NearCache("shouldInvalidateNearCopiesOfOtherNodes");
+    NearCache node2 = new NearCache("shouldInvalidateNearCopiesOfOtherNodes");
+    node1.putObject("key", "value");
+    assertEquals("value", node2.getObject("key"));
+
+    node1.clear();
+    assertEquals(0, node2.getNearSize());
+    assertNull(node2.getObject("key"));
+  }
+
+  @Test
+  void shouldOnlyDropNearCopyOnRemove() {
+    NearCache node1 = new NearCache("shouldOnlyDropNearCopyOnRemove");
+    NearCache node2 = new NearCache("shouldOnlyDropNearCopyOnRemove");
+    node1.putObject("key", "value");
+    assertEquals("value", node2.getObject("key"));
+
+    node1.removeObject("key");
+    assertEquals(0, node1.getNearSize());
+    assertEquals(1, node2.getNearSize());
+    assertEquals("value", node1.getObject("key"));
+  }
+
+  @Test
+  void shouldNotCopyValuesReadDuringAnInvalidation() {
+    NearCache node1 = new NearCache("shouldNotCopyValuesReadDuringAnInvalidation");
+    node1.putObject("key", "stale");
+    NearCache node2 = new NearCache("shouldNotCopyValuesReadDuringAnInvalidation");
+    node2.setRemote(InvalidatingRemoteCache.class.getName());
+    InvalidatingRemoteCache.onRead = () -> node1.clear();
+    try {
+      assertEquals("stale", node2.getObject("key"));
+    } finally {
+      InvalidatingRemoteCache.onRead = null;
+    }
+    assertEquals(0, node2.getNearSize());
+  }
+
+  @Test
+  void shouldIgnoreOtherCaches() {
+    NearCache cache1 = new NearCache("shouldIgnoreOtherCaches1");
+    NearCache cache2 = new NearCache("shouldIgnoreOtherCaches2");
+    cache2.putObject("key", "value");
+    cache1.clear();
+    assertEquals(1, cache2.getNearSize());
+  }
+
+  @Test
+  void shouldUseCustomBus() {
+    RecordingBus.messages.clear();
+    NearCache cache = new NearCache("shouldUseCustomBus");
+    cache.setBus(RecordingBus.class.getName());
+    cache.putObject("key", "value");
+    assertTrue(RecordingBus.messages.isEmpty());
+    cache.removeObject("key");
+    assertTrue(RecordingBus.messages.isEmpty());
+    cache.clear();
+    assertEquals(1, RecordingBus.messages.size());
+    assertTrue(RecordingBus.messages.get(0).isClear());
+  }
+
+  @Test
+  void shouldBeConfiguredByCacheBuilder() {
+    Properties properties = new Properties();
+    properties.setProperty("nearSize", "10");
+    properties.setProperty("bus", RecordingBus.class.getName());
+    Cache cache = new CacheBuilder("shouldBeConfiguredByCacheBuilder").implementation(NearCache.class)
+        .properties(properties).build();
+    assertTrue(cache instanceof LoggingCache);
+    cache.putObject("key", "value");
+    assertEquals("value", cache.getObject("key"));
+  }
+
+  public static class InvalidatingRemoteCache extends LoopbackRemoteCache {
+
+    static Runnable onRead;
+
+    public InvalidatingRemoteCache(String id) {
+      super(id);
+    }
+
+    @Override
+    public Object getObject(Object key) {
+      Object value = super.getObject(key);
+      if (onRead != null) {
+        onRead.run();
+      }
+      return value;
+    }
+  }
+
+  public static class RecordingBus implements InvalidationBus {
+
+    static final List<InvalidationMessage> messages = new ArrayList<>();
+
+    @Override
+    public void publish(InvalidationMessage message) {
+      messages.add(message);
+    }
+
+    @Override
+    public void subscribe(Listener listener) {
+    }
+
+    @Override
+    public void unsubscribe(Listener listener) {
+    }
+  }
+
+}
@@ -0,0 +1,139 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.cache.impl.OffHeapCache;
+import org.junit.jupiter.api.Test;
+
+class OffHeapCacheTest {
+
+  @Test
+  void shouldReturnCopyOfStoredObject() {
+    OffHeapCache cache = new OffHeapCache("default");
+    List<String> rows = new ArrayList<>();
+    rows.add("a");
+    rows.add("b");
+    cache.putObject(0, rows);
+    Object cached = cache.getObject(0);
+    assertEquals(rows, cached);
+    assertNotSame(rows, cached);
+    assertEquals(1, cache.getSize());
+  }
+
+  @Test
+  void shouldEvictOldestSegmentWhenFull() {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setMaxBytes(4096);
+    cache.setSegmentBytes(1024);
+    char[] padding = new char[100];
+    Arrays.fill(padding, 'x');
+    for (int i = 0; i < 200; i++) {
+      cache.putObject(i, new String(padding) + i);
+    }
+    assertNull(cache.getObject(0));
+    assertEquals(new String(padding) + 199, cache.getObject(199));
+    assertTrue(cache.getSize() < 200);
+  }
+
+  @Test
+  void shouldNotCacheObjectLargerThanSegment() {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setSegmentBytes(128);
+    cache.putObject(0, new byte[1024]);
+    assertNull(cache.getObject(0));
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  void shouldRejectNonSerializableObject() {
+    OffHeapCache cache = new OffHeapCache("default");
+    assertThrows(CacheException.class, () -> cache.putObject(0, new Object()));
+  }
+
+  @Test
+  void shouldReplaceExistingItem() {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.putObject(0, "a");
+    cache.putObject(0, "b");
+    assertEquals("b", cache.getObject(0));
+    cache.putObject(0, null);
+    assertNull(cache.getObject(0));
+  }
+
+  @Test
+  void shouldRemoveItemOnDemand() {
+    Cache cache = new OffHeapCache("default");
+    cache.putObject(0, 0);
+    assertNotNull(cache.getObject(0));
+    cache.removeObject(0);
+    assertNull(cache.getObject(0));
+  }
+
+  @Test
+  void shouldFlushAllItemsOnDemand() {
+    Cache cache = new OffHeapCache("default");
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+    }
+    assertNotNull(cache.getObject(0));
+    assertNotNull(cache.getObject(4));
+    cache.clear();
+    assertNull(cache.getObject(0));
+    assertNull(cache.getObject(4));
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  void shouldReadConsistentValuesUnderConcurrentAccess() throws Exception {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setMaxBytes(8192);
+    cache.setSegmentBytes(1024);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        final int seed = t;
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < 20_000; i++) {
+            int key = (i * 31 + seed) % 512;
+            Object value = cache.getObject(key);
+            if (value == null) {
+              cache.putObject(key, "value" + key);
+            } else {
+              assertEquals("value" + key, value);
+            }
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get(30, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+}
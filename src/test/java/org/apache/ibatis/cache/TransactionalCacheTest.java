@@ -0,0 +1,216 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.cache.decorators.BlockingCache;
+import org.apache.ibatis.cache.decorators.LoggingCache;
+import org.apache.ibatis.cache.decorators.LruCache;
+import org.apache.ibatis.cache.decorators.SerializedCache;
+import org.apache.ibatis.cache.decorators.SynchronizedCache;
+import org.apache.ibatis.cache.decorators.TransactionalCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.junit.jupiter.api.Test;
+
+class TransactionalCacheTest {
+
+  @Test
+  void shouldFlushPendingEntriesWithOneBulkPut() {
+    CountingCache counting = new CountingCache("default");
+    Cache cache = new SynchronizedCache(new LoggingCache(new SerializedCache(new LruCache(counting))));
+    TransactionalCache transactionalCache = new TransactionalCache(cache);
+    assertNull(transactionalCache.getObject("missed"));
+    for (int i = 0; i < 10; i++) {
+      transactionalCache.putObject(i, "value" + i);
+    }
+    assertNull(cache.getObject(0));
+    transactionalCache.commit();
+    assertEquals(1, counting.putAllCalls);
+    assertEquals(0, counting.putObjectCalls);
+    assertEquals(11, cache.getSize());
+    assertEquals("value9", cache.getObject(9));
+  }
+
+  @Test
+  void shouldDiscardPendingEntriesOnRollback() {
+    Cache cache = new PerpetualCache("default");
+    TransactionalCache transactionalCache = new TransactionalCache(cache);
+    transactionalCache.putObject(0, 0);
+    transactionalCache.rollback();
+    transactionalCache.commit();
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  void shouldWriteBehindOnCommit() throws Exception {
+    CountDownLatch written = new CountDownLatch(1);
+    Cache cache = new PerpetualCache("default") {
+      @Override
+      public void putAll(Map<Object, Object> entries) {
+        super.putAll(entries);
+        written.countDown();
+      }
+    };
+    cache.putObject("stale", "stale");
+    TransactionalCache transactionalCache = new TransactionalCache(cache, true);
+    transactionalCache.clear();
+    transactionalCache.putObject(0, 0);
+    transactionalCache.commit();
+    // 提交时立即清空缓存
+    assertNull(cache.getObject("stale"));
+    assertTrue(written.await(5, TimeUnit.SECONDS));
+    assertEquals(0, cache.getObject(0));
+  }
+
+  @Test
+  void shouldDropWritesQueuedBeforeAClear() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    Cache slow = new PerpetualCache("slow") {
+      @Override
+      public void putAll(Map<Object, Object> entries) {
+        try {
+          release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        super.putAll(entries);
+      }
+    };
+    CountDownLatch written = new CountDownLatch(1);
+    Cache cache = new PerpetualCache("epoch") {
+      @Override
+      public void putAll(Map<Object, Object> entries) {
+        super.putAll(entries);
+        written.countDown();
+      }
+    };
+    // 后台线程忙于写入其他缓存，之后提交的写入都在队列中等待
+    TransactionalCache busy = new TransactionalCache(slow, true);
+    busy.putObject(0, 0);
+    busy.commit();
+    TransactionalCache reader = new TransactionalCache(cache, true);
+    reader.putObject("user", "stale");
+    reader.commit();
+    TransactionalCache writer = new TransactionalCache(cache, true);
+    writer.clear();
+    writer.putObject("order", "fresh");
+    writer.commit();
+    release.countDown();
+    assertTrue(written.await(5, TimeUnit.SECONDS));
+    assertNull(cache.getObject("user"));
+    assertEquals("fresh", cache.getObject("order"));
+    assertEquals(1, cache.getSize());
+  }
+
+  @Test
+  void shouldReleaseBlockingLocksOnCommitInWriteBehindMode() throws Exception {
+    BlockingCache cache = new BlockingCache(new PerpetualCache("default"));
+    cache.setTimeout(5000);
+    TransactionalCache transactionalCache = new TransactionalCache(cache, true);
+    assertNull(transactionalCache.getObject(0));
+    transactionalCache.putObject(0, 0);
+    transactionalCache.commit();
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<Object> value = executor.submit(() -> cache.getObject(0));
+      assertEquals(0, value.get(5, TimeUnit.SECONDS));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void shouldNotCacheResultsLoadedBeforeAConcurrentInvalidation() {
+    Cache cache = new PerpetualCache("default");
+    CacheTagRegistry tagRegistry = new CacheTagRegistry();
+    tagRegistry.register(cache.getId());
+    String[] users = { "users" };
+    TransactionalCache reader = new TransactionalCache(cache, false, tagRegistry);
+    TransactionalCache writer = new TransactionalCache(cache, false, tagRegistry);
+    assertNull(reader.getObject("user", users));
+    // 读事务查询数据库期间，写事务提交了对users的修改
+    writer.invalidate(users);
+    writer.commit();
+    reader.putObject("user", "stale", users);
+    reader.commit();
+    assertNull(reader.getObject("user", users));
+  }
+
+  @Test
+  void shouldKeepEntriesOfOtherTags() {
+    Cache cache = new PerpetualCache("default");
+    CacheTagRegistry tagRegistry = new CacheTagRegistry();
+    tagRegistry.register(cache.getId());
+    String[] users = { "users" };
+    String[] orders = { "orders" };
+    TransactionalCache transactionalCache = new TransactionalCache(cache, false, tagRegistry);
+    transactionalCache.putObject("user", "user", users);
+    transactionalCache.putObject("order", "order", orders);
+    transactionalCache.putObject("all", "all", null);
+    transactionalCache.commit();
+    transactionalCache.invalidate(users);
+    // 提交之前其他事务仍然可以读取
+    assertEquals("user", new TransactionalCache(cache, false, tagRegistry).getObject("user", users));
+    assertNull(transactionalCache.getObject("user", users));
+    assertNull(transactionalCache.getObject("all", null));
+    assertEquals("order", transactionalCache.getObject("order", orders));
+    transactionalCache.commit();
+    assertNull(transactionalCache.getObject("user", users));
+    assertNull(transactionalCache.getObject("all", null));
+    assertEquals("order", transactionalCache.getObject("order", orders));
+    assertEquals(3, cache.getSize());
+  }
+
+  @Test
+  void shouldClearCachesWithoutTagsOnInvalidate() {
+    Cache cache = new PerpetualCache("default");
+    cache.putObject("user", "user");
+    TransactionalCache transactionalCache = new TransactionalCache(cache, false, new CacheTagRegistry());
+    transactionalCache.invalidate(new String[] { "users" });
+    transactionalCache.commit();
+    assertEquals(0, cache.getSize());
+  }
+
+  private static class CountingCache extends PerpetualCache {
+    private int putObjectCalls;
+    private int putAllCalls;
+
+    CountingCache(String id) {
+      super(id);
+    }
+
+    @Override
+    public void putObject(Object key, Object value) {
+      putObjectCalls++;
+      super.putObject(key, value);
+    }
+
+    @Override
+    public void putAll(Map<Object, Object> entries) {
+      putAllCalls++;
+      super.putAll(entries);
+    }
+  }
+
+}
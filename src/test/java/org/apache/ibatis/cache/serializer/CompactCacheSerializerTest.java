@@ -0,0 +1,194 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.serializer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheSerializer;
+import org.apache.ibatis.cache.decorators.SerializedCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.junit.jupiter.api.Test;
+
+class CompactCacheSerializerTest {
+
+  private final CacheSerializer serializer = new CompactCacheSerializer();
+
+  @SuppressWarnings("unchecked")
+  private <T> T copy(T value) {
+    return (T) serializer.deserialize(serializer.serialize(value));
+  }
+
+  @Test
+  void shouldCopyValueTypes() {
+    Timestamp timestamp = new Timestamp(1234567890123L);
+    timestamp.setNanos(123456789);
+    List<Object> values = Arrays.asList(null, true, false, 1, -1L, Long.MIN_VALUE, (short) 2, (byte) 3, 'c', 1.5f,
+        2.5d, "text", "中文", new BigDecimal("-12345.6789"), new BigInteger("123456789012345678901234567890"),
+        new Date(1000L), new java.sql.Date(2000L), new java.sql.Time(3000L), timestamp, Section.NEWS);
+    for (Object value : values) {
+      assertEquals(value, copy(value));
+    }
+    assertArrayEquals(new byte[] { 1, 2, 3 }, copy(new byte[] { 1, 2, 3 }));
+    assertArrayEquals(new int[] { 1, 2, 3 }, copy(new int[] { 1, 2, 3 }));
+    assertArrayEquals(new String[] { "a", null }, copy(new String[] { "a", null }));
+  }
+
+  @Test
+  void shouldCopyCollectionsAndMaps() {
+    List<Object> list = new ArrayList<>(Arrays.asList(1, "two", null));
+    LinkedList<Object> linkedList = new LinkedList<>(list);
+    LinkedHashSet<Object> set = new LinkedHashSet<>(Arrays.asList("b", "a"));
+    Map<String, Object> map = new HashMap<>();
+    map.put("id", 1);
+    map.put("name", "value");
+    Map<String, Object> linkedMap = new LinkedHashMap<>(map);
+
+    assertEquals(list, copy(list));
+    assertEquals(LinkedList.class, copy(linkedList).getClass());
+    assertEquals(new ArrayList<>(set), new ArrayList<>(copy(set)));
+    assertEquals(map, copy(map));
+    assertEquals(LinkedHashMap.class, copy(linkedMap).getClass());
+  }
+
+  @Test
+  void shouldCopyBeansThroughTheirProperties() {
+    Author author = new Author(101, "jim", "********", "jim@ibatis.apache.org", "Something...", Section.NEWS);
+    Author copy = copy(author);
+    assertNotSame(author, copy);
+    assertEquals(author, copy);
+    assertEquals(Section.NEWS, copy.getFavouriteSection());
+  }
+
+  @Test
+  void shouldPreserveSharedAndCyclicReferences() {
+    Node parent = new Node();
+    parent.setName("parent");
+    Node child = new Node();
+    child.setName("child");
+    child.setParent(parent);
+    parent.getChildren().add(child);
+    parent.getChildren().add(child);
+
+    Node copy = copy(parent);
+    assertEquals("parent", copy.getName());
+    assertEquals(2, copy.getChildren().size());
+    assertSame(copy.getChildren().get(0), copy.getChildren().get(1));
+    assertSame(copy, copy.getChildren().get(0).getParent());
+  }
+
+  @Test
+  void shouldWriteNullOverConstructorDefaults() {
+    Node node = new Node();
+    node.setName(null);
+    assertNull(copy(node).getName());
+  }
+
+  @Test
+  void shouldFallBackToJavaSerialization() {
+    NoDefaultConstructor value = new NoDefaultConstructor("value");
+    assertEquals("value", copy(value).value);
+    assertEquals(LocalDate.of(2019, 11, 1), copy(LocalDate.of(2019, 11, 1)));
+  }
+
+  @Test
+  void shouldRejectNonSerializableObjects() {
+    List<Object> list = new ArrayList<>();
+    list.add(new Object());
+    assertThrows(CacheException.class, () -> serializer.serialize(list));
+  }
+
+  @Test
+  void shouldBeSmallerThanJavaSerialization() {
+    List<Author> authors = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      authors.add(new Author(i, "user" + i, "password", "user" + i + "@example.com", null, Section.NEWS));
+    }
+    int compactSize = serializer.serialize(authors).length;
+    int jdkSize = new JdkCacheSerializer().serialize(authors).length;
+    assertTrue(compactSize < jdkSize, compactSize + " >= " + jdkSize);
+    assertEquals(authors, copy(authors));
+  }
+
+  @Test
+  void shouldBeUsedBySerializedCache() {
+    SerializedCache cache = new SerializedCache(new PerpetualCache("default"), serializer);
+    Author author = new Author(1);
+    cache.putObject(0, author);
+    Object cached = cache.getObject(0);
+    assertEquals(author, cached);
+    assertNotSame(author, cached);
+    assertNotSame(cached, cache.getObject(0));
+  }
+
+  public static class Node implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private String name = "unnamed";
+    private Node parent;
+    private List<Node> children = new ArrayList<>();
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    public Node getParent() {
+      return parent;
+    }
+
+    public void setParent(Node parent) {
+      this.parent = parent;
+    }
+
+    public List<Node> getChildren() {
+      return children;
+    }
+
+    public void setChildren(List<Node> children) {
+      this.children = children;
+    }
+  }
+
+  static class NoDefaultConstructor implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private final String value;
+
+    NoDefaultConstructor(String value) {
+      this.value = value;
+    }
+  }
+
+}
@@ -0,0 +1,80 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+
+  @Test
+  void shouldReportEmptyHistogram() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    assertEquals(0, histogram.getCount());
+    assertEquals(0, histogram.getMean());
+    assertEquals(0, histogram.getPercentile(99));
+  }
+
+  @Test
+  void shouldCountValuesInPowerOfTwoBuckets() {
+    assertEquals(0, LatencyHistogram.bucketIndex(0));
+    assertEquals(1, LatencyHistogram.bucketIndex(1));
+    assertEquals(2, LatencyHistogram.bucketIndex(3));
+    assertEquals(3, LatencyHistogram.bucketIndex(4));
+    assertEquals(11, LatencyHistogram.bucketIndex(1500));
+    assertEquals(2047, LatencyHistogram.bucketUpperBound(11));
+  }
+
+  @Test
+  void shouldReportPercentiles() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 0; i < 99; i++) {
+      histogram.record(1);
+    }
+    histogram.record(1500);
+    assertEquals(100, histogram.getCount());
+    assertEquals(1500, histogram.getMax());
+    assertEquals(15, histogram.getMean());
+    assertEquals(1, histogram.getPercentile(50));
+    assertEquals(1, histogram.getPercentile(99));
+    assertEquals(1500, histogram.getPercentile(99.9));
+    histogram.reset();
+    assertEquals(0, histogram.getCount());
+  }
+
+  @Test
+  void shouldRecordFromManyThreads() throws Exception {
+    LatencyHistogram histogram = new LatencyHistogram();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    for (int i = 0; i < 4; i++) {
+      executor.execute(() -> {
+        for (int j = 0; j < 1000; j++) {
+          histogram.record(j);
+        }
+      });
+    }
+    executor.shutdown();
+    executor.awaitTermination(10, TimeUnit.SECONDS);
+    assertEquals(4000, histogram.getCount());
+    assertEquals(999, histogram.getMax());
+  }
+
+}
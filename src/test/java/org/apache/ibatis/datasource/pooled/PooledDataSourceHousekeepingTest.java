@@ -0,0 +1,212 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.io.Resources;
+import org.junit.jupiter.api.Test;
+
+class PooledDataSourceHousekeepingTest extends BaseDataTest {
+
+  private static final String PING_QUERY = "SELECT 1 FROM INFORMATION_SCHEMA.SYSTEM_USERS";
+
+  @Test
+  void shouldOpenMinimumIdleConnections() throws Exception {
+    PooledDataSource ds = createDataSource(new PooledDataSource());
+    try {
+      ds.setPoolMinimumIdleConnections(2);
+      ds.housekeep();
+      assertEquals(2, ds.getPoolState().getIdleConnectionCount());
+      assertEquals(0, ds.getPoolState().getRequestCount());
+      ds.getConnection().close();
+      assertEquals(2, ds.getPoolState().getIdleConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldNotOpenMoreThanMaximumIdleConnections() throws Exception {
+    PooledDataSource ds = createDataSource(new PooledDataSource());
+    try {
+      ds.setPoolMaximumIdleConnections(1);
+      ds.setPoolMinimumIdleConnections(3);
+      ds.housekeep();
+      assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldEvictConnectionsPastMaximumLifetime() throws Exception {
+    PooledDataSource ds = createDataSource(new PooledDataSource());
+    try {
+      Connection c = ds.getConnection();
+      Connection real = PooledDataSource.unwrapConnection(c);
+      c.close();
+      assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+      ds.setPoolMaximumLifetime(1);
+      Thread.sleep(20);
+      ds.housekeep();
+      assertEquals(0, ds.getPoolState().getIdleConnectionCount());
+      assertTrue(real.isClosed());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldCloseConnectionPastMaximumLifetimeOnReturn() throws Exception {
+    PooledDataSource ds = createDataSource(new PooledDataSource());
+    try {
+      ds.setPoolMaximumLifetime(1);
+      Connection c = ds.getConnection();
+      Thread.sleep(20);
+      c.close();
+      assertEquals(0, ds.getPoolState().getIdleConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldEvictIdleConnectionsDownToMinimumIdle() throws Exception {
+    PooledDataSource ds = createDataSource(new PooledDataSource());
+    try {
+      List<Connection> connections = new ArrayList<>();
+      for (int i = 0; i < 3; i++) {
+        connections.add(ds.getConnection());
+      }
+      for (Connection c : connections) {
+        c.close();
+      }
+      ds.setPoolMinimumIdleConnections(1);
+      ds.setPoolMaximumIdleTime(1);
+      Thread.sleep(20);
+      ds.housekeep();
+      assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldValidateIdleConnections() throws Exception {
+    PooledDataSource ds = createDataSource(new PooledDataSource());
+    try {
+      ds.setPoolPingEnabled(true);
+      ds.setPoolPingQuery(PING_QUERY);
+      ds.setPoolPingConnectionsNotUsedFor(0);
+      Connection c1 = ds.getConnection();
+      Connection c2 = ds.getConnection();
+      PooledDataSource.unwrapConnection(c2).close();
+      c1.close();
+      c2.close();
+      assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+      long badConnectionCount = ds.getPoolState().getBadConnectionCount();
+      Thread.sleep(5);
+      ds.housekeep();
+      assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+      assertEquals(badConnectionCount, ds.getPoolState().getBadConnectionCount());
+      assertTrue(ds.getPoolState().idleConnections.get(0).getLastValidatedTimestamp() > 0);
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldEvictIdleConnectionsThatFailValidation() throws Exception {
+    PooledDataSource ds = createDataSource(new PooledDataSource());
+    try {
+      ds.setPoolPingEnabled(true);
+      ds.setPoolPingQuery(PING_QUERY);
+      ds.setPoolPingConnectionsNotUsedFor(0);
+      Connection c = ds.getConnection();
+      c.close();
+      PooledDataSource.unwrapConnection(ds.getPoolState().idleConnections.get(0).getProxyConnection()).close();
+      Thread.sleep(5);
+      ds.housekeep();
+      assertEquals(0, ds.getPoolState().getIdleConnectionCount());
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+      assertEquals(1, ds.getPoolState().getBadConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldRunHousekeepingInBackground() throws Exception {
+    PooledDataSource ds = createDataSource(new PooledDataSource());
+    try {
+      ds.setPoolMinimumIdleConnections(2);
+      ds.setPoolHousekeepingInterval(20);
+      long deadline = System.currentTimeMillis() + 5000;
+      while (ds.getPoolState().getIdleConnectionCount() < 2 && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+      assertEquals(2, ds.getPoolState().getIdleConnectionCount());
+    } finally {
+      ds.setPoolHousekeepingInterval(0);
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldHousekeepConcurrentPool() throws Exception {
+    PooledDataSource ds = createDataSource(new ConcurrentPooledDataSource());
+    try {
+      ds.setPoolMinimumIdleConnections(2);
+      ds.housekeep();
+      assertEquals(2, ds.getPoolState().getIdleConnectionCount());
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+
+      Connection c = ds.getConnection();
+      Connection real = PooledDataSource.unwrapConnection(c);
+      c.close();
+      ds.setPoolMaximumLifetime(1);
+      Thread.sleep(20);
+      ds.housekeep();
+      assertTrue(real.isClosed());
+      assertEquals(2, ds.getPoolState().getIdleConnectionCount());
+      Connection renewed = ds.getConnection();
+      assertNotSame(real, PooledDataSource.unwrapConnection(renewed));
+      renewed.close();
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  private PooledDataSource createDataSource(PooledDataSource ds) throws Exception {
+    Properties props = Resources.getResourceAsProperties(JPETSTORE_PROPERTIES);
+    ds.setDriver(props.getProperty("driver"));
+    ds.setUrl(props.getProperty("url"));
+    ds.setUsername(props.getProperty("username"));
+    ds.setPassword(props.getProperty("password"));
+    return ds;
+  }
+
+}
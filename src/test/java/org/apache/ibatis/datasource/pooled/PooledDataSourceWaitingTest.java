@@ -0,0 +1,190 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.io.Resources;
+import org.junit.jupiter.api.Test;
+
+class PooledDataSourceWaitingTest extends BaseDataTest {
+
+  @Test
+  void shouldFailFastWhenMaximumWaitTimeElapses() throws Exception {
+    assertFailFast(createDataSource(new PooledDataSource()));
+  }
+
+  @Test
+  void shouldFailFastWhenMaximumWaitTimeElapsesInFairMode() throws Exception {
+    PooledDataSource ds = createDataSource(new PooledDataSource());
+    ds.setPoolFairWaiting(true);
+    assertFailFast(ds);
+  }
+
+  @Test
+  void shouldFailFastWhenMaximumWaitTimeElapsesInConcurrentPool() throws Exception {
+    assertFailFast(createDataSource(new ConcurrentPooledDataSource()));
+  }
+
+  @Test
+  void shouldHandConnectionsToWaitersInArrivalOrder() throws Exception {
+    PooledDataSource ds = createDataSource(new PooledDataSource());
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      ds.setPoolFairWaiting(true);
+      ds.setPoolMaximumActiveConnections(1);
+      List<String> order = Collections.synchronizedList(new ArrayList<>());
+      Connection held = ds.getConnection();
+      Future<?> first = executor.submit(() -> checkout(ds, "first", order));
+      awaitWaiters(ds, 1);
+      Future<?> second = executor.submit(() -> checkout(ds, "second", order));
+      awaitWaiters(ds, 2);
+      held.close();
+      first.get(10, TimeUnit.SECONDS);
+      second.get(10, TimeUnit.SECONDS);
+      assertEquals(Arrays.asList("first", "second"), order);
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+      assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+    } finally {
+      executor.shutdownNow();
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldServeAllThreadsInFairMode() throws Exception {
+    PooledDataSource ds = createDataSource(new PooledDataSource());
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      ds.setPoolFairWaiting(true);
+      ds.setPoolMaximumActiveConnections(2);
+      ds.setPoolMaximumIdleConnections(2);
+      // 先占用两个连接，并让所有线程同时开始竞争，保证连接池中的两个连接都被创建并被交替使用
+      Connection held1 = ds.getConnection();
+      Connection held2 = ds.getConnection();
+      CountDownLatch ready = new CountDownLatch(8);
+      CountDownLatch start = new CountDownLatch(1);
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        futures.add(executor.submit(() -> {
+          ready.countDown();
+          start.await();
+          for (int j = 0; j < 50; j++) {
+            try (Connection c = ds.getConnection()) {
+              c.getAutoCommit();
+            }
+          }
+          return null;
+        }));
+      }
+      assertTrue(ready.await(10, TimeUnit.SECONDS));
+      start.countDown();
+      held1.close();
+      held2.close();
+      for (Future<?> future : futures) {
+        future.get(30, TimeUnit.SECONDS);
+      }
+      assertEquals(402, ds.getPoolState().getRequestCount());
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+      assertEquals(2, ds.getPoolState().getIdleConnectionCount());
+    } finally {
+      executor.shutdownNow();
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldCountHandedOffConnectionsAsActive() throws Exception {
+    PooledDataSource ds = createDataSource(new PooledDataSource());
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      ds.setPoolFairWaiting(true);
+      ds.setPoolMaximumActiveConnections(1);
+      ds.setPoolMaximumWaitTime(500);
+      Connection held = ds.getConnection();
+      Future<Connection> waiting = executor.submit(() -> ds.getConnection());
+      awaitWaiters(ds, 1);
+      // 持有连接池的锁，等待的线程在取走交给它的连接之前，其他线程不能创建新连接插队
+      synchronized (ds.getPoolState()) {
+        held.close();
+        assertThrows(SQLException.class, ds::getConnection);
+      }
+      waiting.get(10, TimeUnit.SECONDS).close();
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+      assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+    } finally {
+      executor.shutdownNow();
+      ds.forceCloseAll();
+    }
+  }
+
+  private void assertFailFast(PooledDataSource ds) throws Exception {
+    try {
+      ds.setPoolMaximumActiveConnections(1);
+      ds.setPoolMaximumWaitTime(100);
+      Connection held = ds.getConnection();
+      long start = System.currentTimeMillis();
+      assertThrows(SQLException.class, ds::getConnection);
+      assertTrue(System.currentTimeMillis() - start < 5000);
+      assertEquals(1, ds.getPoolState().getWaitTimeoutCount());
+      held.close();
+      ds.getConnection().close();
+      assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  private Void checkout(PooledDataSource ds, String name, List<String> order) throws SQLException {
+    try (Connection c = ds.getConnection()) {
+      order.add(name);
+    }
+    return null;
+  }
+
+  private void awaitWaiters(PooledDataSource ds, int count) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (ds.getPoolState().getHadToWaitCount() < count && System.currentTimeMillis() < deadline) {
+      Thread.sleep(5);
+    }
+  }
+
+  private PooledDataSource createDataSource(PooledDataSource ds) throws Exception {
+    Properties props = Resources.getResourceAsProperties(JPETSTORE_PROPERTIES);
+    ds.setDriver(props.getProperty("driver"));
+    ds.setUrl(props.getProperty("url"));
+    ds.setUsername(props.getProperty("username"));
+    ds.setPassword(props.getProperty("password"));
+    return ds;
+  }
+
+}
@@ -0,0 +1,42 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+class MultiRowInsertTest {
+
+  @Test
+  void shouldRepeatValues() {
+    MultiRowInsert insert = MultiRowInsert.parse(" insert into t (a, b) VALUES (?, coalesce(?, 'x)')) ", 2);
+    assertEquals("insert into t (a, b) VALUES (?, coalesce(?, 'x)'))", insert.getSql(1));
+    assertEquals("insert into t (a, b) VALUES (?, coalesce(?, 'x)')), (?, coalesce(?, 'x)'))", insert.getSql(2));
+    assertEquals("insert into t_values (a)values (?), (?)", MultiRowInsert.parse("insert into t_values (a)values (?)", 1).getSql(2));
+  }
+
+  @Test
+  void shouldNotParseInsertsThatCanNotBeRewritten() {
+    assertNull(MultiRowInsert.parse("insert into t (a) select a from s where id = ?", 1));
+    assertNull(MultiRowInsert.parse("insert into t (a) values (?), (?)", 2));
+    assertNull(MultiRowInsert.parse("insert into t (a) values (?) on duplicate key update a = ?", 2));
+    assertNull(MultiRowInsert.parse("insert into t (a) values (?)", 2));
+    assertNull(MultiRowInsert.parse("update t set a = ?", 1));
+  }
+
+}
@@ -36,6 +36,7 @@ import org.apache.ibatis.builder.StaticSqlSource;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.ExecutorException;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.apache.ibatis.executor.result.ResultMapException;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.ResultMap;
@@ -87,7 +88,7 @@ class DefaultResultSetHandlerTest {
     when(rs.getMetaData()).thenReturn(rsmd);
     when(rs.getType()).thenReturn(ResultSet.TYPE_FORWARD_ONLY);
     when(rs.next()).thenReturn(true).thenReturn(false);
-    when(rs.getInt("CoLuMn1")).thenReturn(100);
+    when(rs.getInt(1)).thenReturn(100);
     when(rsmd.getColumnCount()).thenReturn(1);
     when(rsmd.getColumnLabel(1)).thenReturn("CoLuMn1");
     when(rsmd.getColumnType(1)).thenReturn(Types.INTEGER);
@@ -101,6 +102,47 @@ class DefaultResultSetHandlerTest {
     assertEquals(100, ((HashMap) results.get(0)).get("cOlUmN1"));
   }
 
+  @Test
+  void shouldReportColumnNameWhenReadingByIndexFails() throws Exception {
+    final MappedStatement ms = getMappedStatement();
+    final DefaultResultSetHandler resultSetHandler = new DefaultResultSetHandler(null, ms, null, null, null, new RowBounds(0, 100));
+
+    when(stmt.getResultSet()).thenReturn(rs);
+    when(rs.getMetaData()).thenReturn(rsmd);
+    when(rs.getType()).thenReturn(ResultSet.TYPE_FORWARD_ONLY);
+    when(rs.next()).thenReturn(true);
+    when(rs.getInt(1)).thenThrow(new SQLException("boom"));
+    when(rsmd.getColumnCount()).thenReturn(1);
+    when(rsmd.getColumnLabel(1)).thenReturn("CoLuMn1");
+    when(rsmd.getColumnType(1)).thenReturn(Types.INTEGER);
+    when(rsmd.getColumnClassName(1)).thenReturn(Integer.class.getCanonicalName());
+
+    ResultMapException e = Assertions.assertThrows(ResultMapException.class, () -> resultSetHandler.handleResultSets(stmt));
+    assertEquals("Error attempting to get column 'CoLuMn1' from result set.  Cause: java.sql.SQLException: boom", e.getMessage());
+    assertEquals("boom", e.getCause().getMessage());
+  }
+
+  @Test
+  void shouldReportColumnNameWhenReadingByIndexFailsInCompiledRowMapping() throws Exception {
+    final MappedStatement ms = getMappedStatement(Row.class, "value");
+    ms.getConfiguration().setCompiledRowMappingEnabled(true);
+    final DefaultResultSetHandler resultSetHandler = new DefaultResultSetHandler(null, ms, null, null, null, new RowBounds(0, 100));
+
+    when(stmt.getResultSet()).thenReturn(rs);
+    when(rs.getMetaData()).thenReturn(rsmd);
+    when(rs.getType()).thenReturn(ResultSet.TYPE_FORWARD_ONLY);
+    when(rs.next()).thenReturn(true);
+    when(rs.getInt(1)).thenThrow(new SQLException("boom"));
+    when(rsmd.getColumnCount()).thenReturn(1);
+    when(rsmd.getColumnLabel(1)).thenReturn("CoLuMn1");
+    when(rsmd.getColumnType(1)).thenReturn(Types.INTEGER);
+    when(rsmd.getColumnClassName(1)).thenReturn(Integer.class.getCanonicalName());
+
+    ResultMapException e = Assertions.assertThrows(ResultMapException.class, () -> resultSetHandler.handleResultSets(stmt));
+    assertEquals("Error attempting to get column 'CoLuMn1' from result set.  Cause: java.sql.SQLException: boom", e.getMessage());
+    assertEquals("boom", e.getCause().getMessage());
+  }
+
   @Test
   void shouldThrowExceptionWithColumnName() throws Exception {
     final MappedStatement ms = getMappedStatement();
@@ -130,18 +172,34 @@ class DefaultResultSetHandlerTest {
   }
 
   MappedStatement getMappedStatement() {
+    return getMappedStatement(HashMap.class, "cOlUmN1");
+  }
+
+  MappedStatement getMappedStatement(Class<?> type, String property) {
     final Configuration config = new Configuration();
     final TypeHandlerRegistry registry = config.getTypeHandlerRegistry();
     return new MappedStatement.Builder(config, "testSelect", new StaticSqlSource(config, "some select statement"), SqlCommandType.SELECT).resultMaps(
         new ArrayList<ResultMap>() {
           {
-            add(new ResultMap.Builder(config, "testMap", HashMap.class, new ArrayList<ResultMapping>() {
+            add(new ResultMap.Builder(config, "testMap", type, new ArrayList<ResultMapping>() {
               {
-                add(new ResultMapping.Builder(config, "cOlUmN1", "CoLuMn1", registry.getTypeHandler(Integer.class)).build());
+                add(new ResultMapping.Builder(config, property, "CoLuMn1", registry.getTypeHandler(Integer.class)).build());
               }
             }).build());
           }
         }).build();
   }
 
+  public static class Row {
+    private Integer value;
+
+    public Integer getValue() {
+      return value;
+    }
+
+    public void setValue(Integer value) {
+      this.value = value;
+    }
+  }
+
 }
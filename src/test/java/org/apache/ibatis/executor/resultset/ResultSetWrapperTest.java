@@ -0,0 +1,102 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.type.TypeHandlerRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class ResultSetWrapperTest {
+
+  @Mock
+  private ResultSet rs;
+  @Mock
+  private ResultSetMetaData rsmd;
+
+  private final Configuration configuration = new Configuration();
+
+  @BeforeEach
+  void setUp() throws Exception {
+    when(rs.getMetaData()).thenReturn(rsmd);
+    when(rsmd.getColumnCount()).thenReturn(3);
+    when(rsmd.getColumnType(1)).thenReturn(Types.INTEGER);
+    when(rsmd.getColumnType(2)).thenReturn(Types.VARCHAR);
+    when(rsmd.getColumnType(3)).thenReturn(Types.VARCHAR);
+  }
+
+  @Test
+  void shouldResolveFirstColumnIndexIgnoringCase() throws Exception {
+    stubLabels();
+    ResultSetWrapper rsw = new ResultSetWrapper(rs, configuration);
+    assertEquals(1, rsw.getColumnIndex("id"));
+    assertEquals(2, rsw.getColumnIndex("Name"));
+    assertEquals(ResultSetWrapper.READ_BY_NAME, rsw.getColumnIndex("missing"));
+  }
+
+  @Test
+  void shouldReadByNameWhenColumnLabelsAreNotUsed() throws Exception {
+    configuration.setUseColumnLabel(false);
+    when(rsmd.getColumnName(1)).thenReturn("ID");
+    when(rsmd.getColumnName(2)).thenReturn("NAME");
+    when(rsmd.getColumnName(3)).thenReturn("NAME");
+    ResultSetWrapper rsw = new ResultSetWrapper(rs, configuration);
+    assertEquals(ResultSetWrapper.READ_BY_NAME, rsw.getColumnIndex("ID"));
+    assertArrayEquals(new int[] { ResultSetWrapper.READ_BY_NAME, ResultSetWrapper.READ_BY_NAME, ResultSetWrapper.NOT_MAPPED },
+        rsw.getPropertyColumnIndexes(getResultMap(), null));
+  }
+
+  @Test
+  void shouldResolvePropertyColumnIndexes() throws Exception {
+    stubLabels();
+    ResultSetWrapper rsw = new ResultSetWrapper(rs, configuration);
+    ResultMap resultMap = getResultMap();
+    int[] indexes = rsw.getPropertyColumnIndexes(resultMap, null);
+    assertArrayEquals(new int[] { 1, 2, ResultSetWrapper.NOT_MAPPED }, indexes);
+    assertEquals(indexes, rsw.getPropertyColumnIndexes(resultMap, null));
+  }
+
+  private void stubLabels() throws Exception {
+    when(rsmd.getColumnLabel(1)).thenReturn("ID");
+    when(rsmd.getColumnLabel(2)).thenReturn("NAME");
+    when(rsmd.getColumnLabel(3)).thenReturn("name");
+  }
+
+  private ResultMap getResultMap() {
+    TypeHandlerRegistry registry = configuration.getTypeHandlerRegistry();
+    return new ResultMap.Builder(configuration, "testMap", Object.class, new ArrayList<>(Arrays.asList(
+        new ResultMapping.Builder(configuration, "id", "id", registry.getTypeHandler(Integer.class)).build(),
+        new ResultMapping.Builder(configuration, "name", "name", registry.getTypeHandler(String.class)).build(),
+        new ResultMapping.Builder(configuration, "email", "email", registry.getTypeHandler(String.class)).build())))
+        .build();
+  }
+}
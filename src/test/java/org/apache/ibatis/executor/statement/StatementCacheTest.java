@@ -0,0 +1,52 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.statement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+
+import java.sql.Statement;
+
+import org.junit.jupiter.api.Test;
+
+class StatementCacheTest {
+
+  @Test
+  void shouldReturnLeastRecentlyUsedStatementWhenFull() {
+    StatementCache cache = new StatementCache(2);
+    Statement first = mock(Statement.class);
+    Statement second = mock(Statement.class);
+    Statement third = mock(Statement.class);
+    assertNull(cache.put("first", first));
+    assertNull(cache.put("second", second));
+    // 访问first后，second成为最久未使用的Statement
+    assertSame(first, cache.get("first"));
+    assertSame(second, cache.put("third", third));
+    assertEquals(2, cache.size());
+    assertNull(cache.get("second"));
+    assertSame(first, cache.get("first"));
+    assertSame(third, cache.get("third"));
+  }
+
+  @Test
+  void shouldRejectNonPositiveSize() {
+    assertThrows(IllegalArgumentException.class, () -> new StatementCache(0));
+  }
+
+}
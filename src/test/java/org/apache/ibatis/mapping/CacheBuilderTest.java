@@ -18,11 +18,23 @@ package org.apache.ibatis.mapping;
 import org.apache.ibatis.builder.InitializingObject;
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.decorators.ConcurrentFifoCache;
+import org.apache.ibatis.cache.decorators.ConcurrentLruCache;
+import org.apache.ibatis.cache.decorators.ConcurrentSoftCache;
+import org.apache.ibatis.cache.ThreadSafeCache;
+import org.apache.ibatis.cache.decorators.FifoCache;
+import org.apache.ibatis.cache.decorators.LoggingCache;
+import org.apache.ibatis.cache.decorators.LruCache;
+import org.apache.ibatis.cache.decorators.SynchronizedCache;
+import org.apache.ibatis.cache.decorators.TinyLfuCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import java.lang.reflect.Field;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static com.googlecode.catchexception.apis.BDDCatchException.*;
 import static org.assertj.core.api.BDDAssertions.then;
@@ -43,6 +55,61 @@ class CacheBuilderTest {
       .hasMessage("Failed cache initialization for 'test' on 'org.apache.ibatis.mapping.CacheBuilderTest$InitializingFailureCache'");
   }
 
+  @Test
+  void shouldNotSynchronizeTinyLfuCache() {
+    Properties properties = new Properties();
+    properties.setProperty("maxBytes", "4096");
+    Cache cache = new CacheBuilder("test").addDecorator(TinyLfuCache.class).size(10).properties(properties).build();
+
+    Assertions.assertThat(cache).isInstanceOf(LoggingCache.class);
+    TinyLfuCache tinyLfuCache = unwrap(cache);
+    Assertions.assertThat(tinyLfuCache.getId()).isEqualTo("test");
+  }
+
+  @Test
+  void shouldNotSynchronizeConcurrentFifoAndSoftCaches() {
+    Cache fifoCache = new CacheBuilder("test").addDecorator(ConcurrentFifoCache.class).size(10).build();
+    Cache softCache = new CacheBuilder("test").addDecorator(ConcurrentSoftCache.class).size(10).build();
+
+    Assertions.assertThat(fifoCache).isInstanceOf(LoggingCache.class);
+    Assertions.assertThat((Cache) unwrap(fifoCache)).isInstanceOf(ConcurrentFifoCache.class);
+    Assertions.assertThat(softCache).isInstanceOf(LoggingCache.class);
+    Assertions.assertThat((Cache) unwrap(softCache)).isInstanceOf(ConcurrentSoftCache.class);
+  }
+
+  @Test
+  void shouldNotSynchronizeCustomThreadSafeDecorator() {
+    Cache cache = new CacheBuilder("test").addDecorator(ThreadSafeDecorator.class).build();
+
+    Assertions.assertThat(cache).isInstanceOf(LoggingCache.class);
+    Assertions.assertThat((Cache) unwrap(cache)).isInstanceOf(ThreadSafeDecorator.class);
+  }
+
+  @Test
+  void shouldNotSynchronizeDefaultLruCache() {
+    Cache cache = new CacheBuilder("test").build();
+
+    Assertions.assertThat(cache).isInstanceOf(LoggingCache.class);
+    Assertions.assertThat((Cache) unwrap(cache)).isInstanceOf(ConcurrentLruCache.class);
+  }
+
+  @Test
+  void shouldKeepExplicitLruCache() {
+    Cache cache = new CacheBuilder("test").addDecorator(LruCache.class).build();
+
+    Assertions.assertThat(cache).isInstanceOf(SynchronizedCache.class);
+    Cache logging = unwrap(cache);
+    Assertions.assertThat(logging).isInstanceOf(LoggingCache.class);
+    Assertions.assertThat((Cache) unwrap(logging)).isInstanceOf(LruCache.class);
+  }
+
+  @Test
+  void shouldSynchronizeFifoCache() {
+    Cache cache = new CacheBuilder("test").addDecorator(FifoCache.class).build();
+
+    Assertions.assertThat(cache).isInstanceOf(SynchronizedCache.class);
+  }
+
   @SuppressWarnings("unchecked")
   private <T> T unwrap(Cache cache) {
     Field field;
@@ -89,4 +156,45 @@ class CacheBuilderTest {
 
   }
 
+  private static class ThreadSafeDecorator implements Cache, ThreadSafeCache {
+
+    private final Cache delegate;
+    private final Map<Object, Object> entries = new ConcurrentHashMap<>();
+
+    public ThreadSafeDecorator(Cache delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public String getId() {
+      return delegate.getId();
+    }
+
+    @Override
+    public void putObject(Object key, Object value) {
+      entries.put(key, value);
+    }
+
+    @Override
+    public Object getObject(Object key) {
+      return entries.get(key);
+    }
+
+    @Override
+    public Object removeObject(Object key) {
+      return entries.remove(key);
+    }
+
+    @Override
+    public void clear() {
+      entries.clear();
+    }
+
+    @Override
+    public int getSize() {
+      return entries.size();
+    }
+
+  }
+
 }
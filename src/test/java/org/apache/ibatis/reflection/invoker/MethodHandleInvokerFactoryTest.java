@@ -0,0 +1,184 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.ibatis.reflection.MetaClass;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.MethodHandleReflectorFactory;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.ReflectorFactory;
+import org.apache.ibatis.reflection.SystemMetaObject;
+import org.junit.jupiter.api.Test;
+
+class MethodHandleInvokerFactoryTest {
+
+  private final ReflectorFactory reflectorFactory = new MethodHandleReflectorFactory();
+
+  @Test
+  void shouldGenerateAccessorsForGettersAndSetters() throws Exception {
+    Reflector reflector = reflectorFactory.findForClass(Bean.class);
+    Invoker getter = reflector.getGetInvoker("name");
+    Invoker setter = reflector.getSetInvoker("name");
+    assertTrue(getter instanceof LambdaGetInvoker);
+    assertTrue(setter instanceof LambdaSetInvoker);
+    assertEquals(String.class, getter.getType());
+    assertEquals(String.class, setter.getType());
+
+    Bean bean = new Bean();
+    setter.invoke(bean, new Object[] { "foo" });
+    assertEquals("foo", getter.invoke(bean, null));
+  }
+
+  @Test
+  void shouldBoxAndUnboxPrimitiveProperties() throws Exception {
+    Reflector reflector = reflectorFactory.findForClass(Bean.class);
+    Bean bean = new Bean();
+    reflector.getSetInvoker("count").invoke(bean, new Object[] { 3 });
+    assertEquals(3, reflector.getGetInvoker("count").invoke(bean, null));
+    assertEquals(int.class, reflector.getSetterType("count"));
+  }
+
+  @Test
+  void shouldRejectInvalidArgumentsLikeReflection() {
+    Reflector reflector = reflectorFactory.findForClass(Bean.class);
+    Bean bean = new Bean();
+    assertThrows(IllegalArgumentException.class,
+        () -> reflector.getSetInvoker("count").invoke(bean, new Object[] { null }));
+    assertThrows(IllegalArgumentException.class,
+        () -> reflector.getSetInvoker("count").invoke(bean, new Object[] { "3" }));
+    assertThrows(IllegalArgumentException.class,
+        () -> reflector.getSetInvoker("name").invoke(bean, new Object[] { 1 }));
+    assertThrows(IllegalArgumentException.class, () -> reflector.getGetInvoker("name").invoke("bean", null));
+    assertThrows(NullPointerException.class, () -> reflector.getGetInvoker("name").invoke(null, null));
+  }
+
+  @Test
+  void shouldWidenPrimitiveArgumentsLikeReflection() throws Exception {
+    Invoker setter = reflectorFactory.findForClass(Bean.class).getSetInvoker("count");
+    Bean bean = new Bean();
+    setter.invoke(bean, new Object[] { (short) 3 });
+    assertEquals(3, bean.getCount());
+    setter.invoke(bean, new Object[] { 'a' });
+    assertEquals(97, bean.getCount());
+    assertThrows(IllegalArgumentException.class, () -> setter.invoke(bean, new Object[] { 3L }));
+  }
+
+  @Test
+  void shouldAccessNonPublicClassesAndFluentSetters() {
+    MetaObject metaObject = MetaObject.forObject(new Bean(), SystemMetaObject.DEFAULT_OBJECT_FACTORY,
+        SystemMetaObject.DEFAULT_OBJECT_WRAPPER_FACTORY, reflectorFactory);
+    metaObject.setValue("hidden", "bar");
+    metaObject.setValue("fluent", 5L);
+    assertEquals("bar", metaObject.getValue("hidden"));
+    assertEquals(5L, metaObject.getValue("fluent"));
+    assertEquals(String.class, metaObject.getGetterType("hidden"));
+  }
+
+  @Test
+  void shouldWrapExceptionsLikeReflection() {
+    Invoker setter = reflectorFactory.findForClass(Bean.class).getSetInvoker("failing");
+    InvocationTargetException e = assertThrows(InvocationTargetException.class,
+        () -> setter.invoke(new Bean(), new Object[] { "x" }));
+    assertTrue(e.getTargetException() instanceof IllegalStateException);
+
+    Invoker getter = reflectorFactory.findForClass(Bean.class).getGetInvoker("failing");
+    e = assertThrows(InvocationTargetException.class, () -> getter.invoke(new Bean(), null));
+    assertTrue(e.getTargetException() instanceof ClassCastException);
+  }
+
+  @Test
+  void shouldKeepGenericTypeResolution() {
+    MetaClass metaClass = MetaClass.forClass(Bean.class, reflectorFactory);
+    assertEquals(String.class, metaClass.getGetterType("names[0]"));
+  }
+
+  @Test
+  void shouldFallBackToReflectionForStaticMethodsAndFields() throws Exception {
+    Reflector reflector = reflectorFactory.findForClass(Bean.class);
+    assertSame(MethodInvoker.class, reflector.getGetInvoker("constant").getClass());
+    assertEquals("constant", reflector.getGetInvoker("constant").invoke(new Bean(), null));
+    assertSame(GetFieldInvoker.class, reflector.getGetInvoker("field").getClass());
+    assertSame(SetFieldInvoker.class, reflector.getSetInvoker("field").getClass());
+  }
+
+  static class Bean {
+    private String name;
+    private int count;
+    private String hidden;
+    private Long fluent;
+    private List<String> names = Arrays.asList("a", "b");
+    private String field;
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    public int getCount() {
+      return count;
+    }
+
+    public void setCount(int count) {
+      this.count = count;
+    }
+
+    private String getHidden() {
+      return hidden;
+    }
+
+    private void setHidden(String hidden) {
+      this.hidden = hidden;
+    }
+
+    public Long getFluent() {
+      return fluent;
+    }
+
+    public Bean setFluent(Long fluent) {
+      this.fluent = fluent;
+      return this;
+    }
+
+    public void setFailing(String failing) {
+      throw new IllegalStateException("failing");
+    }
+
+    public String getFailing() {
+      Object value = 1;
+      return (String) value;
+    }
+
+    public List<String> getNames() {
+      return names;
+    }
+
+    public static String getConstant() {
+      return "constant";
+    }
+  }
+}
@@ -0,0 +1,226 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.batch_auto_flush;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BatchAutoFlushTest {
+
+  private static final String NAMESPACE = "org.apache.ibatis.submitted.batch_auto_flush.Mapper.";
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    // create a SqlSessionFactory
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/batch_auto_flush/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+
+    // populate in-memory database
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+            "org/apache/ibatis/submitted/batch_auto_flush/CreateDB.sql");
+  }
+
+  @Test
+  void shouldReturnAutoFlushedResultsWithoutListener() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      insertUsers(sqlSession, 5);
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertEquals(3, results.size());
+      assertEquals(2, results.get(0).getUpdateCounts().length);
+      assertEquals(2, results.get(1).getUpdateCounts().length);
+      assertEquals(1, results.get(2).getUpdateCounts().length);
+      sqlSession.commit();
+    }
+    assertEquals(5, countUsers());
+  }
+
+  @Test
+  void shouldPassAutoFlushedResultsToListener() {
+    List<BatchResult> received = new ArrayList<>();
+    sqlSessionFactory.getConfiguration().setBatchResultListener(received::add);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      insertUsers(sqlSession, 5);
+      assertEquals(2, received.size());
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertEquals(1, results.size());
+      assertEquals(3, received.size());
+      assertEquals(results.get(0), received.get(2));
+      sqlSession.commit();
+    }
+    assertEquals(5, countUsers());
+  }
+
+  @Test
+  void shouldFlushWhenEstimatedBytesAreReached() {
+    sqlSessionFactory.getConfiguration().setBatchFlushRows(0);
+    sqlSessionFactory.getConfiguration().setBatchFlushBytes(1);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      insertUsers(sqlSession, 3);
+      assertEquals(3, sqlSession.flushStatements().size());
+      sqlSession.commit();
+    }
+    assertEquals(3, countUsers());
+  }
+
+  @Test
+  void shouldOnlyCountBoundParameterValues() {
+    sqlSessionFactory.getConfiguration().setBatchFlushRows(0);
+    sqlSessionFactory.getConfiguration().setBatchFlushBytes(1000);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      for (int i = 1; i <= 3; i++) {
+        Map<String, Object> user = new HashMap<>();
+        user.put("id", i);
+        user.put("name", "User" + i);
+        // 没有绑定到SQL的属性不计入估算
+        user.put("payload", new byte[100_000]);
+        sqlSession.insert(NAMESPACE + "insertUser", user);
+      }
+      assertEquals(1, sqlSession.flushStatements().size());
+      sqlSession.commit();
+    }
+    assertEquals(3, countUsers());
+  }
+
+  @Test
+  void shouldDiscardAutoFlushedResultsOnRollback() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      insertUsers(sqlSession, 3);
+      sqlSession.rollback();
+      assertEquals(0, sqlSession.flushStatements().size());
+    }
+    assertEquals(0, countUsers());
+  }
+
+  @Test
+  void shouldPipelineAutoFlushes() {
+    List<BatchResult> received = new CopyOnWriteArrayList<>();
+    sqlSessionFactory.getConfiguration().setBatchResultListener(received::add);
+    sqlSessionFactory.getConfiguration().setBatchPipelineEnabled(true);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      insertUsers(sqlSession, 7);
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertEquals(1, results.size());
+      assertEquals(4, received.size());
+      sqlSession.commit();
+    }
+    assertEquals(7, countUsers());
+  }
+
+  @Test
+  void shouldUseConnectionOnlyOnThreadExecutingTheBatch() {
+    StatementRecorder recorder = new StatementRecorder();
+    sqlSessionFactory.getConfiguration().addInterceptor(recorder);
+    sqlSessionFactory.getConfiguration().setBatchPipelineEnabled(true);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      insertUsers(sqlSession, 5);
+      // 前两个批次在后台线程上执行，调用线程没有使用连接
+      assertEquals(0, recorder.callsOn(Thread.currentThread().getName()));
+      sqlSession.flushStatements();
+      sqlSession.commit();
+    }
+    // 后台线程：2次prepare，4次parameterize，4次batch；最后一个批次在调用线程上flush
+    assertEquals(10, recorder.callsOn("mybatis-batch-flush"));
+    assertEquals(3, recorder.callsOn(Thread.currentThread().getName()));
+    assertEquals(5, countUsers());
+  }
+
+  @Test
+  void shouldThrowFailureOfPipelinedBatchOnFlush() {
+    sqlSessionFactory.getConfiguration().setBatchPipelineEnabled(true);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      insertUsers(sqlSession, 1);
+      // 与第一行主键冲突，在后台线程中失败
+      insertUsers(sqlSession, 1);
+      assertThrows(PersistenceException.class, sqlSession::flushStatements);
+      sqlSession.rollback();
+    }
+    assertEquals(0, countUsers());
+  }
+
+  private void insertUsers(SqlSession sqlSession, int count) {
+    for (int i = 1; i <= count; i++) {
+      Map<String, Object> user = new HashMap<>();
+      user.put("id", i);
+      user.put("name", "User" + i);
+      sqlSession.insert(NAMESPACE + "insertUser", user);
+    }
+  }
+
+  @Intercepts({
+      @Signature(type = StatementHandler.class, method = "prepare", args = { Connection.class, Integer.class }),
+      @Signature(type = StatementHandler.class, method = "parameterize", args = { Statement.class }),
+      @Signature(type = StatementHandler.class, method = "batch", args = { Statement.class }) })
+  static class StatementRecorder implements Interceptor {
+
+    private final List<String> threads = new CopyOnWriteArrayList<>();
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      threads.add(Thread.currentThread().getName());
+      return invocation.proceed();
+    }
+
+    @Override
+    public Object plugin(Object target) {
+      return Plugin.wrap(target, this);
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+    }
+
+    long callsOn(String thread) {
+      return threads.stream().filter(thread::equals).count();
+    }
+  }
+
+  private int countUsers() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      return sqlSession.selectOne(NAMESPACE + "countUsers");
+    }
+  }
+
+}
@@ -0,0 +1,156 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.batch_grouping;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BatchGroupingTest {
+
+  private static final String NAMESPACE = "org.apache.ibatis.submitted.batch_grouping.Mapper.";
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    // create a SqlSessionFactory
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/batch_grouping/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+
+    // populate in-memory database
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+            "org/apache/ibatis/submitted/batch_grouping/CreateDB.sql");
+  }
+
+  @Test
+  void shouldGroupInterleavedInserts() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      for (int i = 1; i <= 3; i++) {
+        sqlSession.insert(NAMESPACE + "insertParent", parent(i, "Parent" + i));
+        sqlSession.insert(NAMESPACE + "insertChild", child(i * 10, i));
+        sqlSession.insert(NAMESPACE + "insertChild", child(i * 10 + 1, i));
+      }
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertEquals(2, results.size());
+      assertEquals(NAMESPACE + "insertParent", results.get(0).getMappedStatement().getId());
+      assertEquals(3, results.get(0).getParameterObjects().size());
+      assertEquals(NAMESPACE + "insertChild", results.get(1).getMappedStatement().getId());
+      assertEquals(6, results.get(1).getParameterObjects().size());
+      sqlSession.commit();
+    }
+
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals(3, (int) sqlSession.selectOne(NAMESPACE + "countParents"));
+      assertEquals(6, (int) sqlSession.selectOne(NAMESPACE + "countChildren"));
+    }
+  }
+
+  @Test
+  void shouldNotMoveInsertsBeforeUpdates() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      sqlSession.insert(NAMESPACE + "insertParent", parent(1, "Parent1"));
+      sqlSession.update(NAMESPACE + "updateParentName", parent(1, "Updated"));
+      sqlSession.insert(NAMESPACE + "insertParent", parent(2, "Parent2"));
+      sqlSession.update(NAMESPACE + "updateParentName", parent(2, "Updated"));
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertEquals(4, results.size());
+      sqlSession.commit();
+    }
+
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals("Updated", sqlSession.selectOne(NAMESPACE + "getParentName", 1));
+      assertEquals("Updated", sqlSession.selectOne(NAMESPACE + "getParentName", 2));
+    }
+  }
+
+  @Test
+  void shouldMoveChildInsertAheadOfItsParent() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      sqlSession.insert(NAMESPACE + "insertParent", parent(1, "Parent1"));
+      sqlSession.flushStatements();
+      sqlSession.insert(NAMESPACE + "insertChild", child(10, 1));
+      sqlSession.insert(NAMESPACE + "insertParent", parent(2, "Parent2"));
+      sqlSession.insert(NAMESPACE + "insertChild", child(20, 2));
+      // the second child joins the first child batch, which is executed before the second parent
+      assertThrows(PersistenceException.class, sqlSession::flushStatements);
+    }
+  }
+
+  @Test
+  void shouldKeepDependentInsertsInOrderWhenFlushedInBetween() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      sqlSession.insert(NAMESPACE + "insertParent", parent(1, "Parent1"));
+      sqlSession.flushStatements();
+      sqlSession.insert(NAMESPACE + "insertChild", child(10, 1));
+      sqlSession.insert(NAMESPACE + "insertParent", parent(2, "Parent2"));
+      sqlSession.flushStatements();
+      sqlSession.insert(NAMESPACE + "insertChild", child(20, 2));
+      sqlSession.flushStatements();
+      sqlSession.commit();
+    }
+
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals(2, (int) sqlSession.selectOne(NAMESPACE + "countParents"));
+      assertEquals(2, (int) sqlSession.selectOne(NAMESPACE + "countChildren"));
+    }
+  }
+
+  @Test
+  void shouldStartNewBatchWhenStatementChangesIfGroupingIsDisabled() {
+    sqlSessionFactory.getConfiguration().setBatchGroupingEnabled(false);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      for (int i = 1; i <= 2; i++) {
+        sqlSession.insert(NAMESPACE + "insertParent", parent(i, "Parent" + i));
+        sqlSession.insert(NAMESPACE + "insertChild", child(i * 10, i));
+      }
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertEquals(4, results.size());
+      sqlSession.commit();
+    }
+  }
+
+  private static Map<String, Object> parent(int id, String name) {
+    Map<String, Object> parent = new HashMap<>();
+    parent.put("id", id);
+    parent.put("name", name);
+    return parent;
+  }
+
+  private static Map<String, Object> child(int id, int parentId) {
+    Map<String, Object> child = new HashMap<>();
+    child.put("id", id);
+    child.put("parentId", parentId);
+    return child;
+  }
+
+}
@@ -23,6 +23,10 @@ import org.apache.ibatis.annotations.CacheNamespace;
 import org.apache.ibatis.annotations.Property;
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheStats;
+import org.apache.ibatis.cache.decorators.ExpiringCache;
+import org.apache.ibatis.cache.decorators.SerializedCache;
+import org.apache.ibatis.cache.serializer.CompactCacheSerializer;
 import org.apache.ibatis.annotations.CacheNamespaceRef;
 import org.apache.ibatis.builder.BuilderException;
 import org.apache.ibatis.io.Resources;
@@ -293,6 +297,61 @@ class CacheTest {
       .hasMessage("Should be specified either value() or name() attribute in the @CacheNamespaceRef");
   }
 
+  @Test
+  void shouldApplyExpiryAttributes() {
+    sqlSessionFactory.getConfiguration().addMapper(ExpiringCacheMapper.class);
+    Cache cache = sqlSessionFactory.getConfiguration().getCache(ExpiringCacheMapper.class.getName());
+    while (!(cache instanceof ExpiringCache)) {
+      cache = delegateOf(cache);
+    }
+    ExpiringCache expiringCache = (ExpiringCache) cache;
+    Assertions.assertEquals(60000, expiringCache.getTimeToLive());
+    Assertions.assertEquals(10000, expiringCache.getTimeToIdle());
+    Assertions.assertEquals(0.75, expiringCache.getRefreshAhead());
+  }
+
+  @Test
+  void shouldApplySerializerAttribute() throws Exception {
+    sqlSessionFactory.getConfiguration().addMapper(CompactSerializerCacheMapper.class);
+    Cache cache = sqlSessionFactory.getConfiguration().getCache(CompactSerializerCacheMapper.class.getName());
+    while (!(cache instanceof SerializedCache)) {
+      cache = delegateOf(cache);
+    }
+    Field field = SerializedCache.class.getDeclaredField("serializer");
+    field.setAccessible(true);
+    Assertions.assertTrue(field.get(cache) instanceof CompactCacheSerializer);
+  }
+
+  @Test
+  void shouldCollectCacheMetrics() {
+    try (SqlSession sqlSession1 = sqlSessionFactory.openSession(true)) {
+      PersonMapper pm = sqlSession1.getMapper(PersonMapper.class);
+      Assertions.assertEquals(2, pm.findAll().size());
+    }
+    try (SqlSession sqlSession2 = sqlSessionFactory.openSession(true)) {
+      PersonMapper pm = sqlSession2.getMapper(PersonMapper.class);
+      Assertions.assertEquals(2, pm.findAll().size());
+    }
+    CacheStats stats = sqlSessionFactory.getConfiguration().getCacheMetrics(PersonMapper.class.getName()).snapshot();
+    Assertions.assertEquals(1, stats.getHitCount());
+    Assertions.assertEquals(1, stats.getMissCount());
+    Assertions.assertEquals(0.5, stats.getHitRatio());
+    Assertions.assertEquals(1, stats.getPutCount());
+    Assertions.assertEquals(1, stats.getLoadCount());
+    Assertions.assertTrue(stats.getTotalLoadTime() > 0);
+    Assertions.assertEquals(1, stats.getSize());
+  }
+
+  private Cache delegateOf(Cache cache) {
+    try {
+      Field field = cache.getClass().getDeclaredField("delegate");
+      field.setAccessible(true);
+      return (Cache) field.get(cache);
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
   private CustomCache unwrap(Cache cache){
     Field field;
     try {
@@ -316,6 +375,14 @@ class CacheTest {
   private interface CustomCacheUnsupportedPropertyMapper {
   }
 
+  @CacheNamespace(timeToLive = 60000, timeToIdle = 10000, refreshAhead = 0.75)
+  private interface ExpiringCacheMapper {
+  }
+
+  @CacheNamespace(serializer = CompactCacheSerializer.class)
+  private interface CompactSerializerCacheMapper {
+  }
+
   @CacheNamespaceRef(value = PersonMapper.class, name = "org.apache.ibatis.submitted.cache.PersonMapper")
   private interface InvalidCacheNamespaceRefBothMapper {
   }
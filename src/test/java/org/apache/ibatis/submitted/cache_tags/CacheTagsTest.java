@@ -0,0 +1,139 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.cache_tags;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class CacheTagsTest {
+
+  private static final String NAMESPACE = "org.apache.ibatis.submitted.cache_tags.Mapper.";
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    // create a SqlSessionFactory
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/cache_tags/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+
+    // populate in-memory database
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+            "org/apache/ibatis/submitted/cache_tags/CreateDB.sql");
+  }
+
+  @Test
+  void shouldParseCacheTags() {
+    MappedStatement ms = sqlSessionFactory.getConfiguration().getMappedStatement(NAMESPACE + "countUsersWithOrders");
+    assertArrayEquals(new String[] { "users", "orders" }, ms.getCacheTags());
+    assertNull(sqlSessionFactory.getConfiguration().getMappedStatement(NAMESPACE + "insertUser").getCacheTags());
+  }
+
+  @Test
+  void shouldOnlyInvalidateResultsDependingOnTheUpdatedTags() throws Exception {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals("User1", sqlSession.selectOne(NAMESPACE + "getUserName", 1));
+      assertEquals(2, (int) sqlSession.selectOne(NAMESPACE + "countOrders", 1));
+      assertEquals(1, (int) sqlSession.selectOne(NAMESPACE + "countUsersWithOrders"));
+      assertEquals(3, (int) sqlSession.selectOne(NAMESPACE + "countAll"));
+    }
+    // 绕过MyBatis修改orders表，缓存中的结果不会变化
+    executeStatement("insert into orders (id, user_id) values(3, 1)");
+
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.update(NAMESPACE + "updateUserName", user(1, "User2"));
+      // 本事务修改的标签对本事务立即失效
+      assertEquals("User2", sqlSession.selectOne(NAMESPACE + "getUserName", 1));
+      sqlSession.commit();
+    }
+
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals("User2", sqlSession.selectOne(NAMESPACE + "getUserName", 1));
+      // 只依赖orders标签的结果仍然有效
+      assertEquals(2, (int) sqlSession.selectOne(NAMESPACE + "countOrders", 1));
+      // 依赖users标签或没有声明标签的结果被重新查询
+      assertEquals(1, (int) sqlSession.selectOne(NAMESPACE + "countUsersWithOrders"));
+      assertEquals(4, (int) sqlSession.selectOne(NAMESPACE + "countAll"));
+    }
+  }
+
+  @Test
+  void shouldClearTheWholeCacheForStatementsWithoutTags() throws Exception {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals(2, (int) sqlSession.selectOne(NAMESPACE + "countOrders", 1));
+    }
+    executeStatement("insert into orders (id, user_id) values(3, 1)");
+
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.insert(NAMESPACE + "insertUser", user(2, "User2"));
+      sqlSession.commit();
+    }
+
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals(3, (int) sqlSession.selectOne(NAMESPACE + "countOrders", 1));
+    }
+  }
+
+  @Test
+  void shouldNotInvalidateTagsOnRollback() throws Exception {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals("User1", sqlSession.selectOne(NAMESPACE + "getUserName", 1));
+    }
+
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.update(NAMESPACE + "updateUserName", user(1, "User2"));
+      sqlSession.rollback();
+    }
+    // 回滚后数据库没有变化，绕过MyBatis修改后缓存中仍是旧值
+    executeStatement("update users set name = 'User3' where id = 1");
+
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals("User1", sqlSession.selectOne(NAMESPACE + "getUserName", 1));
+    }
+  }
+
+  private void executeStatement(String sql) throws Exception {
+    try (Connection conn = sqlSessionFactory.getConfiguration().getEnvironment().getDataSource().getConnection();
+         Statement stmt = conn.createStatement()) {
+      stmt.executeUpdate(sql);
+    }
+  }
+
+  private static Map<String, Object> user(int id, String name) {
+    Map<String, Object> user = new HashMap<>();
+    user.put("id", id);
+    user.put("name", name);
+    return user;
+  }
+
+}
@@ -0,0 +1,150 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.compiled_row_mapping;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.executor.resultset.CompiledRowMapping;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class CompiledRowMappingTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    // create an SqlSessionFactory
+    try (Reader reader = Resources
+        .getResourceAsReader("org/apache/ibatis/submitted/compiled_row_mapping/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+
+    // populate in-memory database
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+            "org/apache/ibatis/submitted/compiled_row_mapping/CreateDB.sql");
+  }
+
+  @BeforeEach
+  void resetSettings() {
+    sqlSessionFactory.getConfiguration().setCallSettersOnNulls(false);
+    sqlSessionFactory.getConfiguration().setReturnInstanceForEmptyRow(false);
+  }
+
+  @Test
+  void shouldApplyPropertyAndAutomaticMappings() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<User> users = sqlSession.getMapper(Mapper.class).getUsers();
+      assertEquals(3, users.size());
+      assertEquals(Integer.valueOf(1), users.get(0).getId());
+      assertEquals("User1", users.get(0).getUserName());
+      assertEquals(30, users.get(0).getAge());
+      assertEquals(Integer.valueOf(100), users.get(0).getPoints());
+      assertEquals("User2", users.get(1).getUserName());
+      assertEquals(0, users.get(1).getAge());
+      assertNull(users.get(1).getPoints());
+    }
+  }
+
+  @Test
+  void shouldMapResultTypeWithUnderscoreColumns() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<User> users = sqlSession.getMapper(Mapper.class).getUsersByResultType();
+      assertEquals("User1", users.get(0).getUserName());
+      assertEquals(30, users.get(0).getAge());
+      assertNull(users.get(2).getUserName());
+    }
+  }
+
+  @Test
+  void shouldCallSettersOnNullsExceptPrimitives() {
+    sqlSessionFactory.getConfiguration().setCallSettersOnNulls(true);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<User> users = sqlSession.getMapper(Mapper.class).getUsersByResultType();
+      assertEquals(0, users.get(2).getAge());
+      assertNull(users.get(2).getUserName());
+    }
+  }
+
+  @Test
+  void shouldFallBackForNestedProperties() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<User> users = sqlSession.getMapper(Mapper.class).getUsersWithNestedProperty();
+      assertEquals("User1", users.get(0).getProfile().getNickname());
+      assertEquals("User2", users.get(1).getProfile().getNickname());
+    }
+  }
+
+  @Test
+  void shouldReusePlansAcrossResultSets() {
+    Map<String, CompiledRowMapping> plans = sqlSessionFactory.getConfiguration().getCompiledRowMappings();
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(Mapper.class).getUsers();
+    }
+    Map<String, CompiledRowMapping> compiled = new HashMap<>(plans);
+    assertTrue(compiled.keySet().stream().anyMatch(key -> key.contains(".userRM:")));
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(Mapper.class).getUsers();
+      sqlSession.getMapper(Mapper.class).getUsersByResultType();
+      sqlSession.clearCache();
+      sqlSession.getMapper(Mapper.class).getUsersByResultType();
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals("User1", sqlSession.getMapper(Mapper.class).getUsers().get(0).getUserName());
+    }
+    compiled.forEach((key, plan) -> assertSame(plan, plans.get(key)));
+    assertEquals(1, plans.keySet().stream().filter(key -> key.contains(".userRM:")).count());
+  }
+
+  @Test
+  void shouldMapSimpleTypes() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals(Arrays.asList("User1", "User2", null), sqlSession.getMapper(Mapper.class).getNames());
+    }
+  }
+
+  @Test
+  void shouldProduceSameResultsAsMetaObjectMapping() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<User> compiled = sqlSession.getMapper(Mapper.class).getUsers();
+      sqlSessionFactory.getConfiguration().setCompiledRowMappingEnabled(false);
+      sqlSession.clearCache();
+      List<User> interpreted = sqlSession.getMapper(Mapper.class).getUsers();
+      assertEquals(interpreted.size(), compiled.size());
+      for (int i = 0; i < compiled.size(); i++) {
+        assertEquals(interpreted.get(i).getId(), compiled.get(i).getId());
+        assertEquals(interpreted.get(i).getUserName(), compiled.get(i).getUserName());
+        assertEquals(interpreted.get(i).getAge(), compiled.get(i).getAge());
+        assertEquals(interpreted.get(i).getPoints(), compiled.get(i).getPoints());
+      }
+    } finally {
+      sqlSessionFactory.getConfiguration().setCompiledRowMappingEnabled(true);
+    }
+  }
+
+}
@@ -0,0 +1,292 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.multi_row_insert;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.Reader;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.scripting.xmltags.XMLLanguageDriver;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class MultiRowInsertTest {
+
+  private static final String NAMESPACE = "org.apache.ibatis.submitted.multi_row_insert.Mapper.";
+
+  private SqlSessionFactory sqlSessionFactory;
+  private final SqlRecorder sqlRecorder = new SqlRecorder();
+
+  @BeforeEach
+  void setUp() throws Exception {
+    // create a SqlSessionFactory
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/multi_row_insert/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    Environment environment = configuration.getEnvironment();
+    configuration.setEnvironment(new Environment(environment.getId(), environment.getTransactionFactory(),
+        sqlRecorder.wrap(environment.getDataSource())));
+
+    // populate in-memory database
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+            "org/apache/ibatis/submitted/multi_row_insert/CreateDB.sql");
+  }
+
+  @Test
+  void shouldRewriteInsertsIntoMultiRowStatements() {
+    List<Map<String, Object>> users = new ArrayList<>();
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      for (int i = 1; i <= 7; i++) {
+        Map<String, Object> user = user("User" + i, -i);
+        users.add(user);
+        sqlSession.insert(NAMESPACE + "insertUser", user);
+      }
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertEquals(1, results.size());
+      assertArrayEquals(new int[] { 1, 1, 1, 1, 1, 1, 1 }, results.get(0).getUpdateCounts());
+      sqlSession.commit();
+    }
+    // 7行拆分为4行、2行和1行的语句
+    assertEquals(Arrays.asList(4, 2, 1), sqlRecorder.rowCounts());
+
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      for (Map<String, Object> user : users) {
+        assertEquals(user.get("name"), sqlSession.selectOne(NAMESPACE + "getUserName", user.get("id")));
+      }
+      assertEquals(28, (int) sqlSession.selectOne(NAMESPACE + "sumScores"));
+    }
+  }
+
+  @Test
+  void shouldNotRewriteInsertsWithoutValues() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Map<String, Object> user = user("User1", 1);
+      sqlSession.insert(NAMESPACE + "insertUser", user);
+      sqlSession.flushStatements();
+      sqlRecorder.sqls.clear();
+      sqlSession.insert(NAMESPACE + "copyUser", user);
+      sqlSession.insert(NAMESPACE + "copyUser", user);
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertArrayEquals(new int[] { 1, 1 }, results.get(0).getUpdateCounts());
+      assertEquals(1, sqlRecorder.sqls.size());
+      sqlSession.commit();
+    }
+
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals(3, (int) sqlSession.selectOne(NAMESPACE + "sumScores"));
+    }
+  }
+
+  @Test
+  void shouldNotRewriteInsertsWhenNoSizesAreConfigured() {
+    sqlSessionFactory.getConfiguration().getMultiRowInsertSizes().clear();
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      for (int i = 1; i <= 3; i++) {
+        sqlSession.insert(NAMESPACE + "insertUser", user("User" + i, i));
+      }
+      sqlSession.flushStatements();
+      sqlSession.commit();
+    }
+    assertEquals(Arrays.asList(1), sqlRecorder.rowCounts());
+  }
+
+  @Test
+  void shouldPrepareMultiRowInsertsOnCallingThreadWhenPipelined() {
+    sqlSessionFactory.getConfiguration().setBatchPipelineEnabled(true);
+    sqlSessionFactory.getConfiguration().setBatchFlushRows(4);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      for (int i = 1; i <= 9; i++) {
+        sqlSession.insert(NAMESPACE + "insertUser", user("User" + i, i));
+      }
+      sqlSession.flushStatements();
+      sqlSession.commit();
+    }
+    assertEquals(Arrays.asList(4, 4, 1), sqlRecorder.rowCounts());
+    for (Thread thread : sqlRecorder.threads) {
+      assertSame(Thread.currentThread(), thread);
+    }
+
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals(45, (int) sqlSession.selectOne(NAMESPACE + "sumScores"));
+    }
+  }
+
+  @Test
+  void shouldNotRewriteInsertsWhenStatementHandlerIsIntercepted() {
+    ParameterizeCounter counter = new ParameterizeCounter();
+    sqlSessionFactory.getConfiguration().addInterceptor(counter);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      for (int i = 1; i <= 3; i++) {
+        sqlSession.insert(NAMESPACE + "insertUser", user("User" + i, i));
+      }
+      sqlSession.flushStatements();
+      sqlSession.commit();
+    }
+    // 插件拦截了parameterize，不能改写为多行插入
+    assertEquals(Arrays.asList(1), sqlRecorder.rowCounts());
+    assertEquals(3, counter.count.get());
+  }
+
+  @Test
+  void shouldNotRewriteInsertsWithCustomLanguageDriver() {
+    CountingLanguageDriver.count.set(0);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      for (int i = 1; i <= 3; i++) {
+        sqlSession.insert(NAMESPACE + "insertUserWithCustomLang", user("User" + i, i));
+      }
+      sqlSession.flushStatements();
+      sqlSession.commit();
+    }
+    assertEquals(Arrays.asList(1), sqlRecorder.rowCounts());
+    assertEquals(3, CountingLanguageDriver.count.get());
+
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals(6, (int) sqlSession.selectOne(NAMESPACE + "sumScores"));
+    }
+  }
+
+  private static Map<String, Object> user(String name, int score) {
+    Map<String, Object> user = new HashMap<>();
+    user.put("name", name);
+    user.put("score", score);
+    return user;
+  }
+
+  /**
+   * 在连接上记录预编译的插入语句，拦截StatementHandler的插件会关闭多行插入的改写，所以不能用插件记录
+   */
+  static class SqlRecorder {
+
+    private final List<String> sqls = new ArrayList<>();
+    private final List<Thread> threads = new ArrayList<>();
+
+    DataSource wrap(DataSource dataSource) {
+      return (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { DataSource.class },
+          (proxy, method, args) -> {
+            Object result = invoke(dataSource, method, args);
+            return result instanceof Connection ? wrap((Connection) result) : result;
+          });
+    }
+
+    private Connection wrap(Connection connection) {
+      return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class },
+          (proxy, method, args) -> {
+            if ("prepareStatement".equals(method.getName()) && ((String) args[0]).trim().startsWith("insert")) {
+              sqls.add((String) args[0]);
+              threads.add(Thread.currentThread());
+            }
+            return invoke(connection, method, args);
+          });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+      try {
+        return method.invoke(target, args);
+      } catch (InvocationTargetException e) {
+        throw e.getCause();
+      }
+    }
+
+    List<Integer> rowCounts() {
+      List<Integer> rowCounts = new ArrayList<>();
+      for (String sql : sqls) {
+        rowCounts.add(sql.split("abs\\(").length - 1);
+      }
+      return rowCounts;
+    }
+  }
+
+  @Intercepts(@Signature(type = StatementHandler.class, method = "parameterize", args = Statement.class))
+  static class ParameterizeCounter implements Interceptor {
+
+    private final AtomicInteger count = new AtomicInteger();
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      count.incrementAndGet();
+      return invocation.proceed();
+    }
+
+    @Override
+    public Object plugin(Object target) {
+      return Plugin.wrap(target, this);
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+    }
+  }
+
+  public static class CountingLanguageDriver extends XMLLanguageDriver {
+
+    private static final AtomicInteger count = new AtomicInteger();
+
+    @Override
+    public ParameterHandler createParameterHandler(MappedStatement mappedStatement, Object parameterObject, BoundSql boundSql) {
+      ParameterHandler delegate = super.createParameterHandler(mappedStatement, parameterObject, boundSql);
+      return new ParameterHandler() {
+        @Override
+        public Object getParameterObject() {
+          return delegate.getParameterObject();
+        }
+
+        @Override
+        public void setParameters(PreparedStatement ps) throws SQLException {
+          count.incrementAndGet();
+          delegate.setParameters(ps);
+        }
+      };
+    }
+  }
+
+}
@@ -0,0 +1,145 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.reuse_statement_cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.Reader;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.executor.statement.StatementCache;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.session.defaults.DefaultSqlSession;
+import org.apache.ibatis.transaction.Transaction;
+import org.apache.ibatis.transaction.jdbc.JdbcTransaction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ReuseStatementCacheTest {
+
+  private static final String NAMESPACE = "org.apache.ibatis.submitted.reuse_statement_cache.Mapper.";
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    // create a SqlSessionFactory
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/reuse_statement_cache/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+
+    // populate in-memory database
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+            "org/apache/ibatis/submitted/reuse_statement_cache/CreateDB.sql");
+  }
+
+  @AfterEach
+  void tearDown() {
+    ((PooledDataSource) sqlSessionFactory.getConfiguration().getEnvironment().getDataSource()).forceCloseAll();
+  }
+
+  @Test
+  void shouldReuseStatementsAcrossSessions() throws Exception {
+    StatementCache statementCache;
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals("Parent1", sqlSession.selectOne(NAMESPACE + "getParentName", 1));
+      sqlSession.commit();
+      assertEquals("Parent2", sqlSession.selectOne(NAMESPACE + "getParentName", 2));
+      statementCache = sqlSession.getConnection().unwrap(StatementCache.class);
+      assertEquals(1, statementCache.size());
+    }
+
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertSame(statementCache, sqlSession.getConnection().unwrap(StatementCache.class));
+      assertEquals("Parent3", sqlSession.selectOne(NAMESPACE + "getParentName", 3));
+      sqlSession.update(NAMESPACE + "updateParentName", parent(3, "Updated"));
+      assertEquals("Updated", sqlSession.selectOne(NAMESPACE + "getParentName", 3));
+      sqlSession.commit();
+      assertEquals(2, statementCache.size());
+    }
+  }
+
+  @Test
+  void shouldEvictStatementsWhileNestedQueriesRun() throws Exception {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      // 第一行的两个嵌套查询会淘汰外层查询的Statement，此时外层的结果集仍在读取中
+      List<Map<String, Object>> children = sqlSession.selectList(NAMESPACE + "getChildren");
+      assertEquals(3, children.size());
+      assertEquals("Parent1", children.get(0).get("parent"));
+      assertEquals("Parent3", children.get(2).get("parent"));
+      assertEquals(3, children.get(2).get("parentCount"));
+      assertEquals(2, sqlSession.getConnection().unwrap(StatementCache.class).size());
+    }
+  }
+
+  @Test
+  void shouldNotKeepTransactionTimeoutAcrossSessions() throws Exception {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    DataSource dataSource = configuration.getEnvironment().getDataSource();
+    Transaction transaction = new JdbcTransaction(dataSource, null, false) {
+      @Override
+      public Integer getTimeout() {
+        return 5;
+      }
+    };
+    try (SqlSession sqlSession = new DefaultSqlSession(configuration, configuration.newExecutor(transaction, ExecutorType.REUSE))) {
+      assertEquals("Parent1", sqlSession.selectOne(NAMESPACE + "getParentName", 1));
+      sqlSession.commit();
+      // 命中缓存时同样应用事务的超时时间
+      assertEquals("Parent2", sqlSession.selectOne(NAMESPACE + "getParentName", 2));
+      assertEquals(5, getParentNameStatement(sqlSession).getQueryTimeout());
+    }
+
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals("Parent3", sqlSession.selectOne(NAMESPACE + "getParentName", 3));
+      assertEquals(0, getParentNameStatement(sqlSession).getQueryTimeout());
+    }
+
+    configuration.setDefaultStatementTimeout(30);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals("Parent1", sqlSession.selectOne(NAMESPACE + "getParentName", 1));
+      assertEquals(30, getParentNameStatement(sqlSession).getQueryTimeout());
+    }
+  }
+
+  private Statement getParentNameStatement(SqlSession sqlSession) throws Exception {
+    String id = NAMESPACE + "getParentName";
+    String sql = sqlSessionFactory.getConfiguration().getMappedStatement(id).getBoundSql(1).getSql();
+    return sqlSession.getConnection().unwrap(StatementCache.class).get(id + ":" + sql);
+  }
+
+  private static Map<String, Object> parent(int id, String name) {
+    Map<String, Object> parent = new HashMap<>();
+    parent.put("id", id);
+    parent.put("name", name);
+    return parent;
+  }
+
+}